@@ -0,0 +1,101 @@
+/*
+recast4j copyright (c) 2015-2019 Piotr Piastucki piotr@jtilia.org
+
+This software is provided 'as-is', without any express or implied
+warranty.  In no event will the authors be held liable for any damages
+arising from the use of this software.
+Permission is granted to anyone to use this software for any purpose,
+including commercial applications, and to alter it and redistribute it
+freely, subject to the following restrictions:
+1. The origin of this software must not be misrepresented; you must not
+ claim that you wrote the original software. If you use this software
+ in a product, an acknowledgment in the product documentation would be
+ appreciated but is not required.
+2. Altered source versions must be plainly marked as such, and must not be
+ misrepresented as being the original software.
+3. This notice may not be removed or altered from any source distribution.
+*/
+package org.recast4j.benchmark;
+
+import java.util.Random;
+
+import org.recast4j.detour.FindRandomPointResult;
+import org.recast4j.detour.MeshData;
+import org.recast4j.detour.NavMesh;
+import org.recast4j.detour.NavMeshQuery;
+import org.recast4j.detour.NavMeshQuery.FRand;
+import org.recast4j.detour.QueryFilter;
+import org.recast4j.detour.RecastTestMeshBuilder;
+import org.recast4j.recast.ObjImporter;
+import org.recast4j.recast.RecastConfig;
+import org.recast4j.recast.RecastConstants.PartitionType;
+import org.recast4j.recast.SampleAreaModifications;
+import org.recast4j.recast.geom.InputGeomProvider;
+
+/**
+ * Benchmark inputs built from the test meshes, with the same settings as the unit tests.
+ */
+final class BenchmarkMeshes {
+
+    static final float CELL_SIZE = 0.3f;
+    static final float CELL_HEIGHT = 0.2f;
+    static final float AGENT_HEIGHT = 2.0f;
+    static final float AGENT_RADIUS = 0.6f;
+    static final float AGENT_MAX_CLIMB = 0.9f;
+    static final float AGENT_MAX_SLOPE = 45.0f;
+    static final int REGION_MIN_SIZE = 8;
+    static final int REGION_MERGE_SIZE = 20;
+    static final float EDGE_MAX_LEN = 12.0f;
+    static final float EDGE_MAX_ERROR = 1.3f;
+    static final int VERTS_PER_POLY = 6;
+    static final float DETAIL_SAMPLE_DIST = 6.0f;
+    static final float DETAIL_SAMPLE_MAX_ERROR = 1.0f;
+    static final int TILE_SIZE = 32;
+
+    private BenchmarkMeshes() {
+    }
+
+    /** Loads "dungeon" or "nav_test". */
+    static InputGeomProvider loadGeom(String name) {
+        return new ObjImporter().load(ObjImporter.class.getResourceAsStream(name + ".obj"));
+    }
+
+    static NavMesh buildSoloNavMesh(String name) {
+        return buildSoloNavMesh(name, false);
+    }
+
+    static NavMesh buildSoloNavMesh(String name, boolean reorderPolys) {
+        MeshData data = new RecastTestMeshBuilder(loadGeom(name), PartitionType.WATERSHED, CELL_SIZE, CELL_HEIGHT,
+                AGENT_HEIGHT, AGENT_RADIUS, AGENT_MAX_CLIMB, AGENT_MAX_SLOPE, REGION_MIN_SIZE, REGION_MERGE_SIZE,
+                EDGE_MAX_LEN, EDGE_MAX_ERROR, VERTS_PER_POLY, DETAIL_SAMPLE_DIST, DETAIL_SAMPLE_MAX_ERROR, reorderPolys)
+                        .getMeshData();
+        return new NavMesh(data, VERTS_PER_POLY, 0);
+    }
+
+    static RecastConfig tiledConfig() {
+        return new RecastConfig(PartitionType.WATERSHED, CELL_SIZE, CELL_HEIGHT, AGENT_HEIGHT, AGENT_RADIUS,
+                AGENT_MAX_CLIMB, AGENT_MAX_SLOPE, REGION_MIN_SIZE, REGION_MERGE_SIZE, EDGE_MAX_LEN, EDGE_MAX_ERROR,
+                VERTS_PER_POLY, DETAIL_SAMPLE_DIST, DETAIL_SAMPLE_MAX_ERROR, TILE_SIZE,
+                SampleAreaModifications.SAMPLE_AREAMOD_GROUND);
+    }
+
+    /** Random generator with a fixed seed so every fork runs the same queries. */
+    static FRand seededRandom(long seed) {
+        Random random = new Random(seed);
+        return new FRand() {
+            @Override
+            public float frand() {
+                return random.nextFloat();
+            }
+        };
+    }
+
+    static FindRandomPointResult[] randomPoints(NavMeshQuery query, QueryFilter filter, int count, long seed) {
+        FRand frand = seededRandom(seed);
+        FindRandomPointResult[] points = new FindRandomPointResult[count];
+        for (int i = 0; i < count; i++) {
+            points[i] = query.findRandomPoint(filter, frand).result;
+        }
+        return points;
+    }
+}
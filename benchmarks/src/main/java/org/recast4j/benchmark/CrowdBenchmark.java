@@ -0,0 +1,102 @@
+/*
+recast4j copyright (c) 2015-2019 Piotr Piastucki piotr@jtilia.org
+
+This software is provided 'as-is', without any express or implied
+warranty.  In no event will the authors be held liable for any damages
+arising from the use of this software.
+Permission is granted to anyone to use this software for any purpose,
+including commercial applications, and to alter it and redistribute it
+freely, subject to the following restrictions:
+1. The origin of this software must not be misrepresented; you must not
+ claim that you wrote the original software. If you use this software
+ in a product, an acknowledgment in the product documentation would be
+ appreciated but is not required.
+2. Altered source versions must be plainly marked as such, and must not be
+ misrepresented as being the original software.
+3. This notice may not be removed or altered from any source distribution.
+*/
+package org.recast4j.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.recast4j.detour.DefaultQueryFilter;
+import org.recast4j.detour.FindRandomPointResult;
+import org.recast4j.detour.NavMesh;
+import org.recast4j.detour.NavMeshQuery;
+import org.recast4j.detour.crowd.Crowd;
+import org.recast4j.detour.crowd.CrowdAgentParams;
+import org.recast4j.detour.crowd.ObstacleAvoidanceQuery.ObstacleAvoidanceParams;
+
+/**
+ * One Crowd.update() tick (at 30 Hz) with agents walking between random points of the dungeon mesh. The crowd is
+ * rebuilt for every iteration so the agents are still moving when it is measured.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CrowdBenchmark {
+
+    private static final float DT = 1.0f / 30.0f;
+
+    @Param({ "100", "1000", "5000" })
+    public int agents;
+
+    private NavMesh navmesh;
+    private FindRandomPointResult[] points;
+    private Crowd crowd;
+
+    @Setup(Level.Trial)
+    public void setUpMesh() {
+        navmesh = BenchmarkMeshes.buildSoloNavMesh("dungeon");
+        points = BenchmarkMeshes.randomPoints(new NavMeshQuery(navmesh), new DefaultQueryFilter(), agents * 2, 42);
+    }
+
+    @Setup(Level.Iteration)
+    public void setUpCrowd() {
+        crowd = new Crowd(agents, BenchmarkMeshes.AGENT_RADIUS, navmesh);
+        ObstacleAvoidanceParams params = new ObstacleAvoidanceParams();
+        params.velBias = 0.5f;
+        params.adaptiveDivs = 5;
+        params.adaptiveRings = 2;
+        params.adaptiveDepth = 1;
+        crowd.setObstacleAvoidanceParams(0, params);
+        CrowdAgentParams ap = new CrowdAgentParams();
+        ap.radius = BenchmarkMeshes.AGENT_RADIUS;
+        ap.height = BenchmarkMeshes.AGENT_HEIGHT;
+        ap.maxAcceleration = 8.0f;
+        ap.maxSpeed = 3.5f;
+        ap.collisionQueryRange = ap.radius * 12f;
+        ap.pathOptimizationRange = ap.radius * 30f;
+        ap.updateFlags = CrowdAgentParams.DT_CROWD_ANTICIPATE_TURNS | CrowdAgentParams.DT_CROWD_OPTIMIZE_VIS
+                | CrowdAgentParams.DT_CROWD_OPTIMIZE_TOPO | CrowdAgentParams.DT_CROWD_OBSTACLE_AVOIDANCE
+                | CrowdAgentParams.DT_CROWD_SEPARATION;
+        ap.obstacleAvoidanceType = 0;
+        ap.separationWeight = 2f;
+        for (int i = 0; i < agents; i++) {
+            int idx = crowd.addAgent(points[i * 2].getRandomPt(), ap);
+            FindRandomPointResult target = points[i * 2 + 1];
+            crowd.requestMoveTarget(idx, target.getRandomRef(), target.getRandomPt());
+        }
+    }
+
+    @Benchmark
+    public Crowd update() {
+        crowd.update(DT, null);
+        return crowd;
+    }
+}
@@ -0,0 +1,184 @@
+/*
+recast4j copyright (c) 2015-2019 Piotr Piastucki piotr@jtilia.org
+
+This software is provided 'as-is', without any express or implied
+warranty.  In no event will the authors be held liable for any damages
+arising from the use of this software.
+Permission is granted to anyone to use this software for any purpose,
+including commercial applications, and to alter it and redistribute it
+freely, subject to the following restrictions:
+1. The origin of this software must not be misrepresented; you must not
+ claim that you wrote the original software. If you use this software
+ in a product, an acknowledgment in the product documentation would be
+ appreciated but is not required.
+2. Altered source versions must be plainly marked as such, and must not be
+ misrepresented as being the original software.
+3. This notice may not be removed or altered from any source distribution.
+*/
+package org.recast4j.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.recast4j.detour.DefaultQueryFilter;
+import org.recast4j.detour.FindRandomPointResult;
+import org.recast4j.detour.GeometryKernels;
+import org.recast4j.detour.MeshHeader;
+import org.recast4j.detour.MeshTile;
+import org.recast4j.detour.NavMesh;
+import org.recast4j.detour.NavMeshQuery;
+import org.recast4j.detour.PackedBVTree;
+import org.recast4j.detour.Poly;
+import org.recast4j.detour.QueryFilter;
+import org.recast4j.detour.Result;
+import org.recast4j.detour.Tupple2;
+import org.recast4j.detour.crowd.ObstacleAvoidanceQuery;
+import org.recast4j.detour.crowd.ObstacleAvoidanceQuery.ObstacleAvoidanceParams;
+
+/**
+ * Plain Java against Vector API geometry kernels (see GeometryKernels) on the dungeon mesh. The vector variant needs
+ * JDK 17+, the forked JVM resolves the incubator module.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class GeometryKernelsBenchmark {
+
+    private static final int POINT_COUNT = 512;
+    private static final float[] EXTENTS = { 2, 4, 2 };
+    private static final float AGENT_RADIUS = 0.6f;
+    private static final float AGENT_SPEED = 3.5f;
+
+    @Param({ "false", "true" })
+    public boolean vector;
+
+    /// Circle obstacles per avoidance query, the crowd samples against at most 6.
+    @Param({ "6", "32" })
+    public int obstacles;
+
+    private NavMeshQuery query;
+    private final QueryFilter filter = new DefaultQueryFilter();
+    private FindRandomPointResult[] points;
+    /// Points scattered around the random points, roughly half of them outside of the polygon.
+    private float[][] testPoints;
+    private float[][] polyVerts;
+    private int[] polyVertCount;
+    private float[] edgeDist;
+    private PackedBVTree bvTree;
+    /// Quantized query boxes around the random points.
+    private int[][] bvMin;
+    private int[][] bvMax;
+    private int[] bvPolys;
+    private float[] edgeT;
+    private ObstacleAvoidanceQuery avoidance;
+    private final ObstacleAvoidanceParams avoidanceParams = new ObstacleAvoidanceParams();
+    private final float[] vel = new float[3];
+    private final float[] dvel = new float[3];
+    private int next;
+
+    @Setup
+    public void setUp() {
+        if (GeometryKernels.setVectorEnabled(vector) != vector) {
+            throw new IllegalStateException("Vector API kernels are not available in this JVM");
+        }
+        NavMesh navmesh = BenchmarkMeshes.buildSoloNavMesh("dungeon");
+        query = new NavMeshQuery(navmesh);
+        points = BenchmarkMeshes.randomPoints(query, filter, POINT_COUNT, 42);
+        testPoints = new float[POINT_COUNT][];
+        polyVerts = new float[POINT_COUNT][];
+        polyVertCount = new int[POINT_COUNT];
+        Random r = new Random(42);
+        for (int i = 0; i < POINT_COUNT; i++) {
+            Result<Tupple2<MeshTile, Poly>> tileAndPoly = navmesh.getTileAndPolyByRef(points[i].getRandomRef());
+            MeshTile tile = tileAndPoly.result.first;
+            Poly poly = tileAndPoly.result.second;
+            polyVertCount[i] = poly.vertCount;
+            polyVerts[i] = new float[poly.vertCount * 3];
+            for (int j = 0; j < poly.vertCount; j++) {
+                tile.data.getVert(poly.verts[j], polyVerts[i], j * 3);
+            }
+            float[] pt = points[i].getRandomPt().clone();
+            pt[0] += r.nextFloat() * 4 - 2;
+            pt[2] += r.nextFloat() * 4 - 2;
+            testPoints[i] = pt;
+        }
+        MeshTile tile = navmesh.getTile(0);
+        MeshHeader header = tile.data.header;
+        bvTree = new PackedBVTree(tile.data.bvTree, header.bvNodeCount);
+        bvPolys = new int[bvTree.leafCount];
+        bvMin = new int[POINT_COUNT][3];
+        bvMax = new int[POINT_COUNT][3];
+        for (int i = 0; i < POINT_COUNT; i++) {
+            float[] pt = points[i].getRandomPt();
+            for (int j = 0; j < 3; j++) {
+                float lo = Math.max(header.bmin[j], Math.min(header.bmax[j], pt[j] - EXTENTS[j])) - header.bmin[j];
+                float hi = Math.max(header.bmin[j], Math.min(header.bmax[j], pt[j] + EXTENTS[j])) - header.bmin[j];
+                bvMin[i][j] = (int) (header.bvQuantFactor * lo) & 0xfffe;
+                bvMax[i][j] = (int) (header.bvQuantFactor * hi + 1) | 1;
+            }
+        }
+        edgeDist = new float[navmesh.getMaxVertsPerPoly()];
+        edgeT = new float[navmesh.getMaxVertsPerPoly()];
+        avoidance = new ObstacleAvoidanceQuery(obstacles, 8);
+        vel[0] = AGENT_SPEED;
+        dvel[0] = AGENT_SPEED * 0.7f;
+        dvel[2] = AGENT_SPEED * 0.7f;
+    }
+
+    private int nextIndex() {
+        return next++ % POINT_COUNT;
+    }
+
+    @Benchmark
+    public boolean pointInPolygon() {
+        int i = nextIndex();
+        return GeometryKernels.get().pointInPolygon(testPoints[i], polyVerts[i], polyVertCount[i]);
+    }
+
+    @Benchmark
+    public boolean distancePtPolyEdgesSqr() {
+        int i = nextIndex();
+        return GeometryKernels.get().distancePtPolyEdgesSqr(testPoints[i], polyVerts[i], polyVertCount[i], edgeDist,
+                edgeT);
+    }
+
+    /// The BV tree kernel alone, on the quantized box of queryPolygons().
+    @Benchmark
+    public int queryBVTree() {
+        int i = nextIndex();
+        return GeometryKernels.get().queryBVTree(bvTree, bvMin[i], bvMax[i], bvPolys);
+    }
+
+    /// Exercises the BV tree kernel.
+    @Benchmark
+    public Object queryPolygons() {
+        return query.queryPolygons(points[nextIndex()].getRandomPt(), EXTENTS, filter);
+    }
+
+    @Benchmark
+    public Object sampleVelocityAdaptive() {
+        int i = nextIndex();
+        float[] pos = points[i].getRandomPt();
+        avoidance.reset();
+        for (int k = 0; k < obstacles; k++) {
+            float[] p = points[(i + k + 1) % POINT_COUNT].getRandomPt();
+            float[] cpos = { pos[0] + (p[0] - pos[0]) * 0.05f, pos[1], pos[2] + (p[2] - pos[2]) * 0.05f };
+            avoidance.addCircle(cpos, AGENT_RADIUS, dvel, vel);
+        }
+        return avoidance.sampleVelocityAdaptive(pos, AGENT_RADIUS, AGENT_SPEED, vel, dvel, avoidanceParams, null);
+    }
+}
@@ -0,0 +1,202 @@
+/*
+recast4j copyright (c) 2015-2019 Piotr Piastucki piotr@jtilia.org
+
+This software is provided 'as-is', without any express or implied
+warranty.  In no event will the authors be held liable for any damages
+arising from the use of this software.
+Permission is granted to anyone to use this software for any purpose,
+including commercial applications, and to alter it and redistribute it
+freely, subject to the following restrictions:
+1. The origin of this software must not be misrepresented; you must not
+ claim that you wrote the original software. If you use this software
+ in a product, an acknowledgment in the product documentation would be
+ appreciated but is not required.
+2. Altered source versions must be plainly marked as such, and must not be
+ misrepresented as being the original software.
+3. This notice may not be removed or altered from any source distribution.
+*/
+package org.recast4j.benchmark;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.recast4j.detour.DefaultQueryFilter;
+import org.recast4j.detour.FindNearestPolyResult;
+import org.recast4j.detour.FindRandomPointResult;
+import org.recast4j.detour.MeshTile;
+import org.recast4j.detour.MoveAlongSurfaceResult;
+import org.recast4j.detour.NavMesh;
+import org.recast4j.detour.NavMeshQuery;
+import org.recast4j.detour.Poly;
+import org.recast4j.detour.QueryFilter;
+import org.recast4j.detour.RaycastHit;
+import org.recast4j.detour.Result;
+import org.recast4j.detour.StraightPathItem;
+
+/**
+ * NavMeshQuery hot paths on the solo test meshes. Every invocation runs the next query from a fixed set of random
+ * start/end pairs, so the JIT cannot specialize on a single input.
+ *
+ * With reorderPolys the mesh is built with NavMeshDataCreateParams#reorderPolys. The random points are always picked
+ * on the mesh in Recast order and then located on the benchmarked mesh, so both variants run the same queries.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NavMeshQueryBenchmark {
+
+    private static final int POINT_COUNT = 512;
+    private static final int PAIR_COUNT = 32;
+    private static final float[] EXTENTS = { 2, 4, 2 };
+
+    @Param({ "dungeon", "nav_test" })
+    public String mesh;
+
+    @Param({ "false", "true" })
+    public boolean reorderPolys;
+
+    private NavMeshQuery query;
+    private final QueryFilter filter = new DefaultQueryFilter();
+    private FindRandomPointResult[] points;
+    private final List<Pair> shortPairs = new ArrayList<>();
+    private final List<Pair> longPairs = new ArrayList<>();
+    private int next;
+
+    private static class Pair {
+        final FindRandomPointResult start;
+        final FindRandomPointResult end;
+        final List<Long> path;
+        /// Filter rejecting the end polygon, which makes the search exhaust the reachable mesh.
+        final QueryFilter unreachable;
+
+        Pair(FindRandomPointResult start, FindRandomPointResult end, List<Long> path) {
+            this.start = start;
+            this.end = end;
+            this.path = path;
+            QueryFilter filter = new DefaultQueryFilter();
+            long endRef = end.getRandomRef();
+            unreachable = new QueryFilter() {
+                @Override
+                public boolean passFilter(long ref, MeshTile tile, Poly poly) {
+                    return ref != endRef && filter.passFilter(ref, tile, poly);
+                }
+
+                @Override
+                public float getCost(float[] pa, float[] pb, long prevRef, MeshTile prevTile, Poly prevPoly,
+                        long curRef, MeshTile curTile, Poly curPoly, long nextRef, MeshTile nextTile, Poly nextPoly) {
+                    return filter.getCost(pa, pb, prevRef, prevTile, prevPoly, curRef, curTile, curPoly, nextRef,
+                            nextTile, nextPoly);
+                }
+            };
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        NavMesh reference = BenchmarkMeshes.buildSoloNavMesh(mesh);
+        points = BenchmarkMeshes.randomPoints(new NavMeshQuery(reference), filter, POINT_COUNT, 42);
+        query = new NavMeshQuery(reorderPolys ? BenchmarkMeshes.buildSoloNavMesh(mesh, true) : reference);
+        for (int i = 0; i < POINT_COUNT; i++) {
+            FindNearestPolyResult nearest = query.findNearestPoly(points[i].getRandomPt(), EXTENTS, filter).result;
+            points[i] = new FindRandomPointResult(nearest.getNearestRef(), nearest.getNearestPos());
+        }
+        List<Pair> pairs = new ArrayList<>();
+        for (int i = 0; i + 1 < POINT_COUNT; i += 2) {
+            Result<List<Long>> path = query.findPath(points[i].getRandomRef(), points[i + 1].getRandomRef(),
+                    points[i].getRandomPt(), points[i + 1].getRandomPt(), filter);
+            if (path.succeeded() && path.result.get(path.result.size() - 1) == points[i + 1].getRandomRef()) {
+                pairs.add(new Pair(points[i], points[i + 1], path.result));
+            }
+        }
+        pairs.sort(Comparator.comparingInt(p -> p.path.size()));
+        for (Pair p : pairs) {
+            if (p.path.size() >= 2 && p.path.size() <= 4 && shortPairs.size() < PAIR_COUNT) {
+                shortPairs.add(p);
+            }
+        }
+        longPairs.addAll(pairs.subList(Math.max(0, pairs.size() - PAIR_COUNT), pairs.size()));
+        if (shortPairs.isEmpty()) {
+            shortPairs.addAll(pairs.subList(0, Math.min(PAIR_COUNT, pairs.size())));
+        }
+    }
+
+    private Pair nextPair(List<Pair> pairs) {
+        return pairs.get(next++ % pairs.size());
+    }
+
+    private FindRandomPointResult nextPoint() {
+        return points[next++ % points.length];
+    }
+
+    @Benchmark
+    public Result<List<Long>> findPathShort() {
+        Pair p = nextPair(shortPairs);
+        return query.findPath(p.start.getRandomRef(), p.end.getRandomRef(), p.start.getRandomPt(),
+                p.end.getRandomPt(), filter);
+    }
+
+    @Benchmark
+    public Result<List<Long>> findPathLong() {
+        Pair p = nextPair(longPairs);
+        return query.findPath(p.start.getRandomRef(), p.end.getRandomRef(), p.start.getRandomPt(),
+                p.end.getRandomPt(), filter);
+    }
+
+    @Benchmark
+    public Result<List<Long>> findPathAnyAngle() {
+        Pair p = nextPair(longPairs);
+        return query.findPathAnyAngle(p.start.getRandomRef(), p.end.getRandomRef(), p.start.getRandomPt(),
+                p.end.getRandomPt(), filter);
+    }
+
+    @Benchmark
+    public Result<List<Long>> findPathUnreachable() {
+        Pair p = nextPair(longPairs);
+        return query.findPath(p.start.getRandomRef(), p.end.getRandomRef(), p.start.getRandomPt(),
+                p.end.getRandomPt(), p.unreachable);
+    }
+
+    @Benchmark
+    public Result<List<StraightPathItem>> findStraightPath() {
+        Pair p = nextPair(longPairs);
+        return query.findStraightPath(p.start.getRandomPt(), p.end.getRandomPt(), p.path, Integer.MAX_VALUE, 0);
+    }
+
+    @Benchmark
+    public Result<RaycastHit> raycast() {
+        Pair p = nextPair(longPairs);
+        return query.raycast(p.start.getRandomRef(), p.start.getRandomPt(), p.end.getRandomPt(), filter, 0, 0);
+    }
+
+    @Benchmark
+    public Result<FindNearestPolyResult> findNearestPoly() {
+        return query.findNearestPoly(nextPoint().getRandomPt(), EXTENTS, filter);
+    }
+
+    @Benchmark
+    public Result<List<Long>> queryPolygons() {
+        return query.queryPolygons(nextPoint().getRandomPt(), EXTENTS, filter);
+    }
+
+    @Benchmark
+    public Result<MoveAlongSurfaceResult> moveAlongSurface() {
+        Pair p = nextPair(shortPairs);
+        return query.moveAlongSurface(p.start.getRandomRef(), p.start.getRandomPt(), p.end.getRandomPt(), filter);
+    }
+}
@@ -0,0 +1,94 @@
+/*
+recast4j copyright (c) 2015-2019 Piotr Piastucki piotr@jtilia.org
+
+This software is provided 'as-is', without any express or implied
+warranty.  In no event will the authors be held liable for any damages
+arising from the use of this software.
+Permission is granted to anyone to use this software for any purpose,
+including commercial applications, and to alter it and redistribute it
+freely, subject to the following restrictions:
+1. The origin of this software must not be misrepresented; you must not
+ claim that you wrote the original software. If you use this software
+ in a product, an acknowledgment in the product documentation would be
+ appreciated but is not required.
+2. Altered source versions must be plainly marked as such, and must not be
+ misrepresented as being the original software.
+3. This notice may not be removed or altered from any source distribution.
+*/
+package org.recast4j.benchmark;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.recast4j.detour.DefaultQueryFilter;
+import org.recast4j.detour.FindRandomPointResult;
+import org.recast4j.detour.NavMeshQuery;
+import org.recast4j.detour.tilecache.AbstractTileCacheTest;
+import org.recast4j.detour.tilecache.TestTileLayerBuilder;
+import org.recast4j.detour.tilecache.TileCache;
+import org.recast4j.recast.geom.InputGeomProvider;
+
+/**
+ * TileCache.update() rebuilding the tiles touched by temporary obstacles: every invocation adds the obstacles at random
+ * positions, updates until the navmesh is up to date, then removes them and updates again.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TileCacheBenchmark {
+
+    private static final int POINT_COUNT = 256;
+
+    @Param({ "1", "16" })
+    public int obstacles;
+
+    private TileCache tileCache;
+    private FindRandomPointResult[] points;
+    private long[] refs;
+    private int next;
+
+    @Setup
+    public void setUp() throws IOException {
+        InputGeomProvider geom = BenchmarkMeshes.loadGeom("dungeon");
+        List<byte[]> layers = new TestTileLayerBuilder(geom).build(ByteOrder.LITTLE_ENDIAN, true, 1);
+        tileCache = new AbstractTileCacheTest().getTileCache(geom, ByteOrder.LITTLE_ENDIAN, true);
+        for (byte[] data : layers) {
+            tileCache.buildNavMeshTile(tileCache.addTile(data, 0));
+        }
+        points = BenchmarkMeshes.randomPoints(new NavMeshQuery(tileCache.getNavMesh()), new DefaultQueryFilter(),
+                POINT_COUNT, 42);
+        refs = new long[obstacles];
+    }
+
+    @Benchmark
+    public boolean update() {
+        for (int i = 0; i < obstacles; i++) {
+            refs[i] = tileCache.addObstacle(points[next++ % points.length].getRandomPt(), 1f, 2f);
+        }
+        while (!tileCache.update()) {
+        }
+        for (int i = 0; i < obstacles; i++) {
+            tileCache.removeObstacle(refs[i]);
+        }
+        boolean upToDate;
+        while (!(upToDate = tileCache.update())) {
+        }
+        return upToDate;
+    }
+}
@@ -35,8 +35,8 @@ public class ObjExporter {
             MeshTile tile = mesh.getTile(i);
             if (tile != null) {
                 for (int v = 0; v < tile.data.header.vertCount; v++) {
-                    fw.write("v " + tile.data.verts[v * 3] + " " + tile.data.verts[v * 3 + 1] + " "
-                            + tile.data.verts[v * 3 + 2] + "\n");
+                    fw.write("v " + tile.data.getVert(v, 0) + " " + tile.data.getVert(v, 1) + " "
+                            + tile.data.getVert(v, 2) + "\n");
                 }
             }
         }
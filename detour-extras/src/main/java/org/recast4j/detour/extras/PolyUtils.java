@@ -42,10 +42,10 @@ public class PolyUtils {
             int j = (i + 1) % node.vertCount;
             for (int k = 0; k < neighbour.vertCount; k++) {
                 int l = (k + 1) % neighbour.vertCount;
-                if ((samePosition(tile.verts, node.verts[i], neighbourTile.verts, neighbour.verts[l])
-                        && samePosition(tile.verts, node.verts[j], neighbourTile.verts, neighbour.verts[k]))
-                        || (samePosition(tile.verts, node.verts[i], neighbourTile.verts, neighbour.verts[k])
-                                && samePosition(tile.verts, node.verts[j], neighbourTile.verts, neighbour.verts[l]))) {
+                if ((samePosition(tile, node.verts[i], neighbourTile, neighbour.verts[l])
+                        && samePosition(tile, node.verts[j], neighbourTile, neighbour.verts[k]))
+                        || (samePosition(tile, node.verts[i], neighbourTile, neighbour.verts[k])
+                                && samePosition(tile, node.verts[j], neighbourTile, neighbour.verts[l]))) {
                     return i;
                 }
             }
@@ -53,9 +53,9 @@ public class PolyUtils {
         return -1;
     }
 
-    private static boolean samePosition(float[] verts, int v, float[] verts2, int v2) {
+    private static boolean samePosition(MeshData tile, int v, MeshData tile2, int v2) {
         for (int i = 0; i < 3; i++) {
-            if (verts[3 * v + i] != verts2[3 * v2 + 1]) {
+            if (tile.getVert(v, i) != tile2.getVert(v2, 1)) {
                 return false;
             }
         }
@@ -70,8 +70,8 @@ public class PolyUtils {
         int edge = 0;
         for (int i = 0; i < node.vertCount; i++) {
             int j = (i + 1) % node.vertCount;
-            float v1 = tile.verts[3 * node.verts[i] + comp] - value;
-            float v2 = tile.verts[3 * node.verts[j] + comp] - value;
+            float v1 = tile.getVert(node.verts[i], comp) - value;
+            float v2 = tile.getVert(node.verts[j], comp) - value;
             float d = v1 * v1 + v2 * v2;
             if (d < error) {
                 error = d;
@@ -39,17 +39,18 @@ public class BVTreeBuilder {
     private static int createBVTree(MeshData data, BVNode[] nodes, float cs) {
         float quantFactor = 1 / cs;
         BVItem[] items = new BVItem[data.header.polyCount];
+        float[] verts = data.getVerts();
         for (int i = 0; i < data.header.polyCount; i++) {
             BVItem it = new BVItem();
             items[i] = it;
             it.i = i;
             float[] bmin = new float[3];
             float[] bmax = new float[3];
-            vCopy(bmin, data.verts, data.polys[i].verts[0] * 3);
-            vCopy(bmax, data.verts, data.polys[i].verts[0] * 3);
+            vCopy(bmin, verts, data.polys[i].verts[0] * 3);
+            vCopy(bmax, verts, data.polys[i].verts[0] * 3);
             for (int j = 1; j < data.polys[i].vertCount; j++) {
-                vMin(bmin, data.verts, data.polys[i].verts[j] * 3);
-                vMax(bmax, data.verts, data.polys[i].verts[j] * 3);
+                vMin(bmin, verts, data.polys[i].verts[j] * 3);
+                vMax(bmax, verts, data.polys[i].verts[j] * 3);
             }
             it.bmin[0] = clamp((int) ((bmin[0] - data.header.bmin[0]) * quantFactor), 0, 0xffff);
             it.bmin[1] = clamp((int) ((bmin[1] - data.header.bmin[1]) * quantFactor), 0, 0xffff);
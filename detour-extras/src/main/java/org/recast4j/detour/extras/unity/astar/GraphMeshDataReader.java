@@ -106,10 +106,10 @@ class GraphMeshDataReader extends BinaryReader {
                     detailTris[4 * i + 3] = (1 << 4) | (1 << 2) | 1;
                 }
 
-                tiles[tileIndex].verts = verts;
+                tiles[tileIndex].setVerts(verts);
                 tiles[tileIndex].polys = nodes;
                 tiles[tileIndex].detailMeshes = detailNodes;
-                tiles[tileIndex].detailVerts = detailVerts;
+                tiles[tileIndex].setDetailVerts(detailVerts);
                 tiles[tileIndex].detailTris = detailTris;
                 MeshHeader header = new MeshHeader();
                 header.magic = MeshHeader.DT_NAVMESH_MAGIC;
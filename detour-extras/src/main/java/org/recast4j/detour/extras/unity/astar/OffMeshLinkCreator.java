@@ -41,7 +41,8 @@ class OffMeshLinkCreator {
                     startTile.polys[poly].verts[0] = startTile.header.vertCount;
                     startTile.polys[poly].verts[1] = startTile.header.vertCount + 1;
                     startTile.polys[poly].setType(Poly.DT_POLYTYPE_OFFMESH_CONNECTION);
-                    startTile.verts = Arrays.copyOf(startTile.verts, startTile.verts.length + 6);
+                    float[] verts = startTile.getVerts();
+                    startTile.setVerts(Arrays.copyOf(verts, verts.length + 6));
                     startTile.header.polyCount++;
                     startTile.header.vertCount += 2;
                     OffMeshConnection connection = new OffMeshConnection();
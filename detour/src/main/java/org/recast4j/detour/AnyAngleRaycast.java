@@ -0,0 +1,188 @@
+/*
+recast4j copyright (c) 2015-2019 Piotr Piastucki piotr@jtilia.org
+
+This software is provided 'as-is', without any express or implied
+warranty.  In no event will the authors be held liable for any damages
+arising from the use of this software.
+Permission is granted to anyone to use this software for any purpose,
+including commercial applications, and to alter it and redistribute it
+freely, subject to the following restrictions:
+1. The origin of this software must not be misrepresented; you must not
+ claim that you wrote the original software. If you use this software
+ in a product, an acknowledgment in the product documentation would be
+ appreciated but is not required.
+2. Altered source versions must be plainly marked as such, and must not be
+ misrepresented as being the original software.
+3. This notice may not be removed or altered from any source distribution.
+*/
+package org.recast4j.detour;
+
+import java.util.Arrays;
+import java.util.List;
+
+/// Line of sight tests of the any-angle path search. (See: NavMeshQuery#DT_FINDPATH_ANY_ANGLE)
+///
+/// Casts the same cost-aware ray as NavMeshQuery#raycast() with DT_RAYCAST_USE_COSTS through a RaycastKernel, without
+/// allocating a hit and a path list per ray. The outcome of each (parent, neighbour) pair is cached for the
+/// duration of the query together with the polygon corridor of the ray, so that a pair is never cast twice and the
+/// corridor of a shortcut is not cast again when the path is finalized. The ray of a pair always runs between the same
+/// node positions, since node positions are fixed once the node is first visited. The cost of the first segment
+/// also depends on the grandparent polygon, which changes when the parent is re-parented, so the cost is cached per
+/// (parent, neighbour, grandparent) while the corridor is shared by all entries of the pair.
+class AnyAngleRaycast {
+
+    private static final float BLOCKED = -1f;
+
+    private final RaycastKernel m_raycast;
+
+    /// Open addressing table of the cast pairs, entries of older queries are recognized by their stamp.
+    private long[] m_parents = new long[256];
+    private long[] m_neighbours = new long[256];
+    private long[] m_prevs = new long[256];
+    private float[] m_costs = new float[256];
+    private int[] m_pathStarts = new int[256];
+    private int[] m_pathCounts = new int[256];
+    private int[] m_stamps = new int[256];
+    private int m_stamp = 1;
+    private int m_count;
+    /// Corridors of the rays which reached their end, indexed by the table.
+    private long[] m_paths = new long[1024];
+    private int m_pathSize;
+
+    private int m_raycasts;
+    private int m_cacheHits;
+
+    AnyAngleRaycast(NavMesh nav) {
+        m_raycast = new RaycastKernel(nav);
+    }
+
+    /// Forgets the pairs cast by the previous query.
+    void clear() {
+        m_stamp++;
+        if (m_stamp == 0) {
+            Arrays.fill(m_stamps, 0);
+            m_stamp = 1;
+        }
+        m_count = 0;
+        m_pathSize = 0;
+        m_raycasts = 0;
+        m_cacheHits = 0;
+    }
+
+    int getRaycasts() {
+        return m_raycasts;
+    }
+
+    int getCacheHits() {
+        return m_cacheHits;
+    }
+
+    /// Returns the cost of moving along the ray from the parent position to the neighbour position, or a negative
+    /// value if the ray is blocked. @p prevRef is the grandparent, only used for the cost of the first segment.
+    float cost(long parentRef, float[] startPos, float[] endPos, long neighbourRef, QueryFilter filter, long prevRef) {
+        int slot = find(parentRef, neighbourRef, prevRef);
+        if (m_stamps[slot] == m_stamp) {
+            m_cacheHits++;
+            return m_costs[slot];
+        }
+        int pathStart = m_pathSize;
+        float cost = cast(parentRef, startPos, endPos, filter, prevRef);
+        m_raycasts++;
+        if (cost < 0) {
+            m_pathSize = pathStart;
+        }
+        if (m_count * 2 >= m_stamps.length) {
+            grow();
+            slot = find(parentRef, neighbourRef, prevRef);
+        }
+        m_parents[slot] = parentRef;
+        m_neighbours[slot] = neighbourRef;
+        m_prevs[slot] = prevRef;
+        m_costs[slot] = cost;
+        m_pathStarts[slot] = pathStart;
+        m_pathCounts[slot] = m_pathSize - pathStart;
+        m_stamps[slot] = m_stamp;
+        m_count++;
+        return cost;
+    }
+
+    /// Appends the polygons crossed by the unblocked ray of the pair to the path, returns false if the pair was not
+    /// cast or was blocked.
+    boolean appendPath(long parentRef, long neighbourRef, List<Long> path) {
+        int mask = m_stamps.length - 1;
+        int slot = hash(parentRef, neighbourRef) & mask;
+        while (m_stamps[slot] == m_stamp && (m_parents[slot] != parentRef || m_neighbours[slot] != neighbourRef)) {
+            slot = (slot + 1) & mask;
+        }
+        if (m_stamps[slot] != m_stamp || m_costs[slot] < 0) {
+            return false;
+        }
+        for (int i = 0; i < m_pathCounts[slot]; i++) {
+            path.add(m_paths[m_pathStarts[slot] + i]);
+        }
+        return true;
+    }
+
+    /// The grandparent is left out of the hash, so that all entries of a pair share a probe sequence.
+    private static int hash(long parentRef, long neighbourRef) {
+        long h = parentRef * 0x9E3779B97F4A7C15L + neighbourRef;
+        return (int) (h ^ (h >>> 29));
+    }
+
+    private int find(long parentRef, long neighbourRef, long prevRef) {
+        int mask = m_stamps.length - 1;
+        int slot = hash(parentRef, neighbourRef) & mask;
+        while (m_stamps[slot] == m_stamp && (m_parents[slot] != parentRef || m_neighbours[slot] != neighbourRef
+                || m_prevs[slot] != prevRef)) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void grow() {
+        long[] parents = m_parents;
+        long[] neighbours = m_neighbours;
+        long[] prevs = m_prevs;
+        float[] costs = m_costs;
+        int[] pathStarts = m_pathStarts;
+        int[] pathCounts = m_pathCounts;
+        int[] stamps = m_stamps;
+        int size = stamps.length * 2;
+        m_parents = new long[size];
+        m_neighbours = new long[size];
+        m_prevs = new long[size];
+        m_costs = new float[size];
+        m_pathStarts = new int[size];
+        m_pathCounts = new int[size];
+        m_stamps = new int[size];
+        for (int i = 0; i < stamps.length; i++) {
+            if (stamps[i] == m_stamp) {
+                int slot = find(parents[i], neighbours[i], prevs[i]);
+                m_parents[slot] = parents[i];
+                m_neighbours[slot] = neighbours[i];
+                m_prevs[slot] = prevs[i];
+                m_costs[slot] = costs[i];
+                m_pathStarts[slot] = pathStarts[i];
+                m_pathCounts[slot] = pathCounts[i];
+                m_stamps[slot] = m_stamp;
+            }
+        }
+    }
+
+    private void addPath(long ref) {
+        if (m_pathSize == m_paths.length) {
+            m_paths = Arrays.copyOf(m_paths, m_pathSize * 2);
+        }
+        m_paths[m_pathSize++] = ref;
+    }
+
+    /// Casts the ray with costs, appends its corridor to the paths and returns the path cost if the hit parameter
+    /// reaches 1.
+    private float cast(long startRef, float[] startPos, float[] endPos, QueryFilter filter, long prevRef) {
+        m_raycast.cast(startRef, startPos, endPos, 0, filter, true, prevRef);
+        for (int i = 0; i < m_raycast.getPathCount(); i++) {
+            addPath(m_raycast.getPath(i));
+        }
+        return m_raycast.getT() >= 1.0f ? m_raycast.getPathCost() : BLOCKED;
+    }
+}
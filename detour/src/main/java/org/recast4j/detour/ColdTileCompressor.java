@@ -0,0 +1,213 @@
+/*
+recast4j copyright (c) 2015-2019 Piotr Piastucki piotr@jtilia.org
+
+This software is provided 'as-is', without any express or implied
+warranty.  In no event will the authors be held liable for any damages
+arising from the use of this software.
+Permission is granted to anyone to use this software for any purpose,
+including commercial applications, and to alter it and redistribute it
+freely, subject to the following restrictions:
+1. The origin of this software must not be misrepresented; you must not
+ claim that you wrote the original software. If you use this software
+ in a product, an acknowledgment in the product documentation would be
+ appreciated but is not required.
+2. Altered source versions must be plainly marked as such, and must not be
+ misrepresented as being the original software.
+3. This notice may not be removed or altered from any source distribution.
+*/
+package org.recast4j.detour;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4FastDecompressor;
+
+/// Compresses the geometry and detail data of cold tiles with LZ4 and restores it when the tile is touched again.
+///
+/// Only the arrays which are not referenced from outside of the tile data are compressed: vertices, detail meshes,
+/// detail vertices, detail triangles and the BV tree. The header, polygons, off-mesh connections and the tile links
+/// stay resident, so polygon references, Poly instances and link indices remain valid while the tile is cold.
+/// Quantized vertices (see MeshData#quantizeVerts()) are already compact and stay resident as well.
+class ColdTileCompressor {
+
+    /// Presence marker followed by bmin, bmax and i. The BV tree array can be longer than the node count.
+    private static final int BV_NODE_SIZE = 32;
+    private static final int DETAIL_MESH_SIZE = 16;
+
+    /// Compressed tile data and the lengths of the arrays needed to restore it.
+    static class Compressed {
+        final byte[] data;
+        final int rawLength;
+        final int vertCount;
+        final int detailMeshCount;
+        final int detailVertCount;
+        final int detailTriCount;
+        final int bvNodeCount;
+
+        Compressed(byte[] data, int rawLength, int vertCount, int detailMeshCount, int detailVertCount,
+                int detailTriCount, int bvNodeCount) {
+            this.data = data;
+            this.rawLength = rawLength;
+            this.vertCount = vertCount;
+            this.detailMeshCount = detailMeshCount;
+            this.detailVertCount = detailVertCount;
+            this.detailTriCount = detailTriCount;
+            this.bvNodeCount = bvNodeCount;
+        }
+    }
+
+    private final LZ4Compressor m_compressor = LZ4Factory.fastestInstance().fastCompressor();
+    private final LZ4FastDecompressor m_decompressor = LZ4Factory.fastestInstance().fastDecompressor();
+    private final int m_maxResidentTiles;
+    private long m_compressions;
+    private final LongAdder m_decompressions = new LongAdder();
+    private final LongAdder m_decompressNanos = new LongAdder();
+    private final AtomicLong m_maxDecompressNanos = new AtomicLong();
+
+    ColdTileCompressor(int maxResidentTiles) {
+        m_maxResidentTiles = maxResidentTiles;
+    }
+
+    int getMaxResidentTiles() {
+        return m_maxResidentTiles;
+    }
+
+    /// Replaces the compressible arrays of the tile data with their compressed form. Must not run concurrently with
+    /// queries reading the tile.
+    void compress(MeshTile tile) {
+        MeshData data = tile.data;
+        int nv = length(data.verts);
+        int ndm = data.detailMeshes != null ? data.detailMeshes.length : -1;
+        int ndv = length(data.detailVerts);
+        int ndt = data.detailTris != null ? data.detailTris.length : -1;
+        int nbv = data.bvTree != null ? data.bvTree.length : -1;
+        ByteBuffer buf = ByteBuffer.allocate(Math.max(nv, 0) * 4 + Math.max(ndm, 0) * DETAIL_MESH_SIZE
+                + Math.max(ndv, 0) * 4 + Math.max(ndt, 0) * 4 + Math.max(nbv, 0) * BV_NODE_SIZE);
+        for (int i = 0; i < nv; i++) {
+            buf.putFloat(data.verts[i]);
+        }
+        for (int i = 0; i < ndm; i++) {
+            PolyDetail pd = data.detailMeshes[i];
+            buf.putInt(pd.vertBase).putInt(pd.triBase).putInt(pd.vertCount).putInt(pd.triCount);
+        }
+        for (int i = 0; i < ndv; i++) {
+            buf.putFloat(data.detailVerts[i]);
+        }
+        for (int i = 0; i < ndt; i++) {
+            buf.putInt(data.detailTris[i]);
+        }
+        for (int i = 0; i < nbv; i++) {
+            BVNode node = data.bvTree[i];
+            buf.putInt(node != null ? 1 : 0);
+            if (node == null) {
+                buf.position(buf.position() + BV_NODE_SIZE - 4);
+                continue;
+            }
+            buf.putInt(node.bmin[0]).putInt(node.bmin[1]).putInt(node.bmin[2]);
+            buf.putInt(node.bmax[0]).putInt(node.bmax[1]).putInt(node.bmax[2]);
+            buf.putInt(node.i);
+        }
+        byte[] raw = buf.array();
+        tile.compressed = new Compressed(m_compressor.compress(raw), raw.length, nv, ndm, ndv, ndt, nbv);
+        data.verts = null;
+        data.detailMeshes = null;
+        data.detailVerts = null;
+        data.detailTris = null;
+        data.bvTree = null;
+        tile.packedBvTree = null;
+        tile.wallSegments = null;
+        m_compressions++;
+    }
+
+    /// Restores the data of a compressed tile. Safe to call from concurrent queries.
+    void inflate(MeshTile tile) {
+        synchronized (tile) {
+            Compressed c = tile.compressed;
+            if (c == null) {
+                return;
+            }
+            long start = System.nanoTime();
+            ByteBuffer buf = ByteBuffer.wrap(m_decompressor.decompress(c.data, c.rawLength));
+            MeshData data = tile.data;
+            if (c.vertCount >= 0) {
+                data.verts = new float[c.vertCount];
+                buf.asFloatBuffer().get(data.verts);
+                buf.position(buf.position() + c.vertCount * 4);
+            }
+            if (c.detailMeshCount >= 0) {
+                data.detailMeshes = new PolyDetail[c.detailMeshCount];
+                for (int i = 0; i < c.detailMeshCount; i++) {
+                    PolyDetail pd = new PolyDetail();
+                    pd.vertBase = buf.getInt();
+                    pd.triBase = buf.getInt();
+                    pd.vertCount = buf.getInt();
+                    pd.triCount = buf.getInt();
+                    data.detailMeshes[i] = pd;
+                }
+            }
+            if (c.detailVertCount >= 0) {
+                data.detailVerts = new float[c.detailVertCount];
+                buf.asFloatBuffer().get(data.detailVerts);
+                buf.position(buf.position() + c.detailVertCount * 4);
+            }
+            if (c.detailTriCount >= 0) {
+                data.detailTris = new int[c.detailTriCount];
+                buf.asIntBuffer().get(data.detailTris);
+                buf.position(buf.position() + c.detailTriCount * 4);
+            }
+            if (c.bvNodeCount >= 0) {
+                data.bvTree = new BVNode[c.bvNodeCount];
+                for (int i = 0; i < c.bvNodeCount; i++) {
+                    if (buf.getInt() == 0) {
+                        buf.position(buf.position() + BV_NODE_SIZE - 4);
+                        continue;
+                    }
+                    BVNode node = new BVNode();
+                    node.bmin[0] = buf.getInt();
+                    node.bmin[1] = buf.getInt();
+                    node.bmin[2] = buf.getInt();
+                    node.bmax[0] = buf.getInt();
+                    node.bmax[1] = buf.getInt();
+                    node.bmax[2] = buf.getInt();
+                    node.i = buf.getInt();
+                    data.bvTree[i] = node;
+                }
+            }
+            // Publishes the restored arrays to the threads reading the volatile field.
+            tile.compressed = null;
+            long nanos = System.nanoTime() - start;
+            m_decompressions.increment();
+            m_decompressNanos.add(nanos);
+            m_maxDecompressNanos.accumulateAndGet(nanos, Math::max);
+        }
+    }
+
+    TileCompressionStats getStats(MeshTile[] tiles) {
+        int resident = 0;
+        int compressed = 0;
+        long rawBytes = 0;
+        long compressedBytes = 0;
+        for (MeshTile tile : tiles) {
+            if (tile.data == null) {
+                continue;
+            }
+            Compressed c = tile.compressed;
+            if (c != null) {
+                compressed++;
+                rawBytes += c.rawLength;
+                compressedBytes += c.data.length;
+            } else {
+                resident++;
+            }
+        }
+        return new TileCompressionStats(resident, compressed, rawBytes, compressedBytes, m_compressions,
+                m_decompressions.sum(), m_decompressNanos.sum(), m_maxDecompressNanos.get());
+    }
+
+    private static int length(float[] a) {
+        return a != null ? a.length : -1;
+    }
+}
@@ -0,0 +1,338 @@
+/*
+recast4j copyright (c) 2015-2019 Piotr Piastucki piotr@jtilia.org
+
+This software is provided 'as-is', without any express or implied
+warranty.  In no event will the authors be held liable for any damages
+arising from the use of this software.
+Permission is granted to anyone to use this software for any purpose,
+including commercial applications, and to alter it and redistribute it
+freely, subject to the following restrictions:
+1. The origin of this software must not be misrepresented; you must not
+ claim that you wrote the original software. If you use this software
+ in a product, an acknowledgment in the product documentation would be
+ appreciated but is not required.
+2. Altered source versions must be plainly marked as such, and must not be
+ misrepresented as being the original software.
+3. This notice may not be removed or altered from any source distribution.
+*/
+package org.recast4j.detour;
+
+import static org.recast4j.detour.DetourCommon.overlapBounds;
+import static org.recast4j.detour.DetourCommon.overlapPolyPoly2D;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongConsumer;
+
+/**
+ * Weighted regions (e.g. fire, gas or crowds) which scale the traversal cost of the polygons they overlap, without
+ * rebuilding tiles or touching the tile data.
+ *
+ * Each region is mapped to the overlapped polygons when it is added, using the BV trees of the tiles, and multiplies a
+ * dense per-tile cost table which the filter returned by {@link #wrap(QueryFilter)} reads in constant time. Weights of
+ * overlapping regions multiply. Regions are also kept in a grid of navmesh tile cells, so that the regions of a
+ * location can be mapped again onto a tile added later with {@link #remapTile(long)}; polygons of removed tiles are
+ * ignored automatically.
+ *
+ * The overlay must not be modified while queries using it are running.
+ */
+public class CostOverlay {
+
+    private static final int CIRCLE = 0;
+    private static final int CONVEX = 1;
+
+    private static class Region {
+        final int type;
+        /// Circle center or convex polygon vertices. [(x, y, z) * nverts]
+        final float[] verts;
+        final int nverts;
+        final float radius;
+        final float weight;
+        final float[] bmin;
+        final float[] bmax;
+        /// Polygons the weight was applied to, by tile index.
+        final Map<Integer, long[]> polys = new HashMap<>();
+
+        Region(int type, float[] verts, int nverts, float radius, float weight, float[] bmin, float[] bmax) {
+            this.type = type;
+            this.verts = verts;
+            this.nverts = nverts;
+            this.radius = radius;
+            this.weight = weight;
+            this.bmin = bmin;
+            this.bmax = bmax;
+        }
+    }
+
+    private final NavMesh m_nav;
+    private final Map<Integer, Region> m_regions = new HashMap<>();
+    /// Regions overlapping each navmesh tile location.
+    private final Map<Long, List<Region>> m_grid = new HashMap<>();
+    /// Cost multipliers and region counts of the polygons, by tile and polygon index.
+    private final float[][] m_costs;
+    private final int[][] m_counts;
+    /// Salt of the tile the tables were built for.
+    private final int[] m_salts;
+    private final float[] m_polyVerts;
+    private final float[] m_edgeDist;
+    private final float[] m_edgeT;
+    private int m_nextId = 1;
+
+    public CostOverlay(NavMesh nav) {
+        m_nav = nav;
+        m_costs = new float[nav.getMaxTiles()][];
+        m_counts = new int[nav.getMaxTiles()][];
+        m_salts = new int[nav.getMaxTiles()];
+        m_polyVerts = new float[nav.getMaxVertsPerPoly() * 3];
+        m_edgeDist = new float[nav.getMaxVertsPerPoly()];
+        m_edgeT = new float[nav.getMaxVertsPerPoly()];
+    }
+
+    public NavMesh getNavMesh() {
+        return m_nav;
+    }
+
+    /**
+     * Returns a filter scaling the costs of the given filter by the multipliers of this overlay.
+     */
+    public QueryFilter wrap(QueryFilter filter) {
+        return new CostOverlayFilter(this, filter);
+    }
+
+    /**
+     * Adds a vertical cylinder.
+     *
+     * @param center
+     *            The center of the circle. [(x, y, z)]
+     * @param radius
+     *            The radius of the circle.
+     * @param hmin
+     *            The minimum height of the region.
+     * @param hmax
+     *            The maximum height of the region.
+     * @param weight
+     *            The cost multiplier of the overlapped polygons, must be positive and finite.
+     * @return The id of the region.
+     */
+    public int addCircle(float[] center, float radius, float hmin, float hmax, float weight) {
+        checkWeight(weight);
+        float[] bmin = { center[0] - radius, hmin, center[2] - radius };
+        float[] bmax = { center[0] + radius, hmax, center[2] + radius };
+        return add(new Region(CIRCLE, center.clone(), 1, radius, weight, bmin, bmax));
+    }
+
+    /**
+     * Adds an axis aligned box.
+     *
+     * @return The id of the region.
+     */
+    public int addBox(float[] bmin, float[] bmax, float weight) {
+        float[] verts = { bmin[0], 0, bmin[2], bmax[0], 0, bmin[2], bmax[0], 0, bmax[2], bmin[0], 0, bmax[2] };
+        return addConvex(verts, 4, bmin[1], bmax[1], weight);
+    }
+
+    /**
+     * Adds a convex volume.
+     *
+     * @param verts
+     *            The vertices of the convex polygon in the xz-plane. [(x, y, z) * nverts]
+     * @param nverts
+     *            The number of vertices.
+     * @param hmin
+     *            The minimum height of the volume.
+     * @param hmax
+     *            The maximum height of the volume.
+     * @param weight
+     *            The cost multiplier of the overlapped polygons, must be positive and finite.
+     * @return The id of the region.
+     */
+    public int addConvex(float[] verts, int nverts, float hmin, float hmax, float weight) {
+        checkWeight(weight);
+        float[] bmin = { Float.MAX_VALUE, hmin, Float.MAX_VALUE };
+        float[] bmax = { -Float.MAX_VALUE, hmax, -Float.MAX_VALUE };
+        for (int i = 0; i < nverts; ++i) {
+            bmin[0] = Math.min(bmin[0], verts[i * 3]);
+            bmin[2] = Math.min(bmin[2], verts[i * 3 + 2]);
+            bmax[0] = Math.max(bmax[0], verts[i * 3]);
+            bmax[2] = Math.max(bmax[2], verts[i * 3 + 2]);
+        }
+        return add(new Region(CONVEX, Arrays.copyOf(verts, nverts * 3), nverts, 0, weight, bmin, bmax));
+    }
+
+    /**
+     * Removes the region and restores the costs of the polygons it overlapped.
+     *
+     * @return False if there is no region with the id.
+     */
+    public boolean remove(int id) {
+        Region region = m_regions.remove(id);
+        if (region == null) {
+            return false;
+        }
+        for (Map.Entry<Integer, long[]> e : region.polys.entrySet()) {
+            unapply(region, e.getKey(), e.getValue());
+        }
+        forEachCell(region, cell -> {
+            List<Region> regions = m_grid.get(cell);
+            regions.remove(region);
+            if (regions.isEmpty()) {
+                m_grid.remove(cell);
+            }
+        });
+        return true;
+    }
+
+    /** Removes all regions. */
+    public void clear() {
+        m_regions.clear();
+        m_grid.clear();
+        Arrays.fill(m_costs, null);
+        Arrays.fill(m_counts, null);
+    }
+
+    /** Number of regions. */
+    public int size() {
+        return m_regions.size();
+    }
+
+    /**
+     * Maps the regions overlapping the location of a tile added after them onto its polygons. Polygons of tiles
+     * removed from the navmesh are ignored without calling this.
+     */
+    public void remapTile(long tileRef) {
+        MeshTile tile = m_nav.getTileByRef(tileRef);
+        if (tile == null || tile.data == null) {
+            return;
+        }
+        List<Region> regions = m_grid.get(cellKey(tile.data.header.x, tile.data.header.y));
+        resetTile(tile);
+        if (regions != null) {
+            for (Region region : regions) {
+                apply(region, tile);
+            }
+        }
+    }
+
+    /**
+     * Returns the cost multiplier of the polygon, 1 if it is not overlapped by any region.
+     */
+    public float getCostMultiplier(long ref) {
+        int it = NavMesh.decodePolyIdTile(ref);
+        float[] costs = m_costs[it];
+        if (costs == null || m_salts[it] != NavMesh.decodePolyIdSalt(ref)) {
+            return 1f;
+        }
+        return costs[NavMesh.decodePolyIdPoly(ref)];
+    }
+
+    private int add(Region region) {
+        int id = m_nextId++;
+        m_regions.put(id, region);
+        forEachCell(region, cell -> m_grid.computeIfAbsent(cell, k -> new ArrayList<>()).add(region));
+        int[] minxy = m_nav.calcTileLoc(region.bmin);
+        int[] maxxy = m_nav.calcTileLoc(region.bmax);
+        for (int y = minxy[1]; y <= maxxy[1]; ++y) {
+            for (int x = minxy[0]; x <= maxxy[0]; ++x) {
+                for (MeshTile tile : m_nav.getTilesAt(x, y)) {
+                    if (m_costs[tile.index] == null || m_salts[tile.index] != tile.salt) {
+                        resetTile(tile);
+                    }
+                    apply(region, tile);
+                }
+            }
+        }
+        return id;
+    }
+
+    private void apply(Region region, MeshTile tile) {
+        if (!overlapBounds(region.bmin, region.bmax, tile.data.header.bmin, tile.data.header.bmax)) {
+            // The query box would be clamped onto the tile bounds.
+            return;
+        }
+        List<Long> refs = m_nav.queryPolygonsInTile(tile, region.bmin, region.bmax);
+        long[] applied = new long[refs.size()];
+        int n = 0;
+        float[] costs = m_costs[tile.index];
+        int[] counts = m_counts[tile.index];
+        for (long ref : refs) {
+            int ip = NavMesh.decodePolyIdPoly(ref);
+            if (overlaps(region, tile, tile.data.polys[ip])) {
+                costs[ip] *= region.weight;
+                counts[ip]++;
+                applied[n++] = ref;
+            }
+        }
+        region.polys.put(tile.index, Arrays.copyOf(applied, n));
+    }
+
+    private void unapply(Region region, int tileIndex, long[] refs) {
+        float[] costs = m_costs[tileIndex];
+        int[] counts = m_counts[tileIndex];
+        for (long ref : refs) {
+            if (costs == null || m_salts[tileIndex] != NavMesh.decodePolyIdSalt(ref)) {
+                // The tile has been replaced.
+                return;
+            }
+            int ip = NavMesh.decodePolyIdPoly(ref);
+            // Reset exactly once no region is left, so that rounding errors do not accumulate.
+            costs[ip] = --counts[ip] == 0 ? 1f : costs[ip] / region.weight;
+        }
+    }
+
+    private void resetTile(MeshTile tile) {
+        int polyCount = tile.data.header.polyCount;
+        m_costs[tile.index] = new float[polyCount];
+        m_counts[tile.index] = new int[polyCount];
+        Arrays.fill(m_costs[tile.index], 1f);
+        m_salts[tile.index] = tile.salt;
+        for (Region region : m_regions.values()) {
+            region.polys.remove(tile.index);
+        }
+    }
+
+    private boolean overlaps(Region region, MeshTile tile, Poly poly) {
+        if (poly.getType() == Poly.DT_POLYTYPE_OFFMESH_CONNECTION) {
+            return false;
+        }
+        int nv = poly.vertCount;
+        for (int i = 0; i < nv; ++i) {
+            tile.data.getVert(poly.verts[i], m_polyVerts, i * 3);
+        }
+        if (region.type == CONVEX) {
+            return overlapPolyPoly2D(region.verts, region.nverts, m_polyVerts, nv);
+        }
+        if (GeometryKernels.get().distancePtPolyEdgesSqr(region.verts, m_polyVerts, nv, m_edgeDist, m_edgeT)) {
+            return true;
+        }
+        float r2 = region.radius * region.radius;
+        for (int i = 0; i < nv; ++i) {
+            if (m_edgeDist[i] <= r2) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void forEachCell(Region region, LongConsumer action) {
+        int[] minxy = m_nav.calcTileLoc(region.bmin);
+        int[] maxxy = m_nav.calcTileLoc(region.bmax);
+        for (int y = minxy[1]; y <= maxxy[1]; ++y) {
+            for (int x = minxy[0]; x <= maxxy[0]; ++x) {
+                action.accept(cellKey(x, y));
+            }
+        }
+    }
+
+    private static long cellKey(int x, int y) {
+        return ((long) x << 32) | (y & 0xffffffffL);
+    }
+
+    private static void checkWeight(float weight) {
+        if (!(weight > 0) || Float.isInfinite(weight)) {
+            throw new IllegalArgumentException("Region weight must be positive and finite: " + weight);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+/*
+recast4j copyright (c) 2015-2019 Piotr Piastucki piotr@jtilia.org
+
+This software is provided 'as-is', without any express or implied
+warranty.  In no event will the authors be held liable for any damages
+arising from the use of this software.
+Permission is granted to anyone to use this software for any purpose,
+including commercial applications, and to alter it and redistribute it
+freely, subject to the following restrictions:
+1. The origin of this software must not be misrepresented; you must not
+ claim that you wrote the original software. If you use this software
+ in a product, an acknowledgment in the product documentation would be
+ appreciated but is not required.
+2. Altered source versions must be plainly marked as such, and must not be
+ misrepresented as being the original software.
+3. This notice may not be removed or altered from any source distribution.
+*/
+package org.recast4j.detour;
+
+/**
+ * Query filter scaling the costs of another filter by the polygon cost multipliers of a {@link CostOverlay}.
+ */
+public class CostOverlayFilter implements QueryFilter {
+
+    private final CostOverlay m_overlay;
+    private final QueryFilter m_filter;
+
+    public CostOverlayFilter(CostOverlay overlay, QueryFilter filter) {
+        m_overlay = overlay;
+        m_filter = filter;
+    }
+
+    public QueryFilter getFilter() {
+        return m_filter;
+    }
+
+    @Override
+    public boolean passFilter(long ref, MeshTile tile, Poly poly) {
+        return m_filter.passFilter(ref, tile, poly);
+    }
+
+    @Override
+    public float getCost(float[] pa, float[] pb, long prevRef, MeshTile prevTile, Poly prevPoly, long curRef,
+            MeshTile curTile, Poly curPoly, long nextRef, MeshTile nextTile, Poly nextPoly) {
+        return m_filter.getCost(pa, pb, prevRef, prevTile, prevPoly, curRef, curTile, curPoly, nextRef, nextTile,
+                nextPoly) * m_overlay.getCostMultiplier(curRef);
+    }
+}
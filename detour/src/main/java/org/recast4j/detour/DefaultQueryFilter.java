@@ -97,4 +97,8 @@ public class DefaultQueryFilter implements QueryFilter {
         m_excludeFlags = flags;
     }
 
+    public float getAreaCost(int area) {
+        return m_areaCost[area];
+    }
+
 }
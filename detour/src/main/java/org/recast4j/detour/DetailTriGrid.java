@@ -0,0 +1,205 @@
+/*
+recast4j copyright (c) 2015-2019 Piotr Piastucki piotr@jtilia.org
+
+This software is provided 'as-is', without any express or implied
+warranty.  In no event will the authors be held liable for any damages
+arising from the use of this software.
+Permission is granted to anyone to use this software for any purpose,
+including commercial applications, and to alter it and redistribute it
+freely, subject to the following restrictions:
+1. The origin of this software must not be misrepresented; you must not
+ claim that you wrote the original software. If you use this software
+ in a product, an acknowledgment in the product documentation would be
+ appreciated but is not required.
+2. Altered source versions must be plainly marked as such, and must not be
+ misrepresented as being the original software.
+3. This notice may not be removed or altered from any source distribution.
+*/
+package org.recast4j.detour;
+
+/**
+ * Uniform xz grids over the detail triangles of the polygons of a tile, used to find the triangle under a point
+ * without testing every triangle of large detail meshes.
+ *
+ * Only polygons with at least the configured number of detail triangles get a grid. Each cell lists, in ascending
+ * order, the triangles whose xz bounds overlap it, so any triangle containing a point is listed in the cell of that
+ * point and a lookup returns the same triangle as a linear scan.
+ */
+class DetailTriGrid {
+
+    /// Upper limit of cells per axis.
+    private static final int MAX_CELLS = 16;
+
+    /// Grid bounds and cell counts per polygon, [minx, minz, invCellSize] and [nx, nz], unused for polygons without
+    /// grid.
+    private final float[] m_bounds;
+    private final int[] m_dims;
+    /// First cell of the polygon in m_cellStart, or -1 if the polygon has no grid.
+    private final int[] m_cellBase;
+    /// Start of each cell in m_cellTris, followed by the end of the last cell.
+    private final int[] m_cellStart;
+    /// Triangle indices relative to the polygon triBase.
+    private final short[] m_cellTris;
+
+    private DetailTriGrid(float[] bounds, int[] dims, int[] cellBase, int[] cellStart, short[] cellTris) {
+        m_bounds = bounds;
+        m_dims = dims;
+        m_cellBase = cellBase;
+        m_cellStart = cellStart;
+        m_cellTris = cellTris;
+    }
+
+    /**
+     * Builds the grids of the tile, or returns null if no polygon has at least minTris detail triangles.
+     */
+    static DetailTriGrid build(MeshData data, int minTris) {
+        int polyCount = data.header.polyCount;
+        if (!data.hasDetailMeshes() || minTris <= 0) {
+            return null;
+        }
+        float[] bounds = new float[polyCount * 3];
+        int[] dims = new int[polyCount * 2];
+        int[] cellBase = new int[polyCount];
+        int cellCount = 0;
+        int refCount = 0;
+        float[][] triBounds = new float[polyCount][];
+        float[] v = new float[9];
+        for (int ip = 0; ip < polyCount; ++ip) {
+            cellBase[ip] = -1;
+            Poly poly = data.polys[ip];
+            if (poly.getType() == Poly.DT_POLYTYPE_OFFMESH_CONNECTION) {
+                continue;
+            }
+            int triCount = data.getDetailTriCount(ip);
+            if (triCount < minTris) {
+                continue;
+            }
+            // xz bounds of every triangle: [minx, minz, maxx, maxz].
+            float[] tb = new float[triCount * 4];
+            float minx = Float.MAX_VALUE, minz = Float.MAX_VALUE, maxx = -Float.MAX_VALUE, maxz = -Float.MAX_VALUE;
+            for (int j = 0; j < triCount; ++j) {
+                getTriVerts(data, poly, j, v);
+                tb[j * 4] = Math.min(v[0], Math.min(v[3], v[6]));
+                tb[j * 4 + 1] = Math.min(v[2], Math.min(v[5], v[8]));
+                tb[j * 4 + 2] = Math.max(v[0], Math.max(v[3], v[6]));
+                tb[j * 4 + 3] = Math.max(v[2], Math.max(v[5], v[8]));
+                minx = Math.min(minx, tb[j * 4]);
+                minz = Math.min(minz, tb[j * 4 + 1]);
+                maxx = Math.max(maxx, tb[j * 4 + 2]);
+                maxz = Math.max(maxz, tb[j * 4 + 3]);
+            }
+            // Square cells, about one triangle per cell.
+            float w = Math.max(maxx - minx, 1e-3f);
+            float d = Math.max(maxz - minz, 1e-3f);
+            float cellSize = Math.max((float) Math.sqrt(w * d / triCount), Math.max(w, d) / MAX_CELLS);
+            int nx = Math.min(MAX_CELLS, Math.max(1, (int) Math.ceil(w / cellSize)));
+            int nz = Math.min(MAX_CELLS, Math.max(1, (int) Math.ceil(d / cellSize)));
+            bounds[ip * 3] = minx;
+            bounds[ip * 3 + 1] = minz;
+            bounds[ip * 3 + 2] = 1.0f / cellSize;
+            dims[ip * 2] = nx;
+            dims[ip * 2 + 1] = nz;
+            cellBase[ip] = cellCount;
+            triBounds[ip] = tb;
+            cellCount += nx * nz;
+            for (int j = 0; j < triCount; ++j) {
+                int x0 = cell(tb[j * 4], minx, bounds[ip * 3 + 2], nx);
+                int z0 = cell(tb[j * 4 + 1], minz, bounds[ip * 3 + 2], nz);
+                int x1 = cell(tb[j * 4 + 2], minx, bounds[ip * 3 + 2], nx);
+                int z1 = cell(tb[j * 4 + 3], minz, bounds[ip * 3 + 2], nz);
+                refCount += (x1 - x0 + 1) * (z1 - z0 + 1);
+            }
+        }
+        if (cellCount == 0) {
+            return null;
+        }
+        // Counting sort of the triangle references into the cells.
+        int[] cellStart = new int[cellCount + 1];
+        short[] cellTris = new short[refCount];
+        for (int pass = 0; pass < 2; ++pass) {
+            int[] fill = pass == 0 ? null : cellStart.clone();
+            for (int ip = 0; ip < polyCount; ++ip) {
+                if (cellBase[ip] < 0) {
+                    continue;
+                }
+                float[] tb = triBounds[ip];
+                float inv = bounds[ip * 3 + 2];
+                int nx = dims[ip * 2];
+                int nz = dims[ip * 2 + 1];
+                for (int j = 0; j < tb.length / 4; ++j) {
+                    int x0 = cell(tb[j * 4], bounds[ip * 3], inv, nx);
+                    int z0 = cell(tb[j * 4 + 1], bounds[ip * 3 + 1], inv, nz);
+                    int x1 = cell(tb[j * 4 + 2], bounds[ip * 3], inv, nx);
+                    int z1 = cell(tb[j * 4 + 3], bounds[ip * 3 + 1], inv, nz);
+                    for (int z = z0; z <= z1; ++z) {
+                        for (int x = x0; x <= x1; ++x) {
+                            int c = cellBase[ip] + z * nx + x;
+                            if (pass == 0) {
+                                cellStart[c + 1]++;
+                            } else {
+                                cellTris[fill[c]++] = (short) j;
+                            }
+                        }
+                    }
+                }
+            }
+            if (pass == 0) {
+                for (int c = 0; c < cellCount; ++c) {
+                    cellStart[c + 1] += cellStart[c];
+                }
+            }
+        }
+        return new DetailTriGrid(bounds, dims, cellBase, cellStart, cellTris);
+    }
+
+    private static int cell(float p, float min, float inv, int n) {
+        int c = (int) Math.floor((p - min) * inv);
+        return c < 0 ? 0 : c >= n ? n - 1 : c;
+    }
+
+    /** Returns true if the polygon has a grid. */
+    boolean hasGrid(int ip) {
+        return m_cellBase[ip] >= 0;
+    }
+
+    /** First index in {@link #getTri(int)} of the cell containing the xz position. */
+    int getCellStart(int ip, float[] pos) {
+        return m_cellStart[getCell(ip, pos)];
+    }
+
+    /** End index in {@link #getTri(int)} of the cell containing the xz position. */
+    int getCellEnd(int ip, float[] pos) {
+        return m_cellStart[getCell(ip, pos) + 1];
+    }
+
+    /** Triangle index relative to the polygon triBase. */
+    int getTri(int i) {
+        return m_cellTris[i];
+    }
+
+    private int getCell(int ip, float[] pos) {
+        float inv = m_bounds[ip * 3 + 2];
+        int x = cell(pos[0], m_bounds[ip * 3], inv, m_dims[ip * 2]);
+        int z = cell(pos[2], m_bounds[ip * 3 + 1], inv, m_dims[ip * 2 + 1]);
+        return m_cellBase[ip] + z * m_dims[ip * 2] + x;
+    }
+
+    /** Approximate heap size of the grid in bytes. */
+    int getMemorySize() {
+        return 16 * 5 + m_bounds.length * 4 + m_dims.length * 4 + m_cellBase.length * 4 + m_cellStart.length * 4
+                + m_cellTris.length * 2;
+    }
+
+    /// Copies the vertices of the detail triangle j of the polygon into v [(x, y, z) * 3].
+    static void getTriVerts(MeshData data, Poly poly, int j, float[] v) {
+        int t = data.getDetailTriBase(poly.index) + j;
+        for (int k = 0; k < 3; ++k) {
+            int vi = data.getDetailTri(t, k);
+            if (vi < poly.vertCount) {
+                data.getVert(poly.verts[vi], v, k * 3);
+            } else {
+                data.getDetailVert(data.getDetailVertBase(poly.index) + (vi - poly.vertCount), v, k * 3);
+            }
+        }
+    }
+}
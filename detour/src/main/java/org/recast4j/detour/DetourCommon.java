@@ -37,6 +37,28 @@ public class DetourCommon {
         return dest;
     }
 
+    /// Performs a scaled vector addition into @p dest. (@p v1 + (@p v2 * @p s))
+    /// @p dest may be the same array as @p v1 or @p v2.
+    /// @param[out] dest The result vector. [(x, y, z)]
+    /// @param[in] v1 The base vector. [(x, y, z)]
+    /// @param[in] v2 The vector to scale and add to @p v1. [(x, y, z)]
+    /// @param[in] s The amount to scale @p v2 by before adding to @p v1.
+    public static void vMad(float[] dest, float[] v1, float[] v2, float s) {
+        dest[0] = v1[0] + v2[0] * s;
+        dest[1] = v1[1] + v2[1] * s;
+        dest[2] = v1[2] + v2[2] * s;
+    }
+
+    /// Performs a scaled vector addition on packed vectors. (@p v1 + (@p v2 * @p s))
+    /// @param[out] dest The array receiving the result at @p d.
+    /// @param[in] v1 The array holding the base vector at @p i.
+    /// @param[in] v2 The array holding the vector to scale at @p j.
+    public static void vMad(float[] dest, int d, float[] v1, int i, float[] v2, int j, float s) {
+        dest[d] = v1[i] + v2[j] * s;
+        dest[d + 1] = v1[i + 1] + v2[j + 1] * s;
+        dest[d + 2] = v1[i + 2] + v2[j + 2] * s;
+    }
+
 
 
     /**
@@ -69,6 +91,22 @@ public class DetourCommon {
         return dest;
     }
 
+    /// Performs a linear interpolation between two vectors into @p dest. (@p v1 toward @p v2)
+    /// @p dest may be the same array as @p v1 or @p v2.
+    public static void vLerp(float[] dest, float[] v1, float[] v2, float t) {
+        dest[0] = v1[0] + (v2[0] - v1[0]) * t;
+        dest[1] = v1[1] + (v2[1] - v1[1]) * t;
+        dest[2] = v1[2] + (v2[2] - v1[2]) * t;
+    }
+
+    /// Performs a linear interpolation between two packed vectors. (@p v1 at @p i toward @p v2 at @p j)
+    /// @param[out] dest The array receiving the result at @p d.
+    public static void vLerp(float[] dest, int d, float[] v1, int i, float[] v2, int j, float t) {
+        dest[d] = v1[i] + (v2[j] - v1[i]) * t;
+        dest[d + 1] = v1[i + 1] + (v2[j + 1] - v1[i + 1]) * t;
+        dest[d + 2] = v1[i + 2] + (v2[j + 2] - v1[i + 2]) * t;
+    }
+
     public static float[] vSub(VectorPtr v1, VectorPtr v2) {
         float[] dest = new float[3];
         dest[0] = v1.get(0) - v2.get(0);
@@ -85,6 +123,22 @@ public class DetourCommon {
         return dest;
     }
 
+    /// Performs a vector subtraction into @p dest. (@p v1 - @p v2)
+    /// @p dest may be the same array as @p v1 or @p v2.
+    public static void vSub(float[] dest, float[] v1, float[] v2) {
+        dest[0] = v1[0] - v2[0];
+        dest[1] = v1[1] - v2[1];
+        dest[2] = v1[2] - v2[2];
+    }
+
+    /// Performs a subtraction of packed vectors. (@p v1 at @p i - @p v2 at @p j)
+    /// @param[out] dest The array receiving the result at @p d.
+    public static void vSub(float[] dest, int d, float[] v1, int i, float[] v2, int j) {
+        dest[d] = v1[i] - v2[j];
+        dest[d + 1] = v1[i + 1] - v2[j + 1];
+        dest[d + 2] = v1[i + 2] - v2[j + 2];
+    }
+
     public static float[] vAdd(float[] v1, float[] v2) {
         float[] dest = new float[3];
         dest[0] = v1[0] + v2[0];
@@ -93,6 +147,22 @@ public class DetourCommon {
         return dest;
     }
 
+    /// Performs a vector addition into @p dest. (@p v1 + @p v2)
+    /// @p dest may be the same array as @p v1 or @p v2.
+    public static void vAdd(float[] dest, float[] v1, float[] v2) {
+        dest[0] = v1[0] + v2[0];
+        dest[1] = v1[1] + v2[1];
+        dest[2] = v1[2] + v2[2];
+    }
+
+    /// Performs an addition of packed vectors. (@p v1 at @p i + @p v2 at @p j)
+    /// @param[out] dest The array receiving the result at @p d.
+    public static void vAdd(float[] dest, int d, float[] v1, int i, float[] v2, int j) {
+        dest[d] = v1[i] + v2[j];
+        dest[d + 1] = v1[i + 1] + v2[j + 1];
+        dest[d + 2] = v1[i + 2] + v2[j + 2];
+    }
+
     public static float[] vCopy(float[] in) {
         float[] out = new float[3];
         out[0] = in[0];
@@ -119,6 +189,13 @@ public class DetourCommon {
         out[2] = in[i + 2];
     }
 
+    /// Copies the packed vector at @p i of @p in to @p d of @p out.
+    public static void vCopy(float[] out, int d, float[] in, int i) {
+        out[d] = in[i];
+        out[d + 1] = in[i + 1];
+        out[d + 2] = in[i + 2];
+    }
+
     public static void vMin(float[] out, float[] in, int i) {
         out[0] = Math.min(out[0], in[i]);
         out[1] = Math.min(out[1], in[i + 1]);
@@ -617,6 +694,21 @@ public class DetourCommon {
         return out;
     }
 
+    /// Scales the vector into @p dest. (@p in * @p scale)
+    /// @p dest may be the same array as @p in.
+    public static void vScale(float[] dest, float[] in, float scale) {
+        dest[0] = in[0] * scale;
+        dest[1] = in[1] * scale;
+        dest[2] = in[2] * scale;
+    }
+
+    /// Scales the packed vector at @p i of @p in into @p d of @p dest.
+    public static void vScale(float[] dest, int d, float[] in, int i, float scale) {
+        dest[d] = in[i] * scale;
+        dest[d + 1] = in[i + 1] * scale;
+        dest[d + 2] = in[i + 2] * scale;
+    }
+
     /// Checks that the specified vector's components are all finite.
     /// @param[in] v A point. [(x, y, z)]
     /// @return True if all of the point's components are finite, i.e. not NaN
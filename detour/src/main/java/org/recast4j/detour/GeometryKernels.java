@@ -0,0 +1,108 @@
+/*
+recast4j copyright (c) 2015-2019 Piotr Piastucki piotr@jtilia.org
+
+This software is provided 'as-is', without any express or implied
+warranty.  In no event will the authors be held liable for any damages
+arising from the use of this software.
+Permission is granted to anyone to use this software for any purpose,
+including commercial applications, and to alter it and redistribute it
+freely, subject to the following restrictions:
+1. The origin of this software must not be misrepresented; you must not
+ claim that you wrote the original software. If you use this software
+ in a product, an acknowledgment in the product documentation would be
+ appreciated but is not required.
+2. Altered source versions must be plainly marked as such, and must not be
+ misrepresented as being the original software.
+3. This notice may not be removed or altered from any source distribution.
+*/
+package org.recast4j.detour;
+
+/**
+ * Small geometry kernels run many times per query, batched over polygon edges, BV nodes and obstacles.
+ *
+ * The default implementation is plain Java 8. On JDK 17+ the multi-release jar also contains an implementation on top
+ * of the incubating Vector API, which is used when the JVM is started with {@code --add-modules jdk.incubator.vector}.
+ * Both produce bit identical results. The vector kernels can be turned off with {@code -Drecast4j.vector=false} or at
+ * runtime through {@link #setVectorEnabled(boolean)}, e.g. to compare the two paths in a benchmark.
+ */
+public abstract class GeometryKernels {
+
+    /** System property disabling the vector kernels when set to false. */
+    public static final String VECTOR_PROPERTY = "recast4j.vector";
+
+    /** Offsets of the fields of packed circle obstacles, field f of circle i is stored at {@code f * stride + i}. */
+    public static final int CIRCLE_PX = 0, CIRCLE_PZ = 1, CIRCLE_VX = 2, CIRCLE_VZ = 3, CIRCLE_DPX = 4,
+            CIRCLE_DPZ = 5, CIRCLE_NPX = 6, CIRCLE_NPZ = 7, CIRCLE_RAD = 8;
+    /** Number of fields of a packed circle obstacle. */
+    public static final int CIRCLE_FIELDS = 9;
+
+    private static final GeometryKernels SCALAR = new ScalarKernels();
+    private static final GeometryKernels VECTOR = loadVectorKernels();
+    private static GeometryKernels kernels = VECTOR != null && !"false".equals(System.getProperty(VECTOR_PROPERTY))
+            ? VECTOR
+            : SCALAR;
+
+    private static GeometryKernels loadVectorKernels() {
+        try {
+            Class<?> c = Class.forName(GeometryKernels.class.getPackage().getName() + ".VectorKernels");
+            return (GeometryKernels) c.getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            // Java 8 runtime, plain class path or the incubator module is not resolved.
+            return null;
+        }
+    }
+
+    /** Returns the kernels in use. */
+    public static GeometryKernels get() {
+        return kernels;
+    }
+
+    /** Returns the plain Java kernels. */
+    static GeometryKernels scalar() {
+        return SCALAR;
+    }
+
+    /** Returns true if the Vector API kernels could be loaded in this JVM. */
+    public static boolean isVectorAvailable() {
+        return VECTOR != null;
+    }
+
+    /** Returns true if the Vector API kernels are in use. */
+    public static boolean isVectorEnabled() {
+        return kernels == VECTOR;
+    }
+
+    /**
+     * Switches between the Vector API and the plain Java kernels. Meant to be called before queries are started, not
+     * while other threads are querying.
+     *
+     * @return True if the vector kernels are in use after the call, false if they are disabled or not available.
+     */
+    public static boolean setVectorEnabled(boolean enabled) {
+        kernels = enabled && VECTOR != null ? VECTOR : SCALAR;
+        return isVectorEnabled();
+    }
+
+    /// Same as DetourCommon#pointInPolygon.
+    public abstract boolean pointInPolygon(float[] pt, float[] verts, int nverts);
+
+    /// Same as DetourCommon#distancePtPolyEdgesSqr, the squared distance and the segment parameter of the closest point
+    /// of edge (j, j + 1) are written to ed[j] and et[j].
+    /// @return True if the point is inside the polygon.
+    public abstract boolean distancePtPolyEdgesSqr(float[] pt, float[] verts, int nverts, float[] ed, float[] et);
+
+    /// Finds the leaf nodes of a BV tree overlapping the quantized query box, in tree order.
+    /// @param[out] polys Polygon indices of the overlapping leaves, at least PackedBVTree#leafCount long.
+    /// @return The number of polygon indices written to polys.
+    public abstract int queryBVTree(PackedBVTree tree, int[] bmin, int[] bmax, int[] polys);
+
+    /// Sweeps an agent against packed circle obstacles, see ObstacleAvoidanceQuery. The relative velocity against
+    /// circle i is (vx, vz) minus the velocity of the circle.
+    /// @param[in] circles Circle obstacles, see #CIRCLE_FIELDS.
+    /// @param[out] side Side bias of each circle, undefined once the threshold is reached.
+    /// @param[in] tmin Time of impact to start from.
+    /// @param[in] threshold The sweep may stop as soon as the time of impact drops below this value.
+    /// @return The smallest non-negative time of impact, or tmin if no obstacle is hit sooner.
+    public abstract float sweepCircles(float[] circles, int stride, int ncircles, float[] pos, float rad, float vx,
+            float vz, float tmin, float threshold, float[] side);
+}
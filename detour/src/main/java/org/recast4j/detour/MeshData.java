@@ -18,17 +18,24 @@ freely, subject to the following restrictions:
 */
 package org.recast4j.detour;
 
+import org.recast4j.detour.io.MeshDataView;
+
 public class MeshData {
 
     /** The tile header. */
     public MeshHeader header;
 
     /**
-     * he tile vertices. [Size: MeshHeader::vertCount]
+     * he tile vertices. [Size: MeshHeader::vertCount] Null if the tile uses quantized storage, see
+     * {@link #quantizeVerts(float, float)}. Read and written through {@link #getVert(int, float[], int)} and
+     * {@link #setVert(int, float[])}.
      *
      * 顶点 [长度为MeshHeader::vertCount]
      */
-    public float[] verts;
+    float[] verts;
+
+    /** The tile vertices in quantized form, or null if stored as floats. */
+    QuantizedVerts vertsQuantized;
 
     /**
      * The tile polygons. [Size: MeshHeader::polyCount]
@@ -38,25 +45,293 @@ public class MeshData {
     public Poly[] polys;
 
     /**
-     * The tile's detail sub-meshes. [Size: MeshHeader::detailMeshCount]
+     * The tile's detail sub-meshes. [Size: MeshHeader::detailMeshCount] Null if the tile data is shared, see
+     * {@link #isShared()}, read through {@link #getDetailVertBase(int)} and the other detail mesh accessors.
      *
      * 详细的子网格
      */
     public PolyDetail[] detailMeshes;
 
-    /** The detail mesh's unique vertices. [(x, y, z) * MeshHeader::detailVertCount] */
-    public float[] detailVerts;
+    /**
+     * The detail mesh's unique vertices. [(x, y, z) * MeshHeader::detailVertCount] Null if the tile uses quantized
+     * storage, see {@link #quantizeDetailVerts()}. Read through {@link #getDetailVert(int, float[], int)}.
+     */
+    float[] detailVerts;
+
+    /** The detail mesh's unique vertices in quantized form, or null if stored as floats. */
+    QuantizedVerts detailVertsQuantized;
 
     /**
      * The detail mesh's triangles. [(vertA, vertB, vertC) * MeshHeader::detailTriCount] See DetailTriEdgeFlags and
-     * NavMesh::getDetailTriEdgeFlags.
+     * NavMesh::getDetailTriEdgeFlags. Null if the tile data is shared, read through {@link #getDetailTri(int, int)}.
      */
     public int[] detailTris;
     /**
      * The tile bounding volume nodes. [Size: MeshHeader::bvNodeCount] (Will be null if bounding volumes are disabled.)
+     * Null if the tile data is shared, read through {@link #hasBVTree()} and the BV node accessors.
      */
     public BVNode[] bvTree;
     /** The tile off-mesh connections. [Size: MeshHeader::offMeshConCount] */
     public OffMeshConnection[] offMeshCons;
 
-}
\ No newline at end of file
+    /// Serialized tile read by the accessors when the arrays above are null, see MeshDataView#createMeshData().
+    private MeshDataView view;
+    /// Vertices from this index on are the off-mesh connection end points of a shared tile. The navmesh snaps them, so
+    /// they are copied into viewTail per instance.
+    private int viewTailStart;
+    private float[] viewTail;
+
+    public MeshData() {
+    }
+
+    /**
+     * Creates tile data reading the vertices, detail meshes and BV tree from the view instead of copying them. The
+     * polygons and off-mesh connections hold the per navmesh state and are given by the caller.
+     *
+     * @see MeshDataView#createMeshData()
+     */
+    public MeshData(MeshDataView view, Poly[] polys, OffMeshConnection[] offMeshCons) {
+        this.view = view;
+        header = view.getHeader();
+        this.polys = polys;
+        this.offMeshCons = offMeshCons;
+        // Off-mesh connection end points are appended after the polygon vertices, see NavMeshBuilder.
+        int tailStart = header.vertCount - header.offMeshConCount * 2;
+        for (int i = 0; i < header.polyCount; ++i) {
+            if (polys[i].getType() == Poly.DT_POLYTYPE_OFFMESH_CONNECTION
+                    && (polys[i].verts[0] < tailStart || polys[i].verts[1] < tailStart)) {
+                // Snapping the end points copies all vertices, see setVert().
+                tailStart = header.vertCount;
+                break;
+            }
+        }
+        viewTailStart = tailStart;
+        viewTail = new float[(header.vertCount - tailStart) * 3];
+        for (int i = tailStart; i < header.vertCount; ++i) {
+            view.getVert(i, viewTail, (i - tailStart) * 3);
+        }
+    }
+
+    /**
+     * Returns true if the tile reads its vertices, detail meshes and BV tree from a serialized tile shared with other
+     * tile data instances. Shared tiles are never quantized or compressed.
+     */
+    public boolean isShared() {
+        return view != null;
+    }
+
+    /**
+     * Switches the polygon vertices to 16-bit storage on the voxel grid the tile was built with, relative to the tile
+     * bounds. The vertices are stored exactly: the tile is only quantized if all its polygon vertices lie exactly on
+     * that grid, as the ones built by NavMeshBuilder do. The off-mesh connection end points, which do not, stay float.
+     * The vertex accessors dequantize the vertices on the fly. Tiles with only a handful of vertices, with vertices off
+     * the grid, or whose vertices do not fit in 16 bits, are left as they are.
+     *
+     * @param cs
+     *            The xz-plane cell size the tile was built with.
+     * @param ch
+     *            The y-axis cell height the tile was built with.
+     * @return true if the tile is stored quantized
+     */
+    public boolean quantizeVerts(float cs, float ch) {
+        if (verts != null) {
+            // Off-mesh connection end points are appended after the polygon vertices, see NavMeshBuilder.
+            int gridCount = header.vertCount - header.offMeshConCount * 2;
+            for (int i = 0; i < header.polyCount; ++i) {
+                if (polys[i].getType() == Poly.DT_POLYTYPE_OFFMESH_CONNECTION
+                        && (polys[i].verts[0] < gridCount || polys[i].verts[1] < gridCount)) {
+                    return false;
+                }
+            }
+            QuantizedVerts q = QuantizedVerts.quantizeGrid(verts, header.vertCount, gridCount, header.bmin, cs, ch);
+            if (q == null || q.getMemorySize() >= QuantizedVerts.getFloatMemorySize(header.vertCount)) {
+                return false;
+            }
+            vertsQuantized = q;
+            verts = null;
+        }
+        return vertsQuantized != null;
+    }
+
+    /** Copies vertex i to dest, dequantizing it if needed. */
+    public void getVert(int i, float[] dest, int destOffset) {
+        if (verts != null) {
+            System.arraycopy(verts, i * 3, dest, destOffset, 3);
+        } else if (vertsQuantized != null) {
+            vertsQuantized.get(i, dest, destOffset);
+        } else if (i < viewTailStart) {
+            view.getVert(i, dest, destOffset);
+        } else {
+            System.arraycopy(viewTail, (i - viewTailStart) * 3, dest, destOffset, 3);
+        }
+    }
+
+    /** Returns the coordinate of vertex i along the axis, dequantizing it if needed. */
+    public float getVert(int i, int axis) {
+        if (verts != null) {
+            return verts[i * 3 + axis];
+        }
+        if (vertsQuantized != null) {
+            return vertsQuantized.get(i, axis);
+        }
+        return i < viewTailStart ? view.getVert(i, axis) : viewTail[(i - viewTailStart) * 3 + axis];
+    }
+
+    /**
+     * Sets vertex i. A position off the quantization grid switches the tile back to float vertices, and so does a
+     * polygon vertex of a shared tile, whose vertices are then copied.
+     */
+    public void setVert(int i, float[] src) {
+        if (verts == null && vertsQuantized == null && view != null && i >= viewTailStart) {
+            System.arraycopy(src, 0, viewTail, (i - viewTailStart) * 3, 3);
+            return;
+        }
+        if (verts == null && (vertsQuantized == null || !vertsQuantized.set(i, src))) {
+            verts = getVerts();
+            vertsQuantized = null;
+        }
+        if (verts != null) {
+            System.arraycopy(src, 0, verts, i * 3, 3);
+        }
+    }
+
+    /** Returns the vertices as floats, dequantizing or copying them into a new array if needed. */
+    public float[] getVerts() {
+        if (verts != null) {
+            return verts;
+        }
+        if (vertsQuantized != null) {
+            return vertsQuantized.toFloats();
+        }
+        float[] v = new float[header.vertCount * 3];
+        for (int i = 0; i < header.vertCount; ++i) {
+            getVert(i, v, i * 3);
+        }
+        return v;
+    }
+
+    /** Sets the vertices, replacing any quantized storage. [(x, y, z) * MeshHeader::vertCount] */
+    public void setVerts(float[] verts) {
+        this.verts = verts;
+        vertsQuantized = null;
+    }
+
+    /** Returns the quantized vertices, or null if the vertices are stored as floats. */
+    public QuantizedVerts getQuantizedVerts() {
+        return vertsQuantized;
+    }
+
+    /**
+     * Switches the detail vertices to quantized 16-bit storage, halving their memory. The detail vertex accessors
+     * dequantize them on the fly. Tiles with only a handful of detail vertices are left as they are since the
+     * quantization frame would cost more than it saves.
+     *
+     * @return true if the tile is stored quantized
+     */
+    public boolean quantizeDetailVerts() {
+        if (detailVerts != null) {
+            QuantizedVerts q = QuantizedVerts.quantize(detailVerts, header.detailVertCount);
+            if (q.getMemorySize() >= QuantizedVerts.getFloatMemorySize(header.detailVertCount)) {
+                return false;
+            }
+            detailVertsQuantized = q;
+            detailVerts = null;
+        }
+        return detailVertsQuantized != null;
+    }
+
+    /** Copies detail vertex i to dest, dequantizing it if needed. */
+    public void getDetailVert(int i, float[] dest, int destOffset) {
+        if (detailVerts != null) {
+            System.arraycopy(detailVerts, i * 3, dest, destOffset, 3);
+        } else if (detailVertsQuantized != null) {
+            detailVertsQuantized.get(i, dest, destOffset);
+        } else {
+            view.getDetailVert(i, dest, destOffset);
+        }
+    }
+
+    /** Returns the coordinate of detail vertex i along the axis, dequantizing it if needed. */
+    public float getDetailVert(int i, int axis) {
+        if (detailVerts != null) {
+            return detailVerts[i * 3 + axis];
+        }
+        return detailVertsQuantized != null ? detailVertsQuantized.get(i, axis) : view.getDetailVert(i, axis);
+    }
+
+    /** Returns the detail vertices as floats, dequantizing or copying them into a new array if needed. */
+    public float[] getDetailVerts() {
+        if (detailVerts != null) {
+            return detailVerts;
+        }
+        if (detailVertsQuantized != null) {
+            return detailVertsQuantized.toFloats();
+        }
+        float[] v = new float[header.detailVertCount * 3];
+        for (int i = 0; i < header.detailVertCount; ++i) {
+            view.getDetailVert(i, v, i * 3);
+        }
+        return v;
+    }
+
+    /** Sets the detail vertices, replacing any quantized storage. [(x, y, z) * MeshHeader::detailVertCount] */
+    public void setDetailVerts(float[] detailVerts) {
+        this.detailVerts = detailVerts;
+        detailVertsQuantized = null;
+    }
+
+    /** Returns the quantized detail vertices, or null if the detail vertices are stored as floats. */
+    public QuantizedVerts getQuantizedDetailVerts() {
+        return detailVertsQuantized;
+    }
+
+    /** Returns true if the tile has detail meshes. */
+    public boolean hasDetailMeshes() {
+        return detailMeshes != null || view != null;
+    }
+
+    /** Returns the index of the first detail vertex of the detail mesh of polygon ip. */
+    public int getDetailVertBase(int ip) {
+        return detailMeshes != null ? detailMeshes[ip].vertBase : view.getDetailVertBase(ip);
+    }
+
+    /** Returns the index of the first detail triangle of the detail mesh of polygon ip. */
+    public int getDetailTriBase(int ip) {
+        return detailMeshes != null ? detailMeshes[ip].triBase : view.getDetailTriBase(ip);
+    }
+
+    /** Returns the number of detail vertices of the detail mesh of polygon ip. */
+    public int getDetailVertCount(int ip) {
+        return detailMeshes != null ? detailMeshes[ip].vertCount : view.getDetailVertCount(ip);
+    }
+
+    /** Returns the number of detail triangles of the detail mesh of polygon ip. */
+    public int getDetailTriCount(int ip) {
+        return detailMeshes != null ? detailMeshes[ip].triCount : view.getDetailTriCount(ip);
+    }
+
+    /** Returns vertex index k (0..2) or the edge flags (k == 3) of detail triangle t. */
+    public int getDetailTri(int t, int k) {
+        return detailTris != null ? detailTris[t * 4 + k] : view.getDetailTri(t, k);
+    }
+
+    /** Returns true if the tile has a BV tree of MeshHeader::bvNodeCount nodes. */
+    public boolean hasBVTree() {
+        return bvTree != null || view != null && header.bvNodeCount > 0;
+    }
+
+    /** Returns the quantized minimum bound of BV node n along the axis. */
+    public int getBVNodeMin(int n, int axis) {
+        return bvTree != null ? bvTree[n].bmin[axis] : view.getBVNodeMin(n, axis);
+    }
+
+    /** Returns the quantized maximum bound of BV node n along the axis. */
+    public int getBVNodeMax(int n, int axis) {
+        return bvTree != null ? bvTree[n].bmax[axis] : view.getBVNodeMax(n, axis);
+    }
+
+    /** Returns the polygon index of leaf node n, or the negative escape offset of an inner node. */
+    public int getBVNodeIndex(int n) {
+        return bvTree != null ? bvTree[n].i : view.getBVNodeIndex(n);
+    }
+}
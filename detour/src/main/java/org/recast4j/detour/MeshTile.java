@@ -68,6 +68,18 @@ public class MeshTile {
     int linksFreeList = NavMesh.DT_NULL_LINK;
 
 
+    /** Detail triangle grids of the polygons with large detail meshes, or null. */
+    DetailTriGrid detailGrid;
+
+    /** Structure of arrays copy of the BV tree used by the query kernels, or null. Dropped while compressed. */
+    PackedBVTree packedBvTree;
+
+    /** Cached wall segments of the polygons, or null. */
+    volatile WallSegmentCache wallSegments;
+
+    /** Compressed geometry and detail data while the tile is cold, or null. */
+    volatile ColdTileCompressor.Compressed compressed;
+
     /** Tile flags. (See: #dtTileFlags) */
     int flags;
 
@@ -82,4 +94,12 @@ public class MeshTile {
         this.index = index;
     }
 
+    /**
+     * Returns true if the vertices, detail meshes and BV tree of the tile are compressed. They are restored when the
+     * tile is next accessed through the NavMesh.
+     */
+    public boolean isCompressed() {
+        return compressed != null;
+    }
+
 }
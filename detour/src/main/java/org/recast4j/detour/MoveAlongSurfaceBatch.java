@@ -0,0 +1,185 @@
+/*
+recast4j copyright (c) 2015-2019 Piotr Piastucki piotr@jtilia.org
+
+This software is provided 'as-is', without any express or implied
+warranty.  In no event will the authors be held liable for any damages
+arising from the use of this software.
+Permission is granted to anyone to use this software for any purpose,
+including commercial applications, and to alter it and redistribute it
+freely, subject to the following restrictions:
+1. The origin of this software must not be misrepresented; you must not
+ claim that you wrote the original software. If you use this software
+ in a product, an acknowledgment in the product documentation would be
+ appreciated but is not required.
+2. Altered source versions must be plainly marked as such, and must not be
+ misrepresented as being the original software.
+3. This notice may not be removed or altered from any source distribution.
+*/
+package org.recast4j.detour;
+
+import static org.recast4j.detour.DetourCommon.vIsFinite;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Runs {@link NavMeshQuery#moveAlongSurface} for many movers at once, e.g. to validate the movement of all players in
+ * a server tick.
+ *
+ * Inputs and outputs are packed arrays indexed by mover: refs [n], positions [(x, y, z) * n] and the visited polygons
+ * [maxVisited * n]. Each move runs the same search as the query (see {@link MoveAlongSurfaceSearch}) on a bounded
+ * state allocated once per batch object, so moving does not allocate. Like the tiny node pool of the original Detour,
+ * the search visits at most maxNodes polygons per move, which is far more than a movement delta of a single tick
+ * crosses.
+ *
+ * A batch object is not thread safe. When created with a pool and more than one split, the movers are divided into
+ * contiguous ranges which are processed in parallel, each range with its own search state.
+ */
+public class MoveAlongSurfaceBatch {
+
+    public static final int DEFAULT_MAX_NODES = 64;
+
+    private final NavMesh m_nav;
+    private final ForkJoinPool m_pool;
+    private final SearchState[] m_states;
+    private final List<ForkJoinTask<?>> m_tasks = new ArrayList<>();
+
+    public MoveAlongSurfaceBatch(NavMesh nav) {
+        this(nav, DEFAULT_MAX_NODES, null, 1);
+    }
+
+    /**
+     * @param maxNodes
+     *            Maximum number of polygons visited by a single move.
+     * @param pool
+     *            Pool running the splits, may be null if splits is 1.
+     * @param splits
+     *            Number of ranges the movers are divided into.
+     */
+    public MoveAlongSurfaceBatch(NavMesh nav, int maxNodes, ForkJoinPool pool, int splits) {
+        if (splits > 1 && pool == null) {
+            throw new IllegalArgumentException("A pool is required to run " + splits + " splits");
+        }
+        m_nav = nav;
+        m_pool = pool;
+        m_states = new SearchState[Math.max(1, splits)];
+        for (int i = 0; i < m_states.length; i++) {
+            m_states[i] = new SearchState(maxNodes, nav.getMaxVertsPerPoly());
+        }
+    }
+
+    /**
+     * Moves each mover from its start position towards its end position constrained to the navigation mesh.
+     *
+     * @param count
+     *            Number of movers.
+     * @param startRefs
+     *            The reference ids of the start polygons. [count]
+     * @param startPos
+     *            Positions of the movers within the start polygons. [(x, y, z) * count]
+     * @param endPos
+     *            Desired end positions of the movers. [(x, y, z) * count]
+     * @param filter
+     *            The polygon filter to apply to the query.
+     * @param resultRefs
+     *            Out: the reference ids of the polygons containing the result positions, 0 if the input of the mover
+     *            was invalid. [count]
+     * @param resultPos
+     *            Out: the result positions, equal to the end positions if these were reached. [(x, y, z) * count]
+     * @param visitedCounts
+     *            Out: number of visited polygons of each mover, may be null. [count]
+     * @param visited
+     *            Out: the visited polygons from the start towards the end position, truncated to maxVisited. May be
+     *            null. [maxVisited * count]
+     * @param maxVisited
+     *            Number of visited polygons stored per mover.
+     * @return The number of movers with valid input.
+     */
+    public int move(int count, long[] startRefs, float[] startPos, float[] endPos, QueryFilter filter,
+            long[] resultRefs, float[] resultPos, int[] visitedCounts, long[] visited, int maxVisited) {
+        int splits = Math.min(m_states.length, count);
+        if (splits <= 1) {
+            return m_states[0].move(0, count, startRefs, startPos, endPos, filter, resultRefs, resultPos,
+                    visitedCounts, visited, maxVisited);
+        }
+        int step = (count + splits - 1) / splits;
+        m_tasks.clear();
+        for (int s = 1; s < splits; s++) {
+            SearchState state = m_states[s];
+            int begin = s * step;
+            int end = Math.min(count, begin + step);
+            m_tasks.add(m_pool.submit(() -> state.move(begin, end, startRefs, startPos, endPos, filter, resultRefs,
+                    resultPos, visitedCounts, visited, maxVisited)));
+        }
+        int moved = m_states[0].move(0, Math.min(count, step), startRefs, startPos, endPos, filter, resultRefs,
+                resultPos, visitedCounts, visited, maxVisited);
+        for (ForkJoinTask<?> task : m_tasks) {
+            try {
+                moved += (Integer) task.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while moving", e);
+            } catch (ExecutionException e) {
+                throw new RuntimeException(e.getCause());
+            }
+        }
+        m_tasks.clear();
+        return moved;
+    }
+
+    private class SearchState {
+        private final MoveAlongSurfaceSearch search;
+        private final float[] pos = new float[3];
+        private final float[] target = new float[3];
+        private final float[] result = new float[3];
+
+        SearchState(int maxNodes, int maxVertsPerPoly) {
+            search = new MoveAlongSurfaceSearch(maxNodes, maxVertsPerPoly, true);
+        }
+
+        int move(int begin, int end, long[] startRefs, float[] startPos, float[] endPos, QueryFilter filter,
+                long[] resultRefs, float[] resultPos, int[] visitedCounts, long[] visited, int maxVisited) {
+            int moved = 0;
+            for (int i = begin; i < end; i++) {
+                if (move(i, startRefs[i], startPos, endPos, filter, resultRefs, resultPos, visitedCounts, visited,
+                        maxVisited)) {
+                    moved++;
+                }
+            }
+            return moved;
+        }
+
+        private boolean move(int index, long startRef, float[] startPos, float[] endPos, QueryFilter filter,
+                long[] resultRefs, float[] resultPos, int[] visitedCounts, long[] visited, int maxVisited) {
+            int p = index * 3;
+            System.arraycopy(startPos, p, pos, 0, 3);
+            System.arraycopy(endPos, p, target, 0, 3);
+            System.arraycopy(pos, 0, resultPos, p, 3);
+            resultRefs[index] = 0;
+            if (visitedCounts != null) {
+                visitedCounts[index] = 0;
+            }
+            if (!m_nav.isValidPolyRef(startRef) || !vIsFinite(pos) || !vIsFinite(target) || filter == null) {
+                return false;
+            }
+
+            int bestNode = search.move(m_nav, startRef, pos, target, filter, result);
+            System.arraycopy(result, 0, resultPos, p, 3);
+            if (bestNode < 0) {
+                resultRefs[index] = startRef;
+                return true;
+            }
+            resultRefs[index] = search.getRef(bestNode);
+            if (visitedCounts != null) {
+                visitedCounts[index] = search.getPathLength(bestNode);
+            }
+            if (visited != null) {
+                search.getPath(bestNode, visited, index * maxVisited, maxVisited);
+            }
+            return true;
+        }
+    }
+}
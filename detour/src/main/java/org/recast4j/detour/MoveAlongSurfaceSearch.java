@@ -0,0 +1,276 @@
+/*
+recast4j copyright (c) 2015-2019 Piotr Piastucki piotr@jtilia.org
+
+This software is provided 'as-is', without any express or implied
+warranty.  In no event will the authors be held liable for any damages
+arising from the use of this software.
+Permission is granted to anyone to use this software for any purpose,
+including commercial applications, and to alter it and redistribute it
+freely, subject to the following restrictions:
+1. The origin of this software must not be misrepresented; you must not
+ claim that you wrote the original software. If you use this software
+ in a product, an acknowledgment in the product documentation would be
+ appreciated but is not required.
+2. Altered source versions must be plainly marked as such, and must not be
+ misrepresented as being the original software.
+3. This notice may not be removed or altered from any source distribution.
+*/
+package org.recast4j.detour;
+
+import static org.recast4j.detour.DetourCommon.sqr;
+
+import java.util.Arrays;
+
+/**
+ * Search state and core of {@link NavMeshQuery#moveAlongSurface}, shared with {@link MoveAlongSurfaceBatch}.
+ *
+ * The search visits the polygons around the start position breadth first. Visited polygons are kept in a node table
+ * with an open addressing index; the table doubles as the search queue and is reused between moves, so a move does
+ * not allocate. A bounded state visits at most maxNodes polygons per move, like the tiny node pool of the original
+ * Detour; an unbounded state grows its table instead.
+ */
+final class MoveAlongSurfaceSearch {
+
+    private static final int MAX_NEIS = 8;
+
+    private final boolean m_bounded;
+    private int m_maxNodes;
+    private long[] m_refs;
+    private int[] m_parents;
+    private int[] m_hashSlots;
+    private int[] m_hashTable;
+    private int m_hashMask;
+    private int m_nodeCount;
+    private final float[] m_verts;
+    private final float[] m_searchPos = new float[3];
+    private final long[] m_neis = new long[MAX_NEIS];
+    private float m_segT;
+
+    /**
+     * @param maxNodes
+     *            Maximum number of polygons visited by a move if bounded, initial capacity otherwise.
+     * @param bounded
+     *            Whether the search stops expanding once maxNodes polygons are visited.
+     */
+    MoveAlongSurfaceSearch(int maxNodes, int maxVertsPerPoly, boolean bounded) {
+        m_bounded = bounded;
+        m_verts = new float[maxVertsPerPoly * 3];
+        allocate(Math.max(1, maxNodes));
+    }
+
+    /**
+     * Moves from the start position towards the end position constrained to the navigation mesh. The input must have
+     * been validated by the caller.
+     *
+     * @param resultPos
+     *            Out: the result position, equal to the end position if it was reached. [(x, y, z)]
+     * @return The node of the polygon containing the result position, or -1 if the search found no better position
+     *         than the start position.
+     */
+    int move(NavMesh nav, long startRef, float[] startPos, float[] endPos, QueryFilter filter, float[] resultPos) {
+        clear();
+        addNode(startRef, -1);
+        System.arraycopy(startPos, 0, resultPos, 0, 3);
+
+        float bestDist = Float.MAX_VALUE;
+        int bestNode = -1;
+
+        // Search constraints
+        float dx = endPos[0] - startPos[0];
+        float dy = endPos[1] - startPos[1];
+        float dz = endPos[2] - startPos[2];
+        m_searchPos[0] = startPos[0] + dx * 0.5f;
+        m_searchPos[1] = startPos[1] + dy * 0.5f;
+        m_searchPos[2] = startPos[2] + dz * 0.5f;
+        float searchRadSqr = sqr((float) Math.sqrt(dx * dx + dy * dy + dz * dz) / 2.0f + 0.001f);
+
+        float[] verts = m_verts;
+        // Nodes are appended in the order they are pushed to the queue, so the table doubles as the queue.
+        for (int head = 0; head < m_nodeCount; head++) {
+            // Get poly and tile.
+            // The API input has been cheked already, skip checking internal data.
+            long curRef = m_refs[head];
+            Tupple2<MeshTile, Poly> tileAndPoly = nav.getTileAndPolyByRefUnsafe(curRef);
+            MeshTile curTile = tileAndPoly.first;
+            Poly curPoly = tileAndPoly.second;
+
+            // Collect vertices.
+            int nverts = curPoly.vertCount;
+            for (int i = 0; i < nverts; ++i) {
+                curTile.data.getVert(curPoly.verts[i], verts, i * 3);
+            }
+
+            // If target is inside the poly, stop search.
+            if (GeometryKernels.get().pointInPolygon(endPos, verts, nverts)) {
+                bestNode = head;
+                System.arraycopy(endPos, 0, resultPos, 0, 3);
+                break;
+            }
+
+            // Find wall edges and find nearest point inside the walls.
+            for (int i = 0, j = nverts - 1; i < nverts; j = i++) {
+                // Find links to neighbours.
+                int nneis = 0;
+                if ((curPoly.neis[j] & NavMesh.DT_EXT_LINK) != 0) {
+                    // Tile border.
+                    for (int k = curPoly.firstLink; k != NavMesh.DT_NULL_LINK; k = curTile.links.get(k).next) {
+                        Link link = curTile.links.get(k);
+                        if (link.edge == j && link.ref != 0) {
+                            tileAndPoly = nav.getTileAndPolyByRefUnsafe(link.ref);
+                            if (filter.passFilter(link.ref, tileAndPoly.first, tileAndPoly.second)
+                                    && nneis < MAX_NEIS) {
+                                m_neis[nneis++] = link.ref;
+                            }
+                        }
+                    }
+                } else if (curPoly.neis[j] != 0) {
+                    int idx = curPoly.neis[j] - 1;
+                    long ref = nav.getPolyRefBase(curTile) | idx;
+                    if (filter.passFilter(ref, curTile, curTile.data.polys[idx])) {
+                        // Internal edge, encode id.
+                        m_neis[nneis++] = ref;
+                    }
+                }
+
+                int vj = j * 3;
+                int vi = i * 3;
+                if (nneis == 0) {
+                    // Wall edge, calc distance.
+                    float distSqr = distancePtSegSqr2D(endPos, vj, vi);
+                    if (distSqr < bestDist) {
+                        // Update nearest distance.
+                        float t = m_segT;
+                        resultPos[0] = verts[vj] + (verts[vi] - verts[vj]) * t;
+                        resultPos[1] = verts[vj + 1] + (verts[vi + 1] - verts[vj + 1]) * t;
+                        resultPos[2] = verts[vj + 2] + (verts[vi + 2] - verts[vj + 2]) * t;
+                        bestDist = distSqr;
+                        bestNode = head;
+                    }
+                } else {
+                    for (int k = 0; k < nneis; ++k) {
+                        // Skip if already visited.
+                        if (findNode(m_neis[k]) >= 0) {
+                            continue;
+                        }
+                        // Skip the link if it is too far from search constraint.
+                        // TODO: Maybe should use getPortalPoints(), but this one is way faster.
+                        if (distancePtSegSqr2D(m_searchPos, vj, vi) > searchRadSqr) {
+                            continue;
+                        }
+                        if (m_nodeCount == m_maxNodes) {
+                            if (m_bounded) {
+                                continue;
+                            }
+                            grow();
+                        }
+                        // Mark as the node as visited and push to queue.
+                        addNode(m_neis[k], head);
+                    }
+                }
+            }
+        }
+        return bestNode;
+    }
+
+    long getRef(int node) {
+        return m_refs[node];
+    }
+
+    /// Number of polygons from the start polygon to the node.
+    int getPathLength(int node) {
+        int n = 0;
+        for (; node >= 0; node = m_parents[node]) {
+            n++;
+        }
+        return n;
+    }
+
+    /// Stores the first max polygons of the path from the start polygon to the node in dest.
+    void getPath(int node, long[] dest, int destOffset, int max) {
+        int n = getPathLength(node);
+        for (; node >= 0; node = m_parents[node]) {
+            n--;
+            if (n < max) {
+                dest[destOffset + n] = m_refs[node];
+            }
+        }
+    }
+
+    /// Same as DetourCommon.distancePtSegSqr2D(), with the segment parameter stored in m_segT.
+    private float distancePtSegSqr2D(float[] pt, int p, int q) {
+        float[] verts = m_verts;
+        float pqx = verts[q] - verts[p];
+        float pqz = verts[q + 2] - verts[p + 2];
+        float dx = pt[0] - verts[p];
+        float dz = pt[2] - verts[p + 2];
+        float d = pqx * pqx + pqz * pqz;
+        float t = pqx * dx + pqz * dz;
+        if (d > 0) {
+            t /= d;
+        }
+        if (t < 0) {
+            t = 0;
+        } else if (t > 1) {
+            t = 1;
+        }
+        m_segT = t;
+        dx = verts[p] + t * pqx - pt[0];
+        dz = verts[p + 2] + t * pqz - pt[2];
+        return dx * dx + dz * dz;
+    }
+
+    private void allocate(int maxNodes) {
+        m_maxNodes = maxNodes;
+        m_refs = new long[maxNodes];
+        m_parents = new int[maxNodes];
+        m_hashSlots = new int[maxNodes];
+        int hashSize = Integer.highestOneBit(Math.max(1, maxNodes * 2 - 1)) << 1;
+        m_hashTable = new int[hashSize];
+        m_hashMask = hashSize - 1;
+        Arrays.fill(m_hashTable, -1);
+    }
+
+    private void grow() {
+        long[] refs = m_refs;
+        int[] parents = m_parents;
+        int count = m_nodeCount;
+        allocate(m_maxNodes * 2);
+        m_nodeCount = 0;
+        for (int i = 0; i < count; i++) {
+            addNode(refs[i], parents[i]);
+        }
+    }
+
+    private void clear() {
+        for (int i = 0; i < m_nodeCount; i++) {
+            m_hashTable[m_hashSlots[i]] = -1;
+        }
+        m_nodeCount = 0;
+    }
+
+    private int findNode(long ref) {
+        for (int slot = hash(ref);; slot = (slot + 1) & m_hashMask) {
+            int node = m_hashTable[slot];
+            if (node < 0 || m_refs[node] == ref) {
+                return node;
+            }
+        }
+    }
+
+    private void addNode(long ref, int parent) {
+        int slot = hash(ref);
+        while (m_hashTable[slot] >= 0) {
+            slot = (slot + 1) & m_hashMask;
+        }
+        int node = m_nodeCount++;
+        m_refs[node] = ref;
+        m_parents[node] = parent;
+        m_hashSlots[node] = slot;
+        m_hashTable[slot] = node;
+    }
+
+    private int hash(long ref) {
+        long h = ref * 0x9E3779B97F4A7C15L;
+        return (int) (h >>> 32) & m_hashMask;
+    }
+}
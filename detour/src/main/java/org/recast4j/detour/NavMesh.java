@@ -24,7 +24,6 @@ import static org.recast4j.detour.DetourCommon.distancePtSegSqr2D;
 import static org.recast4j.detour.DetourCommon.nextPow2;
 import static org.recast4j.detour.DetourCommon.oppositeTile;
 import static org.recast4j.detour.DetourCommon.overlapBounds;
-import static org.recast4j.detour.DetourCommon.overlapQuantBounds;
 import static org.recast4j.detour.DetourCommon.pointInPolygon;
 import static org.recast4j.detour.DetourCommon.sqr;
 import static org.recast4j.detour.DetourCommon.vAdd;
@@ -36,8 +35,11 @@ import static org.recast4j.detour.DetourCommon.vMin;
 import static org.recast4j.detour.DetourCommon.vSub;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicIntegerArray;
 
 public class NavMesh {
 
@@ -68,6 +70,16 @@ public class NavMesh {
     /// The limit is given as a multiple of the character radius
     static float DT_RAY_CAST_LIMIT_PROPORTIONS = 50.0f;
 
+    /// Polygons with at least this many detail triangles get a detail triangle grid by default.
+    static final int DT_DETAIL_GRID_MIN_TRIS = 16;
+
+    /// Number of changes kept in the poly change journal.
+    static final int DT_CHANGE_JOURNAL_SIZE = 64;
+
+    /// Tile offsets of the 8 neighbour sides, matching getNeighbourTilesAt().
+    private static final int[] NEIGHBOUR_DX = { 1, 1, 0, -1, -1, -1, 0, 1 };
+    private static final int[] NEIGHBOUR_DY = { 0, 1, 1, 1, 0, -1, -1, -1 };
+
     private final NavMeshParams m_params; /// < Current initialization params. TODO: do not store this info twice.
     private final float[] m_orig; /// < Origin of the tile (0,0)
     // float m_orig[3]; ///< Origin of the tile (0,0)
@@ -87,6 +99,18 @@ public class NavMesh {
     private final int m_maxVertPerPoly;
 
     private int m_tileCount;
+    private TileLoader m_tileLoader;
+    private int m_detailGridMinTris = DT_DETAIL_GRID_MIN_TRIS;
+    private final PolyChangeJournal m_changeJournal = new PolyChangeJournal(DT_CHANGE_JOURNAL_SIZE);
+    private boolean m_wallSegmentCache;
+    private ColdTileCompressor m_coldTiles;
+    /// Number of query accesses of each tile, halved on every cold tile pass. Counted atomically since every query
+    /// thread touches the tiles it reads.
+    private final AtomicIntegerArray m_temperatures;
+    /// Scratch of recordTileChanges(): the changed tile indices and the marks of the tiles already collected, which
+    /// are cleared again after each change.
+    private int[] m_changedTiles = new int[16];
+    private final boolean[] m_changedTileMarks;
 
     /**
      * The maximum number of tiles supported by the navigation mesh.
@@ -101,7 +125,7 @@ public class NavMesh {
      * Returns tile in the tile array.
      */
     public MeshTile getTile(int i) {
-        return m_tiles[i];
+        return touch(m_tiles[i]);
     }
 
     /**
@@ -230,7 +254,7 @@ public class NavMesh {
         if (ip >= m_tiles[it].data.header.polyCount) {
             return Result.invalidParam("poly > polyCount");
         }
-        return Result.success(new Tupple2<>(m_tiles[it], m_tiles[it].data.polys[ip]));
+        return Result.success(new Tupple2<>(touch(m_tiles[it]), m_tiles[it].data.polys[ip]));
     }
 
     /// @par
@@ -243,17 +267,16 @@ public class NavMesh {
         int[] saltitip = decodePolyId(ref);
         int it = saltitip[1];
         int ip = saltitip[2];
-        return new Tupple2<>(m_tiles[it], m_tiles[it].data.polys[ip]);
+        return new Tupple2<>(touch(m_tiles[it]), m_tiles[it].data.polys[ip]);
     }
 
     boolean isValidPolyRef(long ref) {
         if (ref == 0) {
             return false;
         }
-        int[] saltitip = decodePolyId(ref);
-        int salt = saltitip[0];
-        int it = saltitip[1];
-        int ip = saltitip[2];
+        int salt = decodePolyIdSalt(ref);
+        int it = decodePolyIdTile(ref);
+        int ip = decodePolyIdPoly(ref);
         if (it >= m_maxTiles) {
             return false;
         }
@@ -290,6 +313,8 @@ public class NavMesh {
         m_tileLutSize = lutsize;
         m_tileLutMask = m_tileLutSize - 1;
         m_tiles = new MeshTile[m_maxTiles];
+        m_temperatures = new AtomicIntegerArray(m_maxTiles);
+        m_changedTileMarks = new boolean[m_maxTiles];
         m_posLookup = new MeshTile[m_tileLutSize];
         m_nextFree = null;
         for (int i = m_maxTiles - 1; i >= 0; --i) {
@@ -316,8 +341,7 @@ public class NavMesh {
 
     List<Long> queryPolygonsInTile(MeshTile tile, float[] qmin, float[] qmax) {
         List<Long> polys = new ArrayList<>();
-        if (tile.data.bvTree != null) {
-            int nodeIndex = 0;
+        if (tile.data.hasBVTree()) {
             float[] tbmin = tile.data.header.bmin;
             float[] tbmax = tile.data.header.bmax;
             float qfac = tile.data.header.bvQuantFactor;
@@ -341,28 +365,16 @@ public class NavMesh {
 
             // Traverse tree
             long base = getPolyRefBase(tile);
-            int end = tile.data.header.bvNodeCount;
-            while (nodeIndex < end) {
-                BVNode node = tile.data.bvTree[nodeIndex];
-                boolean overlap = overlapQuantBounds(bmin, bmax, node.bmin, node.bmax);
-                boolean isLeafNode = node.i >= 0;
-
-                if (isLeafNode && overlap) {
-                    polys.add(base | node.i);
-                }
-
-                if (overlap || isLeafNode) {
-                    nodeIndex++;
-                } else {
-                    int escapeIndex = -node.i;
-                    nodeIndex += escapeIndex;
-                }
+            int[] leaves = new int[tile.data.header.polyCount];
+            int n = queryBVTree(tile.data, bmin, bmax, leaves);
+            for (int k = 0; k < n; k++) {
+                polys.add(base | leaves[k]);
             }
-
             return polys;
         } else {
             float[] bmin = new float[3];
             float[] bmax = new float[3];
+            float[] v = new float[3];
             long base = getPolyRefBase(tile);
             for (int i = 0; i < tile.data.header.polyCount; ++i) {
                 Poly p = tile.data.polys[i];
@@ -371,13 +383,12 @@ public class NavMesh {
                     continue;
                 }
                 // Calc polygon bounds.
-                int v = p.verts[0] * 3;
-                vCopy(bmin, tile.data.verts, v);
-                vCopy(bmax, tile.data.verts, v);
+                tile.data.getVert(p.verts[0], bmin, 0);
+                vCopy(bmax, bmin);
                 for (int j = 1; j < p.vertCount; ++j) {
-                    v = p.verts[j] * 3;
-                    vMin(bmin, tile.data.verts, v);
-                    vMax(bmax, tile.data.verts, v);
+                    tile.data.getVert(p.verts[j], v, 0);
+                    vMin(bmin, v, 0);
+                    vMax(bmax, v, 0);
                 }
                 if (overlapBounds(qmin, qmax, bmin, bmax)) {
                     polys.add(base | i);
@@ -387,6 +398,33 @@ public class NavMesh {
         }
     }
 
+    /// Traverses the BV tree of the tile data through its accessors, writes the polygons of the leaf nodes overlapping
+    /// the quantized box to polys and returns their number. polys must hold at least MeshHeader::polyCount entries.
+    static int queryBVTree(MeshData data, int[] bmin, int[] bmax, int[] polys) {
+        int n = 0;
+        int nodeIndex = 0;
+        int end = data.header.bvNodeCount;
+        while (nodeIndex < end) {
+            boolean overlap = bmin[0] <= data.getBVNodeMax(nodeIndex, 0) && bmax[0] >= data.getBVNodeMin(nodeIndex, 0)
+                    && bmin[1] <= data.getBVNodeMax(nodeIndex, 1) && bmax[1] >= data.getBVNodeMin(nodeIndex, 1)
+                    && bmin[2] <= data.getBVNodeMax(nodeIndex, 2) && bmax[2] >= data.getBVNodeMin(nodeIndex, 2);
+            int i = data.getBVNodeIndex(nodeIndex);
+            boolean isLeafNode = i >= 0;
+
+            if (isLeafNode && overlap) {
+                polys[n++] = i;
+            }
+
+            if (overlap || isLeafNode) {
+                nodeIndex++;
+            } else {
+                int escapeIndex = -i;
+                nodeIndex += escapeIndex;
+            }
+        }
+        return n;
+    }
+
     /// Adds a tile to the navigation mesh.  在导航网格中添加一个tile
     /// @param[in] data Data for the new tile mesh. (See: #dtCreateNavMeshData)
     /// @param[in] dataSize Data size of the new tile mesh.
@@ -414,6 +452,146 @@ public class NavMesh {
     ///
     /// @see dtCreateNavMeshData, #removeTile
     public long addTile(MeshData data, int flags, long lastRef) {
+        MeshTile tile = allocTile(data, flags, lastRef);
+        MeshHeader header = data.header;
+        initTile(tile);
+
+        // Connect with layers in current tile.
+        List<MeshTile> neis = getTilesAt(header.x, header.y);
+        for (int j = 0; j < neis.size(); ++j) {
+            if (neis.get(j) == tile) {
+                continue;
+            }
+            connectExtLinks(tile, neis.get(j), -1);
+            connectExtLinks(neis.get(j), tile, -1);
+            connectExtOffMeshLinks(tile, neis.get(j), -1);
+            connectExtOffMeshLinks(neis.get(j), tile, -1);
+        }
+
+        // Connect with neighbour tiles.
+        for (int i = 0; i < 8; ++i) {
+            neis = getNeighbourTilesAt(header.x, header.y, i);
+            for (int j = 0; j < neis.size(); ++j) {
+                connectExtLinks(tile, neis.get(j), i);
+                connectExtLinks(neis.get(j), tile, oppositeTile(i));
+                connectExtOffMeshLinks(tile, neis.get(j), i);
+                connectExtOffMeshLinks(neis.get(j), tile, oppositeTile(i));
+            }
+        }
+        recordTileChanges(new MeshTile[] { tile });
+
+        return getTileRef(tile);
+    }
+
+    /**
+     * Adds the tiles with default flags and references, building the links on the common pool.
+     *
+     * @see #addTiles(List, int[], long[], ForkJoinPool)
+     */
+    public long[] addTiles(List<MeshData> data) {
+        return addTiles(data, null, null, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Adds a batch of tiles, building their links in parallel. The result, including the tile references and the
+     * order of the links of every polygon, is identical to adding the tiles one by one with
+     * {@link #addTile(MeshData, int, long)} in list order.
+     *
+     * All tiles are inserted first. Then the internal links and off-mesh connections inside every tile are built
+     * concurrently per tile. Finally the links to the neighbour tiles are built: links across tile borders only change
+     * the tile owning them, so each tile connects its borders concurrently with the others, while the few off-mesh
+     * connections landing in a neighbour tile change both tiles and are ordered into conflict free levels, see
+     * {@link TileLinkSchedule}.
+     *
+     * If a tile cannot be allocated, the tiles of the batch added so far are removed again and the exception is
+     * rethrown.
+     *
+     * @param flags
+     *            Tile flags per tile, may be null.
+     * @param lastRefs
+     *            Desired references per tile (when reloading tiles), may be null. 0 entries allocate any free tile.
+     * @param pool
+     *            Pool building the links, builds them on the caller if null.
+     * @return The tile references in list order.
+     */
+    public long[] addTiles(List<MeshData> data, int[] flags, long[] lastRefs, ForkJoinPool pool) {
+        int n = data.size();
+        MeshTile[] tiles = new MeshTile[n];
+        for (int k = 0; k < n; k++) {
+            try {
+                tiles[k] = allocTile(data.get(k), flags != null ? flags[k] : 0, lastRefs != null ? lastRefs[k] : 0);
+            } catch (RuntimeException e) {
+                for (int j = k - 1; j >= 0; j--) {
+                    removeTile(getTileRef(tiles[j]));
+                }
+                throw e;
+            }
+        }
+
+        TileLinkSchedule init = new TileLinkSchedule(m_maxTiles);
+        for (MeshTile tile : tiles) {
+            init.add(tile, () -> initTile(tile));
+        }
+        init.run(pool);
+
+        // Replay the neighbour loops of addTile(), only seeing the tiles added before each tile.
+        int[] order = new int[m_maxTiles];
+        Arrays.fill(order, -1);
+        for (int k = 0; k < n; k++) {
+            order[tiles[k].index] = k;
+        }
+        TileLinkSchedule links = new TileLinkSchedule(m_maxTiles);
+        for (int k = 0; k < n; k++) {
+            MeshTile tile = tiles[k];
+            MeshHeader header = tile.data.header;
+            for (MeshTile nei : getTilesAt(header.x, header.y)) {
+                if (order[nei.index] < k) {
+                    scheduleExtLinks(links, tile, nei, -1);
+                }
+            }
+            for (int i = 0; i < 8; ++i) {
+                for (MeshTile nei : getNeighbourTilesAt(header.x, header.y, i)) {
+                    if (order[nei.index] < k) {
+                        scheduleExtLinks(links, tile, nei, i);
+                    }
+                }
+            }
+        }
+        links.run(pool);
+        recordTileChanges(tiles);
+
+        long[] refs = new long[n];
+        for (int k = 0; k < n; k++) {
+            refs[k] = getTileRef(tiles[k]);
+        }
+        return refs;
+    }
+
+    /// Schedules the steps addTile() runs to connect the tile with one of its neighbours.
+    private void scheduleExtLinks(TileLinkSchedule schedule, MeshTile tile, MeshTile nei, int side) {
+        int opposite = side == -1 ? -1 : oppositeTile(side);
+        schedule.add(tile, () -> connectExtLinks(tile, nei, side));
+        schedule.add(nei, () -> connectExtLinks(nei, tile, opposite));
+        if (hasOffMeshCons(nei, side == -1 ? 0xff : opposite)) {
+            schedule.add(tile, nei, () -> connectExtOffMeshLinks(tile, nei, side));
+        }
+        if (hasOffMeshCons(tile, side == -1 ? 0xff : side)) {
+            schedule.add(nei, tile, () -> connectExtOffMeshLinks(nei, tile, opposite));
+        }
+    }
+
+    /// Returns true if the tile has off-mesh connections landing on the given side, see connectExtOffMeshLinks().
+    private static boolean hasOffMeshCons(MeshTile tile, int side) {
+        for (int i = 0; i < tile.data.header.offMeshConCount; ++i) {
+            if (tile.data.offMeshCons[i].side == side) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /// Allocates a tile for the data and inserts it into the position lookup.
+    private MeshTile allocTile(MeshData data, int flags, long lastRef) {
         // Make sure the data is in right format.
         MeshHeader header = data.header;
 
@@ -458,6 +636,7 @@ public class NavMesh {
 
             // Restore salt.
             tile.salt = decodePolyIdSalt(lastRef);
+            m_tileCount++;
         }
 
         // Make sure we could allocate a tile.
@@ -468,6 +647,8 @@ public class NavMesh {
         tile.data = data;
         tile.flags = flags;
         tile.links.clear();
+        tile.linksFreeList = DT_NULL_LINK;
+        tile.wallSegments = null;
 
         // Insert tile into the position lut.
         int h = computeTileHash(header.x, header.y, m_tileLutMask);
@@ -480,38 +661,17 @@ public class NavMesh {
         if (tile.data.bvTree != null && tile.data.bvTree.length == 0) {
             tile.data.bvTree = null;
         }
+        return tile;
+    }
 
-        // Init tile.
+    /// Builds the detail triangle grid and the links inside the tile.
+    private void initTile(MeshTile tile) {
+        tile.detailGrid = DetailTriGrid.build(tile.data, m_detailGridMinTris);
 
         connectIntLinks(tile);
         // Base off-mesh connections to their starting polygons and connect connections inside the tile.
         baseOffMeshLinks(tile);
         connectExtOffMeshLinks(tile, tile, -1);
-
-        // Connect with layers in current tile.
-        List<MeshTile> neis = getTilesAt(header.x, header.y);
-        for (int j = 0; j < neis.size(); ++j) {
-            if (neis.get(j) == tile) {
-                continue;
-            }
-            connectExtLinks(tile, neis.get(j), -1);
-            connectExtLinks(neis.get(j), tile, -1);
-            connectExtOffMeshLinks(tile, neis.get(j), -1);
-            connectExtOffMeshLinks(neis.get(j), tile, -1);
-        }
-
-        // Connect with neighbour tiles.
-        for (int i = 0; i < 8; ++i) {
-            neis = getNeighbourTilesAt(header.x, header.y, i);
-            for (int j = 0; j < neis.size(); ++j) {
-                connectExtLinks(tile, neis.get(j), i);
-                connectExtLinks(neis.get(j), tile, oppositeTile(i));
-                connectExtOffMeshLinks(tile, neis.get(j), i);
-                connectExtOffMeshLinks(neis.get(j), tile, oppositeTile(i));
-            }
-        }
-
-        return getTileRef(tile);
     }
 
     /// Removes the specified tile from the navigation mesh.
@@ -539,6 +699,10 @@ public class NavMesh {
         if (tile.salt != tileSalt) {
             throw new RuntimeException("Invalid tile salt");
         }
+        // The data is handed back to the caller, so restore it; the neighbours only lose links, which stay resident.
+        if (m_coldTiles != null) {
+            m_coldTiles.inflate(tile);
+        }
 
         // Remove tile from hash lookup.
         int h = computeTileHash(tile.data.header.x, tile.data.header.y, m_tileLutMask);
@@ -561,7 +725,7 @@ public class NavMesh {
         // Create connections with neighbour tiles.
 
         // Disconnect from other layers in current tile.
-        List<MeshTile> nneis = getTilesAt(tile.data.header.x, tile.data.header.y);
+        List<MeshTile> nneis = findTilesAt(tile.data.header.x, tile.data.header.y);
         for (MeshTile j : nneis) {
             if (j == tile) {
                 continue;
@@ -571,17 +735,23 @@ public class NavMesh {
 
         // Disconnect from neighbour tiles.
         for (int i = 0; i < 8; ++i) {
-            nneis = getNeighbourTilesAt(tile.data.header.x, tile.data.header.y, i);
+            nneis = findTilesAt(tile.data.header.x + NEIGHBOUR_DX[i], tile.data.header.y + NEIGHBOUR_DY[i]);
             for (MeshTile j : nneis) {
                 unconnectLinks(j, tile);
             }
         }
+        recordTileChanges(new MeshTile[] { tile });
         MeshData data = tile.data;
         // Reset tile.
         tile.data = null;
+        tile.detailGrid = null;
+        tile.packedBvTree = null;
+        tile.wallSegments = null;
+        m_temperatures.set(tile.index, 0);
 
         tile.flags = 0;
         tile.links.clear();
+        tile.linksFreeList = DT_NULL_LINK;
 
         // Update salt, salt should never be zero.
         tile.salt = (tile.salt + 1) & ((1 << DT_SALT_BITS) - 1);
@@ -670,6 +840,7 @@ public class NavMesh {
         }
 
         // Connect border links.
+        float[] edge = new float[6];
         for (int i = 0; i < tile.data.header.polyCount; ++i) {
             Poly poly = tile.data.polys[i];
 
@@ -689,9 +860,11 @@ public class NavMesh {
                 }
 
                 // Create new links
-                int va = poly.verts[j] * 3;
-                int vb = poly.verts[(j + 1) % nv] * 3;
-                Tupple3<long[], float[], Integer> connectedPolys = findConnectingPolys(tile.data.verts, va, vb, target,
+                tile.data.getVert(poly.verts[j], edge, 0);
+                tile.data.getVert(poly.verts[(j + 1) % nv], edge, 3);
+                int va = 0;
+                int vb = 3;
+                Tupple3<long[], float[], Integer> connectedPolys = findConnectingPolys(edge, va, vb, target,
                         oppositeTile(dir), 4);
                 long[] nei = connectedPolys.first;
                 float[] neia = connectedPolys.second;
@@ -708,10 +881,8 @@ public class NavMesh {
 
                     // Compress portal limits to a byte value.
                     if (dir == 0 || dir == 4) {
-                        float tmin = (neia[k * 2 + 0] - tile.data.verts[va + 2])
-                                / (tile.data.verts[vb + 2] - tile.data.verts[va + 2]);
-                        float tmax = (neia[k * 2 + 1] - tile.data.verts[va + 2])
-                                / (tile.data.verts[vb + 2] - tile.data.verts[va + 2]);
+                        float tmin = (neia[k * 2 + 0] - edge[va + 2]) / (edge[vb + 2] - edge[va + 2]);
+                        float tmax = (neia[k * 2 + 1] - edge[va + 2]) / (edge[vb + 2] - edge[va + 2]);
                         if (tmin > tmax) {
                             float temp = tmin;
                             tmin = tmax;
@@ -720,10 +891,8 @@ public class NavMesh {
                         link.bmin = (int) (clamp(tmin, 0.0f, 1.0f) * 255.0f);
                         link.bmax = (int) (clamp(tmax, 0.0f, 1.0f) * 255.0f);
                     } else if (dir == 2 || dir == 6) {
-                        float tmin = (neia[k * 2 + 0] - tile.data.verts[va])
-                                / (tile.data.verts[vb] - tile.data.verts[va]);
-                        float tmax = (neia[k * 2 + 1] - tile.data.verts[va])
-                                / (tile.data.verts[vb] - tile.data.verts[va]);
+                        float tmin = (neia[k * 2 + 0] - edge[va]) / (edge[vb] - edge[va]);
+                        float tmax = (neia[k * 2 + 1] - edge[va]) / (edge[vb] - edge[va]);
                         if (tmin > tmax) {
                             float temp = tmin;
                             tmin = tmax;
@@ -779,9 +948,7 @@ public class NavMesh {
                 continue;
             }
             // Make sure the location is on current mesh.
-            target.data.verts[targetPoly.verts[1] * 3] = nearestPt[0];
-            target.data.verts[targetPoly.verts[1] * 3 + 1] = nearestPt[1];
-            target.data.verts[targetPoly.verts[1] * 3 + 2] = nearestPt[2];
+            target.data.setVert(targetPoly.verts[1], nearestPt);
 
             // Link off-mesh connection to target poly.
             int idx = allocLink(target);
@@ -826,6 +993,7 @@ public class NavMesh {
         // Remove links pointing to 'side' and compact the links array.
         float[] bmin = new float[2];
         float[] bmax = new float[2];
+        float[] seg = new float[6];
         int m = DT_EXT_LINK | side;
         int n = 0;
         long base = getPolyRefBase(tile);
@@ -838,16 +1006,18 @@ public class NavMesh {
                 if (poly.neis[j] != m) {
                     continue;
                 }
-                int vc = poly.verts[j] * 3;
-                int vd = poly.verts[(j + 1) % nv] * 3;
-                float bpos = getSlabCoord(tile.data.verts, vc, side);
+                tile.data.getVert(poly.verts[j], seg, 0);
+                tile.data.getVert(poly.verts[(j + 1) % nv], seg, 3);
+                int vc = 0;
+                int vd = 3;
+                float bpos = getSlabCoord(seg, vc, side);
                 // Segments are not close enough.
                 if (Math.abs(apos - bpos) > 0.01f) {
                     continue;
                 }
 
                 // Check if the segments touch.
-                calcSlabEndPoints(tile.data.verts, vc, vd, bmin, bmax, side);
+                calcSlabEndPoints(seg, vc, vd, bmin, bmax, side);
 
                 if (!overlapSlabs(amin, amax, bmin, bmax, 0.01f, tile.data.header.walkableClimb)) {
                     continue;
@@ -972,9 +1142,7 @@ public class NavMesh {
                 continue;
             }
             // Make sure the location is on current mesh.
-            tile.data.verts[poly.verts[0] * 3] = nearestPt[0];
-            tile.data.verts[poly.verts[0] * 3 + 1] = nearestPt[1];
-            tile.data.verts[poly.verts[0] * 3 + 2] = nearestPt[2];
+            tile.data.setVert(poly.verts[0], nearestPt);
 
             // Link off-mesh connection to target poly.
             int idx = allocLink(tile);
@@ -1013,36 +1181,35 @@ public class NavMesh {
         int ANY_BOUNDARY_EDGE = (DT_DETAIL_EDGE_BOUNDARY << 0) | (DT_DETAIL_EDGE_BOUNDARY << 2)
                 | (DT_DETAIL_EDGE_BOUNDARY << 4);
         int ip = poly.index;
-        PolyDetail pd = tile.data.detailMeshes[ip];
+        MeshData data = tile.data;
+        int vertBase = data.getDetailVertBase(ip);
+        int triBase = data.getDetailTriBase(ip);
 
         float dmin = Float.MAX_VALUE;
         float tmin = 0;
         float[] pmin = null;
         float[] pmax = null;
 
-        for (int i = 0; i < pd.triCount; i++) {
-            int ti = (pd.triBase + i) * 4;
-            int[] tris = tile.data.detailTris;
-            if (onlyBoundary && (tris[ti + 3] & ANY_BOUNDARY_EDGE) == 0) {
+        for (int i = 0, triCount = data.getDetailTriCount(ip); i < triCount; i++) {
+            int ti = triBase + i;
+            if (onlyBoundary && (data.getDetailTri(ti, 3) & ANY_BOUNDARY_EDGE) == 0) {
                 continue;
             }
 
             float[][] v = new float[3][];
             for (int j = 0; j < 3; ++j) {
-                if (tris[ti + j] < poly.vertCount) {
-                    int index = poly.verts[tris[ti + j]] * 3;
-                    v[j] = new float[] { tile.data.verts[index], tile.data.verts[index + 1],
-                            tile.data.verts[index + 2] };
+                v[j] = new float[3];
+                int vi = data.getDetailTri(ti, j);
+                if (vi < poly.vertCount) {
+                    data.getVert(poly.verts[vi], v[j], 0);
                 } else {
-                    int index = (pd.vertBase + (tris[ti + j] - poly.vertCount)) * 3;
-                    v[j] = new float[] { tile.data.detailVerts[index], tile.data.detailVerts[index + 1],
-                            tile.data.detailVerts[index + 2] };
+                    data.getDetailVert(vertBase + (vi - poly.vertCount), v[j], 0);
                 }
             }
 
             for (int k = 0, j = 2; k < 3; j = k++) {
-                if ((getDetailTriEdgeFlags(tris[3], j) & DT_DETAIL_EDGE_BOUNDARY) == 0
-                        && (onlyBoundary || tris[j] < tris[k])) {
+                if ((getDetailTriEdgeFlags(data.getDetailTri(0, 3), j) & DT_DETAIL_EDGE_BOUNDARY) == 0
+                        && (onlyBoundary || data.getDetailTri(0, j) < data.getDetailTri(0, k))) {
                     // Only looking at boundary edges and this is internal, or
                     // this is an inner edge that we will see again or have already seen.
                     continue;
@@ -1071,36 +1238,34 @@ public class NavMesh {
         }
 
         int ip = poly.index;
-        PolyDetail pd = tile.data.detailMeshes[ip];
 
         float[] verts = new float[m_maxVertPerPoly * 3];
         int nv = poly.vertCount;
         for (int i = 0; i < nv; ++i) {
-            System.arraycopy(tile.data.verts, poly.verts[i] * 3, verts, i * 3, 3);
+            tile.data.getVert(poly.verts[i], verts, i * 3);
         }
 
-        if (!pointInPolygon(pos, verts, nv)) {
+        if (!GeometryKernels.get().pointInPolygon(pos, verts, nv)) {
             return Optional.empty();
         }
 
         // Find height at the location.
-        for (int j = 0; j < pd.triCount; ++j) {
-            int t = (pd.triBase + j) * 4;
-            float[][] v = new float[3][];
-            for (int k = 0; k < 3; ++k) {
-                if (tile.data.detailTris[t + k] < poly.vertCount) {
-                    int index = poly.verts[tile.data.detailTris[t + k]] * 3;
-                    v[k] = new float[] { tile.data.verts[index], tile.data.verts[index + 1],
-                            tile.data.verts[index + 2] };
-                } else {
-                    int index = (pd.vertBase + (tile.data.detailTris[t + k] - poly.vertCount)) * 3;
-                    v[k] = new float[] { tile.data.detailVerts[index], tile.data.detailVerts[index + 1],
-                            tile.data.detailVerts[index + 2] };
+        float[][] v = new float[3][3];
+        DetailTriGrid grid = tile.detailGrid;
+        if (grid != null && grid.hasGrid(ip)) {
+            // Only the triangles overlapping the grid cell of the position can contain it.
+            for (int i = grid.getCellStart(ip, pos), end = grid.getCellEnd(ip, pos); i < end; ++i) {
+                Optional<Float> h = getDetailTriHeight(tile, poly, grid.getTri(i), pos, v);
+                if (h.isPresent()) {
+                    return h;
                 }
             }
-            Optional<Float> h = closestHeightPointTriangle(pos, v[0], v[1], v[2]);
-            if (h.isPresent()) {
-                return h;
+        } else {
+            for (int j = 0, triCount = tile.data.getDetailTriCount(ip); j < triCount; ++j) {
+                Optional<Float> h = getDetailTriHeight(tile, poly, j, pos, v);
+                if (h.isPresent()) {
+                    return h;
+                }
             }
         }
 
@@ -1112,6 +1277,20 @@ public class NavMesh {
         return Optional.of(closest[1]);
     }
 
+    private static Optional<Float> getDetailTriHeight(MeshTile tile, Poly poly, int j, float[] pos, float[][] v) {
+        MeshData data = tile.data;
+        int t = data.getDetailTriBase(poly.index) + j;
+        for (int k = 0; k < 3; ++k) {
+            int vi = data.getDetailTri(t, k);
+            if (vi < poly.vertCount) {
+                data.getVert(poly.verts[vi], v[k], 0);
+            } else {
+                data.getDetailVert(data.getDetailVertBase(poly.index) + (vi - poly.vertCount), v[k], 0);
+            }
+        }
+        return closestHeightPointTriangle(pos, v[0], v[1], v[2]);
+    }
+
     ClosestPointOnPolyResult closestPointOnPoly(long ref, float[] pos) {
         Tupple2<MeshTile, Poly> tileAndPoly = getTileAndPolyByRefUnsafe(ref);
         MeshTile tile = tileAndPoly.first;
@@ -1126,10 +1305,10 @@ public class NavMesh {
 
         // Off-mesh connections don't have detail polygons.
         if (poly.getType() == Poly.DT_POLYTYPE_OFFMESH_CONNECTION) {
-            int i = poly.verts[0] * 3;
-            float[] v0 = new float[] { tile.data.verts[i], tile.data.verts[i + 1], tile.data.verts[i + 2] };
-            i = poly.verts[1] * 3;
-            float[] v1 = new float[] { tile.data.verts[i], tile.data.verts[i + 1], tile.data.verts[i + 2] };
+            float[] v0 = new float[3];
+            float[] v1 = new float[3];
+            tile.data.getVert(poly.verts[0], v0, 0);
+            tile.data.getVert(poly.verts[1], v1, 0);
             Tupple2<Float, Float> dt = distancePtSegSqr2D(pos, v0, v1);
             return new ClosestPointOnPolyResult(false, vLerp(v0, v1, dt.second));
         }
@@ -1180,7 +1359,7 @@ public class NavMesh {
         while (tile != null) {
             if (tile.data.header != null && tile.data.header.x == x && tile.data.header.y == y
                     && tile.data.header.layer == layer) {
-                return tile;
+                return touch(tile);
             }
             tile = tile.next;
         }
@@ -1223,6 +1402,15 @@ public class NavMesh {
     }
 
     public List<MeshTile> getTilesAt(int x, int y) {
+        List<MeshTile> tiles = findTilesAt(x, y);
+        for (MeshTile tile : tiles) {
+            touch(tile);
+        }
+        return tiles;
+    }
+
+    /// Finds the tiles at the location without counting an access or restoring compressed tiles.
+    private List<MeshTile> findTilesAt(int x, int y) {
         List<MeshTile> tiles = new ArrayList<>();
         // Find tile based on hash.
         int h = computeTileHash(x, y, m_tileLutMask);
@@ -1236,6 +1424,151 @@ public class NavMesh {
         return tiles;
     }
 
+    /**
+     * Sets the loader notified before tiles are accessed by queries, e.g. to stream tiles in on demand. Pass null to
+     * disable streaming.
+     */
+    public void setTileLoader(TileLoader loader) {
+        m_tileLoader = loader;
+    }
+
+    public TileLoader getTileLoader() {
+        return m_tileLoader;
+    }
+
+    /**
+     * Sets the minimum number of detail triangles of a polygon for building a grid over them when its tile is added,
+     * which speeds up height queries on detailed terrain. Pass 0 to disable the grids. Tiles already added are not
+     * affected.
+     */
+    public void setDetailGridMinTris(int minTris) {
+        m_detailGridMinTris = minTris;
+    }
+
+    public int getDetailGridMinTris() {
+        return m_detailGridMinTris;
+    }
+
+    /**
+     * Enables caching the wall segments of the polygons per tile, so that NavMeshQuery#getPolyWallSegments and
+     * NavMeshQuery#findDistanceToWall with a DefaultQueryFilter iterate precomputed segments instead of walking the
+     * links. The segments of a tile are computed on first use per filter flag set and dropped when the tile or its
+     * neighbours are added or removed, or when polygon flags are changed through this class. Disabled by default;
+     * polygon flags changed directly on Poly are not noticed.
+     */
+    public void setWallSegmentCache(boolean enabled) {
+        m_wallSegmentCache = enabled;
+        if (!enabled) {
+            for (MeshTile tile : m_tiles) {
+                tile.wallSegments = null;
+            }
+        }
+    }
+
+    public boolean isWallSegmentCacheEnabled() {
+        return m_wallSegmentCache;
+    }
+
+    /**
+     * Limits the number of tiles kept fully inflated in memory. Each {@link #compressColdTiles()} pass LZ4-compresses
+     * the vertices, detail meshes and BV trees of the least accessed tiles above the budget; a compressed tile is
+     * restored transparently when a query or any of the tile accessors of this class touches it again. Polygon
+     * references, Poly instances, off-mesh connections and links stay resident and valid. Pass a negative budget to
+     * disable compression and restore all compressed tiles. Disabled by default.
+     */
+    public void setResidentTileBudget(int maxResidentTiles) {
+        if (maxResidentTiles < 0) {
+            if (m_coldTiles != null) {
+                for (MeshTile tile : m_tiles) {
+                    m_coldTiles.inflate(tile);
+                }
+            }
+            m_coldTiles = null;
+        } else {
+            m_coldTiles = new ColdTileCompressor(maxResidentTiles);
+        }
+    }
+
+    /** Returns the resident tile budget, or -1 if cold tile compression is disabled. */
+    public int getResidentTileBudget() {
+        return m_coldTiles != null ? m_coldTiles.getMaxResidentTiles() : -1;
+    }
+
+    /**
+     * Compresses the coldest tiles until the number of inflated tiles fits the resident budget, then halves the access
+     * counts of all tiles so that the temperature follows recent use. Intended to be called periodically from the
+     * thread that adds and removes tiles, while no queries are running on the navmesh.
+     *
+     * @return The number of tiles compressed.
+     */
+    public int compressColdTiles() {
+        if (m_coldTiles == null) {
+            return 0;
+        }
+        List<MeshTile> resident = new ArrayList<>();
+        for (MeshTile tile : m_tiles) {
+            // Shared tile data is paged by the operating system, see MeshDataView.
+            if (tile.data != null && tile.compressed == null && !tile.data.isShared()) {
+                resident.add(tile);
+            }
+        }
+        int excess = resident.size() - m_coldTiles.getMaxResidentTiles();
+        if (excess > 0) {
+            resident.sort((a, b) -> Integer.compare(m_temperatures.get(a.index), m_temperatures.get(b.index)));
+            for (int i = 0; i < excess; i++) {
+                m_coldTiles.compress(resident.get(i));
+            }
+        }
+        for (int i = 0; i < m_maxTiles; i++) {
+            m_temperatures.set(i, m_temperatures.get(i) >> 1);
+        }
+        return Math.max(excess, 0);
+    }
+
+    /** Returns the current cold tile compression statistics, or null if compression is disabled. */
+    public TileCompressionStats getTileCompressionStats() {
+        return m_coldTiles != null ? m_coldTiles.getStats(m_tiles) : null;
+    }
+
+    /// Counts a query access to the tile and restores its data if it was compressed.
+    private MeshTile touch(MeshTile tile) {
+        ColdTileCompressor coldTiles = m_coldTiles;
+        if (coldTiles != null) {
+            m_temperatures.incrementAndGet(tile.index);
+            if (tile.compressed != null) {
+                coldTiles.inflate(tile);
+            }
+        }
+        return tile;
+    }
+
+    /// Gives the tile loader a chance to add the tiles at the location before they are accessed.
+    void loadTilesAt(int x, int y) {
+        if (m_tileLoader != null) {
+            m_tileLoader.loadTilesAt(x, y);
+        }
+    }
+
+    /// Makes sure the tiles across the external portal edges of the polygon are loaded, so that the links
+    /// leaving the polygon exist before they are traversed.
+    void loadNeighbourTiles(MeshTile tile, Poly poly) {
+        if (m_tileLoader == null) {
+            return;
+        }
+        MeshHeader header = tile.data.header;
+        m_tileLoader.loadTilesAt(header.x, header.y);
+        int sides = 0;
+        for (int j = 0; j < poly.vertCount; ++j) {
+            if ((poly.neis[j] & DT_EXT_LINK) != 0) {
+                int side = poly.neis[j] & 0xff;
+                if (side < 8 && (sides & (1 << side)) == 0) {
+                    sides |= 1 << side;
+                    m_tileLoader.loadTilesAt(header.x + NEIGHBOUR_DX[side], header.y + NEIGHBOUR_DY[side]);
+                }
+            }
+        }
+    }
+
     public long getTileRefAt(int x, int y, int layer) {
         // Find tile based on hash.
         int h = computeTileHash(x, y, m_tileLutMask);
@@ -1263,7 +1596,7 @@ public class NavMesh {
         if (tile.salt != tileSalt) {
             return null;
         }
-        return tile;
+        return touch(tile);
     }
 
     public long getTileRef(MeshTile tile) {
@@ -1307,7 +1640,7 @@ public class NavMesh {
         if (m_tiles[it].salt != salt || m_tiles[it].data.header == null) {
             return Result.invalidParam("Invalid salt or missing tile header");
         }
-        MeshTile tile = m_tiles[it];
+        MeshTile tile = touch(m_tiles[it]);
         if (ip >= tile.data.header.polyCount) {
             return Result.invalidParam("Invalid poly ID > poly count");
         }
@@ -1333,8 +1666,8 @@ public class NavMesh {
         }
         float[] startPos = new float[3];
         float[] endPos = new float[3];
-        vCopy(startPos, tile.data.verts, poly.verts[idx0] * 3);
-        vCopy(endPos, tile.data.verts, poly.verts[idx1] * 3);
+        tile.data.getVert(poly.verts[idx0], startPos, 0);
+        tile.data.getVert(poly.verts[idx1], endPos, 0);
         return Result.success(new Tupple2<>(startPos, endPos));
 
     }
@@ -1368,7 +1701,10 @@ public class NavMesh {
         Poly poly = tile.data.polys[ip];
 
         // Change flags.
-        poly.flags = flags;
+        if (poly.flags != flags) {
+            poly.flags = flags;
+            recordChange(new int[] { it });
+        }
         return Status.SUCCSESS;
     }
 
@@ -1415,11 +1751,204 @@ public class NavMesh {
         }
         Poly poly = tile.data.polys[ip];
 
-        poly.setArea(area);
+        if (poly.getArea() != (area & 0x3f)) {
+            poly.setArea(area);
+            recordChange(new int[] { it });
+        }
 
         return Status.SUCCSESS;
     }
 
+    /// Records the change in the journal and drops the cached wall segments of the changed tiles and of their
+    /// neighbours, whose border segments depend on the flags of the changed polygons.
+    private void recordChange(int[] tiles) {
+        m_changeJournal.record(tiles);
+        for (int it : tiles) {
+            MeshTile tile = m_tiles[it];
+            tile.wallSegments = null;
+            if (tile.data == null) {
+                continue;
+            }
+            for (MeshTile nei : findTilesAt(tile.data.header.x, tile.data.header.y)) {
+                nei.wallSegments = null;
+            }
+            for (int i = 0; i < 8; ++i) {
+                for (MeshTile nei : findTilesAt(tile.data.header.x + NEIGHBOUR_DX[i],
+                        tile.data.header.y + NEIGHBOUR_DY[i])) {
+                    nei.wallSegments = null;
+                }
+            }
+        }
+    }
+
+    /// Records added or removed tiles in the journal together with the tiles around them, whose links to them
+    /// changed. Called while the tiles still have their data.
+    private void recordTileChanges(MeshTile[] tiles) {
+        int n = 0;
+        for (MeshTile tile : tiles) {
+            MeshHeader header = tile.data.header;
+            List<MeshTile> around = findTilesAt(header.x, header.y);
+            for (int i = 0; i < 8; ++i) {
+                around.addAll(findTilesAt(header.x + NEIGHBOUR_DX[i], header.y + NEIGHBOUR_DY[i]));
+            }
+            around.add(tile);
+            for (MeshTile t : around) {
+                if (!m_changedTileMarks[t.index]) {
+                    m_changedTileMarks[t.index] = true;
+                    if (n == m_changedTiles.length) {
+                        m_changedTiles = Arrays.copyOf(m_changedTiles, n * 2);
+                    }
+                    m_changedTiles[n++] = t.index;
+                }
+            }
+        }
+        for (int i = 0; i < n; i++) {
+            m_changedTileMarks[m_changedTiles[i]] = false;
+        }
+        recordChange(Arrays.copyOf(m_changedTiles, n));
+    }
+
+    /**
+     * Returns the journal of the polygon flag and area changes, which consumers can poll to find out whether and where
+     * the navigation mesh changed.
+     */
+    public PolyChangeJournal getChangeJournal() {
+        return m_changeJournal;
+    }
+
+    /**
+     * Sets the flags of all the polygons in one pass and records a single journal entry. Invalid references are
+     * skipped.
+     *
+     * @return The number of polygons whose flags changed.
+     */
+    public int setPolyFlags(long[] refs, int flags) {
+        return updatePolys(refs, flags, -1);
+    }
+
+    /**
+     * Sets the area of all the polygons in one pass and records a single journal entry. Invalid references are skipped.
+     *
+     * @return The number of polygons whose area changed.
+     */
+    public int setPolyArea(long[] refs, char area) {
+        return updatePolys(refs, -1, area & 0x3f);
+    }
+
+    /**
+     * Sets the flags of every ground polygon overlapping the box. Only resident tiles are affected.
+     *
+     * @return The number of polygons whose flags changed.
+     */
+    public int setPolyFlagsInBox(float[] bmin, float[] bmax, int flags) {
+        return updatePolys(findPolysInVolume(bmin, bmax, null, 0), flags, -1);
+    }
+
+    public int setPolyAreaInBox(float[] bmin, float[] bmax, char area) {
+        return updatePolys(findPolysInVolume(bmin, bmax, null, 0), -1, area & 0x3f);
+    }
+
+    /**
+     * Sets the flags of every ground polygon whose center lies inside the convex volume, given by its xz outline
+     * [(x, y, z) * nverts] and height range.
+     *
+     * @return The number of polygons whose flags changed.
+     */
+    public int setPolyFlagsInConvexVolume(float[] verts, int nverts, float hmin, float hmax, int flags) {
+        return updatePolys(findPolysInConvexVolume(verts, nverts, hmin, hmax), flags, -1);
+    }
+
+    public int setPolyAreaInConvexVolume(float[] verts, int nverts, float hmin, float hmax, char area) {
+        return updatePolys(findPolysInConvexVolume(verts, nverts, hmin, hmax), -1, area & 0x3f);
+    }
+
+    /// Applies the new flags and/or area (negative values are left as they are) and records the changed tiles.
+    private int updatePolys(long[] refs, int flags, int area) {
+        int[] tiles = new int[refs.length];
+        int ntiles = 0;
+        int changed = 0;
+        for (long ref : refs) {
+            int it = decodePolyIdTile(ref);
+            int ip = decodePolyIdPoly(ref);
+            if (ref == 0 || it >= m_maxTiles) {
+                continue;
+            }
+            MeshTile tile = m_tiles[it];
+            if (tile.salt != decodePolyIdSalt(ref) || tile.data == null || ip >= tile.data.header.polyCount) {
+                continue;
+            }
+            Poly poly = tile.data.polys[ip];
+            boolean modified = false;
+            if (flags >= 0 && poly.flags != flags) {
+                poly.flags = flags;
+                modified = true;
+            }
+            if (area >= 0 && poly.getArea() != area) {
+                poly.setArea(area);
+                modified = true;
+            }
+            if (modified) {
+                changed++;
+                if (ntiles == 0 || tiles[ntiles - 1] != it) {
+                    tiles[ntiles++] = it;
+                }
+            }
+        }
+        if (changed > 0) {
+            recordChange(Arrays.stream(tiles, 0, ntiles).distinct().toArray());
+        }
+        return changed;
+    }
+
+    private long[] findPolysInVolume(float[] bmin, float[] bmax, float[] verts, int nverts) {
+        List<Long> polys = new ArrayList<>();
+        int[] minxy = calcTileLoc(bmin);
+        int[] maxxy = calcTileLoc(bmax);
+        float[] center = new float[3];
+        for (int y = minxy[1]; y <= maxxy[1]; ++y) {
+            for (int x = minxy[0]; x <= maxxy[0]; ++x) {
+                for (MeshTile tile : getTilesAt(x, y)) {
+                    for (long ref : queryPolygonsInTile(tile, bmin, bmax)) {
+                        if (verts != null) {
+                            Poly poly = tile.data.polys[decodePolyIdPoly(ref)];
+                            calcPolyCenter(tile, poly, center);
+                            if (!pointInPolygon(center, verts, nverts)) {
+                                continue;
+                            }
+                        }
+                        polys.add(ref);
+                    }
+                }
+            }
+        }
+        return polys.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    private long[] findPolysInConvexVolume(float[] verts, int nverts, float hmin, float hmax) {
+        float[] bmin = { Float.MAX_VALUE, hmin, Float.MAX_VALUE };
+        float[] bmax = { -Float.MAX_VALUE, hmax, -Float.MAX_VALUE };
+        for (int i = 0; i < nverts; ++i) {
+            bmin[0] = Math.min(bmin[0], verts[i * 3]);
+            bmin[2] = Math.min(bmin[2], verts[i * 3 + 2]);
+            bmax[0] = Math.max(bmax[0], verts[i * 3]);
+            bmax[2] = Math.max(bmax[2], verts[i * 3 + 2]);
+        }
+        return findPolysInVolume(bmin, bmax, verts, nverts);
+    }
+
+    private static void calcPolyCenter(MeshTile tile, Poly poly, float[] center) {
+        center[0] = center[1] = center[2] = 0;
+        for (int j = 0; j < poly.vertCount; ++j) {
+            center[0] += tile.data.getVert(poly.verts[j], 0);
+            center[1] += tile.data.getVert(poly.verts[j], 1);
+            center[2] += tile.data.getVert(poly.verts[j], 2);
+        }
+        float s = 1.0f / poly.vertCount;
+        center[0] *= s;
+        center[1] *= s;
+        center[2] *= s;
+    }
+
     public Result<Integer> getPolyArea(long ref) {
         if (ref == 0) {
             return Result.failure();
@@ -287,6 +287,8 @@ public class NavMeshBuilder {
             return null;
         if (params.polyCount == 0 || params.polys == null)
             return null;
+        if (params.reorderPolys)
+            params = PolyReorder.reorder(params);
 
         int nvp = params.nvp;
 
@@ -605,10 +607,10 @@ public class NavMeshBuilder {
 
         MeshData nmd = new MeshData();
         nmd.header = header;
-        nmd.verts = navVerts;
+        nmd.setVerts(navVerts);
         nmd.polys = navPolys;
         nmd.detailMeshes = navDMeshes;
-        nmd.detailVerts = navDVerts;
+        nmd.setDetailVerts(navDVerts);
         nmd.detailTris = navDTris;
         nmd.bvTree = navBvtree;
         nmd.offMeshCons = offMeshCons;
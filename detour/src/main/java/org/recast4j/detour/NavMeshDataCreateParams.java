@@ -96,6 +96,10 @@ public class NavMeshDataCreateParams {
     /// @note The BVTree is not normally needed for layered navigation meshes.
     public boolean buildBvTree;
 
+    /// True if the polygons, their vertices and detail meshes should be reordered so that neighbouring polygons are
+    /// close in memory. Changes the polygon ids.
+    public boolean reorderPolys;
+
     /// @}
 
 }
\ No newline at end of file
@@ -0,0 +1,295 @@
+/*
+recast4j copyright (c) 2015-2019 Piotr Piastucki piotr@jtilia.org
+
+This software is provided 'as-is', without any express or implied
+warranty.  In no event will the authors be held liable for any damages
+arising from the use of this software.
+Permission is granted to anyone to use this software for any purpose,
+including commercial applications, and to alter it and redistribute it
+freely, subject to the following restrictions:
+1. The origin of this software must not be misrepresented; you must not
+ claim that you wrote the original software. If you use this software
+ in a product, an acknowledgment in the product documentation would be
+ appreciated but is not required.
+2. Altered source versions must be plainly marked as such, and must not be
+ misrepresented as being the original software.
+3. This notice may not be removed or altered from any source distribution.
+*/
+package org.recast4j.detour;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Asynchronous path-finding on top of {@link NavMeshQuery}.
+ *
+ * Requests run on an executor, each task borrowing a query from a pool so that concurrent tasks never share one.
+ * Identical requests in flight (same polygons, positions and filter instance) share a single search. A new request
+ * from the same requester cancels its previous one; the search is only abandoned once no requester is waiting for it.
+ * At most maxPending searches are queued or running, further requests are handled by the {@link RejectionPolicy}.
+ *
+ * The navigation mesh must not be modified (tiles added or removed, flags changed) while requests are running.
+ */
+public class NavMeshPathService implements AutoCloseable {
+
+    public static final int DEFAULT_MAX_PENDING = 1024;
+    public static final int DEFAULT_MAX_STRAIGHT_PATH = 256;
+
+    public enum RejectionPolicy {
+        /** Fail the returned future with a RejectedExecutionException. */
+        FAIL,
+        /** Run the search on the calling thread. */
+        CALLER_RUNS
+    }
+
+    private final NavMesh m_nav;
+    private final Executor m_executor;
+    private final ExecutorService m_ownedExecutor;
+    private final int m_maxPending;
+    private final RejectionPolicy m_rejectionPolicy;
+    private final ConcurrentLinkedQueue<NavMeshQuery> m_queries = new ConcurrentLinkedQueue<>();
+    private final Map<PathKey, Search> m_searches = new ConcurrentHashMap<>();
+    private final Map<Object, CompletableFuture<PackedPath>> m_latest = new ConcurrentHashMap<>();
+    private final AtomicInteger m_pending = new AtomicInteger();
+
+    /**
+     * Creates a service running on virtual threads when the JDK has them, or on a daemon thread pool with one thread
+     * per processor otherwise.
+     */
+    public NavMeshPathService(NavMesh nav) {
+        this(nav, createDefaultExecutor(), true, DEFAULT_MAX_PENDING, RejectionPolicy.FAIL);
+    }
+
+    public NavMeshPathService(NavMesh nav, Executor executor, int maxPending, RejectionPolicy rejectionPolicy) {
+        this(nav, executor, false, maxPending, rejectionPolicy);
+    }
+
+    private NavMeshPathService(NavMesh nav, Executor executor, boolean ownsExecutor, int maxPending,
+            RejectionPolicy rejectionPolicy) {
+        m_nav = nav;
+        m_executor = executor;
+        m_ownedExecutor = ownsExecutor ? (ExecutorService) executor : null;
+        m_maxPending = maxPending;
+        m_rejectionPolicy = rejectionPolicy;
+    }
+
+    static ExecutorService createDefaultExecutor() {
+        try {
+            Method m = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) m.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), r -> {
+                Thread t = new Thread(r, "navmesh-path-service");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+
+    /**
+     * Requests a path between the polygons.
+     *
+     * @param requester
+     *            Identifies the caller, e.g. an agent. Its previous request is cancelled. May be null.
+     * @return A future completed with the path, or cancelled if superseded by a newer request of the requester.
+     */
+    public CompletableFuture<PackedPath> requestPath(Object requester, long startRef, long endRef, float[] startPos,
+            float[] endPos, QueryFilter filter) {
+        PathKey key = new PathKey(startRef, endRef, startPos, endPos, filter);
+        Search[] created = new Search[1];
+        Search search = m_searches.compute(key, (k, existing) -> {
+            if (existing != null && existing.retain()) {
+                return existing;
+            }
+            created[0] = new Search(k);
+            return created[0];
+        });
+        CompletableFuture<PackedPath> future = new CompletableFuture<>();
+        search.result.whenComplete((path, e) -> {
+            if (e != null) {
+                future.completeExceptionally(e);
+            } else {
+                future.complete(path);
+            }
+        });
+        future.whenComplete((path, e) -> {
+            if (future.isCancelled()) {
+                search.release();
+            }
+            if (requester != null) {
+                m_latest.remove(requester, future);
+            }
+        });
+        if (requester != null) {
+            CompletableFuture<PackedPath> previous = m_latest.put(requester, future);
+            if (previous != null) {
+                previous.cancel(false);
+            }
+        }
+        if (created[0] != null) {
+            submit(created[0]);
+        }
+        return future;
+    }
+
+    /** Number of searches queued or running. */
+    public int getPendingCount() {
+        return m_pending.get();
+    }
+
+    private void submit(Search search) {
+        if (m_pending.incrementAndGet() > m_maxPending) {
+            m_pending.decrementAndGet();
+            if (m_rejectionPolicy == RejectionPolicy.CALLER_RUNS) {
+                run(search);
+            } else {
+                m_searches.remove(search.key, search);
+                search.result.completeExceptionally(new RejectedExecutionException("Too many pending path requests"));
+            }
+            return;
+        }
+        try {
+            m_executor.execute(() -> {
+                try {
+                    run(search);
+                } finally {
+                    m_pending.decrementAndGet();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            m_pending.decrementAndGet();
+            m_searches.remove(search.key, search);
+            search.result.completeExceptionally(e);
+        }
+    }
+
+    private void run(Search search) {
+        try {
+            if (!search.result.isDone()) {
+                NavMeshQuery query = m_queries.poll();
+                if (query == null) {
+                    query = new NavMeshQuery(m_nav);
+                }
+                try {
+                    search.result.complete(findPath(query, search.key));
+                } finally {
+                    m_queries.offer(query);
+                }
+            }
+        } catch (RuntimeException e) {
+            search.result.completeExceptionally(e);
+        } finally {
+            m_searches.remove(search.key, search);
+        }
+    }
+
+    private static PackedPath findPath(NavMeshQuery query, PathKey key) {
+        Result<List<Long>> path = query.findPath(key.startRef, key.endRef, key.startPos, key.endPos, key.filter);
+        if (path.failed() || path.result.isEmpty()) {
+            return new PackedPath(path.status, new long[0], new float[0], new int[0]);
+        }
+        long[] polys = new long[path.result.size()];
+        for (int i = 0; i < polys.length; i++) {
+            polys[i] = path.result.get(i);
+        }
+        // Partial path, stop at the point closest to the target on the last polygon.
+        float[] endPos = key.endPos;
+        long lastRef = polys[polys.length - 1];
+        if (lastRef != key.endRef) {
+            Result<float[]> closest = query.closestPointOnPolyBoundary(lastRef, endPos);
+            if (closest.succeeded()) {
+                endPos = closest.result;
+            }
+        }
+        Result<List<StraightPathItem>> straight = query.findStraightPath(key.startPos, endPos, path.result,
+                DEFAULT_MAX_STRAIGHT_PATH, 0);
+        List<StraightPathItem> items = straight.succeeded() ? straight.result : null;
+        int n = items != null ? items.size() : 0;
+        float[] points = new float[n * 3];
+        int[] flags = new int[n];
+        for (int i = 0; i < n; i++) {
+            StraightPathItem item = items.get(i);
+            System.arraycopy(item.getPos(), 0, points, i * 3, 3);
+            flags[i] = item.getFlags();
+        }
+        return new PackedPath(path.status, polys, points, flags);
+    }
+
+    /** Shuts down the default executor. Executors passed to the constructor are left to the caller. */
+    @Override
+    public void close() {
+        if (m_ownedExecutor != null) {
+            m_ownedExecutor.shutdown();
+        }
+    }
+
+    /// A path search shared by all the requests with the same key.
+    private class Search {
+        final PathKey key;
+        final CompletableFuture<PackedPath> result = new CompletableFuture<>();
+        private int interest = 1;
+
+        Search(PathKey key) {
+            this.key = key;
+        }
+
+        /// Registers another requester, returns false if the search is already finished or abandoned.
+        synchronized boolean retain() {
+            if (interest == 0 || result.isDone()) {
+                return false;
+            }
+            interest++;
+            return true;
+        }
+
+        synchronized void release() {
+            if (--interest == 0 && result.cancel(false)) {
+                m_searches.remove(key, this);
+            }
+        }
+    }
+
+    private static class PathKey {
+        final long startRef;
+        final long endRef;
+        final float[] startPos;
+        final float[] endPos;
+        final QueryFilter filter;
+        private final int hash;
+
+        PathKey(long startRef, long endRef, float[] startPos, float[] endPos, QueryFilter filter) {
+            this.startRef = startRef;
+            this.endRef = endRef;
+            this.startPos = startPos.clone();
+            this.endPos = endPos.clone();
+            this.filter = filter;
+            hash = 31 * (31 * (31 * Long.hashCode(startRef) + Long.hashCode(endRef)) + Arrays.hashCode(startPos))
+                    + Arrays.hashCode(endPos) + System.identityHashCode(filter);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof PathKey)) {
+                return false;
+            }
+            PathKey o = (PathKey) obj;
+            return startRef == o.startRef && endRef == o.endRef && filter == o.filter
+                    && Arrays.equals(startPos, o.startPos) && Arrays.equals(endPos, o.endPos);
+        }
+    }
+}
@@ -19,14 +19,11 @@ freely, subject to the following restrictions:
 package org.recast4j.detour;
 
 import static org.recast4j.detour.DetourCommon.clamp;
-import static org.recast4j.detour.DetourCommon.distancePtPolyEdgesSqr;
 import static org.recast4j.detour.DetourCommon.distancePtSegSqr2D;
 import static org.recast4j.detour.DetourCommon.intersectSegSeg2D;
 import static org.recast4j.detour.DetourCommon.intersectSegmentPoly2D;
 import static org.recast4j.detour.DetourCommon.overlapBounds;
 import static org.recast4j.detour.DetourCommon.overlapPolyPoly2D;
-import static org.recast4j.detour.DetourCommon.overlapQuantBounds;
-import static org.recast4j.detour.DetourCommon.pointInPolygon;
 import static org.recast4j.detour.DetourCommon.randomPointInConvexPoly;
 import static org.recast4j.detour.DetourCommon.sqr;
 import static org.recast4j.detour.DetourCommon.triArea2D;
@@ -39,7 +36,6 @@ import static org.recast4j.detour.DetourCommon.vIsFinite;
 import static org.recast4j.detour.DetourCommon.vIsFinite2D;
 import static org.recast4j.detour.DetourCommon.vLenSqr;
 import static org.recast4j.detour.DetourCommon.vLerp;
-import static org.recast4j.detour.DetourCommon.vMad;
 import static org.recast4j.detour.DetourCommon.vMax;
 import static org.recast4j.detour.DetourCommon.vMin;
 import static org.recast4j.detour.DetourCommon.vNormalize;
@@ -48,6 +44,7 @@ import static org.recast4j.detour.Node.DT_NODE_CLOSED;
 import static org.recast4j.detour.Node.DT_NODE_OPEN;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Objects;
@@ -70,6 +67,9 @@ public class NavMeshQuery {
     /** Raycast should calculate movement cost along the ray and fill RaycastHit::cost */
     public static final int DT_RAYCAST_USE_COSTS = 0x01;
 
+    /// Number of iterations between clock reads of time-budgeted sliced path queries.
+    public static final int DT_SLICED_TIME_CHECK_ITERS = 16;
+
     /// Vertex flags returned by findStraightPath.
     /** The vertex is the start position in the path. */
     public static final int DT_STRAIGHTPATH_START = 0x01;
@@ -88,8 +88,24 @@ public class NavMeshQuery {
     private final NavMesh m_nav;
     private final NodePool m_nodePool;
     private final NodePool m_tinyNodePool;
+    /// Search state of moveAlongSurface(), created on first use.
+    private MoveAlongSurfaceSearch m_moveSearch;
+    /// Walk of raycast(), created on first use.
+    private RaycastKernel m_raycast;
     private final NodeQueue m_openList;
     private QueryData m_query; /// < Sliced query state.
+    private AnyAngleRaycast m_anyAngle; /// < Line of sight state of any-angle sliced queries.
+    private AnyAngleRaycast m_findAnyAngle; /// < Line of sight state of findPathAnyAngle().
+    private QueryInstrumentation m_instrumentation;
+    private boolean m_instrumenting; /// < True while an instrumented query runs, nested queries are not reported.
+    private final QueryStats m_stats = new QueryStats();
+    private final QueryStatsFilter m_statsFilter = new QueryStatsFilter(m_stats);
+    private final QueryStats m_slicedStats = new QueryStats();
+    private final QueryStatsFilter m_slicedStatsFilter = new QueryStatsFilter(m_slicedStats);
+    private boolean m_slicedInstrumented;
+    private int m_slicedPopBase;
+    private int[] m_bvPolys = new int[0]; /// < Leaf polygons of the last BV tree query.
+    private final float[] m_edge = new float[6]; /// < Edge end points of getPortalPoints() and wall segments.
 
     public NavMeshQuery(NavMesh nav) {
         m_nav = nav;
@@ -98,6 +114,42 @@ public class NavMeshQuery {
         m_openList = new NodeQueue();
     }
 
+    /**
+     * Sets the instrumentation notified after every path-finding, raycast and polygon query, or null to disable it.
+     */
+    public void setInstrumentation(QueryInstrumentation instrumentation) {
+        m_instrumentation = instrumentation;
+    }
+
+    public QueryInstrumentation getInstrumentation() {
+        return m_instrumentation;
+    }
+
+    /// Starts collecting the stats of a query, returns false if instrumentation is disabled or the query is nested.
+    private boolean beginQuery() {
+        if (m_instrumentation == null || m_instrumenting) {
+            return false;
+        }
+        m_instrumenting = true;
+        m_stats.reset();
+        m_stats.nodesExpanded = m_openList.getPopCount();
+        m_stats.nanos = System.nanoTime();
+        return true;
+    }
+
+    private <T> Result<T> endQuery(QueryType type, Result<T> result) {
+        m_stats.nanos = System.nanoTime() - m_stats.nanos;
+        finishStats(m_stats, m_stats.nodesExpanded, result.status);
+        m_instrumentation.onQuery(type, m_stats);
+        return result;
+    }
+
+    private void finishStats(QueryStats stats, int popBase, Status status) {
+        stats.nodesExpanded = m_openList.getPopCount() - popBase;
+        stats.maxOpenListSize = stats.nodesExpanded > 0 ? m_openList.getMaxSize() : 0;
+        stats.status = status;
+    }
+
     public static class FRand {
         Random r = new Random();
 
@@ -147,6 +199,7 @@ public class NavMeshQuery {
         long base = m_nav.getPolyRefBase(tile);
 
         float areaSum = 0.0f;
+        float[] polyVerts = new float[3 * m_nav.getMaxVertsPerPoly()];
         for (int i = 0; i < tile.data.header.polyCount; ++i) {
             Poly p = tile.data.polys[i];
             // Do not return off-mesh connection polygons.
@@ -161,11 +214,11 @@ public class NavMeshQuery {
 
             // Calc area of the polygon.
             float polyArea = 0.0f;
+            for (int j = 0; j < p.vertCount; ++j) {
+                tile.data.getVert(p.verts[j], polyVerts, j * 3);
+            }
             for (int j = 2; j < p.vertCount; ++j) {
-                int va = p.verts[0] * 3;
-                int vb = p.verts[j - 1] * 3;
-                int vc = p.verts[j] * 3;
-                polyArea += triArea2D(tile.data.verts, va, vb, vc);
+                polyArea += triArea2D(polyVerts, 0, (j - 1) * 3, j * 3);
             }
 
             // Choose random polygon weighted by area, using reservoi sampling.
@@ -184,9 +237,8 @@ public class NavMeshQuery {
         // Randomly pick point on polygon.
         float[] verts = new float[3 * m_nav.getMaxVertsPerPoly()];
         float[] areas = new float[m_nav.getMaxVertsPerPoly()];
-        System.arraycopy(tile.data.verts, poly.verts[0] * 3, verts, 0, 3);
-        for (int j = 1; j < poly.vertCount; ++j) {
-            System.arraycopy(tile.data.verts, poly.verts[j] * 3, verts, j * 3, 3);
+        for (int j = 0; j < poly.vertCount; ++j) {
+            tile.data.getVert(poly.verts[j], verts, j * 3);
         }
 
         float s = frand.frand();
@@ -248,6 +300,7 @@ public class NavMeshQuery {
 
         float radiusSqr = maxRadius * maxRadius;
         float areaSum = 0.0f;
+        float[] polyVerts = new float[3 * m_nav.getMaxVertsPerPoly()];
 
         MeshTile randomTile = null;
         Poly randomPoly = null;
@@ -268,11 +321,11 @@ public class NavMeshQuery {
             if (bestPoly.getType() == Poly.DT_POLYTYPE_GROUND) {
                 // Calc area of the polygon.
                 float polyArea = 0.0f;
+                for (int j = 0; j < bestPoly.vertCount; ++j) {
+                    bestTile.data.getVert(bestPoly.verts[j], polyVerts, j * 3);
+                }
                 for (int j = 2; j < bestPoly.vertCount; ++j) {
-                    int va = bestPoly.verts[0] * 3;
-                    int vb = bestPoly.verts[j - 1] * 3;
-                    int vc = bestPoly.verts[j] * 3;
-                    polyArea += triArea2D(bestTile.data.verts, va, vb, vc);
+                    polyArea += triArea2D(polyVerts, 0, (j - 1) * 3, j * 3);
                 }
                 // Choose random polygon weighted by area, using reservoi sampling.
                 areaSum += polyArea;
@@ -337,7 +390,7 @@ public class NavMeshQuery {
 
                 // Cost
                 if (neighbourNode.flags == 0) {
-                    neighbourNode.pos = vLerp(va, vb, 0.5f);
+                    vLerp(neighbourNode.pos, va, vb, 0.5f);
                 }
 
                 float total = bestNode.total + vDist(bestNode.pos, neighbourNode.pos);
@@ -368,9 +421,8 @@ public class NavMeshQuery {
         // Randomly pick point on polygon.
         float[] verts = new float[3 * m_nav.getMaxVertsPerPoly()];
         float[] areas = new float[m_nav.getMaxVertsPerPoly()];
-        System.arraycopy(randomTile.data.verts, randomPoly.verts[0] * 3, verts, 0, 3);
-        for (int j = 1; j < randomPoly.vertCount; ++j) {
-            System.arraycopy(randomTile.data.verts, randomPoly.verts[j] * 3, verts, j * 3, 3);
+        for (int j = 0; j < randomPoly.vertCount; ++j) {
+            randomTile.data.getVert(randomPoly.verts[j], verts, j * 3);
         }
 
         float s = frand.frand();
@@ -446,11 +498,11 @@ public class NavMeshQuery {
         float[] edget = new float[m_nav.getMaxVertsPerPoly()];
         int nv = poly.vertCount;
         for (int i = 0; i < nv; ++i) {
-            System.arraycopy(tile.data.verts, poly.verts[i] * 3, verts, i * 3, 3);
+            tile.data.getVert(poly.verts[i], verts, i * 3);
         }
 
         float[] closest;
-        if (distancePtPolyEdgesSqr(pos, verts, nv, edged, edget)) {
+        if (GeometryKernels.get().distancePtPolyEdgesSqr(pos, verts, nv, edged, edget)) {
             closest = vCopy(pos);
         } else {
             // Point is outside the polygon, dtClamp to nearest edge.
@@ -496,10 +548,10 @@ public class NavMeshQuery {
         // getPolyHeight in DetourNavMesh does not do this, so special
         // case it here.
         if (poly.getType() == Poly.DT_POLYTYPE_OFFMESH_CONNECTION) {
-            int i = poly.verts[0] * 3;
-            float[] v0 = new float[] { tile.data.verts[i], tile.data.verts[i + 1], tile.data.verts[i + 2] };
-            i = poly.verts[1] * 3;
-            float[] v1 = new float[] { tile.data.verts[i], tile.data.verts[i + 1], tile.data.verts[i + 2] };
+            float[] v0 = new float[3];
+            float[] v1 = new float[3];
+            tile.data.getVert(poly.verts[0], v0, 0);
+            tile.data.getVert(poly.verts[1], v1, 0);
             Tupple2<Float, Float> dt = distancePtSegSqr2D(pos, v0, v1);
             return Result.success(v0[1] + (v1[1] - v0[1]) * dt.second);
         }
@@ -523,6 +575,19 @@ public class NavMeshQuery {
     /// @param[in] filter The polygon filter to apply to the query.
     /// @returns The status flags for the query.
     public Result<FindNearestPolyResult> findNearestPoly(float[] center, float[] halfExtents, QueryFilter filter) {
+        if (!beginQuery()) {
+            return doFindNearestPoly(center, halfExtents, filter);
+        }
+        try {
+            return endQuery(QueryType.FIND_NEAREST_POLY,
+                    doFindNearestPoly(center, halfExtents, m_statsFilter.wrap(filter)));
+        } finally {
+            m_instrumenting = false;
+        }
+    }
+
+    private Result<FindNearestPolyResult> doFindNearestPoly(float[] center, float[] halfExtents,
+            QueryFilter filter) {
 
         float[] nearestPt = new float[] { center[0], center[1], center[2] };
 
@@ -567,8 +632,7 @@ public class NavMeshQuery {
     // FIXME: (PP) duplicate?
     protected List<Long> queryPolygonsInTile(MeshTile tile, float[] qmin, float[] qmax, QueryFilter filter) {
         List<Long> polys = new ArrayList<>();
-        if (tile.data.bvTree != null) {
-            int nodeIndex = 0;
+        if (tile.data.hasBVTree()) {
             float[] tbmin = tile.data.header.bmin;
             float[] tbmax = tile.data.header.bmax;
             float qfac = tile.data.header.bvQuantFactor;
@@ -591,31 +655,27 @@ public class NavMeshQuery {
             bmax[2] = (int) (qfac * maxz + 1) | 1;
 
             // Traverse tree
+            PackedBVTree tree = PackedBVTree.of(tile);
+            int maxLeaves = tree != null ? tree.leafCount : tile.data.header.polyCount;
+            if (m_bvPolys.length < maxLeaves) {
+                m_bvPolys = new int[maxLeaves];
+            }
+            int[] leaves = m_bvPolys;
+            // The tree of shared tile data is read in place instead of packed per navmesh.
+            int n = tree != null ? GeometryKernels.get().queryBVTree(tree, bmin, bmax, leaves)
+                    : NavMesh.queryBVTree(tile.data, bmin, bmax, leaves);
             long base = m_nav.getPolyRefBase(tile);
-            int end = tile.data.header.bvNodeCount;
-            while (nodeIndex < end) {
-                BVNode node = tile.data.bvTree[nodeIndex];
-                boolean overlap = overlapQuantBounds(bmin, bmax, node.bmin, node.bmax);
-                boolean isLeafNode = node.i >= 0;
-
-                if (isLeafNode && overlap) {
-                    long ref = base | node.i;
-                    if (filter.passFilter(ref, tile, tile.data.polys[node.i])) {
-                        polys.add(ref);
-                    }
-                }
-
-                if (overlap || isLeafNode) {
-                    nodeIndex++;
-                } else {
-                    int escapeIndex = -node.i;
-                    nodeIndex += escapeIndex;
+            for (int k = 0; k < n; k++) {
+                long ref = base | leaves[k];
+                if (filter.passFilter(ref, tile, tile.data.polys[leaves[k]])) {
+                    polys.add(ref);
                 }
             }
             return polys;
         } else {
             float[] bmin = new float[3];
             float[] bmax = new float[3];
+            float[] v = new float[3];
             long base = m_nav.getPolyRefBase(tile);
             for (int i = 0; i < tile.data.header.polyCount; ++i) {
                 Poly p = tile.data.polys[i];
@@ -628,13 +688,12 @@ public class NavMeshQuery {
                     continue;
                 }
                 // Calc polygon bounds.
-                int v = p.verts[0] * 3;
-                vCopy(bmin, tile.data.verts, v);
-                vCopy(bmax, tile.data.verts, v);
+                tile.data.getVert(p.verts[0], bmin, 0);
+                vCopy(bmax, bmin);
                 for (int j = 1; j < p.vertCount; ++j) {
-                    v = p.verts[j] * 3;
-                    vMin(bmin, tile.data.verts, v);
-                    vMax(bmax, tile.data.verts, v);
+                    tile.data.getVert(p.verts[j], v, 0);
+                    vMin(bmin, v, 0);
+                    vMax(bmax, v, 0);
                 }
                 if (overlapBounds(qmin, qmax, bmin, bmax)) {
                     polys.add(ref);
@@ -658,6 +717,17 @@ public class NavMeshQuery {
      * @return The reference ids of the polygons that overlap the query box.
      */
     public Result<List<Long>> queryPolygons(float[] center, float[] halfExtents, QueryFilter filter) {
+        if (!beginQuery()) {
+            return doQueryPolygons(center, halfExtents, filter);
+        }
+        try {
+            return endQuery(QueryType.QUERY_POLYGONS, doQueryPolygons(center, halfExtents, m_statsFilter.wrap(filter)));
+        } finally {
+            m_instrumenting = false;
+        }
+    }
+
+    private Result<List<Long>> doQueryPolygons(float[] center, float[] halfExtents, QueryFilter filter) {
         if (Objects.isNull(center) || !vIsFinite(center) || Objects.isNull(halfExtents) || !vIsFinite(halfExtents)
                 || Objects.isNull(filter)) {
             // return DT_FAILURE | DT_INVALID_PARAM;
@@ -674,6 +744,7 @@ public class NavMeshQuery {
         List<Long> polys = new ArrayList<>();
         for (int y = miny; y <= maxy; ++y) {
             for (int x = minx; x <= maxx; ++x) {
+                m_nav.loadTilesAt(x, y);
                 List<MeshTile> neis = m_nav.getTilesAt(x, y);
                 for (int j = 0; j < neis.size(); ++j) {
                     List<Long> polysInTile = queryPolygonsInTile(neis.get(j), bmin, bmax, filter);
@@ -723,6 +794,19 @@ public class NavMeshQuery {
      */
     public Result<List<Long>> findPath(long startRef, long endRef, float[] startPos, float[] endPos,
             QueryFilter filter) {
+        if (!beginQuery()) {
+            return doFindPath(startRef, endRef, startPos, endPos, filter);
+        }
+        try {
+            return endQuery(QueryType.FIND_PATH,
+                    doFindPath(startRef, endRef, startPos, endPos, m_statsFilter.wrap(filter)));
+        } finally {
+            m_instrumenting = false;
+        }
+    }
+
+    private Result<List<Long>> doFindPath(long startRef, long endRef, float[] startPos, float[] endPos,
+            QueryFilter filter) {
         // Validate input
         if (!m_nav.isValidPolyRef(startRef) || !m_nav.isValidPolyRef(endRef) || Objects.isNull(startPos)
                 || !vIsFinite(startPos) || Objects.isNull(endPos) || !vIsFinite(endPos) || Objects.isNull(filter)) {
@@ -799,6 +883,9 @@ public class NavMeshQuery {
                 parentPoly = tileAndPoly.second;
             }
 
+            // Stream in the neighbour tiles before following the links.
+            m_nav.loadNeighbourTiles(bestTile, bestPoly);
+
             //迭代当前poly的所有邻边(poly的firstLink对应的是所在tile列表的索引)
             for (int i = bestPoly.firstLink; i != NavMesh.DT_NULL_LINK; i = bestTile.links.get(i).next) {
 
@@ -925,6 +1012,54 @@ public class NavMeshQuery {
         return Result.of(status, path);
     }
 
+    /**
+     * Finds an any-angle path from the start polygon to the end polygon. Like the sliced query with
+     * {@link #DT_FINDPATH_ANY_ANGLE}, each expanded node tries to connect its neighbours directly to its parent with a
+     * raycast of at most {@link NavMesh#DT_RAY_CAST_LIMIT_PROPORTIONS} agent radii, which yields a corridor that
+     * needs far less string pulling than the one of {@link #findPath}. The search uses the sliced query state, so a
+     * sliced query in progress is cancelled.
+     *
+     * @param startRef
+     *            The reference id of the start polygon.
+     * @param endRef
+     *            The reference id of the end polygon.
+     * @param startPos
+     *            A position within the start polygon. [(x, y, z)]
+     * @param endPos
+     *            A position within the end polygon. [(x, y, z)]
+     * @param filter
+     *            The polygon filter to apply to the query.
+     * @return Found path
+     */
+    public Result<List<Long>> findPathAnyAngle(long startRef, long endRef, float[] startPos, float[] endPos,
+            QueryFilter filter) {
+        if (!beginQuery()) {
+            return doFindPathAnyAngle(startRef, endRef, startPos, endPos, filter);
+        }
+        try {
+            return endQuery(QueryType.FIND_PATH,
+                    doFindPathAnyAngle(startRef, endRef, startPos, endPos, m_statsFilter.wrap(filter)));
+        } finally {
+            m_instrumenting = false;
+        }
+    }
+
+    private Result<List<Long>> doFindPathAnyAngle(long startRef, long endRef, float[] startPos, float[] endPos,
+            QueryFilter filter) {
+        // Search on its own query state like findPath(), leaving the state of the sliced query alone.
+        QueryData query = new QueryData();
+        if (m_findAnyAngle == null) {
+            m_findAnyAngle = new AnyAngleRaycast(m_nav);
+        }
+        query.anyAngle = m_findAnyAngle;
+        Status status = initFindPath(query, startRef, endRef, startPos, endPos, filter, DT_FINDPATH_ANY_ANGLE);
+        if (status == Status.FAILURE_INVALID_PARAM) {
+            return Result.invalidParam();
+        }
+        updateFindPath(query, Integer.MAX_VALUE);
+        return finalizeFindPath(query);
+    }
+
     /**
      * Intializes a sliced path query.
      *
@@ -947,16 +1082,42 @@ public class NavMeshQuery {
      */
     public Status initSlicedFindPath(long startRef, long endRef, float[] startPos, float[] endPos, QueryFilter filter,
             int options) {
-        // Init path state.
         m_query = new QueryData();
-        m_query.status = Status.FAILURE;
-        m_query.startRef = startRef;
-        m_query.endRef = endRef;
-        vCopy(m_query.startPos, startPos);
-        vCopy(m_query.endPos, endPos);
-        m_query.filter = filter;
-        m_query.options = options;
-        m_query.raycastLimitSqr = Float.MAX_VALUE;
+        if ((options & DT_FINDPATH_ANY_ANGLE) != 0) {
+            if (m_anyAngle == null) {
+                m_anyAngle = new AnyAngleRaycast(m_nav);
+            }
+            m_query.anyAngle = m_anyAngle;
+        }
+        m_slicedInstrumented = m_instrumentation != null && !m_instrumenting;
+        if (!m_slicedInstrumented) {
+            return initFindPath(m_query, startRef, endRef, startPos, endPos, filter, options);
+        }
+        long start = System.nanoTime();
+        m_slicedStats.reset();
+        m_slicedPopBase = m_openList.getPopCount();
+        m_instrumenting = true;
+        try {
+            return initFindPath(m_query, startRef, endRef, startPos, endPos, m_slicedStatsFilter.wrap(filter),
+                    options);
+        } finally {
+            m_instrumenting = false;
+            m_slicedStats.nanos += System.nanoTime() - start;
+        }
+    }
+
+    /// Initializes the path query state, the search node pool and the open list.
+    private Status initFindPath(QueryData query, long startRef, long endRef, float[] startPos, float[] endPos,
+            QueryFilter filter, int options) {
+        // Init path state.
+        query.status = Status.FAILURE;
+        query.startRef = startRef;
+        query.endRef = endRef;
+        vCopy(query.startPos, startPos);
+        vCopy(query.endPos, endPos);
+        query.filter = filter;
+        query.options = options;
+        query.raycastLimitSqr = Float.MAX_VALUE;
 
         // Validate input
         if (!m_nav.isValidPolyRef(startRef) || !m_nav.isValidPolyRef(endRef) || Objects.isNull(startPos)
@@ -970,11 +1131,12 @@ public class NavMeshQuery {
             // so it is enough to compute it from the first tile.
             MeshTile tile = m_nav.getTileByRef(startRef);
             float agentRadius = tile.data.header.walkableRadius;
-            m_query.raycastLimitSqr = sqr(agentRadius * NavMesh.DT_RAY_CAST_LIMIT_PROPORTIONS);
+            query.raycastLimitSqr = sqr(agentRadius * NavMesh.DT_RAY_CAST_LIMIT_PROPORTIONS);
+            query.anyAngle.clear();
         }
 
         if (startRef == endRef) {
-            m_query.status = Status.SUCCSESS;
+            query.status = Status.SUCCSESS;
             return Status.SUCCSESS;
         }
 
@@ -990,11 +1152,11 @@ public class NavMeshQuery {
         startNode.flags = Node.DT_NODE_OPEN;
         m_openList.push(startNode);
 
-        m_query.status = Status.IN_PROGRESS;
-        m_query.lastBestNode = startNode;
-        m_query.lastBestNodeCost = startNode.total;
+        query.status = Status.IN_PROGRESS;
+        query.lastBestNode = startNode;
+        query.lastBestNodeCost = startNode.total;
 
-        return m_query.status;
+        return query.status;
     }
 
     /**
@@ -1005,14 +1167,54 @@ public class NavMeshQuery {
      * @return The status flags for the query.
      */
     public Result<Integer> updateSlicedFindPath(int maxIter) {
-        if (!m_query.status.isInProgress()) {
-            return Result.of(m_query.status, 0);
+        if (!m_slicedInstrumented || m_instrumenting) {
+            return updateFindPath(m_query, maxIter);
+        }
+        long start = System.nanoTime();
+        m_instrumenting = true;
+        try {
+            return updateFindPath(m_query, maxIter);
+        } finally {
+            m_instrumenting = false;
+            m_slicedStats.nanos += System.nanoTime() - start;
+        }
+    }
+
+    /**
+     * Updates an in-progress sliced path query until the iteration or the time budget is used up. The clock is only
+     * read every {@link #DT_SLICED_TIME_CHECK_ITERS} iterations, so the budget can be exceeded by the cost of that
+     * many iterations.
+     *
+     * @param maxIter
+     *            The maximum number of iterations to perform.
+     * @param maxNanos
+     *            The time budget in nanoseconds.
+     * @return The status flags for the query and the number of iterations performed.
+     */
+    public Result<Integer> updateSlicedFindPath(int maxIter, long maxNanos) {
+        long start = System.nanoTime();
+        int iter = 0;
+        Result<Integer> res = Result.of(m_query.status, 0);
+        while (iter < maxIter) {
+            res = updateSlicedFindPath(Math.min(DT_SLICED_TIME_CHECK_ITERS, maxIter - iter));
+            iter += res.result;
+            if (!res.status.isInProgress() || System.nanoTime() - start >= maxNanos) {
+                break;
+            }
+        }
+        return Result.of(res.status, iter);
+    }
+
+    /// Expands at most @p maxIter nodes of the path query.
+    private Result<Integer> updateFindPath(QueryData query, int maxIter) {
+        if (!query.status.isInProgress()) {
+            return Result.of(query.status, 0);
         }
 
         // Make sure the request is still valid.
-        if (!m_nav.isValidPolyRef(m_query.startRef) || !m_nav.isValidPolyRef(m_query.endRef)) {
-            m_query.status = Status.FAILURE;
-            return Result.of(m_query.status, 0);
+        if (!m_nav.isValidPolyRef(query.startRef) || !m_nav.isValidPolyRef(query.endRef)) {
+            query.status = Status.FAILURE;
+            return Result.of(query.status, 0);
         }
 
         int iter = 0;
@@ -1025,10 +1227,10 @@ public class NavMeshQuery {
             bestNode.flags |= Node.DT_NODE_CLOSED;
 
             // Reached the goal, stop searching.
-            if (bestNode.id == m_query.endRef) {
-                m_query.lastBestNode = bestNode;
-                m_query.status = Status.SUCCSESS;
-                return Result.of(m_query.status, iter);
+            if (bestNode.id == query.endRef) {
+                query.lastBestNode = bestNode;
+                query.status = Status.SUCCSESS;
+                return Result.of(query.status, iter);
             }
 
             // Get current poly and tile.
@@ -1037,9 +1239,9 @@ public class NavMeshQuery {
             long bestRef = bestNode.id;
             Result<Tupple2<MeshTile, Poly>> tileAndPoly = m_nav.getTileAndPolyByRef(bestRef);
             if (tileAndPoly.failed()) {
-                m_query.status = Status.FAILURE;
+                query.status = Status.FAILURE;
                 // The polygon has disappeared during the sliced query, fail.
-                return Result.of(m_query.status, iter);
+                return Result.of(query.status, iter);
             }
             MeshTile bestTile = tileAndPoly.result.first;
             Poly bestPoly = tileAndPoly.result.second;
@@ -1062,8 +1264,8 @@ public class NavMeshQuery {
                 if (invalidParent || (grandpaRef != 0 && !m_nav.isValidPolyRef(grandpaRef))) {
                     // The polygon has disappeared during the sliced query,
                     // fail.
-                    m_query.status = Status.FAILURE;
-                    return Result.of(m_query.status, iter);
+                    query.status = Status.FAILURE;
+                    return Result.of(query.status, iter);
                 }
                 parentTile = tileAndPoly.result.first;
                 parentPoly = tileAndPoly.result.second;
@@ -1071,12 +1273,14 @@ public class NavMeshQuery {
 
             // decide whether to test raycast to previous nodes
             boolean tryLOS = false;
-            if ((m_query.options & DT_FINDPATH_ANY_ANGLE) != 0) {
-                if ((parentRef != 0) && (vDistSqr(parentNode.pos, bestNode.pos) < m_query.raycastLimitSqr)) {
+            if ((query.options & DT_FINDPATH_ANY_ANGLE) != 0) {
+                if ((parentRef != 0) && (vDistSqr(parentNode.pos, bestNode.pos) < query.raycastLimitSqr)) {
                     tryLOS = true;
                 }
             }
 
+            m_nav.loadNeighbourTiles(bestTile, bestPoly);
+
             for (int i = bestPoly.firstLink; i != NavMesh.DT_NULL_LINK; i = bestTile.links.get(i).next) {
                 long neighbourRef = bestTile.links.get(i).ref;
 
@@ -1093,7 +1297,7 @@ public class NavMeshQuery {
                 MeshTile neighbourTile = tileAndPolyUns.first;
                 Poly neighbourPoly = tileAndPolyUns.second;
 
-                if (!m_query.filter.passFilter(neighbourRef, neighbourTile, neighbourPoly)) {
+                if (!query.filter.passFilter(neighbourRef, neighbourTile, neighbourPoly)) {
                     continue;
                 }
 
@@ -1120,38 +1324,36 @@ public class NavMeshQuery {
                 float cost = 0;
                 float heuristic = 0;
 
-                // raycast parent
+                // raycast parent, the ray length is capped like the distance to the parent
                 boolean foundShortCut = false;
-                if (tryLOS) {
-                    Result<RaycastHit> rayHit = raycast(parentRef, parentNode.pos, neighbourNode.pos, m_query.filter,
-                            DT_RAYCAST_USE_COSTS, grandpaRef);
-                    if (rayHit.succeeded()) {
-                        foundShortCut = rayHit.result.t >= 1.0f;
-                        if (foundShortCut) {
-                            // shortcut found using raycast. Using shorter cost
-                            // instead
-                            cost = parentNode.cost + rayHit.result.pathCost;
-                        }
+                if (tryLOS && vDistSqr(parentNode.pos, neighbourNode.pos) < query.raycastLimitSqr) {
+                    float rayCost = query.anyAngle.cost(parentRef, parentNode.pos, neighbourNode.pos, neighbourRef,
+                            query.filter, grandpaRef);
+                    if (rayCost >= 0) {
+                        // shortcut found using raycast. Using shorter cost
+                        // instead
+                        foundShortCut = true;
+                        cost = parentNode.cost + rayCost;
                     }
                 }
 
                 // update move cost
                 if (!foundShortCut) {
                     // No shortcut found.
-                    float curCost = m_query.filter.getCost(bestNode.pos, neighbourNode.pos, parentRef, parentTile,
+                    float curCost = query.filter.getCost(bestNode.pos, neighbourNode.pos, parentRef, parentTile,
                             parentPoly, bestRef, bestTile, bestPoly, neighbourRef, neighbourTile, neighbourPoly);
                     cost = bestNode.cost + curCost;
                 }
 
                 // Special case for last node.
-                if (neighbourRef == m_query.endRef) {
-                    float endCost = m_query.filter.getCost(neighbourNode.pos, m_query.endPos, bestRef, bestTile,
+                if (neighbourRef == query.endRef) {
+                    float endCost = query.filter.getCost(neighbourNode.pos, query.endPos, bestRef, bestTile,
                             bestPoly, neighbourRef, neighbourTile, neighbourPoly, 0, null, null);
 
                     cost = cost + endCost;
                     heuristic = 0;
                 } else {
-                    heuristic = vDist(neighbourNode.pos, m_query.endPos) * H_SCALE;
+                    heuristic = vDist(neighbourNode.pos, query.endPos) * H_SCALE;
                 }
 
                 float total = cost + heuristic;
@@ -1187,19 +1389,19 @@ public class NavMeshQuery {
                 }
 
                 // Update nearest node to target so far.
-                if (heuristic < m_query.lastBestNodeCost) {
-                    m_query.lastBestNodeCost = heuristic;
-                    m_query.lastBestNode = neighbourNode;
+                if (heuristic < query.lastBestNodeCost) {
+                    query.lastBestNodeCost = heuristic;
+                    query.lastBestNode = neighbourNode;
                 }
             }
         }
 
         // Exhausted all nodes, but could not find path.
         if (m_openList.isEmpty()) {
-            m_query.status = Status.PARTIAL_RESULT;
+            query.status = Status.PARTIAL_RESULT;
         }
 
-        return Result.of(m_query.status, iter);
+        return Result.of(query.status, iter);
     }
 
     /// Finalizes and returns the results of a sliced path query.
@@ -1207,25 +1409,44 @@ public class NavMeshQuery {
     /// [(polyRef) * @p pathCount]
     /// @returns The status flags for the query.
     public Result<List<Long>> finalizeSlicedFindPath() {
+        if (!m_slicedInstrumented || m_instrumenting) {
+            return doFinalizeSlicedFindPath();
+        }
+        long start = System.nanoTime();
+        m_instrumenting = true;
+        try {
+            return endSlicedQuery(start, doFinalizeSlicedFindPath());
+        } finally {
+            m_instrumenting = false;
+        }
+    }
+
+    private Result<List<Long>> doFinalizeSlicedFindPath() {
+        Result<List<Long>> result = finalizeFindPath(m_query);
+        // Reset query.
+        m_query = new QueryData();
+        return result;
+    }
+
+    /// Returns the path to the goal or to the node nearest to it found by the path query.
+    private Result<List<Long>> finalizeFindPath(QueryData query) {
 
         List<Long> path = new ArrayList<>(64);
-        if (m_query.status.isFailed()) {
-            // Reset query.
-            m_query = new QueryData();
+        if (query.status.isFailed()) {
             return Result.failure(path);
         }
 
-        if (m_query.startRef == m_query.endRef) {
+        if (query.startRef == query.endRef) {
             // Special case: the search starts and ends at same poly.
-            path.add(m_query.startRef);
+            path.add(query.startRef);
         } else {
             // Reverse the path.
-            if (m_query.lastBestNode.id != m_query.endRef) {
-                m_query.status = Status.PARTIAL_RESULT;
+            if (query.lastBestNode.id != query.endRef) {
+                query.status = Status.PARTIAL_RESULT;
             }
 
             Node prev = null;
-            Node node = m_query.lastBestNode;
+            Node node = query.lastBestNode;
             int prevRay = 0;
             do {
                 Node next = m_nodePool.getNodeAtIdx(node.pidx);
@@ -1244,10 +1465,7 @@ public class NavMeshQuery {
             do {
                 Node next = m_nodePool.getNodeAtIdx(node.pidx);
                 if ((node.flags & Node.DT_NODE_PARENT_DETACHED) != 0) {
-                    Result<RaycastHit> iresult = raycast(node.id, node.pos, next.pos, m_query.filter, 0, 0);
-                    if (iresult.succeeded()) {
-                        path.addAll(iresult.result.path);
-                    }
+                    appendShortcut(query, node, next, path);
                     // raycast ends on poly boundary and the path might include the next poly boundary.
                     if (path.get(path.size() - 1) == next.id) {
                         path.remove(path.size() - 1); // remove to avoid duplicates
@@ -1260,11 +1478,19 @@ public class NavMeshQuery {
             } while (node != null);
         }
 
-        Status status = m_query.status;
-        // Reset query.
-        m_query = new QueryData();
+        return Result.of(query.status, path);
+    }
 
-        return Result.of(status, path);
+    /// Appends the polygons crossed by the any-angle shortcut between the nodes, reusing the corridor of the search
+    /// time raycast when available.
+    private void appendShortcut(QueryData query, Node node, Node next, List<Long> path) {
+        if (query.anyAngle != null && query.anyAngle.appendPath(node.id, next.id, path)) {
+            return;
+        }
+        Result<RaycastHit> iresult = raycast(node.id, node.pos, next.pos, query.filter, 0, 0);
+        if (iresult.succeeded()) {
+            path.addAll(iresult.result.path);
+        }
     }
 
     /// Finalizes and returns the results of an incomplete sliced path query, returning the path to the furthest
@@ -1275,6 +1501,29 @@ public class NavMeshQuery {
     /// [(polyRef) * @p pathCount]
     /// @returns The status flags for the query.
     public Result<List<Long>> finalizeSlicedFindPathPartial(List<Long> existing) {
+        if (!m_slicedInstrumented || m_instrumenting) {
+            return doFinalizeSlicedFindPathPartial(existing);
+        }
+        long start = System.nanoTime();
+        m_instrumenting = true;
+        try {
+            return endSlicedQuery(start, doFinalizeSlicedFindPathPartial(existing));
+        } finally {
+            m_instrumenting = false;
+        }
+    }
+
+    private Result<List<Long>> endSlicedQuery(long start, Result<List<Long>> result) {
+        m_slicedInstrumented = false;
+        m_slicedStats.nanos += System.nanoTime() - start;
+        finishStats(m_slicedStats, m_slicedPopBase, result.status);
+        if (m_instrumentation != null) {
+            m_instrumentation.onQuery(QueryType.SLICED_FIND_PATH, m_slicedStats);
+        }
+        return result;
+    }
+
+    private Result<List<Long>> doFinalizeSlicedFindPathPartial(List<Long> existing) {
 
         List<Long> path = new ArrayList<>(64);
         if (Objects.isNull(existing) || existing.size() <= 0) {
@@ -1323,10 +1572,7 @@ public class NavMeshQuery {
             do {
                 Node next = m_nodePool.getNodeAtIdx(node.pidx);
                 if ((node.flags & Node.DT_NODE_PARENT_DETACHED) != 0) {
-                    Result<RaycastHit> iresult = raycast(node.id, node.pos, next.pos, m_query.filter, 0, 0);
-                    if (iresult.succeeded()) {
-                        path.addAll(iresult.result.path);
-                    }
+                    appendShortcut(m_query, node, next, path);
                     // raycast ends on poly boundary and the path might include the next poly boundary.
                     if (path.get(path.size() - 1) == next.id) {
                         path.remove(path.size() - 1); // remove to avoid duplicates
@@ -1369,6 +1615,7 @@ public class NavMeshQuery {
         float[] startPos = straightPath.get(straightPath.size() - 1).pos;
         // Append or update last vertex
         Status stat = null;
+        float[] pt = new float[3];
         for (int i = startIdx; i < endIdx; i++) {
             // Calculate portal
             long from = path.get(i);
@@ -1405,7 +1652,7 @@ public class NavMeshQuery {
             Optional<Tupple2<Float, Float>> interect = intersectSegSeg2D(startPos, endPos, left, right);
             if (interect.isPresent()) {
                 float t = interect.get().second;
-                float[] pt = vLerp(left, right, t);
+                vLerp(pt, left, right, t);
                 stat = appendVertex(pt, 0, path.get(i + 1), straightPath, maxStraightPath);
                 if (!stat.isInProgress()) {
                     return stat;
@@ -1442,6 +1689,20 @@ public class NavMeshQuery {
     /// @returns The status flags for the query.
     public Result<List<StraightPathItem>> findStraightPath(float[] startPos, float[] endPos, List<Long> path,
             int maxStraightPath, int options) {
+        if (!beginQuery()) {
+            return doFindStraightPath(startPos, endPos, path, maxStraightPath, options);
+        }
+        try {
+            m_stats.touchTiles(path);
+            return endQuery(QueryType.FIND_STRAIGHT_PATH,
+                    doFindStraightPath(startPos, endPos, path, maxStraightPath, options));
+        } finally {
+            m_instrumenting = false;
+        }
+    }
+
+    private Result<List<StraightPathItem>> doFindStraightPath(float[] startPos, float[] endPos, List<Long> path,
+            int maxStraightPath, int options) {
 
         List<StraightPathItem> straightPath = new ArrayList<>();
         if (Objects.isNull(startPos) || !vIsFinite(startPos) || Objects.isNull(endPos) || !vIsFinite(endPos)
@@ -1656,6 +1917,19 @@ public class NavMeshQuery {
     /// @returns Path
     public Result<MoveAlongSurfaceResult> moveAlongSurface(long startRef, float[] startPos, float[] endPos,
             QueryFilter filter) {
+        if (!beginQuery()) {
+            return doMoveAlongSurface(startRef, startPos, endPos, filter);
+        }
+        try {
+            return endQuery(QueryType.MOVE_ALONG_SURFACE,
+                    doMoveAlongSurface(startRef, startPos, endPos, m_statsFilter.wrap(filter)));
+        } finally {
+            m_instrumenting = false;
+        }
+    }
+
+    private Result<MoveAlongSurfaceResult> doMoveAlongSurface(long startRef, float[] startPos, float[] endPos,
+            QueryFilter filter) {
 
         // Validate input
         if (!m_nav.isValidPolyRef(startRef) || Objects.isNull(startPos) || !vIsFinite(startPos)
@@ -1663,143 +1937,20 @@ public class NavMeshQuery {
             return Result.invalidParam();
         }
 
-        m_tinyNodePool.clear();
-
-        Node startNode = m_tinyNodePool.getNode(startRef);
-        startNode.pidx = 0;
-        startNode.cost = 0;
-        startNode.total = 0;
-        startNode.id = startRef;
-        startNode.flags = Node.DT_NODE_CLOSED;
-        LinkedList<Node> stack = new LinkedList<>();
-        stack.add(startNode);
-
-        float[] bestPos = new float[3];
-        float bestDist = Float.MAX_VALUE;
-        Node bestNode = null;
-        vCopy(bestPos, startPos);
-
-        // Search constraints
-        float[] searchPos = vLerp(startPos, endPos, 0.5f);
-        float searchRadSqr = sqr(vDist(startPos, endPos) / 2.0f + 0.001f);
-
-        float[] verts = new float[m_nav.getMaxVertsPerPoly() * 3];
-
-        while (!stack.isEmpty()) {
-            // Pop front.
-            Node curNode = stack.pop();
-
-            // Get poly and tile.
-            // The API input has been cheked already, skip checking internal data.
-            long curRef = curNode.id;
-            Tupple2<MeshTile, Poly> tileAndPoly = m_nav.getTileAndPolyByRefUnsafe(curRef);
-            MeshTile curTile = tileAndPoly.first;
-            Poly curPoly = tileAndPoly.second;
-
-            // Collect vertices.
-            int nverts = curPoly.vertCount;
-            for (int i = 0; i < nverts; ++i) {
-                System.arraycopy(curTile.data.verts, curPoly.verts[i] * 3, verts, i * 3, 3);
-            }
-
-            // If target is inside the poly, stop search.
-            if (pointInPolygon(endPos, verts, nverts)) {
-                bestNode = curNode;
-                vCopy(bestPos, endPos);
-                break;
-            }
-
-            // Find wall edges and find nearest point inside the walls.
-            for (int i = 0, j = curPoly.vertCount - 1; i < curPoly.vertCount; j = i++) {
-                // Find links to neighbours.
-                int MAX_NEIS = 8;
-                int nneis = 0;
-                long[] neis = new long[MAX_NEIS];
-
-                if ((curPoly.neis[j] & NavMesh.DT_EXT_LINK) != 0) {
-                    // Tile border.
-                    for (int k = curPoly.firstLink; k != NavMesh.DT_NULL_LINK; k = curTile.links.get(k).next) {
-                        Link link = curTile.links.get(k);
-                        if (link.edge == j) {
-                            if (link.ref != 0) {
-                                tileAndPoly = m_nav.getTileAndPolyByRefUnsafe(link.ref);
-                                MeshTile neiTile = tileAndPoly.first;
-                                Poly neiPoly = tileAndPoly.second;
-                                if (filter.passFilter(link.ref, neiTile, neiPoly)) {
-                                    if (nneis < MAX_NEIS) {
-                                        neis[nneis++] = link.ref;
-                                    }
-                                }
-                            }
-                        }
-                    }
-                } else if (curPoly.neis[j] != 0) {
-                    int idx = curPoly.neis[j] - 1;
-                    long ref = m_nav.getPolyRefBase(curTile) | idx;
-                    if (filter.passFilter(ref, curTile, curTile.data.polys[idx])) {
-                        // Internal edge, encode id.
-                        neis[nneis++] = ref;
-                    }
-                }
-
-                if (nneis == 0) {
-                    // Wall edge, calc distance.
-                    int vj = j * 3;
-                    int vi = i * 3;
-                    Tupple2<Float, Float> distSeg = distancePtSegSqr2D(endPos, verts, vj, vi);
-                    float distSqr = distSeg.first;
-                    float tseg = distSeg.second;
-                    if (distSqr < bestDist) {
-                        // Update nearest distance.
-                        bestPos = vLerp(verts, vj, vi, tseg);
-                        bestDist = distSqr;
-                        bestNode = curNode;
-                    }
-                } else {
-                    for (int k = 0; k < nneis; ++k) {
-                        Node neighbourNode = m_tinyNodePool.getNode(neis[k]);
-                        // Skip if already visited.
-                        if ((neighbourNode.flags & Node.DT_NODE_CLOSED) != 0) {
-                            continue;
-                        }
-
-                        // Skip the link if it is too far from search constraint.
-                        // TODO: Maybe should use getPortalPoints(), but this one is way faster.
-                        int vj = j * 3;
-                        int vi = i * 3;
-                        Tupple2<Float, Float> distseg = distancePtSegSqr2D(searchPos, verts, vj, vi);
-                        float distSqr = distseg.first;
-                        if (distSqr > searchRadSqr) {
-                            continue;
-                        }
-
-                        // Mark as the node as visited and push to queue.
-                        neighbourNode.pidx = m_tinyNodePool.getNodeIdx(curNode);
-                        neighbourNode.flags |= Node.DT_NODE_CLOSED;
-                        stack.add(neighbourNode);
-                    }
-                }
-            }
+        if (m_moveSearch == null) {
+            m_moveSearch = new MoveAlongSurfaceSearch(MoveAlongSurfaceBatch.DEFAULT_MAX_NODES,
+                    m_nav.getMaxVertsPerPoly(), false);
         }
+        float[] bestPos = new float[3];
+        int bestNode = m_moveSearch.move(m_nav, startRef, startPos, endPos, filter, bestPos);
 
         List<Long> visited = new ArrayList<>();
-        if (bestNode != null) {
-            // Reverse the path.
-            Node prev = null;
-            Node node = bestNode;
-            do {
-                Node next = m_tinyNodePool.getNodeAtIdx(node.pidx);
-                node.pidx = m_tinyNodePool.getNodeIdx(prev);
-                prev = node;
-                node = next;
-            } while (node != null);
-
-            // Store result
-            node = prev;
-            do {
-                visited.add(node.id);
-                node = m_tinyNodePool.getNodeAtIdx(node.pidx);
-            } while (node != null);
+        if (bestNode >= 0) {
+            long[] path = new long[m_moveSearch.getPathLength(bestNode)];
+            m_moveSearch.getPath(bestNode, path, 0, path.length);
+            for (long ref : path) {
+                visited.add(ref);
+            }
         }
         return Result.success(new MoveAlongSurfaceResult(bestPos, visited));
     }
@@ -1890,8 +2041,8 @@ public class NavMeshQuery {
                     int v = fromTile.links.get(i).edge;
                     //fromTile.data.verts原顶点集数组，从fromPoly.verts[v] * 3索引开始, 赋值给left数组
                     //todo todo 从fromPoly.verts[v] * 3开始，需要看数据结构生成的时候当时是如何存储？
-                    System.arraycopy(fromTile.data.verts, fromPoly.verts[v] * 3, left, 0, 3);
-                    System.arraycopy(fromTile.data.verts, fromPoly.verts[v] * 3, right, 0, 3);
+                    fromTile.data.getVert(fromPoly.verts[v], left, 0);
+                    fromTile.data.getVert(fromPoly.verts[v], right, 0);
                     return Result.success(new PortalResult(left, right, fromType, toType));
                 }
             }
@@ -1904,8 +2055,8 @@ public class NavMeshQuery {
                 if (toTile.links.get(i).ref == from) {
                     //从边信息拿到拥有该边的多边形顶点索引
                     int v = toTile.links.get(i).edge;
-                    System.arraycopy(toTile.data.verts, toPoly.verts[v] * 3, left, 0, 3);
-                    System.arraycopy(toTile.data.verts, toPoly.verts[v] * 3, right, 0, 3);
+                    toTile.data.getVert(toPoly.verts[v], left, 0);
+                    toTile.data.getVert(toPoly.verts[v], right, 0);
                     return Result.success(new PortalResult(left, right, fromType, toType));
                 }
             }
@@ -1916,9 +2067,9 @@ public class NavMeshQuery {
         int v0 = fromPoly.verts[link.edge];
         int v1 = fromPoly.verts[(link.edge + 1) % fromPoly.vertCount];
         //左端点
-        System.arraycopy(fromTile.data.verts, v0 * 3, left, 0, 3);
+        fromTile.data.getVert(v0, left, 0);
         //右端点
-        System.arraycopy(fromTile.data.verts, v1 * 3, right, 0, 3);
+        fromTile.data.getVert(v1, right, 0);
 
         // If the link is at tile boundary, dtClamp the vertices to
         // the link width.
@@ -1928,8 +2079,11 @@ public class NavMeshQuery {
                 float s = 1.0f / 255.0f;
                 float tmin = link.bmin * s;
                 float tmax = link.bmax * s;
-                left = vLerp(fromTile.data.verts, v0 * 3, v1 * 3, tmin);
-                right = vLerp(fromTile.data.verts, v0 * 3, v1 * 3, tmax);
+                float[] edge = m_edge;
+                vCopy(edge, 0, left, 0);
+                vCopy(edge, 3, right, 0);
+                vLerp(left, 0, edge, 0, edge, 3, tmin);
+                vLerp(right, 0, edge, 0, edge, 3, tmax);
             }
         }
 
@@ -1977,8 +2131,6 @@ public class NavMeshQuery {
         return Result.success(mid);
     }
 
-    private static float s = 1.0f / 255.0f;
-
     /// @par
     ///
     /// This method is meant to be used for quick, short distance checks.
@@ -2033,6 +2185,19 @@ public class NavMeshQuery {
     /// @returns The status flags for the query.
     public Result<RaycastHit> raycast(long startRef, float[] startPos, float[] endPos, QueryFilter filter, int options,
             long prevRef) {
+        if (!beginQuery()) {
+            return doRaycast(startRef, startPos, endPos, filter, options, prevRef);
+        }
+        try {
+            return endQuery(QueryType.RAYCAST,
+                    doRaycast(startRef, startPos, endPos, m_statsFilter.wrap(filter), options, prevRef));
+        } finally {
+            m_instrumenting = false;
+        }
+    }
+
+    private Result<RaycastHit> doRaycast(long startRef, float[] startPos, float[] endPos, QueryFilter filter,
+            int options, long prevRef) {
         // Validate input
         if (!m_nav.isValidPolyRef(startRef) || Objects.isNull(startPos) || !vIsFinite(startPos)
                 || Objects.isNull(endPos) || !vIsFinite(endPos) || Objects.isNull(filter)
@@ -2040,196 +2205,18 @@ public class NavMeshQuery {
             return Result.invalidParam();
         }
 
-        RaycastHit hit = new RaycastHit();
-
-        float[] verts = new float[m_nav.getMaxVertsPerPoly() * 3 + 3];
-
-        float[] curPos = new float[3], lastPos = new float[3];
-
-        vCopy(curPos, startPos);
-        float[] dir = vSub(endPos, startPos);
-
-        MeshTile prevTile, tile, nextTile;
-        Poly prevPoly, poly, nextPoly;
-
-        // The API input has been checked already, skip checking internal data.
-        long curRef = startRef;
-        Tupple2<MeshTile, Poly> tileAndPolyUns = m_nav.getTileAndPolyByRefUnsafe(curRef);
-        tile = tileAndPolyUns.first;
-        poly = tileAndPolyUns.second;
-        nextTile = prevTile = tile;
-        nextPoly = prevPoly = poly;
-        if (prevRef != 0) {
-            tileAndPolyUns = m_nav.getTileAndPolyByRefUnsafe(prevRef);
-            prevTile = tileAndPolyUns.first;
-            prevPoly = tileAndPolyUns.second;
+        if (m_raycast == null) {
+            m_raycast = new RaycastKernel(m_nav);
         }
-        while (curRef != 0) {
-            // Cast ray against current polygon.
-
-            // Collect vertices.
-            int nv = 0;
-            for (int i = 0; i < poly.vertCount; ++i) {
-                System.arraycopy(tile.data.verts, poly.verts[i] * 3, verts, nv * 3, 3);
-                nv++;
-            }
-
-            IntersectResult iresult = intersectSegmentPoly2D(startPos, endPos, verts, nv);
-            if (!iresult.intersects) {
-                // Could not hit the polygon, keep the old t and report hit.
-                return Result.success(hit);
-            }
-
-            hit.hitEdgeIndex = iresult.segMax;
-
-            // Keep track of furthest t so far.
-            if (iresult.tmax > hit.t) {
-                hit.t = iresult.tmax;
-            }
-
-            // Store visited polygons.
-            hit.path.add(curRef);
-
-            // Ray end is completely inside the polygon.
-            if (iresult.segMax == -1) {
-                hit.t = Float.MAX_VALUE;
-
-                // add the cost
-                if ((options & DT_RAYCAST_USE_COSTS) != 0) {
-                    hit.pathCost += filter.getCost(curPos, endPos, prevRef, prevTile, prevPoly, curRef, tile, poly,
-                            curRef, tile, poly);
-                }
-                return Result.success(hit);
-            }
-
-            // Follow neighbours.
-            long nextRef = 0;
-
-            for (int i = poly.firstLink; i != NavMesh.DT_NULL_LINK; i = tile.links.get(i).next) {
-                Link link = tile.links.get(i);
-
-                // Find link which contains this edge.
-                if (link.edge != iresult.segMax) {
-                    continue;
-                }
-
-                // Get pointer to the next polygon.
-                tileAndPolyUns = m_nav.getTileAndPolyByRefUnsafe(link.ref);
-                nextTile = tileAndPolyUns.first;
-                nextPoly = tileAndPolyUns.second;
-                // Skip off-mesh connections.
-                if (nextPoly.getType() == Poly.DT_POLYTYPE_OFFMESH_CONNECTION) {
-                    continue;
-                }
-
-                // Skip links based on filter.
-                if (!filter.passFilter(link.ref, nextTile, nextPoly)) {
-                    continue;
-                }
-
-                // If the link is internal, just return the ref.
-                if (link.side == 0xff) {
-                    nextRef = link.ref;
-                    break;
-                }
-
-                // If the link is at tile boundary,
-
-                // Check if the link spans the whole edge, and accept.
-                if (link.bmin == 0 && link.bmax == 255) {
-                    nextRef = link.ref;
-                    break;
-                }
-
-                // Check for partial edge links.
-                int v0 = poly.verts[link.edge];
-                int v1 = poly.verts[(link.edge + 1) % poly.vertCount];
-                int left = v0 * 3;
-                int right = v1 * 3;
-
-                // Check that the intersection lies inside the link portal.
-                if (link.side == 0 || link.side == 4) {
-                    // Calculate link size.
-                    float lmin = tile.data.verts[left + 2]
-                            + (tile.data.verts[right + 2] - tile.data.verts[left + 2]) * (link.bmin * s);
-                    float lmax = tile.data.verts[left + 2]
-                            + (tile.data.verts[right + 2] - tile.data.verts[left + 2]) * (link.bmax * s);
-                    if (lmin > lmax) {
-                        float temp = lmin;
-                        lmin = lmax;
-                        lmax = temp;
-                    }
-
-                    // Find Z intersection.
-                    float z = startPos[2] + (endPos[2] - startPos[2]) * iresult.tmax;
-                    if (z >= lmin && z <= lmax) {
-                        nextRef = link.ref;
-                        break;
-                    }
-                } else if (link.side == 2 || link.side == 6) {
-                    // Calculate link size.
-                    float lmin = tile.data.verts[left]
-                            + (tile.data.verts[right] - tile.data.verts[left]) * (link.bmin * s);
-                    float lmax = tile.data.verts[left]
-                            + (tile.data.verts[right] - tile.data.verts[left]) * (link.bmax * s);
-                    if (lmin > lmax) {
-                        float temp = lmin;
-                        lmin = lmax;
-                        lmax = temp;
-                    }
-
-                    // Find X intersection.
-                    float x = startPos[0] + (endPos[0] - startPos[0]) * iresult.tmax;
-                    if (x >= lmin && x <= lmax) {
-                        nextRef = link.ref;
-                        break;
-                    }
-                }
-            }
-
-            // add the cost
-            if ((options & DT_RAYCAST_USE_COSTS) != 0) {
-                // compute the intersection point at the furthest end of the polygon
-                // and correct the height (since the raycast moves in 2d)
-                vCopy(lastPos, curPos);
-                curPos = vMad(startPos, dir, hit.t);
-                VectorPtr e1 = new VectorPtr(verts, iresult.segMax * 3);
-                VectorPtr e2 = new VectorPtr(verts, ((iresult.segMax + 1) % nv) * 3);
-                float[] eDir = vSub(e2, e1);
-                float[] diff = vSub(new VectorPtr(curPos), e1);
-                float s = sqr(eDir[0]) > sqr(eDir[2]) ? diff[0] / eDir[0] : diff[2] / eDir[2];
-                curPos[1] = e1.get(1) + eDir[1] * s;
-
-                hit.pathCost += filter.getCost(lastPos, curPos, prevRef, prevTile, prevPoly, curRef, tile, poly,
-                        nextRef, nextTile, nextPoly);
-            }
-
-            if (nextRef == 0) {
-                // No neighbour, we hit a wall.
-
-                // Calculate hit normal.
-                int a = iresult.segMax;
-                int b = iresult.segMax + 1 < nv ? iresult.segMax + 1 : 0;
-                int va = a * 3;
-                int vb = b * 3;
-                float dx = verts[vb] - verts[va];
-                float dz = verts[vb + 2] - verts[va + 2];
-                hit.hitNormal[0] = dz;
-                hit.hitNormal[1] = 0;
-                hit.hitNormal[2] = -dx;
-                vNormalize(hit.hitNormal);
-                return Result.success(hit);
-            }
-
-            // No hit, advance to neighbour polygon.
-            prevRef = curRef;
-            curRef = nextRef;
-            prevTile = tile;
-            tile = nextTile;
-            prevPoly = poly;
-            poly = nextPoly;
+        m_raycast.cast(startRef, startPos, endPos, 0, filter, (options & DT_RAYCAST_USE_COSTS) != 0, prevRef);
+        RaycastHit hit = new RaycastHit();
+        hit.t = m_raycast.getT();
+        vCopy(hit.hitNormal, m_raycast.getHitNormal());
+        hit.hitEdgeIndex = m_raycast.getHitEdgeIndex();
+        hit.pathCost = m_raycast.getPathCost();
+        for (int i = 0; i < m_raycast.getPathCount(); i++) {
+            hit.path.add(m_raycast.getPath(i));
         }
-
         return Result.success(hit);
     }
 
@@ -2280,6 +2267,19 @@ public class NavMeshQuery {
     /// @returns The status flags for the query.
     public Result<FindPolysAroundResult> findPolysAroundCircle(long startRef, float[] centerPos, float radius,
             QueryFilter filter) {
+        if (!beginQuery()) {
+            return doFindPolysAroundCircle(startRef, centerPos, radius, filter);
+        }
+        try {
+            return endQuery(QueryType.FIND_POLYS_AROUND_CIRCLE,
+                    doFindPolysAroundCircle(startRef, centerPos, radius, m_statsFilter.wrap(filter)));
+        } finally {
+            m_instrumenting = false;
+        }
+    }
+
+    private Result<FindPolysAroundResult> doFindPolysAroundCircle(long startRef, float[] centerPos, float radius,
+            QueryFilter filter) {
 
         // Validate input
 
@@ -2377,7 +2377,7 @@ public class NavMeshQuery {
 
                 // Cost
                 if (neighbourNode.flags == 0) {
-                    neighbourNode.pos = vLerp(va, vb, 0.5f);
+                    vLerp(neighbourNode.pos, va, vb, 0.5f);
                 }
 
                 float cost = filter.getCost(bestNode.pos, neighbourNode.pos, parentRef, parentTile, parentPoly, bestRef,
@@ -2547,7 +2547,7 @@ public class NavMeshQuery {
 
                 // Cost
                 if (neighbourNode.flags == 0) {
-                    neighbourNode.pos = vLerp(va, vb, 0.5f);
+                    vLerp(neighbourNode.pos, va, vb, 0.5f);
                 }
 
                 float cost = filter.getCost(bestNode.pos, neighbourNode.pos, parentRef, parentTile, parentPoly, bestRef,
@@ -2705,7 +2705,7 @@ public class NavMeshQuery {
                 // Collect vertices of the neighbour poly.
                 int npa = neighbourPoly.vertCount;
                 for (int k = 0; k < npa; ++k) {
-                    System.arraycopy(neighbourTile.data.verts, neighbourPoly.verts[k] * 3, pa, k * 3, 3);
+                    neighbourTile.data.getVert(neighbourPoly.verts[k], pa, k * 3);
                 }
 
                 boolean overlap = false;
@@ -2732,7 +2732,7 @@ public class NavMeshQuery {
                     // Get vertices and test overlap
                     int npb = pastPoly.vertCount;
                     for (int k = 0; k < npb; ++k) {
-                        System.arraycopy(pastTile.data.verts, pastPoly.verts[k] * 3, pb, k * 3, 3);
+                        pastTile.data.getVert(pastPoly.verts[k], pb, k * 3);
                     }
 
                     if (overlapPolyPoly2D(pa, npa, pb, npb)) {
@@ -2811,7 +2811,26 @@ public class NavMeshQuery {
 
         List<Long> segmentRefs = new ArrayList<>();
         List<float[]> segmentVerts = new ArrayList<>();
+        WallSegmentCache.Segments cached = getCachedWallSegments(tile, filter);
+        if (cached != null) {
+            int ip = NavMesh.decodePolyIdPoly(ref);
+            for (int k = cached.polyStart[ip]; k < cached.polyStart[ip + 1]; ++k) {
+                if (storePortals || cached.refs[k] == 0) {
+                    segmentVerts.add(Arrays.copyOfRange(cached.verts, k * 6, k * 6 + 6));
+                    segmentRefs.add(cached.refs[k]);
+                }
+            }
+        } else {
+            collectPolyWallSegments(tile, poly, storePortals, filter, segmentVerts, segmentRefs);
+        }
+
+        return Result.success(new GetPolyWallSegmentsResult(segmentVerts, segmentRefs));
+    }
+
+    private void collectPolyWallSegments(MeshTile tile, Poly poly, boolean storePortals, QueryFilter filter,
+            List<float[]> segmentVerts, List<Long> segmentRefs) {
         List<SegInterval> ints = new ArrayList<>(16);
+        float[] edge = m_edge;
 
         for (int i = 0, j = poly.vertCount - 1; i < poly.vertCount; j = i++) {
             // Skip non-solid edges.
@@ -2846,11 +2865,9 @@ public class NavMeshQuery {
                     continue;
                 }
 
-                int vj = poly.verts[j] * 3;
-                int vi = poly.verts[i] * 3;
                 float[] seg = new float[6];
-                System.arraycopy(tile.data.verts, vj, seg, 0, 3);
-                System.arraycopy(tile.data.verts, vi, seg, 3, 3);
+                tile.data.getVert(poly.verts[j], seg, 0);
+                tile.data.getVert(poly.verts[i], seg, 3);
                 segmentVerts.add(seg);
                 segmentRefs.add(neiRef);
                 continue;
@@ -2861,16 +2878,16 @@ public class NavMeshQuery {
             insertInterval(ints, 255, 256, 0);
 
             // Store segments.
-            int vj = poly.verts[j] * 3;
-            int vi = poly.verts[i] * 3;
+            tile.data.getVert(poly.verts[j], edge, 0);
+            tile.data.getVert(poly.verts[i], edge, 3);
             for (int k = 1; k < ints.size(); ++k) {
                 // Portal segment.
                 if (storePortals && ints.get(k).ref != 0) {
                     float tmin = ints.get(k).tmin / 255.0f;
                     float tmax = ints.get(k).tmax / 255.0f;
                     float[] seg = new float[6];
-                    System.arraycopy(vLerp(tile.data.verts, vj, vi, tmin), 0, seg, 0, 3);
-                    System.arraycopy(vLerp(tile.data.verts, vj, vi, tmax), 0, seg, 3, 3);
+                    vLerp(seg, 0, edge, 0, edge, 3, tmin);
+                    vLerp(seg, 3, edge, 0, edge, 3, tmax);
                     segmentVerts.add(seg);
                     segmentRefs.add(ints.get(k).ref);
                 }
@@ -2882,15 +2899,59 @@ public class NavMeshQuery {
                     float tmin = imin / 255.0f;
                     float tmax = imax / 255.0f;
                     float[] seg = new float[6];
-                    System.arraycopy(vLerp(tile.data.verts, vj, vi, tmin), 0, seg, 0, 3);
-                    System.arraycopy(vLerp(tile.data.verts, vj, vi, tmax), 0, seg, 3, 3);
+                    vLerp(seg, 0, edge, 0, edge, 3, tmin);
+                    vLerp(seg, 3, edge, 0, edge, 3, tmax);
                     segmentVerts.add(seg);
                     segmentRefs.add(0L);
                 }
             }
         }
 
-        return Result.success(new GetPolyWallSegmentsResult(segmentVerts, segmentRefs));
+    }
+
+    /// Returns the cached segments of the tile for the filter, computing them on first use, or null if the cache is
+    /// disabled or the filter is not a DefaultQueryFilter. The filter of an instrumented query is looked through.
+    private WallSegmentCache.Segments getCachedWallSegments(MeshTile tile, QueryFilter filter) {
+        if (filter instanceof QueryStatsFilter) {
+            filter = ((QueryStatsFilter) filter).getFilter();
+        }
+        if (!m_nav.isWallSegmentCacheEnabled() || filter.getClass() != DefaultQueryFilter.class) {
+            return null;
+        }
+        long key = WallSegmentCache.key((DefaultQueryFilter) filter);
+        WallSegmentCache cache = tile.wallSegments;
+        WallSegmentCache.Segments segments = cache != null ? cache.get(key) : null;
+        if (segments == null) {
+            segments = buildWallSegments(tile, filter);
+            tile.wallSegments = WallSegmentCache.with(cache, key, segments);
+        }
+        return segments;
+    }
+
+    private WallSegmentCache.Segments buildWallSegments(MeshTile tile, QueryFilter filter) {
+        int polyCount = tile.data.header.polyCount;
+        int[] polyStart = new int[polyCount + 1];
+        int[] solidEdges = new int[polyCount];
+        List<float[]> segmentVerts = new ArrayList<>();
+        List<Long> segmentRefs = new ArrayList<>();
+        for (int ip = 0; ip < polyCount; ++ip) {
+            Poly poly = tile.data.polys[ip];
+            polyStart[ip] = segmentVerts.size();
+            collectPolyWallSegments(tile, poly, true, filter, segmentVerts, segmentRefs);
+            for (int j = 0; j < poly.vertCount; ++j) {
+                if (isSolidEdge(tile, poly, j, filter)) {
+                    solidEdges[ip] |= 1 << j;
+                }
+            }
+        }
+        polyStart[polyCount] = segmentVerts.size();
+        float[] verts = new float[segmentVerts.size() * 6];
+        long[] refs = new long[segmentRefs.size()];
+        for (int k = 0; k < refs.length; ++k) {
+            System.arraycopy(segmentVerts.get(k), 0, verts, k * 6, 6);
+            refs[k] = segmentRefs.get(k);
+        }
+        return new WallSegmentCache.Segments(polyStart, verts, refs, solidEdges);
     }
 
     /// @par
@@ -2915,6 +2976,19 @@ public class NavMeshQuery {
     /// @returns The status flags for the query.
     public Result<FindDistanceToWallResult> findDistanceToWall(long startRef, float[] centerPos, float maxRadius,
             QueryFilter filter) {
+        if (!beginQuery()) {
+            return doFindDistanceToWall(startRef, centerPos, maxRadius, filter);
+        }
+        try {
+            return endQuery(QueryType.FIND_DISTANCE_TO_WALL,
+                    doFindDistanceToWall(startRef, centerPos, maxRadius, m_statsFilter.wrap(filter)));
+        } finally {
+            m_instrumenting = false;
+        }
+    }
+
+    private Result<FindDistanceToWallResult> doFindDistanceToWall(long startRef, float[] centerPos, float maxRadius,
+            QueryFilter filter) {
 
         // Validate input
         if (!m_nav.isValidPolyRef(startRef) || Objects.isNull(centerPos) || !vIsFinite(centerPos) || maxRadius < 0
@@ -2936,8 +3010,9 @@ public class NavMeshQuery {
 
         float radiusSqr = sqr(maxRadius);
         float[] hitPos = new float[3];
-        VectorPtr bestvj = null;
-        VectorPtr bestvi = null;
+        float[] bestvj = null;
+        float[] bestvi = null;
+        float[] seg = new float[6];
         while (!m_openList.isEmpty()) {
             Node bestNode = m_openList.pop();
             bestNode.flags &= ~Node.DT_NODE_OPEN;
@@ -2964,41 +3039,18 @@ public class NavMeshQuery {
             }
 
             // Hit test walls.
+            WallSegmentCache.Segments cached = getCachedWallSegments(bestTile, filter);
+            int solidEdges = cached != null ? cached.solidEdges[NavMesh.decodePolyIdPoly(bestRef)] : 0;
             for (int i = 0, j = bestPoly.vertCount - 1; i < bestPoly.vertCount; j = i++) {
                 // Skip non-solid edges.
-                if ((bestPoly.neis[j] & NavMesh.DT_EXT_LINK) != 0) {
-                    // Tile border.
-                    boolean solid = true;
-                    for (int k = bestPoly.firstLink; k != NavMesh.DT_NULL_LINK; k = bestTile.links.get(k).next) {
-                        Link link = bestTile.links.get(k);
-                        if (link.edge == j) {
-                            if (link.ref != 0) {
-                                tileAndPoly = m_nav.getTileAndPolyByRefUnsafe(link.ref);
-                                MeshTile neiTile = tileAndPoly.first;
-                                Poly neiPoly = tileAndPoly.second;
-                                if (filter.passFilter(link.ref, neiTile, neiPoly)) {
-                                    solid = false;
-                                }
-                            }
-                            break;
-                        }
-                    }
-                    if (!solid) {
-                        continue;
-                    }
-                } else if (bestPoly.neis[j] != 0) {
-                    // Internal edge
-                    int idx = (bestPoly.neis[j] - 1);
-                    long ref = m_nav.getPolyRefBase(bestTile) | idx;
-                    if (filter.passFilter(ref, bestTile, bestTile.data.polys[idx])) {
-                        continue;
-                    }
+                if (cached != null ? (solidEdges & (1 << j)) == 0 : !isSolidEdge(bestTile, bestPoly, j, filter)) {
+                    continue;
                 }
 
                 // Calc distance to the edge.
-                int vj = bestPoly.verts[j] * 3;
-                int vi = bestPoly.verts[i] * 3;
-                Tupple2<Float, Float> distseg = distancePtSegSqr2D(centerPos, bestTile.data.verts, vj, vi);
+                bestTile.data.getVert(bestPoly.verts[j], seg, 0);
+                bestTile.data.getVert(bestPoly.verts[i], seg, 3);
+                Tupple2<Float, Float> distseg = distancePtSegSqr2D(centerPos, seg, 0, 3);
                 float distSqr = distseg.first;
                 float tseg = distseg.second;
 
@@ -3010,13 +3062,11 @@ public class NavMeshQuery {
                 // Hit wall, update radius.
                 radiusSqr = distSqr;
                 // Calculate hit pos.
-                hitPos[0] = bestTile.data.verts[vj] + (bestTile.data.verts[vi] - bestTile.data.verts[vj]) * tseg;
-                hitPos[1] = bestTile.data.verts[vj + 1]
-                        + (bestTile.data.verts[vi + 1] - bestTile.data.verts[vj + 1]) * tseg;
-                hitPos[2] = bestTile.data.verts[vj + 2]
-                        + (bestTile.data.verts[vi + 2] - bestTile.data.verts[vj + 2]) * tseg;
-                bestvj = new VectorPtr(bestTile.data.verts, vj);
-                bestvi = new VectorPtr(bestTile.data.verts, vi);
+                hitPos[0] = seg[0] + (seg[3] - seg[0]) * tseg;
+                hitPos[1] = seg[1] + (seg[4] - seg[1]) * tseg;
+                hitPos[2] = seg[2] + (seg[5] - seg[2]) * tseg;
+                bestvj = Arrays.copyOfRange(seg, 0, 3);
+                bestvi = Arrays.copyOfRange(seg, 3, 6);
             }
 
             for (int i = bestPoly.firstLink; i != NavMesh.DT_NULL_LINK; i = bestTile.links.get(i).next) {
@@ -3038,9 +3088,9 @@ public class NavMeshQuery {
                 }
 
                 // Calc distance to the edge.
-                int va = bestPoly.verts[link.edge] * 3;
-                int vb = bestPoly.verts[(link.edge + 1) % bestPoly.vertCount] * 3;
-                Tupple2<Float, Float> distseg = distancePtSegSqr2D(centerPos, bestTile.data.verts, va, vb);
+                bestTile.data.getVert(bestPoly.verts[link.edge], seg, 0);
+                bestTile.data.getVert(bestPoly.verts[(link.edge + 1) % bestPoly.vertCount], seg, 3);
+                Tupple2<Float, Float> distseg = distancePtSegSqr2D(centerPos, seg, 0, 3);
                 float distSqr = distseg.first;
                 // If the circle is not touching the next polygon, skip it.
                 if (distSqr > radiusSqr) {
@@ -3099,6 +3149,30 @@ public class NavMeshQuery {
         return Result.success(new FindDistanceToWallResult((float) Math.sqrt(radiusSqr), hitPos, hitNormal));
     }
 
+    /// Returns true if the edge j of the polygon does not lead to a polygon passing the filter. At tile borders only
+    /// the first link of the edge is tested.
+    private boolean isSolidEdge(MeshTile tile, Poly poly, int j, QueryFilter filter) {
+        if ((poly.neis[j] & NavMesh.DT_EXT_LINK) != 0) {
+            // Tile border.
+            for (int k = poly.firstLink; k != NavMesh.DT_NULL_LINK; k = tile.links.get(k).next) {
+                Link link = tile.links.get(k);
+                if (link.edge == j) {
+                    if (link.ref != 0) {
+                        Tupple2<MeshTile, Poly> tileAndPoly = m_nav.getTileAndPolyByRefUnsafe(link.ref);
+                        return !filter.passFilter(link.ref, tileAndPoly.first, tileAndPoly.second);
+                    }
+                    return true;
+                }
+            }
+        } else if (poly.neis[j] != 0) {
+            // Internal edge
+            int idx = (poly.neis[j] - 1);
+            long ref = m_nav.getPolyRefBase(tile) | idx;
+            return !filter.passFilter(ref, tile, tile.data.polys[idx]);
+        }
+        return true;
+    }
+
     /// Returns true if the polygon reference is valid and passes the filter restrictions.
     /// @param[in] ref The polygon reference to check.
     /// @param[in] filter The filter to apply.
@@ -0,0 +1,270 @@
+/*
+recast4j copyright (c) 2015-2019 Piotr Piastucki piotr@jtilia.org
+
+This software is provided 'as-is', without any express or implied
+warranty.  In no event will the authors be held liable for any damages
+arising from the use of this software.
+Permission is granted to anyone to use this software for any purpose,
+including commercial applications, and to alter it and redistribute it
+freely, subject to the following restrictions:
+1. The origin of this software must not be misrepresented; you must not
+ claim that you wrote the original software. If you use this software
+ in a product, an acknowledgment in the product documentation would be
+ appreciated but is not required.
+2. Altered source versions must be plainly marked as such, and must not be
+ misrepresented as being the original software.
+3. This notice may not be removed or altered from any source distribution.
+*/
+package org.recast4j.detour;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+/**
+ * Streaming mode for navigation meshes which do not fit in memory.
+ *
+ * The streamer owns a {@link NavMesh} whose tiles are paged in from a {@link TileStore} the first time a query touches
+ * them (queryPolygons, or link traversal in findPath and the sliced path finder). The set of resident tiles is bounded:
+ * whenever {@link #update()} runs the least recently used tile locations are removed with
+ * {@link NavMesh#removeTile(long)} until the budget is met. Tiles around pinned positions (players, agents) are loaded
+ * in update() and never evicted. With an executor the neighbours of freshly loaded tiles and the surroundings of pins
+ * are decoded in the background and added on the next update.
+ *
+ * Tiles are always added with the reference they were stored with, so tile indices and salts, and therefore polygon
+ * references, stay valid across evictions and reloads. References into an evicted tile are invalid until the tile is
+ * loaded again.
+ *
+ * The streamer is not thread safe: like the navmesh, it must be used from one thread. Tiles loaded on touch during a
+ * frame are only evicted by the next update(), so the budget may be exceeded in between, and update() must not be
+ * called while a query is in progress.
+ */
+public class NavMeshTileStreamer implements TileLoader {
+
+    private final TileStore m_store;
+    private final NavMesh m_nav;
+    private final int m_maxResidentTiles;
+    private final Executor m_executor;
+    /// Resident tile locations (all layers) in least recently used order.
+    private final LinkedHashMap<Long, long[]> m_resident = new LinkedHashMap<>(16, 0.75f, true);
+    /// Tile locations decoded in the background, added on the next update.
+    private final Map<Long, CompletableFuture<List<MeshData>>> m_prefetch = new HashMap<>();
+    /// Pinned positions and radii, [(x, y, z, r)].
+    private final Map<Integer, float[]> m_pins = new HashMap<>();
+    private final Set<Long> m_pinned = new HashSet<>();
+    private int m_residentTiles;
+    private int m_loadCount;
+    private int m_evictionCount;
+
+    /**
+     * Creates a streamer which loads tiles synchronously, without prefetching.
+     */
+    public NavMeshTileStreamer(TileStore store, int maxResidentTiles) {
+        this(store, maxResidentTiles, null);
+    }
+
+    /**
+     * @param store
+     *            The tile source.
+     * @param maxResidentTiles
+     *            The number of tiles kept in the navmesh after each update.
+     * @param executor
+     *            Executor used to prefetch neighbour tiles, or null to disable prefetching.
+     */
+    public NavMeshTileStreamer(TileStore store, int maxResidentTiles, Executor executor) {
+        if (maxResidentTiles <= 0) {
+            throw new IllegalArgumentException("Invalid resident tile budget " + maxResidentTiles);
+        }
+        m_store = store;
+        m_maxResidentTiles = maxResidentTiles;
+        m_executor = executor;
+        m_nav = new NavMesh(store.getParams(), store.getMaxVertsPerPoly());
+        m_nav.setTileLoader(this);
+    }
+
+    public NavMesh getNavMesh() {
+        return m_nav;
+    }
+
+    /**
+     * Loads the tiles at the location if they are not resident and marks them as most recently used.
+     */
+    @Override
+    public void loadTilesAt(int x, int y) {
+        long key = locationKey(x, y);
+        if (m_resident.get(key) != null) {
+            return;
+        }
+        long[] refs = m_store.getTileRefs(x, y);
+        if (refs.length == 0) {
+            return;
+        }
+        List<MeshData> tiles = null;
+        CompletableFuture<List<MeshData>> pending = m_prefetch.remove(key);
+        if (pending != null) {
+            try {
+                tiles = pending.join();
+            } catch (CompletionException e) {
+                // Prefetch failed, try again below and report the error to the caller.
+            }
+        }
+        if (tiles == null) {
+            tiles = readTiles(refs);
+        }
+        addTiles(key, refs, tiles);
+        prefetchNeighbours(x, y);
+    }
+
+    /**
+     * Pins the tiles overlapping the circle so that they are loaded on the next update and never evicted. Calling it
+     * again with the same id moves the pin.
+     */
+    public void pin(int id, float[] pos, float radius) {
+        m_pins.put(id, new float[] { pos[0], pos[1], pos[2], radius });
+    }
+
+    public void unpin(int id) {
+        m_pins.remove(id);
+    }
+
+    /**
+     * Adds the prefetched tiles, loads the pinned tiles and evicts the least recently used tiles exceeding the budget.
+     * Should be called once per frame, outside of any query.
+     */
+    public void update() {
+        for (Iterator<Map.Entry<Long, CompletableFuture<List<MeshData>>>> it = m_prefetch.entrySet().iterator(); it
+                .hasNext();) {
+            Map.Entry<Long, CompletableFuture<List<MeshData>>> e = it.next();
+            CompletableFuture<List<MeshData>> future = e.getValue();
+            if (future.isDone()) {
+                it.remove();
+                if (!future.isCompletedExceptionally() && !m_resident.containsKey(e.getKey())) {
+                    long key = e.getKey();
+                    addTiles(key, m_store.getTileRefs(locationX(key), locationY(key)), future.join());
+                }
+            }
+        }
+        m_pinned.clear();
+        for (float[] pin : m_pins.values()) {
+            int[] min = m_nav.calcTileLoc(new float[] { pin[0] - pin[3], pin[1], pin[2] - pin[3] });
+            int[] max = m_nav.calcTileLoc(new float[] { pin[0] + pin[3], pin[1], pin[2] + pin[3] });
+            for (int y = min[1]; y <= max[1]; ++y) {
+                for (int x = min[0]; x <= max[0]; ++x) {
+                    m_pinned.add(locationKey(x, y));
+                }
+            }
+        }
+        for (long key : m_pinned) {
+            loadTilesAt(locationX(key), locationY(key));
+        }
+        evict();
+    }
+
+    private void evict() {
+        Iterator<Map.Entry<Long, long[]>> it = m_resident.entrySet().iterator();
+        while (m_residentTiles > m_maxResidentTiles && it.hasNext()) {
+            Map.Entry<Long, long[]> e = it.next();
+            if (m_pinned.contains(e.getKey())) {
+                continue;
+            }
+            for (long ref : e.getValue()) {
+                m_nav.removeTile(ref);
+            }
+            it.remove();
+            m_residentTiles -= e.getValue().length;
+            m_evictionCount += e.getValue().length;
+        }
+    }
+
+    private void prefetchNeighbours(int x, int y) {
+        if (m_executor == null) {
+            return;
+        }
+        for (int dy = -1; dy <= 1; ++dy) {
+            for (int dx = -1; dx <= 1; ++dx) {
+                if (dx != 0 || dy != 0) {
+                    prefetch(x + dx, y + dy);
+                }
+            }
+        }
+    }
+
+    private void prefetch(int x, int y) {
+        long key = locationKey(x, y);
+        // Do not prefetch more than the budget can hold, the tiles would be evicted right away.
+        if (m_resident.containsKey(key) || m_prefetch.containsKey(key)
+                || m_residentTiles + m_prefetch.size() >= m_maxResidentTiles) {
+            return;
+        }
+        long[] refs = m_store.getTileRefs(x, y);
+        if (refs.length > 0) {
+            m_prefetch.put(key, CompletableFuture.supplyAsync(() -> readTiles(refs), m_executor));
+        }
+    }
+
+    private List<MeshData> readTiles(long[] refs) {
+        List<MeshData> tiles = new ArrayList<>(refs.length);
+        for (long ref : refs) {
+            try {
+                tiles.add(m_store.loadTile(ref));
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to load tile " + ref, e);
+            }
+        }
+        return tiles;
+    }
+
+    private void addTiles(long key, long[] refs, List<MeshData> tiles) {
+        for (int i = 0; i < refs.length; i++) {
+            m_nav.addTile(tiles.get(i), 0, refs[i]);
+        }
+        m_resident.put(key, refs);
+        m_residentTiles += refs.length;
+        m_loadCount += refs.length;
+    }
+
+    public boolean isResident(int x, int y) {
+        return m_resident.containsKey(locationKey(x, y));
+    }
+
+    /** Number of tiles currently in the navmesh. */
+    public int getResidentTileCount() {
+        return m_residentTiles;
+    }
+
+    /** Number of tile locations being decoded in the background. */
+    public int getPendingPrefetchCount() {
+        return m_prefetch.size();
+    }
+
+    /** Total number of tiles added to the navmesh. */
+    public int getLoadCount() {
+        return m_loadCount;
+    }
+
+    /** Total number of tiles evicted from the navmesh. */
+    public int getEvictionCount() {
+        return m_evictionCount;
+    }
+
+    private static long locationKey(int x, int y) {
+        return ((long) x << 32) | (y & 0xFFFFFFFFL);
+    }
+
+    private static int locationX(long key) {
+        return (int) (key >> 32);
+    }
+
+    private static int locationY(long key) {
+        return (int) key;
+    }
+}
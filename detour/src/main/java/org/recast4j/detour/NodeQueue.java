@@ -23,9 +23,12 @@ import java.util.PriorityQueue;
 public class NodeQueue {
 
     private final PriorityQueue<Node> m_heap = new PriorityQueue<>((n1, n2) -> Float.compare(n1.total, n2.total));
+    private int m_popCount;
+    private int m_maxSize;
 
     public void clear() {
         m_heap.clear();
+        m_maxSize = 0;
     }
 
     public Node top() {
@@ -33,11 +36,13 @@ public class NodeQueue {
     }
 
     public Node pop() {
+        m_popCount++;
         return m_heap.poll();
     }
 
     public void push(Node node) {
         m_heap.offer(node);
+        m_maxSize = Math.max(m_maxSize, m_heap.size());
     }
 
     public void modify(Node node) {
@@ -48,4 +53,14 @@ public class NodeQueue {
     public boolean isEmpty() {
         return m_heap.isEmpty();
     }
+
+    /// Total number of pops since the queue was created, used to count expanded nodes.
+    int getPopCount() {
+        return m_popCount;
+    }
+
+    /// Maximum size of the queue since it was last cleared.
+    int getMaxSize() {
+        return m_maxSize;
+    }
 }
@@ -0,0 +1,95 @@
+/*
+recast4j copyright (c) 2015-2019 Piotr Piastucki piotr@jtilia.org
+
+This software is provided 'as-is', without any express or implied
+warranty.  In no event will the authors be held liable for any damages
+arising from the use of this software.
+Permission is granted to anyone to use this software for any purpose,
+including commercial applications, and to alter it and redistribute it
+freely, subject to the following restrictions:
+1. The origin of this software must not be misrepresented; you must not
+ claim that you wrote the original software. If you use this software
+ in a product, an acknowledgment in the product documentation would be
+ appreciated but is not required.
+2. Altered source versions must be plainly marked as such, and must not be
+ misrepresented as being the original software.
+3. This notice may not be removed or altered from any source distribution.
+*/
+package org.recast4j.detour;
+
+/**
+ * Structure of arrays copy of a tile's BV tree, laid out for batched overlap tests.
+ *
+ * Instances are immutable and cached on the tile while it is resident. The navmesh drops the cache when the tile is
+ * removed or compressed, and the cache is stamped with the tile salt so that a tile slot reused for other data never
+ * sees the tree of its previous tile.
+ *
+ * @see GeometryKernels#queryBVTree(PackedBVTree, int[], int[], int[])
+ */
+public final class PackedBVTree {
+
+    /// Salt of the tile the tree was packed for.
+    final int salt;
+    /** Number of nodes. */
+    public final int nodeCount;
+    /** Number of leaf nodes, i.e. the maximum number of polygons returned by a query. */
+    public final int leafCount;
+    /** Minimum bounds of the nodes, one array per axis. */
+    public final int[] minX, minY, minZ;
+    /** Maximum bounds of the nodes, one array per axis. */
+    public final int[] maxX, maxY, maxZ;
+    /** Polygon index of leaf nodes, negative escape offset of inner nodes. */
+    public final int[] index;
+
+    /**
+     * @param nodes
+     *            The BV tree of a tile.
+     * @param nodeCount
+     *            The number of used nodes, see MeshHeader#bvNodeCount.
+     */
+    public PackedBVTree(BVNode[] nodes, int nodeCount) {
+        this(nodes, nodeCount, 0);
+    }
+
+    PackedBVTree(BVNode[] nodes, int nodeCount, int salt) {
+        this.salt = salt;
+        this.nodeCount = nodeCount;
+        minX = new int[nodeCount];
+        minY = new int[nodeCount];
+        minZ = new int[nodeCount];
+        maxX = new int[nodeCount];
+        maxY = new int[nodeCount];
+        maxZ = new int[nodeCount];
+        index = new int[nodeCount];
+        int leaves = 0;
+        for (int i = 0; i < nodeCount; i++) {
+            BVNode node = nodes[i];
+            minX[i] = node.bmin[0];
+            minY[i] = node.bmin[1];
+            minZ[i] = node.bmin[2];
+            maxX[i] = node.bmax[0];
+            maxY[i] = node.bmax[1];
+            maxZ[i] = node.bmax[2];
+            index[i] = node.i;
+            if (node.i >= 0) {
+                leaves++;
+            }
+        }
+        leafCount = leaves;
+    }
+
+    /** Returns the packed BV tree of the tile, or null if the tile has no BV tree or its tile data is shared. */
+    static PackedBVTree of(MeshTile tile) {
+        BVNode[] nodes = tile.data.bvTree;
+        if (nodes == null) {
+            return null;
+        }
+        PackedBVTree tree = tile.packedBvTree;
+        if (tree == null || tree.salt != tile.salt) {
+            // Racing queries may pack the same tree twice, the instances are immutable and equal.
+            tree = new PackedBVTree(nodes, tile.data.header.bvNodeCount, tile.salt);
+            tile.packedBvTree = tree;
+        }
+        return tree;
+    }
+}
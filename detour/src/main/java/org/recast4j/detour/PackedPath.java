@@ -0,0 +1,60 @@
+/*
+recast4j copyright (c) 2015-2019 Piotr Piastucki piotr@jtilia.org
+
+This software is provided 'as-is', without any express or implied
+warranty.  In no event will the authors be held liable for any damages
+arising from the use of this software.
+Permission is granted to anyone to use this software for any purpose,
+including commercial applications, and to alter it and redistribute it
+freely, subject to the following restrictions:
+1. The origin of this software must not be misrepresented; you must not
+ claim that you wrote the original software. If you use this software
+ in a product, an acknowledgment in the product documentation would be
+ appreciated but is not required.
+2. Altered source versions must be plainly marked as such, and must not be
+ misrepresented as being the original software.
+3. This notice may not be removed or altered from any source distribution.
+*/
+package org.recast4j.detour;
+
+/**
+ * Path result of {@link NavMeshPathService} in flat arrays: the polygon corridor and the straight path along it.
+ */
+public class PackedPath {
+
+    private final Status status;
+    private final long[] polys;
+    private final float[] straightPath;
+    private final int[] straightPathFlags;
+
+    public PackedPath(Status status, long[] polys, float[] straightPath, int[] straightPathFlags) {
+        this.status = status;
+        this.polys = polys;
+        this.straightPath = straightPath;
+        this.straightPathFlags = straightPathFlags;
+    }
+
+    /** Status of the path search, PARTIAL_RESULT if the end polygon could not be reached. */
+    public Status getStatus() {
+        return status;
+    }
+
+    /** Polygon references of the path from start to end. */
+    public long[] getPolys() {
+        return polys;
+    }
+
+    /** Straight path points [(x, y, z) * getStraightPathCount()]. */
+    public float[] getStraightPath() {
+        return straightPath;
+    }
+
+    /** Flags of the straight path points. (See: NavMeshQuery#DT_STRAIGHTPATH_START etc.) */
+    public int[] getStraightPathFlags() {
+        return straightPathFlags;
+    }
+
+    public int getStraightPathCount() {
+        return straightPathFlags.length;
+    }
+}
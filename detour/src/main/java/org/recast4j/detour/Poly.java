@@ -97,6 +97,20 @@ public class Poly {
         neis = new int[maxVertsPerPoly];
     }
 
+    /**
+     * Creates a copy of the polygon sharing the vertex and neighbour arrays, used to override flags and area without
+     * touching the original, and to add the same serialized tile to several navmeshes.
+     */
+    public Poly(Poly poly) {
+        index = poly.index;
+        firstLink = poly.firstLink;
+        verts = poly.verts;
+        neis = poly.neis;
+        flags = poly.flags;
+        vertCount = poly.vertCount;
+        areaAndtype = poly.areaAndtype;
+    }
+
     /** Sets the user defined area id. [Limit: < #DT_MAX_AREAS] */
     public void setArea(int a) {
         areaAndtype = (areaAndtype & 0xc0) | (a & 0x3f);
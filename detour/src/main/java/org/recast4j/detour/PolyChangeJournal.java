@@ -0,0 +1,88 @@
+/*
+recast4j copyright (c) 2015-2019 Piotr Piastucki piotr@jtilia.org
+
+This software is provided 'as-is', without any express or implied
+warranty.  In no event will the authors be held liable for any damages
+arising from the use of this software.
+Permission is granted to anyone to use this software for any purpose,
+including commercial applications, and to alter it and redistribute it
+freely, subject to the following restrictions:
+1. The origin of this software must not be misrepresented; you must not
+ claim that you wrote the original software. If you use this software
+ in a product, an acknowledgment in the product documentation would be
+ appreciated but is not required.
+2. Altered source versions must be plainly marked as such, and must not be
+ misrepresented as being the original software.
+3. This notice may not be removed or altered from any source distribution.
+*/
+package org.recast4j.detour;
+
+/**
+ * Monotonic journal of polygon flag and area changes and of tiles added to or removed from a {@link NavMesh}.
+ *
+ * Every change increments the version and records the indices of the tiles it touched. Adding or removing a tile
+ * records the tile and the tiles around it, whose links to it changed. Consumers remember the version
+ * they last validated against and poll {@link #getVersion()}; when it moved they can ask which tiles changed since and
+ * only revalidate what overlaps them. The journal keeps a bounded number of entries, older changes are summarized as
+ * "unknown" and consumers then have to revalidate everything.
+ */
+public class PolyChangeJournal {
+
+    private final int[][] m_tiles;
+    private long m_version;
+    private int m_head;
+    private int m_count;
+
+    public PolyChangeJournal(int capacity) {
+        m_tiles = new int[capacity][];
+    }
+
+    /** Current version, incremented by every recorded change. */
+    public long getVersion() {
+        return m_version;
+    }
+
+    public boolean hasChangedSince(long version) {
+        return m_version != version;
+    }
+
+    /**
+     * Returns the indices of the tiles changed after the given version (possibly with duplicates), an empty array if
+     * nothing changed, or null if the journal no longer reaches back to that version.
+     */
+    public int[] getChangedTiles(long sinceVersion) {
+        if (sinceVersion >= m_version) {
+            return new int[0];
+        }
+        long oldest = m_version - m_count + 1;
+        if (sinceVersion + 1 < oldest) {
+            return null;
+        }
+        int n = (int) (m_version - sinceVersion);
+        int size = 0;
+        for (int i = 0; i < n; ++i) {
+            size += m_tiles[slot(i)].length;
+        }
+        int[] tiles = new int[size];
+        int p = 0;
+        for (int i = 0; i < n; ++i) {
+            int[] t = m_tiles[slot(i)];
+            System.arraycopy(t, 0, tiles, p, t.length);
+            p += t.length;
+        }
+        return tiles;
+    }
+
+    /// Slot of the i-th newest entry.
+    private int slot(int i) {
+        return (m_head - 1 - i + m_tiles.length) % m_tiles.length;
+    }
+
+    long record(int[] tiles) {
+        m_version++;
+        m_tiles[m_head] = tiles;
+        m_head = (m_head + 1) % m_tiles.length;
+        m_count = Math.min(m_count + 1, m_tiles.length);
+        return m_version;
+    }
+}
@@ -0,0 +1,201 @@
+/*
+recast4j copyright (c) 2015-2019 Piotr Piastucki piotr@jtilia.org
+
+This software is provided 'as-is', without any express or implied
+warranty.  In no event will the authors be held liable for any damages
+arising from the use of this software.
+Permission is granted to anyone to use this software for any purpose,
+including commercial applications, and to alter it and redistribute it
+freely, subject to the following restrictions:
+1. The origin of this software must not be misrepresented; you must not
+ claim that you wrote the original software. If you use this software
+ in a product, an acknowledgment in the product documentation would be
+ appreciated but is not required.
+2. Altered source versions must be plainly marked as such, and must not be
+ misrepresented as being the original software.
+3. This notice may not be removed or altered from any source distribution.
+*/
+package org.recast4j.detour;
+
+import java.util.Arrays;
+
+/**
+ * Per-instance polygon flag and area overrides on top of a shared navigation mesh.
+ *
+ * Several instances (e.g. copies of a dungeon which only differ in which doors are closed) can share one
+ * {@link NavMesh}, which is then treated as immutable, and keep their differences in an overlay. The overlay is a
+ * sparse copy-on-write table: the first change of a polygon stores a copy of it with the new flags or area, all other
+ * polygons are read from the shared mesh. Queries see the overrides through the filter returned by
+ * {@link #wrap(QueryFilter)}, which hands the overridden polygons to the wrapped filter.
+ *
+ * The overlay costs one small polygon copy per changed polygon, instead of a full copy of the navigation mesh.
+ * Overrides are keyed by polygon reference, so they survive a tile being removed and re-added with the same reference.
+ * They are kept in an open addressing table on the primitive references, so looking up a polygon from the query
+ * filter does not allocate.
+ */
+public class PolyOverlay {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final NavMesh m_nav;
+    /// Linear probing table, power of two sized and at most half full. 0 marks an empty slot (0 is no valid ref).
+    private long[] m_refs = new long[INITIAL_CAPACITY];
+    private Poly[] m_polys = new Poly[INITIAL_CAPACITY];
+    private int m_count;
+
+    public PolyOverlay(NavMesh nav) {
+        m_nav = nav;
+    }
+
+    public NavMesh getNavMesh() {
+        return m_nav;
+    }
+
+    /**
+     * Returns a filter seeing the polygon flags and areas of this overlay.
+     */
+    public QueryFilter wrap(QueryFilter filter) {
+        return new OverlayQueryFilter(this, filter);
+    }
+
+    public Status setPolyFlags(long ref, int flags) {
+        Poly poly = getOrCreateOverride(ref);
+        if (poly == null) {
+            return Status.FAILURE_INVALID_PARAM;
+        }
+        poly.flags = flags;
+        return Status.SUCCSESS;
+    }
+
+    public Result<Integer> getPolyFlags(long ref) {
+        Result<Tupple2<MeshTile, Poly>> tileAndPoly = m_nav.getTileAndPolyByRef(ref);
+        if (tileAndPoly.failed()) {
+            return Result.of(tileAndPoly.status, tileAndPoly.message);
+        }
+        return Result.success(getPoly(ref, tileAndPoly.result.second).flags);
+    }
+
+    public Status setPolyArea(long ref, char area) {
+        Poly poly = getOrCreateOverride(ref);
+        if (poly == null) {
+            return Status.FAILURE_INVALID_PARAM;
+        }
+        poly.setArea(area);
+        return Status.SUCCSESS;
+    }
+
+    public Result<Integer> getPolyArea(long ref) {
+        Result<Tupple2<MeshTile, Poly>> tileAndPoly = m_nav.getTileAndPolyByRef(ref);
+        if (tileAndPoly.failed()) {
+            return Result.of(tileAndPoly.status, tileAndPoly.message);
+        }
+        return Result.success(getPoly(ref, tileAndPoly.result.second).getArea());
+    }
+
+    /** Removes the override of the polygon, restoring the flags and area of the shared mesh. */
+    public void reset(long ref) {
+        if (ref == 0) {
+            return;
+        }
+        int mask = m_refs.length - 1;
+        int i = slot(ref, mask);
+        while (m_refs[i] != ref) {
+            if (m_refs[i] == 0) {
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        // Shift the following entries of the probe sequence back into the hole.
+        int hole = i;
+        for (int j = (i + 1) & mask; m_refs[j] != 0; j = (j + 1) & mask) {
+            int home = slot(m_refs[j], mask);
+            if (((j - home) & mask) >= ((j - hole) & mask)) {
+                m_refs[hole] = m_refs[j];
+                m_polys[hole] = m_polys[j];
+                hole = j;
+            }
+        }
+        m_refs[hole] = 0;
+        m_polys[hole] = null;
+        m_count--;
+    }
+
+    /** Removes all overrides. */
+    public void clear() {
+        Arrays.fill(m_refs, 0);
+        Arrays.fill(m_polys, null);
+        m_count = 0;
+    }
+
+    /** Number of overridden polygons. */
+    public int size() {
+        return m_count;
+    }
+
+    /**
+     * Returns the overridden copy of the polygon, or the given shared polygon if it is not overridden. Only the flags
+     * and area of the copy are meaningful.
+     */
+    public Poly getPoly(long ref, Poly poly) {
+        if (m_count == 0 || ref == 0) {
+            return poly;
+        }
+        Poly override = find(ref);
+        return override != null ? override : poly;
+    }
+
+    private Poly find(long ref) {
+        int mask = m_refs.length - 1;
+        for (int i = slot(ref, mask); m_refs[i] != 0; i = (i + 1) & mask) {
+            if (m_refs[i] == ref) {
+                return m_polys[i];
+            }
+        }
+        return null;
+    }
+
+    private Poly getOrCreateOverride(long ref) {
+        Poly poly = ref != 0 ? find(ref) : null;
+        if (poly == null) {
+            Result<Tupple2<MeshTile, Poly>> tileAndPoly = m_nav.getTileAndPolyByRef(ref);
+            if (tileAndPoly.failed()) {
+                return null;
+            }
+            poly = new Poly(tileAndPoly.result.second);
+            if ((m_count + 1) * 2 > m_refs.length) {
+                grow();
+            }
+            insert(ref, poly);
+            m_count++;
+        }
+        return poly;
+    }
+
+    private void insert(long ref, Poly poly) {
+        int mask = m_refs.length - 1;
+        int i = slot(ref, mask);
+        while (m_refs[i] != 0) {
+            i = (i + 1) & mask;
+        }
+        m_refs[i] = ref;
+        m_polys[i] = poly;
+    }
+
+    private void grow() {
+        long[] refs = m_refs;
+        Poly[] polys = m_polys;
+        m_refs = new long[refs.length * 2];
+        m_polys = new Poly[refs.length * 2];
+        for (int i = 0; i < refs.length; i++) {
+            if (refs[i] != 0) {
+                insert(refs[i], polys[i]);
+            }
+        }
+    }
+
+    private static int slot(long ref, int mask) {
+        // Mix the salt, tile and poly bits so that consecutive polys of a tile spread over the table.
+        long h = ref * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+}
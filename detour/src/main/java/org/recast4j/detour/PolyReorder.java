@@ -0,0 +1,233 @@
+/*
+recast4j copyright (c) 2015-2019 Piotr Piastucki piotr@jtilia.org
+
+This software is provided 'as-is', without any express or implied
+warranty.  In no event will the authors be held liable for any damages
+arising from the use of this software.
+Permission is granted to anyone to use this software for any purpose,
+including commercial applications, and to alter it and redistribute it
+freely, subject to the following restrictions:
+1. The origin of this software must not be misrepresented; you must not
+ claim that you wrote the original software. If you use this software
+ in a product, an acknowledgment in the product documentation would be
+ appreciated but is not required.
+2. Altered source versions must be plainly marked as such, and must not be
+ misrepresented as being the original software.
+3. This notice may not be removed or altered from any source distribution.
+*/
+package org.recast4j.detour;
+
+import static org.recast4j.detour.NavMeshBuilder.MESH_NULL_IDX;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Reorders the polygons of a tile for spatial locality (see {@link NavMeshDataCreateParams#reorderPolys}).
+ *
+ * The polygons are numbered in breadth-first order over their neighbour graph, each connected part starting from the
+ * polygon whose centroid comes first on a Hilbert curve. Sorting by the curve alone scatters the neighbours of the
+ * large, irregular polygons Recast produces, while the breadth-first order keeps them within a small index window
+ * (Cuthill-McKee ordering); the curve makes the seeds, and so the order, deterministic and spatially coherent.
+ *
+ * Neighbouring polygons then get close indices, and so do their vertices, detail meshes, links (allocated per polygon
+ * in index order when the tile is added) and BV tree leaves, which improves the cache locality of graph searches and
+ * BV tree traversal. Vertices are renumbered in order of first use, detail vertices and triangles follow the order of
+ * their polygons. Off-mesh connections are appended after the ground polygons by the builder as before.
+ */
+class PolyReorder {
+
+    private PolyReorder() {
+    }
+
+    /// Returns a copy of the params with the polygon mesh and the detail mesh reordered.
+    static NavMeshDataCreateParams reorder(NavMeshDataCreateParams params) {
+        int nvp = params.nvp;
+        int npolys = params.polyCount;
+
+        // Hilbert index of the polygon centroids, in voxel coordinates.
+        int maxCoord = 1;
+        for (int i = 0; i < params.vertCount; ++i) {
+            maxCoord = Math.max(maxCoord, Math.max(params.verts[i * 3], params.verts[i * 3 + 2]));
+        }
+        int bits = 32 - Integer.numberOfLeadingZeros(maxCoord);
+        long[] keys = new long[npolys];
+        for (int i = 0; i < npolys; ++i) {
+            int p = i * nvp * 2;
+            int nv = 0;
+            long cx = 0;
+            long cz = 0;
+            for (int j = 0; j < nvp && params.polys[p + j] != MESH_NULL_IDX; ++j) {
+                cx += params.verts[params.polys[p + j] * 3];
+                cz += params.verts[params.polys[p + j] * 3 + 2];
+                nv++;
+            }
+            keys[i] = nv > 0 ? hilbertIndex((int) (cx / nv), (int) (cz / nv), bits) : 0;
+        }
+        Integer[] curve = new Integer[npolys];
+        for (int i = 0; i < npolys; ++i) {
+            curve[i] = i;
+        }
+        Arrays.sort(curve, Comparator.comparingLong(i -> keys[i]));
+
+        // Breadth-first traversal of the polygon graph, (re)starting from the first unvisited polygon on the curve.
+        int[] order = new int[npolys];
+        boolean[] visited = new boolean[npolys];
+        int head = 0;
+        int tail = 0;
+        for (int seed : curve) {
+            if (visited[seed]) {
+                continue;
+            }
+            visited[seed] = true;
+            order[tail++] = seed;
+            while (head < tail) {
+                int p = order[head++] * nvp * 2;
+                for (int j = 0; j < nvp && params.polys[p + j] != MESH_NULL_IDX; ++j) {
+                    int nei = params.polys[p + nvp + j];
+                    if (nei != MESH_NULL_IDX && (nei & 0x8000) == 0 && !visited[nei]) {
+                        visited[nei] = true;
+                        order[tail++] = nei;
+                    }
+                }
+            }
+        }
+        int[] polyMap = new int[npolys];
+        for (int i = 0; i < npolys; ++i) {
+            polyMap[order[i]] = i;
+        }
+
+        // Vertices in order of first use.
+        int[] vertMap = new int[params.vertCount];
+        Arrays.fill(vertMap, -1);
+        int[] verts = new int[params.vertCount * 3];
+        int nverts = 0;
+        for (int i = 0; i < npolys; ++i) {
+            int p = order[i] * nvp * 2;
+            for (int j = 0; j < nvp && params.polys[p + j] != MESH_NULL_IDX; ++j) {
+                int v = params.polys[p + j];
+                if (vertMap[v] < 0) {
+                    System.arraycopy(params.verts, v * 3, verts, nverts * 3, 3);
+                    vertMap[v] = nverts++;
+                }
+            }
+        }
+        for (int v = 0; v < params.vertCount; ++v) {
+            if (vertMap[v] < 0) {
+                System.arraycopy(params.verts, v * 3, verts, nverts * 3, 3);
+                vertMap[v] = nverts++;
+            }
+        }
+
+        // Polygons with remapped vertices and neighbours, border and portal edges are kept.
+        int[] polys = new int[npolys * nvp * 2];
+        int[] flags = new int[npolys];
+        int[] areas = new int[npolys];
+        for (int i = 0; i < npolys; ++i) {
+            int src = order[i] * nvp * 2;
+            int dst = i * nvp * 2;
+            for (int j = 0; j < nvp; ++j) {
+                int v = params.polys[src + j];
+                polys[dst + j] = v == MESH_NULL_IDX ? MESH_NULL_IDX : vertMap[v];
+                int nei = params.polys[src + nvp + j];
+                polys[dst + nvp + j] = nei == MESH_NULL_IDX || (nei & 0x8000) != 0 ? nei : polyMap[nei];
+            }
+            flags[i] = params.polyFlags[order[i]];
+            areas[i] = params.polyAreas[order[i]];
+        }
+
+        NavMeshDataCreateParams result = copy(params);
+        result.verts = verts;
+        result.polys = polys;
+        result.polyFlags = flags;
+        result.polyAreas = areas;
+        result.reorderPolys = false;
+
+        // Detail meshes, the triangles use vertex indices local to their mesh.
+        if (params.detailMeshes != null) {
+            int[] detailMeshes = new int[npolys * 4];
+            float[] detailVerts = new float[params.detailVertsCount * 3];
+            int[] detailTris = new int[params.detailTriCount * 4];
+            int vbase = 0;
+            int tbase = 0;
+            for (int i = 0; i < npolys; ++i) {
+                int m = order[i] * 4;
+                int ndv = params.detailMeshes[m + 1];
+                int ndt = params.detailMeshes[m + 3];
+                System.arraycopy(params.detailVerts, params.detailMeshes[m] * 3, detailVerts, vbase * 3, ndv * 3);
+                System.arraycopy(params.detailTris, params.detailMeshes[m + 2] * 4, detailTris, tbase * 4, ndt * 4);
+                detailMeshes[i * 4] = vbase;
+                detailMeshes[i * 4 + 1] = ndv;
+                detailMeshes[i * 4 + 2] = tbase;
+                detailMeshes[i * 4 + 3] = ndt;
+                vbase += ndv;
+                tbase += ndt;
+            }
+            result.detailMeshes = detailMeshes;
+            result.detailVerts = detailVerts;
+            result.detailVertsCount = vbase;
+            result.detailTris = detailTris;
+            result.detailTriCount = tbase;
+        }
+        return result;
+    }
+
+    /// Distance of (x, y) along the Hilbert curve filling the 2^bits x 2^bits square.
+    static long hilbertIndex(int x, int y, int bits) {
+        int n = 1 << bits;
+        long d = 0;
+        for (int s = n >> 1; s > 0; s >>= 1) {
+            int rx = (x & s) != 0 ? 1 : 0;
+            int ry = (y & s) != 0 ? 1 : 0;
+            d += (long) s * s * ((3 * rx) ^ ry);
+            // Rotate the quadrant.
+            if (ry == 0) {
+                if (rx == 1) {
+                    x = n - 1 - x;
+                    y = n - 1 - y;
+                }
+                int t = x;
+                x = y;
+                y = t;
+            }
+        }
+        return d;
+    }
+
+    private static NavMeshDataCreateParams copy(NavMeshDataCreateParams params) {
+        NavMeshDataCreateParams c = new NavMeshDataCreateParams();
+        c.verts = params.verts;
+        c.vertCount = params.vertCount;
+        c.polys = params.polys;
+        c.polyFlags = params.polyFlags;
+        c.polyAreas = params.polyAreas;
+        c.polyCount = params.polyCount;
+        c.nvp = params.nvp;
+        c.detailMeshes = params.detailMeshes;
+        c.detailVerts = params.detailVerts;
+        c.detailVertsCount = params.detailVertsCount;
+        c.detailTris = params.detailTris;
+        c.detailTriCount = params.detailTriCount;
+        c.offMeshConVerts = params.offMeshConVerts;
+        c.offMeshConRad = params.offMeshConRad;
+        c.offMeshConFlags = params.offMeshConFlags;
+        c.offMeshConAreas = params.offMeshConAreas;
+        c.offMeshConDir = params.offMeshConDir;
+        c.offMeshConUserID = params.offMeshConUserID;
+        c.offMeshConCount = params.offMeshConCount;
+        c.userId = params.userId;
+        c.tileX = params.tileX;
+        c.tileY = params.tileY;
+        c.tileLayer = params.tileLayer;
+        c.bmin = params.bmin;
+        c.bmax = params.bmax;
+        c.walkableHeight = params.walkableHeight;
+        c.walkableRadius = params.walkableRadius;
+        c.walkableClimb = params.walkableClimb;
+        c.cs = params.cs;
+        c.ch = params.ch;
+        c.buildBvTree = params.buildBvTree;
+        c.reorderPolys = params.reorderPolys;
+        return c;
+    }
+}
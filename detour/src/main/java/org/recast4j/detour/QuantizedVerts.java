@@ -0,0 +1,194 @@
+/*
+recast4j copyright (c) 2015-2019 Piotr Piastucki piotr@jtilia.org
+
+This software is provided 'as-is', without any express or implied
+warranty.  In no event will the authors be held liable for any damages
+arising from the use of this software.
+Permission is granted to anyone to use this software for any purpose,
+including commercial applications, and to alter it and redistribute it
+freely, subject to the following restrictions:
+1. The origin of this software must not be misrepresented; you must not
+ claim that you wrote the original software. If you use this software
+ in a product, an acknowledgment in the product documentation would be
+ appreciated but is not required.
+2. Altered source versions must be plainly marked as such, and must not be
+ misrepresented as being the original software.
+3. This notice may not be removed or altered from any source distribution.
+*/
+package org.recast4j.detour;
+
+/**
+ * Vertices stored as unsigned 16-bit values relative to an origin, at half the memory of a float array.
+ *
+ * Either each axis is quantized over the range of the vertices (see {@link #quantize(float[], int)}), so the
+ * dequantized coordinates differ from the original ones by at most half a step, see {@link #getMaxError(int)}, or
+ * the vertices are quantized on the voxel grid of the tile (see {@link #quantizeGrid}), which only accepts vertices
+ * that are exactly on that grid. Vertices off the grid, such as the off-mesh connection end points of a tile, can be
+ * kept as floats at the end of the array.
+ */
+public class QuantizedVerts {
+
+    private static final int MAX_VALUE = 0xFFFF;
+    private static final int OBJECT_HEADER = 16;
+    private static final int ARRAY_HEADER = 16;
+    private static final float[] NO_TAIL = new float[0];
+
+    private final short[] data;
+    /// Vertices kept as floats after the quantized ones. [(x, y, z) * n]
+    private final float[] tail;
+    /// Origin and step of each axis, [(x, y, z) origin, (x, y, z) scale], kept in one array to save memory.
+    private final float[] frame = new float[6];
+    /// True if the vertices are quantized exactly on a grid, see quantizeGrid().
+    private boolean grid;
+
+    private QuantizedVerts(int count, int tailCount) {
+        data = new short[count * 3];
+        tail = tailCount > 0 ? new float[tailCount * 3] : NO_TAIL;
+    }
+
+    /**
+     * Quantizes the first count vertices of the array. [(x, y, z) * count]
+     */
+    public static QuantizedVerts quantize(float[] verts, int count) {
+        QuantizedVerts q = new QuantizedVerts(count, 0);
+        for (int axis = 0; axis < 3; ++axis) {
+            float min = Float.MAX_VALUE;
+            float max = -Float.MAX_VALUE;
+            for (int i = 0; i < count; ++i) {
+                min = Math.min(min, verts[i * 3 + axis]);
+                max = Math.max(max, verts[i * 3 + axis]);
+            }
+            if (count == 0) {
+                min = max = 0;
+            }
+            q.frame[axis] = min;
+            q.frame[3 + axis] = max > min ? (max - min) / MAX_VALUE : 0;
+            float inv = max > min ? MAX_VALUE / (max - min) : 0;
+            for (int i = 0; i < count; ++i) {
+                int v = Math.round((verts[i * 3 + axis] - min) * inv);
+                q.data[i * 3 + axis] = (short) Math.min(Math.max(v, 0), MAX_VALUE);
+            }
+        }
+        return q;
+    }
+
+    /**
+     * Quantizes the first gridCount vertices on the grid of the given origin and cell sizes, and keeps the vertices
+     * up to count as floats. [(x, y, z) * count]
+     *
+     * @return The quantized vertices, or null if one of the first gridCount vertices is not exactly on the grid or
+     *         lies outside of its 16-bit range.
+     */
+    public static QuantizedVerts quantizeGrid(float[] verts, int count, int gridCount, float[] origin, float cs,
+            float ch) {
+        QuantizedVerts q = new QuantizedVerts(gridCount, count - gridCount);
+        q.grid = true;
+        for (int axis = 0; axis < 3; ++axis) {
+            q.frame[axis] = origin[axis];
+            q.frame[3 + axis] = axis == 1 ? ch : cs;
+        }
+        for (int i = 0; i < gridCount; ++i) {
+            for (int axis = 0; axis < 3; ++axis) {
+                int v = q.toGrid(axis, verts[i * 3 + axis]);
+                if (v < 0) {
+                    return null;
+                }
+                q.data[i * 3 + axis] = (short) v;
+            }
+        }
+        System.arraycopy(verts, gridCount * 3, q.tail, 0, q.tail.length);
+        return q;
+    }
+
+    /// Returns the grid value which dequantizes exactly to f, or -1 if there is none.
+    private int toGrid(int axis, float f) {
+        float step = frame[3 + axis];
+        int v = Math.round((f - frame[axis]) / step);
+        if (v < 0 || v > MAX_VALUE || frame[axis] + v * step != f) {
+            return -1;
+        }
+        return v;
+    }
+
+    /** Number of vertices. */
+    public int getCount() {
+        return (data.length + tail.length) / 3;
+    }
+
+    public float get(int i, int axis) {
+        int p = i * 3 + axis;
+        if (p >= data.length) {
+            return tail[p - data.length];
+        }
+        return frame[axis] + (data[p] & MAX_VALUE) * frame[3 + axis];
+    }
+
+    public void get(int i, float[] dest, int destOffset) {
+        int p = i * 3;
+        if (p >= data.length) {
+            System.arraycopy(tail, p - data.length, dest, destOffset, 3);
+            return;
+        }
+        dest[destOffset] = frame[0] + (data[p] & MAX_VALUE) * frame[3];
+        dest[destOffset + 1] = frame[1] + (data[p + 1] & MAX_VALUE) * frame[4];
+        dest[destOffset + 2] = frame[2] + (data[p + 2] & MAX_VALUE) * frame[5];
+    }
+
+    /**
+     * Sets vertex i, quantizing it unless it is kept as float. Vertices quantized on the grid (see
+     * {@link #quantizeGrid}) only accept positions exactly on the grid; other positions are rejected and the vertex is
+     * left unchanged. Range quantized vertices are rounded to the nearest step.
+     *
+     * @return false if the position was rejected
+     */
+    public boolean set(int i, float[] src) {
+        int p = i * 3;
+        if (p >= data.length) {
+            System.arraycopy(src, 0, tail, p - data.length, 3);
+            return true;
+        }
+        if (grid) {
+            int x = toGrid(0, src[0]);
+            int y = toGrid(1, src[1]);
+            int z = toGrid(2, src[2]);
+            if (x < 0 || y < 0 || z < 0) {
+                return false;
+            }
+            data[p] = (short) x;
+            data[p + 1] = (short) y;
+            data[p + 2] = (short) z;
+            return true;
+        }
+        for (int axis = 0; axis < 3; ++axis) {
+            float step = frame[3 + axis];
+            int v = step > 0 ? Math.round((src[axis] - frame[axis]) / step) : 0;
+            data[p + axis] = (short) Math.min(Math.max(v, 0), MAX_VALUE);
+        }
+        return true;
+    }
+
+    /** Dequantizes all vertices into a new array. [(x, y, z) * count] */
+    public float[] toFloats() {
+        float[] verts = new float[data.length + tail.length];
+        for (int i = 0; i < getCount(); ++i) {
+            get(i, verts, i * 3);
+        }
+        return verts;
+    }
+
+    /** Upper bound of the dequantization error along the axis, excluding float rounding. Float vertices are exact. */
+    public float getMaxError(int axis) {
+        return frame[3 + axis] * 0.5f;
+    }
+
+    /** Approximate heap size in bytes, including object and array headers. */
+    public int getMemorySize() {
+        int tailSize = tail.length > 0 ? ARRAY_HEADER + tail.length * 4 : 0;
+        return OBJECT_HEADER + 2 * ARRAY_HEADER + data.length * 2 + tailSize + frame.length * 4;
+    }
+
+    /** Approximate heap size in bytes of the float array holding count vertices. */
+    public static int getFloatMemorySize(int count) {
+        return ARRAY_HEADER + count * 3 * 4;
+    }
+}
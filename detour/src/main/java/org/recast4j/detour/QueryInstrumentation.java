@@ -0,0 +1,36 @@
+/*
+recast4j copyright (c) 2015-2019 Piotr Piastucki piotr@jtilia.org
+
+This software is provided 'as-is', without any express or implied
+warranty.  In no event will the authors be held liable for any damages
+arising from the use of this software.
+Permission is granted to anyone to use this software for any purpose,
+including commercial applications, and to alter it and redistribute it
+freely, subject to the following restrictions:
+1. The origin of this software must not be misrepresented; you must not
+ claim that you wrote the original software. If you use this software
+ in a product, an acknowledgment in the product documentation would be
+ appreciated but is not required.
+2. Altered source versions must be plainly marked as such, and must not be
+ misrepresented as being the original software.
+3. This notice may not be removed or altered from any source distribution.
+*/
+package org.recast4j.detour;
+
+/**
+ * Receives the statistics of every instrumented query of a {@link NavMeshQuery}.
+ *
+ * Queries are only instrumented while an instrumentation is set, without one the query code runs unchanged. Nested
+ * queries (e.g. the polygon query inside findNearestPoly or the raycasts of an any-angle sliced path) are accounted to
+ * the outer query.
+ *
+ * @see QueryMetrics
+ */
+public interface QueryInstrumentation {
+
+    /**
+     * Called on the querying thread when a query completes. The stats instance is reused by the next query of the same
+     * NavMeshQuery, implementations must copy what they want to keep.
+     */
+    void onQuery(QueryType type, QueryStats stats);
+}
@@ -0,0 +1,132 @@
+/*
+recast4j copyright (c) 2015-2019 Piotr Piastucki piotr@jtilia.org
+
+This software is provided 'as-is', without any express or implied
+warranty.  In no event will the authors be held liable for any damages
+arising from the use of this software.
+Permission is granted to anyone to use this software for any purpose,
+including commercial applications, and to alter it and redistribute it
+freely, subject to the following restrictions:
+1. The origin of this software must not be misrepresented; you must not
+ claim that you wrote the original software. If you use this software
+ in a product, an acknowledgment in the product documentation would be
+ appreciated but is not required.
+2. Altered source versions must be plainly marked as such, and must not be
+ misrepresented as being the original software.
+3. This notice may not be removed or altered from any source distribution.
+*/
+package org.recast4j.detour;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Default {@link QueryInstrumentation} aggregating the query stats per {@link QueryType} in lock-free counters and
+ * latency histograms. A single instance can be shared by the queries of many threads, e.g. all the NavMeshQuery
+ * instances of a Crowd, and read concurrently by a metrics exporter.
+ */
+public class QueryMetrics implements QueryInstrumentation {
+
+    public static class Metrics {
+
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final LongAdder nodesExpanded = new LongAdder();
+        private final LongAdder filterCalls = new LongAdder();
+        private final LongAdder costCalls = new LongAdder();
+        private final LongAdder tilesTouched = new LongAdder();
+        private final AtomicLong maxOpenListSize = new AtomicLong();
+        private final LongAdder[] statusCounts = new LongAdder[Status.values().length];
+
+        Metrics() {
+            for (int i = 0; i < statusCounts.length; i++) {
+                statusCounts[i] = new LongAdder();
+            }
+        }
+
+        void record(QueryStats stats) {
+            latency.record(stats.nanos);
+            nodesExpanded.add(stats.nodesExpanded);
+            filterCalls.add(stats.filterCalls);
+            costCalls.add(stats.costCalls);
+            tilesTouched.add(stats.tilesTouched);
+            long m = maxOpenListSize.get();
+            while (stats.maxOpenListSize > m && !maxOpenListSize.compareAndSet(m, stats.maxOpenListSize)) {
+                m = maxOpenListSize.get();
+            }
+            if (stats.status != null) {
+                statusCounts[stats.status.ordinal()].increment();
+            }
+        }
+
+        void reset() {
+            latency.reset();
+            nodesExpanded.reset();
+            filterCalls.reset();
+            costCalls.reset();
+            tilesTouched.reset();
+            maxOpenListSize.set(0);
+            for (LongAdder c : statusCounts) {
+                c.reset();
+            }
+        }
+
+        /** Latency of the queries in nanoseconds. */
+        public LatencyHistogram getLatency() {
+            return latency;
+        }
+
+        public long getCount() {
+            return latency.getCount();
+        }
+
+        public long getNodesExpanded() {
+            return nodesExpanded.sum();
+        }
+
+        public long getFilterCalls() {
+            return filterCalls.sum();
+        }
+
+        public long getCostCalls() {
+            return costCalls.sum();
+        }
+
+        public long getTilesTouched() {
+            return tilesTouched.sum();
+        }
+
+        /** Largest open list seen by a single query. */
+        public long getMaxOpenListSize() {
+            return maxOpenListSize.get();
+        }
+
+        public long getStatusCount(Status status) {
+            return statusCounts[status.ordinal()].sum();
+        }
+    }
+
+    private final Map<QueryType, Metrics> metrics = new EnumMap<>(QueryType.class);
+
+    public QueryMetrics() {
+        for (QueryType type : QueryType.values()) {
+            metrics.put(type, new Metrics());
+        }
+    }
+
+    @Override
+    public void onQuery(QueryType type, QueryStats stats) {
+        metrics.get(type).record(stats);
+    }
+
+    public Metrics get(QueryType type) {
+        return metrics.get(type);
+    }
+
+    public void reset() {
+        for (Metrics m : metrics.values()) {
+            m.reset();
+        }
+    }
+}
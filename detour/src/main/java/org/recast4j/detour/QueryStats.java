@@ -0,0 +1,108 @@
+/*
+recast4j copyright (c) 2015-2019 Piotr Piastucki piotr@jtilia.org
+
+This software is provided 'as-is', without any express or implied
+warranty.  In no event will the authors be held liable for any damages
+arising from the use of this software.
+Permission is granted to anyone to use this software for any purpose,
+including commercial applications, and to alter it and redistribute it
+freely, subject to the following restrictions:
+1. The origin of this software must not be misrepresented; you must not
+ claim that you wrote the original software. If you use this software
+ in a product, an acknowledgment in the product documentation would be
+ appreciated but is not required.
+2. Altered source versions must be plainly marked as such, and must not be
+ misrepresented as being the original software.
+3. This notice may not be removed or altered from any source distribution.
+*/
+package org.recast4j.detour;
+
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Statistics of a single instrumented query. (See: {@link QueryInstrumentation})
+ */
+public class QueryStats {
+
+    int nodesExpanded;
+    int maxOpenListSize;
+    int filterCalls;
+    int costCalls;
+    int tilesTouched;
+    Status status;
+    long nanos;
+    private final BitSet touched = new BitSet();
+
+    /** Number of nodes taken from the open list. */
+    public int getNodesExpanded() {
+        return nodesExpanded;
+    }
+
+    /** Maximum size of the open list during the search. */
+    public int getMaxOpenListSize() {
+        return maxOpenListSize;
+    }
+
+    /** Number of QueryFilter.passFilter() calls. */
+    public int getFilterCalls() {
+        return filterCalls;
+    }
+
+    /** Number of QueryFilter.getCost() calls. */
+    public int getCostCalls() {
+        return costCalls;
+    }
+
+    /** Number of distinct tiles whose polygons were visited. */
+    public int getTilesTouched() {
+        return tilesTouched;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    /** Elapsed wall clock time of the query. For sliced queries this is the sum of the init, update and finalize calls. */
+    public long getNanos() {
+        return nanos;
+    }
+
+    void reset() {
+        nodesExpanded = 0;
+        maxOpenListSize = 0;
+        filterCalls = 0;
+        costCalls = 0;
+        tilesTouched = 0;
+        status = null;
+        nanos = 0;
+        touched.clear();
+    }
+
+    void touchTile(MeshTile tile) {
+        if (tile != null && !touched.get(tile.index)) {
+            touched.set(tile.index);
+            tilesTouched++;
+        }
+    }
+
+    void touchTiles(List<Long> refs) {
+        if (refs == null) {
+            return;
+        }
+        for (long ref : refs) {
+            int it = NavMesh.decodePolyIdTile(ref);
+            if (!touched.get(it)) {
+                touched.set(it);
+                tilesTouched++;
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "QueryStats [status=" + status + ", nanos=" + nanos + ", nodesExpanded=" + nodesExpanded
+                + ", maxOpenListSize=" + maxOpenListSize + ", filterCalls=" + filterCalls + ", costCalls=" + costCalls
+                + ", tilesTouched=" + tilesTouched + "]";
+    }
+}
@@ -0,0 +1,57 @@
+/*
+recast4j copyright (c) 2015-2019 Piotr Piastucki piotr@jtilia.org
+
+This software is provided 'as-is', without any express or implied
+warranty.  In no event will the authors be held liable for any damages
+arising from the use of this software.
+Permission is granted to anyone to use this software for any purpose,
+including commercial applications, and to alter it and redistribute it
+freely, subject to the following restrictions:
+1. The origin of this software must not be misrepresented; you must not
+ claim that you wrote the original software. If you use this software
+ in a product, an acknowledgment in the product documentation would be
+ appreciated but is not required.
+2. Altered source versions must be plainly marked as such, and must not be
+ misrepresented as being the original software.
+3. This notice may not be removed or altered from any source distribution.
+*/
+package org.recast4j.detour;
+
+/**
+ * Filter wrapper counting the filter calls and touched tiles of an instrumented query.
+ */
+class QueryStatsFilter implements QueryFilter {
+
+    private final QueryStats m_stats;
+    private QueryFilter m_filter;
+
+    QueryStatsFilter(QueryStats stats) {
+        m_stats = stats;
+    }
+
+    /** Returns this filter delegating to the given one, or null if there is nothing to wrap. */
+    QueryFilter wrap(QueryFilter filter) {
+        m_filter = filter;
+        return filter != null ? this : null;
+    }
+
+    /** Returns the wrapped filter. */
+    QueryFilter getFilter() {
+        return m_filter;
+    }
+
+    @Override
+    public boolean passFilter(long ref, MeshTile tile, Poly poly) {
+        m_stats.filterCalls++;
+        m_stats.touchTile(tile);
+        return m_filter.passFilter(ref, tile, poly);
+    }
+
+    @Override
+    public float getCost(float[] pa, float[] pb, long prevRef, MeshTile prevTile, Poly prevPoly, long curRef,
+            MeshTile curTile, Poly curPoly, long nextRef, MeshTile nextTile, Poly nextPoly) {
+        m_stats.costCalls++;
+        return m_filter.getCost(pa, pb, prevRef, prevTile, prevPoly, curRef, curTile, curPoly, nextRef, nextTile,
+                nextPoly);
+    }
+}
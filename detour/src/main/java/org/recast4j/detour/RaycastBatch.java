@@ -0,0 +1,159 @@
+/*
+recast4j copyright (c) 2015-2019 Piotr Piastucki piotr@jtilia.org
+
+This software is provided 'as-is', without any express or implied
+warranty.  In no event will the authors be held liable for any damages
+arising from the use of this software.
+Permission is granted to anyone to use this software for any purpose,
+including commercial applications, and to alter it and redistribute it
+freely, subject to the following restrictions:
+1. The origin of this software must not be misrepresented; you must not
+ claim that you wrote the original software. If you use this software
+ in a product, an acknowledgment in the product documentation would be
+ appreciated but is not required.
+2. Altered source versions must be plainly marked as such, and must not be
+ misrepresented as being the original software.
+3. This notice may not be removed or altered from any source distribution.
+*/
+package org.recast4j.detour;
+
+/**
+ * Runs {@link NavMeshQuery#raycast} for many rays at once, e.g. line-of-sight checks between observers and targets.
+ *
+ * Inputs and outputs are packed arrays indexed by ray: refs [n], positions and hit normals [(x, y, z) * n] and the
+ * visited polygons [maxPath * n]. The outputs follow {@link RaycastHit}: the hit parameter is Float.MAX_VALUE if the
+ * ray reached its end position. The hit polygon is the last polygon visited, the one containing the wall or the end
+ * position. The rays are cast by the same walk as the query (see {@link RaycastKernel}), which does not allocate, and
+ * path collection can be skipped by passing null path arrays. Path costs are not computed.
+ *
+ * Rays cast without path collection are looked up in and stored to the {@link VisibilityCache}, if one is set.
+ *
+ * A batch object is not thread safe.
+ */
+public class RaycastBatch {
+
+    private final NavMesh m_nav;
+    private final RaycastKernel m_raycast;
+    private final int[] m_tiles = new int[VisibilityCache.MAX_TILES];
+    private VisibilityCache m_cache;
+
+    public RaycastBatch(NavMesh nav) {
+        m_nav = nav;
+        m_raycast = new RaycastKernel(nav);
+    }
+
+    public void setVisibilityCache(VisibilityCache cache) {
+        m_cache = cache;
+    }
+
+    public VisibilityCache getVisibilityCache() {
+        return m_cache;
+    }
+
+    /**
+     * Casts the rays along the surface of the navigation mesh.
+     *
+     * @param count
+     *            Number of rays.
+     * @param startRefs
+     *            The reference ids of the start polygons. [count]
+     * @param endRefs
+     *            The reference ids of the polygons of the end positions, only used as part of the cache key. May be
+     *            null. [count]
+     * @param startPos
+     *            Start positions within the start polygons. [(x, y, z) * count]
+     * @param endPos
+     *            The positions to cast the rays toward. [(x, y, z) * count]
+     * @param filter
+     *            The polygon filter to apply to the query.
+     * @param hitT
+     *            Out: the hit parameters, Float.MAX_VALUE if no wall was hit, 0 if the input was invalid. [count]
+     * @param hitNormals
+     *            Out: the normals of the walls hit. [(x, y, z) * count]
+     * @param hitPolys
+     *            Out: the last polygons visited by the rays, 0 if the input was invalid. [count]
+     * @param pathCounts
+     *            Out: number of visited polygons of each ray, may be null. [count]
+     * @param paths
+     *            Out: the visited polygons truncated to maxPath, may be null. [maxPath * count]
+     * @param maxPath
+     *            Number of visited polygons stored per ray.
+     * @return The number of rays with valid input.
+     */
+    public int raycast(int count, long[] startRefs, long[] endRefs, float[] startPos, float[] endPos,
+            QueryFilter filter, float[] hitT, float[] hitNormals, long[] hitPolys, int[] pathCounts, long[] paths,
+            int maxPath) {
+        boolean useCache = m_cache != null && pathCounts == null && paths == null;
+        int valid = 0;
+        for (int i = 0; i < count; i++) {
+            long endRef = endRefs != null ? endRefs[i] : 0;
+            if (useCache && m_cache.get(startRefs[i], endRef, startPos, endPos, i, hitT, hitNormals, hitPolys)) {
+                valid++;
+                continue;
+            }
+            int tileCount = raycast(i, startRefs[i], startPos, endPos, filter, hitT, hitNormals, hitPolys, pathCounts,
+                    paths, maxPath);
+            if (tileCount < 0) {
+                continue;
+            }
+            valid++;
+            if (useCache && tileCount <= VisibilityCache.MAX_TILES) {
+                m_cache.put(startRefs[i], endRef, startPos, endPos, i, hitT, hitNormals, hitPolys, m_tiles,
+                        tileCount);
+            }
+        }
+        return valid;
+    }
+
+    /// Casts a single ray, returns the number of distinct tiles crossed or -1 if the input is invalid.
+    private int raycast(int i, long startRef, float[] startPos, float[] endPos, QueryFilter filter, float[] hitT,
+            float[] hitNormals, long[] hitPolys, int[] pathCounts, long[] paths, int maxPath) {
+        int p = i * 3;
+        hitT[i] = 0;
+        hitNormals[p] = hitNormals[p + 1] = hitNormals[p + 2] = 0;
+        hitPolys[i] = 0;
+        if (pathCounts != null) {
+            pathCounts[i] = 0;
+        }
+        if (!m_nav.isValidPolyRef(startRef) || !isFinite(startPos, p) || !isFinite(endPos, p) || filter == null) {
+            return -1;
+        }
+
+        m_raycast.cast(startRef, startPos, endPos, p, filter, false, 0);
+        hitT[i] = m_raycast.getT();
+        System.arraycopy(m_raycast.getHitNormal(), 0, hitNormals, p, 3);
+        int pathCount = m_raycast.getPathCount();
+        hitPolys[i] = pathCount > 0 ? m_raycast.getPath(pathCount - 1) : startRef;
+        if (pathCounts != null) {
+            pathCounts[i] = pathCount;
+        }
+        int tileCount = 0;
+        for (int k = 0; k < pathCount; k++) {
+            long ref = m_raycast.getPath(k);
+            if (paths != null && k < maxPath) {
+                paths[i * maxPath + k] = ref;
+            }
+            if (tileCount <= VisibilityCache.MAX_TILES) {
+                tileCount = addTile(NavMesh.decodePolyIdTile(ref), tileCount);
+            }
+        }
+        return tileCount;
+    }
+
+    /// Adds the tile index to m_tiles if not present, returns the new count (MAX_TILES + 1 on overflow).
+    private int addTile(int tileIndex, int tileCount) {
+        for (int k = 0; k < tileCount; k++) {
+            if (m_tiles[k] == tileIndex) {
+                return tileCount;
+            }
+        }
+        if (tileCount < VisibilityCache.MAX_TILES) {
+            m_tiles[tileCount] = tileIndex;
+        }
+        return tileCount + 1;
+    }
+
+    private static boolean isFinite(float[] v, int p) {
+        return Float.isFinite(v[p]) && Float.isFinite(v[p + 1]) && Float.isFinite(v[p + 2]);
+    }
+}
@@ -0,0 +1,297 @@
+/*
+recast4j copyright (c) 2015-2019 Piotr Piastucki piotr@jtilia.org
+
+This software is provided 'as-is', without any express or implied
+warranty.  In no event will the authors be held liable for any damages
+arising from the use of this software.
+Permission is granted to anyone to use this software for any purpose,
+including commercial applications, and to alter it and redistribute it
+freely, subject to the following restrictions:
+1. The origin of this software must not be misrepresented; you must not
+ claim that you wrote the original software. If you use this software
+ in a product, an acknowledgment in the product documentation would be
+ appreciated but is not required.
+2. Altered source versions must be plainly marked as such, and must not be
+ misrepresented as being the original software.
+3. This notice may not be removed or altered from any source distribution.
+*/
+package org.recast4j.detour;
+
+import static org.recast4j.detour.DetourCommon.vNormalize;
+
+import java.util.Arrays;
+
+/**
+ * Core of {@link NavMeshQuery#raycast}, shared with {@link RaycastBatch} and the line of sight tests of the any-angle
+ * path search.
+ *
+ * The kernel walks the polygons crossed by the ray and keeps the results (hit parameter, hit normal and edge, path
+ * cost and visited polygons) in its own fields, which are reused by the next cast, so a cast does not allocate once
+ * the path buffer has grown to the longest corridor.
+ */
+final class RaycastKernel {
+
+    private static final float EPS = 0.00000001f;
+    private static final float S = 1.0f / 255.0f;
+
+    private final NavMesh m_nav;
+    private final float[] m_verts;
+    private final float[] m_startPos = new float[3];
+    private final float[] m_endPos = new float[3];
+    private final float[] m_curPos = new float[3];
+    private final float[] m_lastPos = new float[3];
+    private float m_tmax;
+    private int m_segMax;
+
+    private float m_t;
+    private final float[] m_hitNormal = new float[3];
+    private int m_hitEdgeIndex;
+    private float m_pathCost;
+    private long[] m_path = new long[16];
+    private int m_pathCount;
+
+    RaycastKernel(NavMesh nav) {
+        m_nav = nav;
+        m_verts = new float[nav.getMaxVertsPerPoly() * 3];
+    }
+
+    /**
+     * Casts the ray. The input must be valid, see {@link NavMeshQuery#raycast}.
+     *
+     * @param p
+     *            Offset of the start and end position in the arrays, which may hold packed positions.
+     * @param useCosts
+     *            Whether to compute the path cost. (See NavMeshQuery#DT_RAYCAST_USE_COSTS)
+     * @param prevRef
+     *            Parent of the start polygon, only used for the cost of the first segment. May be 0.
+     */
+    void cast(long startRef, float[] startPos, float[] endPos, int p, QueryFilter filter, boolean useCosts,
+            long prevRef) {
+        System.arraycopy(startPos, p, m_startPos, 0, 3);
+        System.arraycopy(endPos, p, m_endPos, 0, 3);
+        System.arraycopy(startPos, p, m_curPos, 0, 3);
+        float dirx = m_endPos[0] - m_startPos[0];
+        float diry = m_endPos[1] - m_startPos[1];
+        float dirz = m_endPos[2] - m_startPos[2];
+        m_t = 0;
+        m_hitNormal[0] = m_hitNormal[1] = m_hitNormal[2] = 0;
+        m_hitEdgeIndex = 0;
+        m_pathCost = 0;
+        m_pathCount = 0;
+
+        long curRef = startRef;
+        MeshTile tile = m_nav.getTile(NavMesh.decodePolyIdTile(curRef));
+        Poly poly = tile.data.polys[NavMesh.decodePolyIdPoly(curRef)];
+        MeshTile prevTile = tile, nextTile = tile;
+        Poly prevPoly = poly, nextPoly = poly;
+        if (prevRef != 0) {
+            prevTile = m_nav.getTile(NavMesh.decodePolyIdTile(prevRef));
+            prevPoly = prevTile.data.polys[NavMesh.decodePolyIdPoly(prevRef)];
+        }
+        while (curRef != 0) {
+            // Cast ray against current polygon.
+            int nv = poly.vertCount;
+            for (int k = 0; k < nv; ++k) {
+                tile.data.getVert(poly.verts[k], m_verts, k * 3);
+            }
+            if (!intersectSegmentPoly2D(nv)) {
+                // Could not hit the polygon, keep the old t and report hit.
+                return;
+            }
+
+            m_hitEdgeIndex = m_segMax;
+
+            // Keep track of furthest t so far.
+            if (m_tmax > m_t) {
+                m_t = m_tmax;
+            }
+
+            // Store visited polygons.
+            addPath(curRef);
+
+            // Ray end is completely inside the polygon.
+            if (m_segMax == -1) {
+                m_t = Float.MAX_VALUE;
+                if (useCosts) {
+                    m_pathCost += filter.getCost(m_curPos, m_endPos, prevRef, prevTile, prevPoly, curRef, tile, poly,
+                            curRef, tile, poly);
+                }
+                return;
+            }
+
+            // Follow neighbours.
+            long nextRef = 0;
+            for (int k = poly.firstLink; k != NavMesh.DT_NULL_LINK; k = tile.links.get(k).next) {
+                Link link = tile.links.get(k);
+
+                // Find link which contains this edge.
+                if (link.edge != m_segMax) {
+                    continue;
+                }
+
+                // Get pointer to the next polygon.
+                nextTile = m_nav.getTile(NavMesh.decodePolyIdTile(link.ref));
+                nextPoly = nextTile.data.polys[NavMesh.decodePolyIdPoly(link.ref)];
+                // Skip off-mesh connections.
+                if (nextPoly.getType() == Poly.DT_POLYTYPE_OFFMESH_CONNECTION) {
+                    continue;
+                }
+
+                // Skip links based on filter.
+                if (!filter.passFilter(link.ref, nextTile, nextPoly)) {
+                    continue;
+                }
+
+                // If the link is internal, or spans the whole edge, accept.
+                if (link.side == 0xff || (link.bmin == 0 && link.bmax == 255)) {
+                    nextRef = link.ref;
+                    break;
+                }
+
+                // Check that the intersection lies inside the link portal.
+                int left = link.edge * 3;
+                int right = ((link.edge + 1) % nv) * 3;
+                int axis;
+                if (link.side == 0 || link.side == 4) {
+                    axis = 2;
+                } else if (link.side == 2 || link.side == 6) {
+                    axis = 0;
+                } else {
+                    continue;
+                }
+                float lmin = m_verts[left + axis] + (m_verts[right + axis] - m_verts[left + axis]) * (link.bmin * S);
+                float lmax = m_verts[left + axis] + (m_verts[right + axis] - m_verts[left + axis]) * (link.bmax * S);
+                if (lmin > lmax) {
+                    float temp = lmin;
+                    lmin = lmax;
+                    lmax = temp;
+                }
+                float x = m_startPos[axis] + (m_endPos[axis] - m_startPos[axis]) * m_tmax;
+                if (x >= lmin && x <= lmax) {
+                    nextRef = link.ref;
+                    break;
+                }
+            }
+
+            if (useCosts) {
+                // Compute the intersection point at the furthest end of the polygon and correct the height, since
+                // the raycast moves in 2d.
+                System.arraycopy(m_curPos, 0, m_lastPos, 0, 3);
+                m_curPos[0] = m_startPos[0] + dirx * m_t;
+                m_curPos[1] = m_startPos[1] + diry * m_t;
+                m_curPos[2] = m_startPos[2] + dirz * m_t;
+                int e1 = m_segMax * 3;
+                int e2 = ((m_segMax + 1) % nv) * 3;
+                float edx = m_verts[e2] - m_verts[e1];
+                float edz = m_verts[e2 + 2] - m_verts[e1 + 2];
+                float s = edx * edx > edz * edz ? (m_curPos[0] - m_verts[e1]) / edx
+                        : (m_curPos[2] - m_verts[e1 + 2]) / edz;
+                m_curPos[1] = m_verts[e1 + 1] + (m_verts[e2 + 1] - m_verts[e1 + 1]) * s;
+                m_pathCost += filter.getCost(m_lastPos, m_curPos, prevRef, prevTile, prevPoly, curRef, tile, poly,
+                        nextRef, nextTile, nextPoly);
+            }
+
+            if (nextRef == 0) {
+                // No neighbour, we hit a wall. Calculate hit normal.
+                int va = m_segMax * 3;
+                int vb = (m_segMax + 1 < nv ? m_segMax + 1 : 0) * 3;
+                m_hitNormal[0] = m_verts[vb + 2] - m_verts[va + 2];
+                m_hitNormal[2] = -(m_verts[vb] - m_verts[va]);
+                vNormalize(m_hitNormal);
+                return;
+            }
+
+            // No hit, advance to neighbour polygon.
+            prevRef = curRef;
+            curRef = nextRef;
+            prevTile = tile;
+            tile = nextTile;
+            prevPoly = poly;
+            poly = nextPoly;
+        }
+    }
+
+    /** The hit parameter of the last cast, Float.MAX_VALUE if the ray reached its end position. */
+    float getT() {
+        return m_t;
+    }
+
+    /** The normal of the wall hit by the last cast, zero if no wall was hit. */
+    float[] getHitNormal() {
+        return m_hitNormal;
+    }
+
+    /** The edge of the last polygon visited through which the ray left it, -1 if the ray ended inside it. */
+    int getHitEdgeIndex() {
+        return m_hitEdgeIndex;
+    }
+
+    /** The cost of the path up to the hit, if costs were computed. */
+    float getPathCost() {
+        return m_pathCost;
+    }
+
+    /** Number of polygons visited by the last cast. */
+    int getPathCount() {
+        return m_pathCount;
+    }
+
+    /** The i-th polygon visited by the last cast. */
+    long getPath(int i) {
+        return m_path[i];
+    }
+
+    private void addPath(long ref) {
+        if (m_pathCount == m_path.length) {
+            m_path = Arrays.copyOf(m_path, m_pathCount * 2);
+        }
+        m_path[m_pathCount++] = ref;
+    }
+
+    /// Same as DetourCommon.intersectSegmentPoly2D() on m_verts, the result is stored in m_tmax and m_segMax.
+    private boolean intersectSegmentPoly2D(int nverts) {
+        float tmin = 0;
+        m_tmax = 1;
+        m_segMax = -1;
+        float dirx = m_endPos[0] - m_startPos[0];
+        float dirz = m_endPos[2] - m_startPos[2];
+        for (int i = 0, j = nverts - 1; i < nverts; j = i++) {
+            float edgex = m_verts[i * 3] - m_verts[j * 3];
+            float edgez = m_verts[i * 3 + 2] - m_verts[j * 3 + 2];
+            float diffx = m_startPos[0] - m_verts[j * 3];
+            float diffz = m_startPos[2] - m_verts[j * 3 + 2];
+            float n = edgez * diffx - edgex * diffz;
+            float d = dirz * edgex - dirx * edgez;
+            if (Math.abs(d) < EPS) {
+                // S is nearly parallel to this edge
+                if (n < 0) {
+                    return false;
+                } else {
+                    continue;
+                }
+            }
+            float t = n / d;
+            if (d < 0) {
+                // segment S is entering across this edge
+                if (t > tmin) {
+                    tmin = t;
+                    // S enters after leaving polygon
+                    if (tmin > m_tmax) {
+                        return false;
+                    }
+                }
+            } else {
+                // segment S is leaving across this edge
+                if (t < m_tmax) {
+                    m_tmax = t;
+                    m_segMax = j;
+                    // S leaves before entering polygon
+                    if (m_tmax < tmin) {
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+}
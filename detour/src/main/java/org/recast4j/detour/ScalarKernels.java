@@ -0,0 +1,112 @@
+/*
+recast4j copyright (c) 2015-2019 Piotr Piastucki piotr@jtilia.org
+
+This software is provided 'as-is', without any express or implied
+warranty.  In no event will the authors be held liable for any damages
+arising from the use of this software.
+Permission is granted to anyone to use this software for any purpose,
+including commercial applications, and to alter it and redistribute it
+freely, subject to the following restrictions:
+1. The origin of this software must not be misrepresented; you must not
+ claim that you wrote the original software. If you use this software
+ in a product, an acknowledgment in the product documentation would be
+ appreciated but is not required.
+2. Altered source versions must be plainly marked as such, and must not be
+ misrepresented as being the original software.
+3. This notice may not be removed or altered from any source distribution.
+*/
+package org.recast4j.detour;
+
+import static org.recast4j.detour.DetourCommon.clamp;
+
+/**
+ * Plain Java kernels, the reference for the vector implementation.
+ */
+final class ScalarKernels extends GeometryKernels {
+
+    @Override
+    public boolean pointInPolygon(float[] pt, float[] verts, int nverts) {
+        return DetourCommon.pointInPolygon(pt, verts, nverts);
+    }
+
+    @Override
+    public boolean distancePtPolyEdgesSqr(float[] pt, float[] verts, int nverts, float[] ed, float[] et) {
+        return DetourCommon.distancePtPolyEdgesSqr(pt, verts, nverts, ed, et);
+    }
+
+    @Override
+    public int queryBVTree(PackedBVTree tree, int[] bmin, int[] bmax, int[] polys) {
+        return queryBVTree(tree, bmin, bmax, polys, 0, 0);
+    }
+
+    /// Continues the traversal at nodeIndex with n polygons already found.
+    static int queryBVTree(PackedBVTree tree, int[] bmin, int[] bmax, int[] polys, int nodeIndex, int n) {
+        int end = tree.nodeCount;
+        while (nodeIndex < end) {
+            boolean overlap = bmin[0] <= tree.maxX[nodeIndex] && bmax[0] >= tree.minX[nodeIndex]
+                    && bmin[1] <= tree.maxY[nodeIndex] && bmax[1] >= tree.minY[nodeIndex]
+                    && bmin[2] <= tree.maxZ[nodeIndex] && bmax[2] >= tree.minZ[nodeIndex];
+            int i = tree.index[nodeIndex];
+            boolean isLeafNode = i >= 0;
+            if (isLeafNode && overlap) {
+                polys[n++] = i;
+            }
+            if (overlap || isLeafNode) {
+                nodeIndex++;
+            } else {
+                nodeIndex -= i;
+            }
+        }
+        return n;
+    }
+
+    @Override
+    public float sweepCircles(float[] circles, int stride, int ncircles, float[] pos, float rad, float vx, float vz,
+            float tmin, float threshold, float[] side) {
+        final float EPS = 0.0001f;
+        for (int i = 0; i < ncircles; ++i) {
+            // RVO
+            float vabx = vx - circles[CIRCLE_VX * stride + i];
+            float vabz = vz - circles[CIRCLE_VZ * stride + i];
+
+            // Side
+            float dp = circles[CIRCLE_DPX * stride + i] * vabx + circles[CIRCLE_DPZ * stride + i] * vabz;
+            float np = circles[CIRCLE_NPX * stride + i] * vabx + circles[CIRCLE_NPZ * stride + i] * vabz;
+            side[i] = clamp(Math.min(dp * 0.5f + 0.5f, np * 2), 0.0f, 1.0f);
+
+            // Sweep circle against circle
+            float sx = circles[CIRCLE_PX * stride + i] - pos[0];
+            float sz = circles[CIRCLE_PZ * stride + i] - pos[2];
+            float r = rad + circles[CIRCLE_RAD * stride + i];
+            float c = sx * sx + sz * sz - r * r;
+            float a = vabx * vabx + vabz * vabz;
+            if (a < EPS) {
+                continue; // not moving
+            }
+            float b = vabx * sx + vabz * sz;
+            float d = b * b - a * c;
+            if (d < 0.0f) {
+                continue; // no intersection.
+            }
+            a = 1.0f / a;
+            float rd = (float) Math.sqrt(d);
+            float htmin = (b - rd) * a;
+            float htmax = (b + rd) * a;
+
+            // Handle overlapping obstacles.
+            if (htmin < 0.0f && htmax > 0.0f) {
+                // Avoid more when overlapped.
+                htmin = -htmin * 0.5f;
+            }
+
+            if (htmin >= 0.0f && htmin < tmin) {
+                // The closest obstacle is somewhere ahead of us, keep track of nearest obstacle.
+                tmin = htmin;
+                if (tmin < threshold) {
+                    return tmin;
+                }
+            }
+        }
+        return tmin;
+    }
+}
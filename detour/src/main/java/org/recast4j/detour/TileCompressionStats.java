@@ -0,0 +1,103 @@
+/*
+recast4j copyright (c) 2015-2019 Piotr Piastucki piotr@jtilia.org
+
+This software is provided 'as-is', without any express or implied
+warranty.  In no event will the authors be held liable for any damages
+arising from the use of this software.
+Permission is granted to anyone to use this software for any purpose,
+including commercial applications, and to alter it and redistribute it
+freely, subject to the following restrictions:
+1. The origin of this software must not be misrepresented; you must not
+ claim that you wrote the original software. If you use this software
+ in a product, an acknowledgment in the product documentation would be
+ appreciated but is not required.
+2. Altered source versions must be plainly marked as such, and must not be
+ misrepresented as being the original software.
+3. This notice may not be removed or altered from any source distribution.
+*/
+package org.recast4j.detour;
+
+/**
+ * Snapshot of the cold tile compression state of a navmesh. (See: {@link NavMesh#setResidentTileBudget(int)})
+ */
+public class TileCompressionStats {
+
+    private final int residentTiles;
+    private final int compressedTiles;
+    private final long rawBytes;
+    private final long compressedBytes;
+    private final long compressions;
+    private final long decompressions;
+    private final long decompressNanos;
+    private final long maxDecompressNanos;
+
+    TileCompressionStats(int residentTiles, int compressedTiles, long rawBytes, long compressedBytes,
+            long compressions, long decompressions, long decompressNanos, long maxDecompressNanos) {
+        this.residentTiles = residentTiles;
+        this.compressedTiles = compressedTiles;
+        this.rawBytes = rawBytes;
+        this.compressedBytes = compressedBytes;
+        this.compressions = compressions;
+        this.decompressions = decompressions;
+        this.decompressNanos = decompressNanos;
+        this.maxDecompressNanos = maxDecompressNanos;
+    }
+
+    /** Number of tiles with fully inflated data. */
+    public int getResidentTiles() {
+        return residentTiles;
+    }
+
+    /** Number of tiles currently held in compressed form. */
+    public int getCompressedTiles() {
+        return compressedTiles;
+    }
+
+    /** Uncompressed size of the compressed tile arrays in bytes. */
+    public long getRawBytes() {
+        return rawBytes;
+    }
+
+    /** Size of the compressed tile arrays in bytes. */
+    public long getCompressedBytes() {
+        return compressedBytes;
+    }
+
+    /** Raw size divided by compressed size of the currently compressed tiles, or 1 if none are compressed. */
+    public float getCompressionRatio() {
+        return compressedBytes > 0 ? (float) rawBytes / compressedBytes : 1f;
+    }
+
+    /** Total number of tiles compressed since the budget was set. */
+    public long getCompressions() {
+        return compressions;
+    }
+
+    /** Total number of tiles decompressed on access since the budget was set. */
+    public long getDecompressions() {
+        return decompressions;
+    }
+
+    /** Total time spent decompressing tiles. */
+    public long getDecompressNanos() {
+        return decompressNanos;
+    }
+
+    /** Mean decompression latency, or 0 if no tile has been decompressed. */
+    public long getMeanDecompressNanos() {
+        return decompressions > 0 ? decompressNanos / decompressions : 0;
+    }
+
+    /** Longest single decompression. */
+    public long getMaxDecompressNanos() {
+        return maxDecompressNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "TileCompressionStats [residentTiles=" + residentTiles + ", compressedTiles=" + compressedTiles
+                + ", rawBytes=" + rawBytes + ", compressedBytes=" + compressedBytes + ", compressions=" + compressions
+                + ", decompressions=" + decompressions + ", decompressNanos=" + decompressNanos
+                + ", maxDecompressNanos=" + maxDecompressNanos + "]";
+    }
+}
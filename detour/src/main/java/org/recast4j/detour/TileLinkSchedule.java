@@ -0,0 +1,147 @@
+/*
+recast4j copyright (c) 2015-2019 Piotr Piastucki piotr@jtilia.org
+
+This software is provided 'as-is', without any express or implied
+warranty.  In no event will the authors be held liable for any damages
+arising from the use of this software.
+Permission is granted to anyone to use this software for any purpose,
+including commercial applications, and to alter it and redistribute it
+freely, subject to the following restrictions:
+1. The origin of this software must not be misrepresented; you must not
+ claim that you wrote the original software. If you use this software
+ in a product, an acknowledgment in the product documentation would be
+ appreciated but is not required.
+2. Altered source versions must be plainly marked as such, and must not be
+ misrepresented as being the original software.
+3. This notice may not be removed or altered from any source distribution.
+*/
+package org.recast4j.detour;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Orders the link building steps of a batch of tiles added with {@link NavMesh#addTiles} into levels.
+ *
+ * Every step changes the links of one or two tiles. Steps are added in the order the sequential addTile() would run
+ * them; the schedule keeps that order for the steps of each tile and puts a step into the first level where none of
+ * its tiles is busy. The tasks of a level therefore touch disjoint tiles and can run concurrently, while the links of
+ * every tile are allocated in exactly the sequential order. Consecutive single tile steps of a tile are merged into one
+ * task.
+ */
+final class TileLinkSchedule {
+
+    private final List<List<Runnable>> m_levels = new ArrayList<>();
+    /// First level at which each tile is not claimed by a two tile step, indexed by tile index.
+    private final int[] m_free;
+    /// Steps of the open single tile task of each tile at its free level, or null.
+    private final List<List<Runnable>> m_open;
+
+    TileLinkSchedule(int maxTiles) {
+        m_free = new int[maxTiles];
+        m_open = new ArrayList<>(maxTiles);
+        for (int i = 0; i < maxTiles; i++) {
+            m_open.add(null);
+        }
+    }
+
+    /// Adds a step changing only the links of the tile.
+    void add(MeshTile tile, Runnable step) {
+        List<Runnable> steps = m_open.get(tile.index);
+        if (steps == null) {
+            List<Runnable> task = new ArrayList<>();
+            level(m_free[tile.index]).add(() -> task.forEach(Runnable::run));
+            m_open.set(tile.index, task);
+            steps = task;
+        }
+        steps.add(step);
+    }
+
+    /// Adds a step changing the links of both tiles.
+    void add(MeshTile a, MeshTile b, Runnable step) {
+        int level = Math.max(firstFree(a), firstFree(b));
+        level(level).add(step);
+        claim(a, level + 1);
+        claim(b, level + 1);
+    }
+
+    int getLevelCount() {
+        return m_levels.size();
+    }
+
+    /// Runs the levels in order, the tasks of a level on the pool. Runs everything on the caller if pool is null.
+    /// A level is always waited for completely, so that no task keeps changing the tiles after run() returned or threw.
+    /// The failure of the first failing task of the level is rethrown as is, the failures of the others are added to
+    /// it as suppressed exceptions.
+    void run(ForkJoinPool pool) {
+        List<ForkJoinTask<?>> pending = new ArrayList<>();
+        for (List<Runnable> level : m_levels) {
+            if (pool == null || level.size() == 1) {
+                level.forEach(Runnable::run);
+                continue;
+            }
+            Throwable[] failures = new Throwable[level.size()];
+            for (int i = 1; i < level.size(); i++) {
+                pending.add(pool.submit(guard(level.get(i), failures, i)));
+            }
+            try {
+                guard(level.get(0), failures, 0).run();
+            } finally {
+                pending.forEach(ForkJoinTask::quietlyJoin);
+                pending.clear();
+            }
+            rethrow(failures);
+        }
+    }
+
+    /// Wraps the task to store its failure instead of throwing it.
+    private static Runnable guard(Runnable task, Throwable[] failures, int i) {
+        return () -> {
+            try {
+                task.run();
+            } catch (Throwable e) {
+                failures[i] = e;
+            }
+        };
+    }
+
+    private static void rethrow(Throwable[] failures) {
+        Throwable failure = null;
+        for (Throwable e : failures) {
+            if (e != null) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        }
+        if (failure instanceof Error) {
+            throw (Error) failure;
+        }
+        if (failure != null) {
+            throw new RuntimeException(failure);
+        }
+    }
+
+    private int firstFree(MeshTile tile) {
+        return m_open.get(tile.index) != null ? m_free[tile.index] + 1 : m_free[tile.index];
+    }
+
+    private void claim(MeshTile tile, int level) {
+        m_free[tile.index] = level;
+        m_open.set(tile.index, null);
+    }
+
+    private List<Runnable> level(int level) {
+        while (m_levels.size() <= level) {
+            m_levels.add(new ArrayList<>());
+        }
+        return m_levels.get(level);
+    }
+}
@@ -0,0 +1,33 @@
+/*
+recast4j copyright (c) 2015-2019 Piotr Piastucki piotr@jtilia.org
+
+This software is provided 'as-is', without any express or implied
+warranty.  In no event will the authors be held liable for any damages
+arising from the use of this software.
+Permission is granted to anyone to use this software for any purpose,
+including commercial applications, and to alter it and redistribute it
+freely, subject to the following restrictions:
+1. The origin of this software must not be misrepresented; you must not
+ claim that you wrote the original software. If you use this software
+ in a product, an acknowledgment in the product documentation would be
+ appreciated but is not required.
+2. Altered source versions must be plainly marked as such, and must not be
+ misrepresented as being the original software.
+3. This notice may not be removed or altered from any source distribution.
+*/
+package org.recast4j.detour;
+
+/**
+ * Callback used by a {@link NavMesh} in streaming mode. The navigation mesh notifies the loader before the tiles at a
+ * location are accessed, giving it a chance to add missing tiles with {@link NavMesh#addTile(MeshData, int, long)}.
+ *
+ * @see NavMesh#setTileLoader(TileLoader)
+ */
+public interface TileLoader {
+
+    /**
+     * Called before the tiles at the given tile location are accessed. Implementations must not remove tiles here, the
+     * caller may hold references to tiles in the middle of a query.
+     */
+    void loadTilesAt(int x, int y);
+}
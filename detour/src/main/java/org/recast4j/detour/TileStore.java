@@ -0,0 +1,45 @@
+/*
+recast4j copyright (c) 2015-2019 Piotr Piastucki piotr@jtilia.org
+
+This software is provided 'as-is', without any express or implied
+warranty.  In no event will the authors be held liable for any damages
+arising from the use of this software.
+Permission is granted to anyone to use this software for any purpose,
+including commercial applications, and to alter it and redistribute it
+freely, subject to the following restrictions:
+1. The origin of this software must not be misrepresented; you must not
+ claim that you wrote the original software. If you use this software
+ in a product, an acknowledgment in the product documentation would be
+ appreciated but is not required.
+2. Altered source versions must be plainly marked as such, and must not be
+ misrepresented as being the original software.
+3. This notice may not be removed or altered from any source distribution.
+*/
+package org.recast4j.detour;
+
+import java.io.IOException;
+
+/**
+ * Random-access storage of serialized navmesh tiles, used to page tiles in and out of a {@link NavMesh}.
+ *
+ * Tiles are identified by the tile reference they had when the store was written, so that a tile reloaded with that
+ * reference restores the same tile index and salt and polygon references remain valid across reloads. Implementations
+ * must allow {@link #loadTile(long)} to be called from multiple threads.
+ */
+public interface TileStore {
+
+    NavMeshParams getParams();
+
+    int getMaxVertsPerPoly();
+
+    /**
+     * Returns the references of the stored tiles at the given tile location (one per layer), or an empty array if there
+     * are none.
+     */
+    long[] getTileRefs(int x, int y);
+
+    /**
+     * Reads and deserializes the tile. Each call returns a new instance which can be added to a navmesh.
+     */
+    MeshData loadTile(long tileRef) throws IOException;
+}
@@ -0,0 +1,182 @@
+/*
+recast4j copyright (c) 2015-2019 Piotr Piastucki piotr@jtilia.org
+
+This software is provided 'as-is', without any express or implied
+warranty.  In no event will the authors be held liable for any damages
+arising from the use of this software.
+Permission is granted to anyone to use this software for any purpose,
+including commercial applications, and to alter it and redistribute it
+freely, subject to the following restrictions:
+1. The origin of this software must not be misrepresented; you must not
+ claim that you wrote the original software. If you use this software
+ in a product, an acknowledgment in the product documentation would be
+ appreciated but is not required.
+2. Altered source versions must be plainly marked as such, and must not be
+ misrepresented as being the original software.
+3. This notice may not be removed or altered from any source distribution.
+*/
+package org.recast4j.detour;
+
+import java.util.Arrays;
+import java.util.function.LongSupplier;
+
+/**
+ * Short-lived cache of {@link RaycastBatch} results, letting perception skip casts between actors which barely moved.
+ *
+ * Entries are keyed by the start and end polygons and the endpoints quantized to a grid of the given cell size, so a
+ * ray between nearby endpoints reuses the hit of the first one. An entry expires after the TTL, when a tile it crossed
+ * was removed or replaced (tile salt changed) or when polygon flags or areas were changed or tiles were added or
+ * removed anywhere in the navmesh (see {@link PolyChangeJournal}). The cache is direct mapped: a new entry simply
+ * replaces the one in its slot.
+ *
+ * The filter is not part of the key, use one cache per filter. The cache is not thread safe.
+ */
+public class VisibilityCache {
+
+    /** Rays crossing more tiles are not cached. */
+    static final int MAX_TILES = 4;
+
+    private final NavMesh m_nav;
+    private final float m_invCellSize;
+    private final long m_ttl;
+    private final LongSupplier m_clock;
+    private final int m_mask;
+    private final long[] m_startRefs;
+    private final long[] m_endRefs;
+    private final int[] m_cells;
+    private final long[] m_expires;
+    private final long[] m_versions;
+    private final float[] m_t;
+    private final float[] m_normals;
+    private final long[] m_hitPolys;
+    private final int[] m_tileCounts;
+    private final int[] m_tiles;
+    private final int[] m_salts;
+    private final int[] m_keyCells = new int[6];
+    private long m_hits;
+    private long m_misses;
+
+    /**
+     * @param size
+     *            Number of entries, rounded up to a power of two.
+     * @param cellSize
+     *            Size of the grid the ray endpoints are quantized to.
+     * @param ttlNanos
+     *            Lifetime of an entry in nanoseconds.
+     */
+    public VisibilityCache(NavMesh nav, int size, float cellSize, long ttlNanos) {
+        this(nav, size, cellSize, ttlNanos, System::nanoTime);
+    }
+
+    /**
+     * @param clock
+     *            Time source of the TTL, e.g. the simulation time in nanoseconds.
+     */
+    public VisibilityCache(NavMesh nav, int size, float cellSize, long ttlNanos, LongSupplier clock) {
+        int capacity = Integer.highestOneBit(Math.max(1, size - 1)) << 1;
+        m_nav = nav;
+        m_invCellSize = 1.0f / cellSize;
+        m_ttl = ttlNanos;
+        m_clock = clock;
+        m_mask = capacity - 1;
+        m_startRefs = new long[capacity];
+        m_endRefs = new long[capacity];
+        m_cells = new int[capacity * 6];
+        m_expires = new long[capacity];
+        m_versions = new long[capacity];
+        m_t = new float[capacity];
+        m_normals = new float[capacity * 3];
+        m_hitPolys = new long[capacity];
+        m_tileCounts = new int[capacity];
+        m_tiles = new int[capacity * MAX_TILES];
+        m_salts = new int[capacity * MAX_TILES];
+    }
+
+    /** Removes all entries. */
+    public void clear() {
+        Arrays.fill(m_startRefs, 0);
+    }
+
+    public long getHits() {
+        return m_hits;
+    }
+
+    public long getMisses() {
+        return m_misses;
+    }
+
+    /// Looks up the ray, copies the cached hit to the outputs at index i and returns true if found.
+    boolean get(long startRef, long endRef, float[] startPos, float[] endPos, int i, float[] hitT, float[] hitNormals,
+            long[] hitPolys) {
+        int slot = slot(startRef, endRef, startPos, endPos, i * 3);
+        if (!matches(slot, startRef, endRef) || !isValid(slot)) {
+            m_misses++;
+            return false;
+        }
+        hitT[i] = m_t[slot];
+        System.arraycopy(m_normals, slot * 3, hitNormals, i * 3, 3);
+        hitPolys[i] = m_hitPolys[slot];
+        m_hits++;
+        return true;
+    }
+
+    /// Stores the hit at index i of the outputs for the ray crossing the given tiles.
+    void put(long startRef, long endRef, float[] startPos, float[] endPos, int i, float[] hitT, float[] hitNormals,
+            long[] hitPolys, int[] tiles, int tileCount) {
+        int slot = slot(startRef, endRef, startPos, endPos, i * 3);
+        m_startRefs[slot] = startRef;
+        m_endRefs[slot] = endRef;
+        System.arraycopy(m_keyCells, 0, m_cells, slot * 6, 6);
+        m_expires[slot] = m_clock.getAsLong() + m_ttl;
+        m_versions[slot] = m_nav.getChangeJournal().getVersion();
+        m_t[slot] = hitT[i];
+        System.arraycopy(hitNormals, i * 3, m_normals, slot * 3, 3);
+        m_hitPolys[slot] = hitPolys[i];
+        m_tileCounts[slot] = tileCount;
+        for (int k = 0; k < tileCount; k++) {
+            m_tiles[slot * MAX_TILES + k] = tiles[k];
+            m_salts[slot * MAX_TILES + k] = m_nav.getTile(tiles[k]).salt;
+        }
+    }
+
+    private boolean matches(int slot, long startRef, long endRef) {
+        if (m_startRefs[slot] != startRef || m_endRefs[slot] != endRef) {
+            return false;
+        }
+        for (int k = 0; k < 6; k++) {
+            if (m_cells[slot * 6 + k] != m_keyCells[k]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isValid(int slot) {
+        if (m_clock.getAsLong() - m_expires[slot] >= 0
+                || m_nav.getChangeJournal().hasChangedSince(m_versions[slot])) {
+            m_startRefs[slot] = 0;
+            return false;
+        }
+        for (int k = 0; k < m_tileCounts[slot]; k++) {
+            MeshTile tile = m_nav.getTile(m_tiles[slot * MAX_TILES + k]);
+            if (tile.data == null || tile.salt != m_salts[slot * MAX_TILES + k]) {
+                m_startRefs[slot] = 0;
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /// Quantizes the endpoints into m_keyCells and returns the slot of the key.
+    private int slot(long startRef, long endRef, float[] startPos, float[] endPos, int p) {
+        long h = startRef * 0x9E3779B97F4A7C15L ^ endRef;
+        for (int k = 0; k < 3; k++) {
+            m_keyCells[k] = (int) Math.floor(startPos[p + k] * m_invCellSize);
+            m_keyCells[k + 3] = (int) Math.floor(endPos[p + k] * m_invCellSize);
+        }
+        for (int k = 0; k < 6; k++) {
+            h = (h ^ m_keyCells[k]) * 0x100000001B3L;
+        }
+        return (int) (h ^ (h >>> 32)) & m_mask;
+    }
+}
@@ -0,0 +1,82 @@
+/*
+recast4j copyright (c) 2015-2019 Piotr Piastucki piotr@jtilia.org
+
+This software is provided 'as-is', without any express or implied
+warranty.  In no event will the authors be held liable for any damages
+arising from the use of this software.
+Permission is granted to anyone to use this software for any purpose,
+including commercial applications, and to alter it and redistribute it
+freely, subject to the following restrictions:
+1. The origin of this software must not be misrepresented; you must not
+ claim that you wrote the original software. If you use this software
+ in a product, an acknowledgment in the product documentation would be
+ appreciated but is not required.
+2. Altered source versions must be plainly marked as such, and must not be
+ misrepresented as being the original software.
+3. This notice may not be removed or altered from any source distribution.
+*/
+package org.recast4j.detour;
+
+/**
+ * Wall and portal segments of the polygons of a tile, computed once per {@link DefaultQueryFilter} flag set.
+ *
+ * The segments of a flag set are the ones {@link NavMeshQuery#getPolyWallSegments} returns with portals, walls have
+ * a zero neighbour ref. Instances are immutable, adding a flag set creates a copy, so a tile can publish its cache to
+ * concurrent queries by replacing the reference. The navmesh drops the cache of a tile whenever its links or the
+ * flags of its polygons or of the polygons of its neighbours change.
+ */
+class WallSegmentCache {
+
+    static class Segments {
+        /// Start of the segments of each polygon, followed by the end of the last polygon.
+        final int[] polyStart;
+        /// Segment end points [(ax, ay, az, bx, by, bz) * segmentCount].
+        final float[] verts;
+        /// Neighbour polygon of each segment, 0 for walls.
+        final long[] refs;
+        /// Bit mask of the solid edges of each polygon, as tested by NavMeshQuery#findDistanceToWall.
+        final int[] solidEdges;
+
+        Segments(int[] polyStart, float[] verts, long[] refs, int[] solidEdges) {
+            this.polyStart = polyStart;
+            this.verts = verts;
+            this.refs = refs;
+            this.solidEdges = solidEdges;
+        }
+    }
+
+    private final long[] m_keys;
+    private final Segments[] m_segments;
+
+    private WallSegmentCache(long[] keys, Segments[] segments) {
+        m_keys = keys;
+        m_segments = segments;
+    }
+
+    static long key(DefaultQueryFilter filter) {
+        return ((long) filter.getIncludeFlags() << 32) | (filter.getExcludeFlags() & 0xffffffffL);
+    }
+
+    Segments get(long key) {
+        for (int i = 0; i < m_keys.length; ++i) {
+            if (m_keys[i] == key) {
+                return m_segments[i];
+            }
+        }
+        return null;
+    }
+
+    /// Returns a copy of the cache (or a new cache if null) with the segments added.
+    static WallSegmentCache with(WallSegmentCache cache, long key, Segments segments) {
+        int n = cache != null ? cache.m_keys.length : 0;
+        long[] keys = new long[n + 1];
+        Segments[] values = new Segments[n + 1];
+        if (cache != null) {
+            System.arraycopy(cache.m_keys, 0, keys, 0, n);
+            System.arraycopy(cache.m_segments, 0, values, 0, n);
+        }
+        keys[n] = key;
+        values[n] = segments;
+        return new WallSegmentCache(keys, values);
+    }
+}
@@ -0,0 +1,48 @@
+/*
+recast4j copyright (c) 2015-2019 Piotr Piastucki piotr@jtilia.org
+
+This software is provided 'as-is', without any express or implied
+warranty.  In no event will the authors be held liable for any damages
+arising from the use of this software.
+Permission is granted to anyone to use this software for any purpose,
+including commercial applications, and to alter it and redistribute it
+freely, subject to the following restrictions:
+1. The origin of this software must not be misrepresented; you must not
+ claim that you wrote the original software. If you use this software
+ in a product, an acknowledgment in the product documentation would be
+ appreciated but is not required.
+2. Altered source versions must be plainly marked as such, and must not be
+ misrepresented as being the original software.
+3. This notice may not be removed or altered from any source distribution.
+*/
+package org.recast4j.detour.io;
+
+import org.recast4j.detour.NavMeshParams;
+
+/**
+ * Header of the indexed navmesh set format written by {@link IndexedMeshSetWriter}.
+ *
+ * Layout: header padded to {@link #INDEX_OFFSET}, tile index ({@link #tileCount} entries of
+ * {@link IndexedMeshSetTileEntry#SIZE} bytes), then the tile records. The index and every tile record start at a
+ * multiple of {@link #ALIGNMENT} bytes, so that tiles can be sliced directly out of a memory mapped file.
+ */
+public class IndexedMeshSetHeader {
+
+    static final int MAGIC = 'M' << 24 | 'S' << 16 | 'I' << 8 | 'X'; // 'MSIX';
+    static final int VERSION = 1;
+    static final int ALIGNMENT = 64;
+    /// magic, version, tileCount, params (7 values), maxVertsPerPoly
+    static final int SIZE = 4 * 3 + 4 * 7 + 4;
+    /// Start of the tile index, the header padded to the alignment.
+    static final int INDEX_OFFSET = (int) align(SIZE);
+
+    int magic;
+    int version;
+    int tileCount;
+    NavMeshParams params = new NavMeshParams();
+    int maxVertsPerPoly;
+
+    static long align(long offset) {
+        return (offset + ALIGNMENT - 1) & ~(ALIGNMENT - 1);
+    }
+}
@@ -0,0 +1,230 @@
+/*
+recast4j copyright (c) 2015-2019 Piotr Piastucki piotr@jtilia.org
+
+This software is provided 'as-is', without any express or implied
+warranty.  In no event will the authors be held liable for any damages
+arising from the use of this software.
+Permission is granted to anyone to use this software for any purpose,
+including commercial applications, and to alter it and redistribute it
+freely, subject to the following restrictions:
+1. The origin of this software must not be misrepresented; you must not
+ claim that you wrote the original software. If you use this software
+ in a product, an acknowledgment in the product documentation would be
+ appreciated but is not required.
+2. Altered source versions must be plainly marked as such, and must not be
+ misrepresented as being the original software.
+3. This notice may not be removed or altered from any source distribution.
+*/
+package org.recast4j.detour.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import org.recast4j.detour.MeshData;
+import org.recast4j.detour.NavMesh;
+import org.recast4j.detour.NavMeshParams;
+import org.recast4j.detour.TileStore;
+
+import net.jpountz.lz4.LZ4Factory;
+
+/**
+ * Reads navmeshes in the indexed navmesh set format written by {@link IndexedMeshSetWriter}.
+ *
+ * Only the header and the tile index are read when the store is opened. Any tile can then be loaded in constant time
+ * with a single lookup in the index and a single read of its record: uncompressed records are decoded directly from
+ * the mapped file, compressed records are decompressed first. Checksums are verified on load unless disabled.
+ */
+public class IndexedMeshSetStore implements TileStore, Closeable {
+
+    private static final long[] NO_TILES = new long[0];
+
+    private final MeshDataReader meshReader = new MeshDataReader();
+    private final NavMeshParamReader paramReader = new NavMeshParamReader();
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private ByteOrder order = ByteOrder.BIG_ENDIAN;
+    private final IndexedMeshSetHeader header;
+    private final List<IndexedMeshSetTileEntry> entries;
+    private final Map<Long, IndexedMeshSetTileEntry> tiles = new HashMap<>();
+    private final Map<Long, long[]> locations = new HashMap<>();
+    private boolean verifyChecksums = true;
+
+    /**
+     * Creates the store over the given buffer, e.g. a memory mapped file. The buffer is shared, not copied.
+     */
+    public IndexedMeshSetStore(ByteBuffer bb) throws IOException {
+        this(null, bb.slice());
+    }
+
+    /**
+     * Opens and memory maps the file. Files which do not fit into a single mapping are mapped tile by tile.
+     */
+    public IndexedMeshSetStore(Path file) throws IOException {
+        this(FileChannel.open(file, StandardOpenOption.READ), MeshSetReader.MAX_MAPPED_REGION);
+    }
+
+    IndexedMeshSetStore(FileChannel channel, long maxMappedRegion) throws IOException {
+        this(channel, channel.size() <= maxMappedRegion ? channel.map(MapMode.READ_ONLY, 0, channel.size()) : null);
+    }
+
+    private IndexedMeshSetStore(FileChannel channel, ByteBuffer buffer) throws IOException {
+        this.channel = channel;
+        this.buffer = buffer;
+        try {
+            header = readHeader();
+            entries = readIndex();
+        } catch (IOException | RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    private IndexedMeshSetHeader readHeader() throws IOException {
+        IndexedMeshSetHeader header = new IndexedMeshSetHeader();
+        ByteBuffer bb = region(0, IndexedMeshSetHeader.SIZE);
+        header.magic = bb.getInt();
+        if (header.magic != IndexedMeshSetHeader.MAGIC) {
+            header.magic = IOUtils.swapEndianness(header.magic);
+            if (header.magic != IndexedMeshSetHeader.MAGIC) {
+                throw new IOException("Invalid magic " + header.magic);
+            }
+            order = ByteOrder.LITTLE_ENDIAN;
+            bb.order(order);
+        }
+        header.version = bb.getInt();
+        if (header.version != IndexedMeshSetHeader.VERSION) {
+            throw new IOException("Invalid version " + header.version);
+        }
+        header.tileCount = bb.getInt();
+        header.params = paramReader.read(bb);
+        header.maxVertsPerPoly = bb.getInt();
+        return header;
+    }
+
+    private List<IndexedMeshSetTileEntry> readIndex() throws IOException {
+        List<IndexedMeshSetTileEntry> entries = new ArrayList<>(header.tileCount);
+        ByteBuffer bb = region(IndexedMeshSetHeader.INDEX_OFFSET, header.tileCount * IndexedMeshSetTileEntry.SIZE);
+        Map<Long, List<Long>> refsAt = new HashMap<>();
+        for (int i = 0; i < header.tileCount; i++) {
+            IndexedMeshSetTileEntry entry = new IndexedMeshSetTileEntry();
+            entry.x = bb.getInt();
+            entry.y = bb.getInt();
+            entry.layer = bb.getInt();
+            entry.tileRef = bb.getLong();
+            entry.offset = bb.getLong();
+            entry.length = bb.getInt();
+            entry.dataSize = bb.getInt();
+            entry.checksum = bb.getInt();
+            entry.flags = bb.getInt();
+            entries.add(entry);
+            tiles.put(entry.tileRef, entry);
+            refsAt.computeIfAbsent(MeshSetTileStore.locationKey(entry.x, entry.y), k -> new ArrayList<>())
+                    .add(entry.tileRef);
+        }
+        for (Map.Entry<Long, List<Long>> e : refsAt.entrySet()) {
+            locations.put(e.getKey(), e.getValue().stream().mapToLong(Long::longValue).toArray());
+        }
+        return Collections.unmodifiableList(entries);
+    }
+
+    private ByteBuffer region(long offset, int length) throws IOException {
+        ByteBuffer bb;
+        if (buffer != null) {
+            if (offset + length > buffer.limit()) {
+                throw new IOException("Record exceeds file size");
+            }
+            bb = buffer.duplicate();
+            bb.position((int) offset);
+            bb.limit((int) offset + length);
+            bb = bb.slice();
+        } else {
+            if (offset + length > channel.size()) {
+                throw new IOException("Record exceeds file size");
+            }
+            bb = channel.map(MapMode.READ_ONLY, offset, length);
+        }
+        return bb.order(order);
+    }
+
+    /** Enables or disables checksum verification of loaded tiles, enabled by default. */
+    public void setVerifyChecksums(boolean verifyChecksums) {
+        this.verifyChecksums = verifyChecksums;
+    }
+
+    @Override
+    public NavMeshParams getParams() {
+        return header.params;
+    }
+
+    @Override
+    public int getMaxVertsPerPoly() {
+        return header.maxVertsPerPoly;
+    }
+
+    public List<IndexedMeshSetTileEntry> getTileEntries() {
+        return entries;
+    }
+
+    @Override
+    public long[] getTileRefs(int x, int y) {
+        long[] refs = locations.get(MeshSetTileStore.locationKey(x, y));
+        return refs != null ? refs : NO_TILES;
+    }
+
+    @Override
+    public MeshData loadTile(long tileRef) throws IOException {
+        IndexedMeshSetTileEntry entry = tiles.get(tileRef);
+        if (entry == null) {
+            throw new IOException("Unknown tile " + tileRef);
+        }
+        return loadTile(entry);
+    }
+
+    public MeshData loadTile(IndexedMeshSetTileEntry entry) throws IOException {
+        ByteBuffer bb = region(entry.offset, entry.length);
+        if (verifyChecksums) {
+            CRC32 crc = new CRC32();
+            crc.update(bb.duplicate());
+            if ((int) crc.getValue() != entry.checksum) {
+                throw new IOException("Invalid checksum of tile " + entry.x + "," + entry.y + "," + entry.layer);
+            }
+        }
+        if (entry.isCompressed()) {
+            byte[] compressed = new byte[entry.length];
+            bb.get(compressed);
+            byte[] data = LZ4Factory.fastestInstance().fastDecompressor().decompress(compressed, 0, entry.dataSize);
+            bb = ByteBuffer.wrap(data).order(order);
+        }
+        return meshReader.read(bb, header.maxVertsPerPoly, false);
+    }
+
+    /**
+     * Loads all tiles into a new navmesh.
+     */
+    public NavMesh read() throws IOException {
+        NavMesh mesh = new NavMesh(header.params, header.maxVertsPerPoly);
+        for (IndexedMeshSetTileEntry entry : entries) {
+            mesh.addTile(loadTile(entry), 0, entry.tileRef);
+        }
+        return mesh;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,63 @@
+/*
+recast4j copyright (c) 2015-2019 Piotr Piastucki piotr@jtilia.org
+
+This software is provided 'as-is', without any express or implied
+warranty.  In no event will the authors be held liable for any damages
+arising from the use of this software.
+Permission is granted to anyone to use this software for any purpose,
+including commercial applications, and to alter it and redistribute it
+freely, subject to the following restrictions:
+1. The origin of this software must not be misrepresented; you must not
+ claim that you wrote the original software. If you use this software
+ in a product, an acknowledgment in the product documentation would be
+ appreciated but is not required.
+2. Altered source versions must be plainly marked as such, and must not be
+ misrepresented as being the original software.
+3. This notice may not be removed or altered from any source distribution.
+*/
+package org.recast4j.detour.io;
+
+/**
+ * Tile index entry of the indexed navmesh set format.
+ */
+public class IndexedMeshSetTileEntry {
+
+    /** Tile record is LZ4 compressed. */
+    static final int FLAG_LZ4 = 0x01;
+    /// x, y, layer, tileRef, offset, length, dataSize, checksum, flags
+    static final int SIZE = 4 * 3 + 8 + 8 + 4 * 4;
+
+    int x;
+    int y;
+    int layer;
+    long tileRef;
+    /// Offset of the tile record from the start of the file.
+    long offset;
+    /// Size of the stored tile record.
+    int length;
+    /// Size of the uncompressed tile data.
+    int dataSize;
+    /// CRC32 of the stored tile record.
+    int checksum;
+    int flags;
+
+    public int getX() {
+        return x;
+    }
+
+    public int getY() {
+        return y;
+    }
+
+    public int getLayer() {
+        return layer;
+    }
+
+    public long getTileRef() {
+        return tileRef;
+    }
+
+    public boolean isCompressed() {
+        return (flags & FLAG_LZ4) != 0;
+    }
+}
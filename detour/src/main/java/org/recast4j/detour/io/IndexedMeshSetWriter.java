@@ -0,0 +1,128 @@
+/*
+recast4j copyright (c) 2015-2019 Piotr Piastucki piotr@jtilia.org
+
+This software is provided 'as-is', without any express or implied
+warranty.  In no event will the authors be held liable for any damages
+arising from the use of this software.
+Permission is granted to anyone to use this software for any purpose,
+including commercial applications, and to alter it and redistribute it
+freely, subject to the following restrictions:
+1. The origin of this software must not be misrepresented; you must not
+ claim that you wrote the original software. If you use this software
+ in a product, an acknowledgment in the product documentation would be
+ appreciated but is not required.
+2. Altered source versions must be plainly marked as such, and must not be
+ misrepresented as being the original software.
+3. This notice may not be removed or altered from any source distribution.
+*/
+package org.recast4j.detour.io;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import org.recast4j.detour.MeshTile;
+import org.recast4j.detour.NavMesh;
+
+import net.jpountz.lz4.LZ4Factory;
+
+/**
+ * Writes navmeshes in the indexed navmesh set format, see {@link IndexedMeshSetHeader}. Tiles are stored in the
+ * recast4j tile layout and can optionally be LZ4 compressed; a tile is only stored compressed if that makes it
+ * smaller.
+ */
+public class IndexedMeshSetWriter extends DetourWriter {
+
+    private final MeshDataWriter writer = new MeshDataWriter();
+    private final NavMeshParamWriter paramWriter = new NavMeshParamWriter();
+    private final MeshSetReader setReader = new MeshSetReader();
+
+    public void write(OutputStream stream, NavMesh mesh, ByteOrder order, boolean compress) throws IOException {
+        List<IndexedMeshSetTileEntry> entries = new ArrayList<>();
+        List<byte[]> records = new ArrayList<>();
+        for (int i = 0; i < mesh.getMaxTiles(); ++i) {
+            MeshTile tile = mesh.getTile(i);
+            if (tile == null || tile.data == null || tile.data.header == null) {
+                continue;
+            }
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            writer.write(baos, tile.data, order, false);
+            byte[] data = baos.toByteArray();
+            IndexedMeshSetTileEntry entry = new IndexedMeshSetTileEntry();
+            entry.x = tile.data.header.x;
+            entry.y = tile.data.header.y;
+            entry.layer = tile.data.header.layer;
+            entry.tileRef = mesh.getTileRef(tile);
+            entry.dataSize = data.length;
+            if (compress) {
+                byte[] compressed = LZ4Factory.fastestInstance().highCompressor().compress(data);
+                if (compressed.length < data.length) {
+                    data = compressed;
+                    entry.flags |= IndexedMeshSetTileEntry.FLAG_LZ4;
+                }
+            }
+            entry.length = data.length;
+            CRC32 crc = new CRC32();
+            crc.update(data);
+            entry.checksum = (int) crc.getValue();
+            entries.add(entry);
+            records.add(data);
+        }
+        long offset = IndexedMeshSetHeader.align(
+                IndexedMeshSetHeader.INDEX_OFFSET + (long) entries.size() * IndexedMeshSetTileEntry.SIZE);
+        for (IndexedMeshSetTileEntry entry : entries) {
+            entry.offset = offset;
+            offset = IndexedMeshSetHeader.align(offset + entry.length);
+        }
+
+        write(stream, IndexedMeshSetHeader.MAGIC, order);
+        write(stream, IndexedMeshSetHeader.VERSION, order);
+        write(stream, entries.size(), order);
+        paramWriter.write(stream, mesh.getParams(), order);
+        write(stream, mesh.getMaxVertsPerPoly(), order);
+        pad(stream, IndexedMeshSetHeader.INDEX_OFFSET - IndexedMeshSetHeader.SIZE);
+        for (IndexedMeshSetTileEntry entry : entries) {
+            write(stream, entry.x, order);
+            write(stream, entry.y, order);
+            write(stream, entry.layer, order);
+            write(stream, entry.tileRef, order);
+            write(stream, entry.offset, order);
+            write(stream, entry.length, order);
+            write(stream, entry.dataSize, order);
+            write(stream, entry.checksum, order);
+            write(stream, entry.flags, order);
+        }
+        long position = IndexedMeshSetHeader.INDEX_OFFSET + (long) entries.size() * IndexedMeshSetTileEntry.SIZE;
+        for (int i = 0; i < entries.size(); i++) {
+            IndexedMeshSetTileEntry entry = entries.get(i);
+            pad(stream, entry.offset - position);
+            stream.write(records.get(i));
+            position = entry.offset + entry.length;
+        }
+        pad(stream, IndexedMeshSetHeader.align(position) - position);
+    }
+
+    /**
+     * Converts a navmesh set written by {@link MeshSetWriter} (any NAVMESHSET_VERSION) to the indexed format.
+     */
+    public void convert(InputStream meshSet, int maxVertPerPoly, OutputStream stream, ByteOrder order,
+            boolean compress) throws IOException {
+        write(stream, setReader.read(meshSet, maxVertPerPoly), order, compress);
+    }
+
+    public void convert32Bit(InputStream meshSet, int maxVertPerPoly, OutputStream stream, ByteOrder order,
+            boolean compress) throws IOException {
+        write(stream, setReader.read32Bit(meshSet, maxVertPerPoly), order, compress);
+    }
+
+    private void pad(OutputStream stream, long count) throws IOException {
+        for (long i = 0; i < count; i++) {
+            stream.write(0);
+        }
+    }
+}
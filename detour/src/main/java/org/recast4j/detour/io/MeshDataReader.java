@@ -51,10 +51,49 @@ public class MeshDataReader {
 		return read(buf, maxVertPerPoly, true);
 	}
 
+	/**
+	 * Creates a read-only view over the serialized tile at the current position of the buffer without copying its
+	 * contents. The buffer position is advanced past the tile.
+	 */
+	public MeshDataView readView(ByteBuffer buf, int maxVertPerPoly) throws IOException {
+		return readView(buf, maxVertPerPoly, false);
+	}
+
+	public MeshDataView readView32Bit(ByteBuffer buf, int maxVertPerPoly) throws IOException {
+		return readView(buf, maxVertPerPoly, true);
+	}
+
+	MeshDataView readView(ByteBuffer buf, int maxVertPerPoly, boolean is32Bit) throws IOException {
+		ByteBuffer tile = buf.slice().order(buf.order());
+		MeshHeader header = readHeader(tile);
+		MeshDataView view = new MeshDataView(tile, header, maxVertPerPoly, is32Bit);
+		buf.position(buf.position() + view.size());
+		return view;
+	}
+
 	MeshData read(ByteBuffer buf, int maxVertPerPoly, boolean is32Bit) throws IOException {
 		MeshData data = new MeshData();
-		MeshHeader header = new MeshHeader();
+		MeshHeader header = readHeader(buf);
 		data.header = header;
+		boolean cCompatibility = header.version == MeshHeader.DT_NAVMESH_VERSION;
+		data.setVerts(readVerts(buf, header.vertCount));
+		data.polys = readPolys(buf, header, maxVertPerPoly);
+		if (cCompatibility) {
+			buf.position(buf.position() + header.maxLinkCount * getSizeofLink(is32Bit));
+		}
+		data.detailMeshes = readPolyDetails(buf, header, cCompatibility);
+		data.setDetailVerts(readVerts(buf, header.detailVertCount));
+		data.detailTris = readDTris(buf, header);
+		data.bvTree = readBVTree(buf, header);
+		data.offMeshCons = readOffMeshCons(buf, header);
+		return data;
+	}
+
+	/**
+	 * Reads and validates the tile header, switching the byte order of the buffer if needed.
+	 */
+	MeshHeader readHeader(ByteBuffer buf) throws IOException {
+		MeshHeader header = new MeshHeader();
 		header.magic = buf.getInt();
 		if (header.magic != MeshHeader.DT_NAVMESH_MAGIC) {
 			header.magic = IOUtils.swapEndianness(header.magic);
@@ -69,7 +108,6 @@ public class MeshDataReader {
 				throw new IOException("Invalid version");
 			}
 		}
-		boolean cCompatibility = header.version == MeshHeader.DT_NAVMESH_VERSION;
 		header.x = buf.getInt();
 		header.y = buf.getInt();
 		header.layer = buf.getInt();
@@ -93,17 +131,7 @@ public class MeshDataReader {
 			header.bmax[j] = buf.getFloat();
 		}
 		header.bvQuantFactor = buf.getFloat();
-		data.verts = readVerts(buf, header.vertCount);
-		data.polys = readPolys(buf, header, maxVertPerPoly);
-		if (cCompatibility) {
-			buf.position(buf.position() + header.maxLinkCount * getSizeofLink(is32Bit));
-		}
-		data.detailMeshes = readPolyDetails(buf, header, cCompatibility);
-		data.detailVerts = readVerts(buf, header.detailVertCount);
-		data.detailTris = readDTris(buf, header);
-		data.bvTree = readBVTree(buf, header);
-		data.offMeshCons = readOffMeshCons(buf, header);
-		return data;
+		return header;
 	}
 
 	public static final int LINK_SIZEOF = 16;
@@ -0,0 +1,260 @@
+/*
+recast4j copyright (c) 2015-2019 Piotr Piastucki piotr@jtilia.org
+
+This software is provided 'as-is', without any express or implied
+warranty.  In no event will the authors be held liable for any damages
+arising from the use of this software.
+Permission is granted to anyone to use this software for any purpose,
+including commercial applications, and to alter it and redistribute it
+freely, subject to the following restrictions:
+1. The origin of this software must not be misrepresented; you must not
+ claim that you wrote the original software. If you use this software
+ in a product, an acknowledgment in the product documentation would be
+ appreciated but is not required.
+2. Altered source versions must be plainly marked as such, and must not be
+ misrepresented as being the original software.
+3. This notice may not be removed or altered from any source distribution.
+*/
+package org.recast4j.detour.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.recast4j.detour.MeshData;
+import org.recast4j.detour.MeshHeader;
+import org.recast4j.detour.OffMeshConnection;
+import org.recast4j.detour.Poly;
+
+/**
+ * Read-only view over a serialized tile in the layout written by {@link MeshDataWriter}.
+ *
+ * Vertices, polygons, detail meshes and BV nodes are read through accessors directly from the underlying buffer
+ * instead of being materialized into objects. All reads use absolute positions, so a single view (or several views
+ * over the same memory mapped file) can be shared between threads and navmesh instances.
+ *
+ * Tiles are added to a {@link org.recast4j.detour.NavMesh} with {@link #createMeshData()}, whose vertices, detail
+ * meshes and BV tree are read from the view by the navmesh queries, so that several navmesh instances over the same
+ * buffer share its pages. Only the state a navmesh changes is created per tile data: the polygons with their links,
+ * flags and areas, the off-mesh connections and the off-mesh connection end points. {@link #toMeshData()} copies the
+ * whole tile instead.
+ */
+public class MeshDataView {
+
+    static final int HEADER_SIZE = 100;
+    private static final int VERT_SIZE = 12;
+    private static final int DETAIL_TRI_SIZE = 4;
+    private static final int BV_NODE_SIZE = 16;
+    private static final int OFFMESH_CON_SIZE = 36;
+
+    private final ByteBuffer buf;
+    private final MeshHeader header;
+    private final int maxVertPerPoly;
+    private final boolean is32Bit;
+    private final int polySize;
+    private final int detailMeshSize;
+    private final int vertsOffset;
+    private final int polysOffset;
+    private final int detailMeshesOffset;
+    private final int detailVertsOffset;
+    private final int detailTrisOffset;
+    private final int bvTreeOffset;
+    private final int offMeshConsOffset;
+    private final int size;
+    /// Polygons decoded once and copied by createMeshData(), sharing their vertex and neighbour index arrays.
+    private volatile Poly[] polys;
+
+    MeshDataView(ByteBuffer buf, MeshHeader header, int maxVertPerPoly, boolean is32Bit) throws IOException {
+        this.buf = buf;
+        this.header = header;
+        this.maxVertPerPoly = maxVertPerPoly;
+        this.is32Bit = is32Bit;
+        boolean cCompatibility = header.version == MeshHeader.DT_NAVMESH_VERSION;
+        polySize = 4 + maxVertPerPoly * 4 + 4;
+        detailMeshSize = cCompatibility ? MeshDataReader.DT_POLY_DETAIL_SIZE + 2 : MeshDataReader.DT_POLY_DETAIL_SIZE;
+        vertsOffset = HEADER_SIZE;
+        polysOffset = vertsOffset + header.vertCount * VERT_SIZE;
+        int linksOffset = polysOffset + header.polyCount * polySize;
+        detailMeshesOffset = linksOffset
+                + (cCompatibility ? header.maxLinkCount * MeshDataReader.getSizeofLink(is32Bit) : 0);
+        detailVertsOffset = detailMeshesOffset + header.detailMeshCount * detailMeshSize;
+        detailTrisOffset = detailVertsOffset + header.detailVertCount * VERT_SIZE;
+        bvTreeOffset = detailTrisOffset + header.detailTriCount * DETAIL_TRI_SIZE;
+        offMeshConsOffset = bvTreeOffset + header.bvNodeCount * BV_NODE_SIZE;
+        size = offMeshConsOffset + header.offMeshConCount * OFFMESH_CON_SIZE;
+        if (size > buf.limit()) {
+            throw new IOException("Tile data exceeds buffer size");
+        }
+    }
+
+    /** Size of the serialized tile in bytes. */
+    public int size() {
+        return size;
+    }
+
+    public MeshHeader getHeader() {
+        return header;
+    }
+
+    /**
+     * Creates tile data which can be added to a NavMesh and reads its vertices, detail meshes and BV tree from this
+     * view. The buffer must stay valid while the tile is in use.
+     */
+    public MeshData createMeshData() {
+        Poly[] templates = polys;
+        if (templates == null) {
+            templates = decodePolys();
+            polys = templates;
+        }
+        Poly[] copies = new Poly[templates.length];
+        for (int i = 0; i < templates.length; i++) {
+            copies[i] = new Poly(templates[i]);
+        }
+        OffMeshConnection[] cons = new OffMeshConnection[header.offMeshConCount];
+        for (int i = 0; i < cons.length; i++) {
+            cons[i] = new OffMeshConnection();
+            for (int j = 0; j < 6; j++) {
+                cons[i].pos[j] = getOffMeshConPos(i, j);
+            }
+            cons[i].rad = getOffMeshConRad(i);
+            cons[i].poly = getOffMeshConPoly(i);
+            cons[i].flags = getOffMeshConFlags(i);
+            cons[i].side = getOffMeshConSide(i);
+            cons[i].userId = getOffMeshConUserId(i);
+        }
+        return new MeshData(this, copies, cons);
+    }
+
+    private Poly[] decodePolys() {
+        Poly[] polys = new Poly[header.polyCount];
+        for (int i = 0; i < polys.length; i++) {
+            polys[i] = new Poly(i, maxVertPerPoly);
+            polys[i].firstLink = getPolyFirstLink(i);
+            for (int j = 0; j < maxVertPerPoly; j++) {
+                polys[i].verts[j] = getPolyVert(i, j);
+                polys[i].neis[j] = getPolyNei(i, j);
+            }
+            polys[i].flags = getPolyFlags(i);
+            polys[i].vertCount = getPolyVertCount(i);
+            polys[i].areaAndtype = getPolyAreaAndType(i);
+        }
+        return polys;
+    }
+
+    /** Copies the tile into a regular MeshData instance which can be added to a NavMesh. */
+    public MeshData toMeshData() throws IOException {
+        ByteBuffer copy = buf.duplicate().order(buf.order());
+        copy.position(0);
+        return new MeshDataReader().read(copy, maxVertPerPoly, is32Bit);
+    }
+
+    public float getVert(int i, int axis) {
+        return buf.getFloat(vertsOffset + i * VERT_SIZE + axis * 4);
+    }
+
+    public void getVert(int i, float[] dest, int destOffset) {
+        int p = vertsOffset + i * VERT_SIZE;
+        dest[destOffset] = buf.getFloat(p);
+        dest[destOffset + 1] = buf.getFloat(p + 4);
+        dest[destOffset + 2] = buf.getFloat(p + 8);
+    }
+
+    public int getPolyFirstLink(int poly) {
+        return buf.getInt(polysOffset + poly * polySize);
+    }
+
+    public int getPolyVert(int poly, int j) {
+        return buf.getShort(polysOffset + poly * polySize + 4 + j * 2) & 0xFFFF;
+    }
+
+    public int getPolyNei(int poly, int j) {
+        return buf.getShort(polysOffset + poly * polySize + 4 + maxVertPerPoly * 2 + j * 2) & 0xFFFF;
+    }
+
+    public int getPolyFlags(int poly) {
+        return buf.getShort(polysOffset + poly * polySize + 4 + maxVertPerPoly * 4) & 0xFFFF;
+    }
+
+    public int getPolyVertCount(int poly) {
+        return buf.get(polysOffset + poly * polySize + 6 + maxVertPerPoly * 4) & 0xFF;
+    }
+
+    public int getPolyAreaAndType(int poly) {
+        return buf.get(polysOffset + poly * polySize + 7 + maxVertPerPoly * 4) & 0xFF;
+    }
+
+    public int getPolyArea(int poly) {
+        return getPolyAreaAndType(poly) & 0x3f;
+    }
+
+    public int getPolyType(int poly) {
+        return getPolyAreaAndType(poly) >> 6;
+    }
+
+    public int getDetailVertBase(int poly) {
+        return buf.getInt(detailMeshesOffset + poly * detailMeshSize);
+    }
+
+    public int getDetailTriBase(int poly) {
+        return buf.getInt(detailMeshesOffset + poly * detailMeshSize + 4);
+    }
+
+    public int getDetailVertCount(int poly) {
+        return buf.get(detailMeshesOffset + poly * detailMeshSize + 8) & 0xFF;
+    }
+
+    public int getDetailTriCount(int poly) {
+        return buf.get(detailMeshesOffset + poly * detailMeshSize + 9) & 0xFF;
+    }
+
+    public float getDetailVert(int i, int axis) {
+        return buf.getFloat(detailVertsOffset + i * VERT_SIZE + axis * 4);
+    }
+
+    public void getDetailVert(int i, float[] dest, int destOffset) {
+        int p = detailVertsOffset + i * VERT_SIZE;
+        dest[destOffset] = buf.getFloat(p);
+        dest[destOffset + 1] = buf.getFloat(p + 4);
+        dest[destOffset + 2] = buf.getFloat(p + 8);
+    }
+
+    /** Returns vertex index k (0..2) or the edge flags (k == 3) of the detail triangle. */
+    public int getDetailTri(int tri, int k) {
+        return buf.get(detailTrisOffset + tri * DETAIL_TRI_SIZE + k) & 0xFF;
+    }
+
+    public int getBVNodeMin(int node, int axis) {
+        return buf.getShort(bvTreeOffset + node * BV_NODE_SIZE + axis * 2) & 0xFFFF;
+    }
+
+    public int getBVNodeMax(int node, int axis) {
+        return buf.getShort(bvTreeOffset + node * BV_NODE_SIZE + 6 + axis * 2) & 0xFFFF;
+    }
+
+    public int getBVNodeIndex(int node) {
+        return buf.getInt(bvTreeOffset + node * BV_NODE_SIZE + 12);
+    }
+
+    public float getOffMeshConPos(int con, int j) {
+        return buf.getFloat(offMeshConsOffset + con * OFFMESH_CON_SIZE + j * 4);
+    }
+
+    public float getOffMeshConRad(int con) {
+        return buf.getFloat(offMeshConsOffset + con * OFFMESH_CON_SIZE + 24);
+    }
+
+    public int getOffMeshConPoly(int con) {
+        return buf.getShort(offMeshConsOffset + con * OFFMESH_CON_SIZE + 28) & 0xFFFF;
+    }
+
+    public int getOffMeshConFlags(int con) {
+        return buf.get(offMeshConsOffset + con * OFFMESH_CON_SIZE + 30) & 0xFF;
+    }
+
+    public int getOffMeshConSide(int con) {
+        return buf.get(offMeshConsOffset + con * OFFMESH_CON_SIZE + 31) & 0xFF;
+    }
+
+    public int getOffMeshConUserId(int con) {
+        return buf.getInt(offMeshConsOffset + con * OFFMESH_CON_SIZE + 32);
+    }
+}
@@ -53,14 +53,14 @@ public class MeshDataWriter extends DetourWriter {
 		write(stream, header.bmax[1], order);
 		write(stream, header.bmax[2], order);
 		write(stream, header.bvQuantFactor, order);
-		writeVerts(stream, data.verts, header.vertCount, order);
+		writeVerts(stream, data.getVerts(), header.vertCount, order);
 		writePolys(stream, data, order);
 		if (cCompatibility) {
 			byte[] linkPlaceholder = new byte[header.maxLinkCount * MeshDataReader.getSizeofLink(false)];
 			stream.write(linkPlaceholder);
 		}
 		writePolyDetails(stream, data, order, cCompatibility);
-		writeVerts(stream, data.detailVerts, header.detailVertCount, order);
+		writeVerts(stream, data.getDetailVerts(), header.detailVertCount, order);
 		writeDTris(stream, data);
 		writeBVTree(stream, data, order);
 		writeOffMeshCons(stream, data, order);
@@ -90,10 +90,10 @@ public class MeshDataWriter extends DetourWriter {
 	private void writePolyDetails(OutputStream stream, MeshData data, ByteOrder order, boolean cCompatibility)
 			throws IOException {
 		for (int i = 0; i < data.header.detailMeshCount; i++) {
-			write(stream, data.detailMeshes[i].vertBase, order);
-			write(stream, data.detailMeshes[i].triBase, order);
-			stream.write(data.detailMeshes[i].vertCount);
-			stream.write(data.detailMeshes[i].triCount);
+			write(stream, data.getDetailVertBase(i), order);
+			write(stream, data.getDetailTriBase(i), order);
+			stream.write(data.getDetailVertCount(i));
+			stream.write(data.getDetailTriCount(i));
 			if (cCompatibility) {
 				write(stream, (short) 0, order);
 			}
@@ -102,19 +102,19 @@ public class MeshDataWriter extends DetourWriter {
 
 	private void writeDTris(OutputStream stream, MeshData data) throws IOException {
 		for (int i = 0; i < data.header.detailTriCount * 4; i++) {
-			stream.write(data.detailTris[i]);
+			stream.write(data.getDetailTri(i / 4, i % 4));
 		}
 	}
 
 	private void writeBVTree(OutputStream stream, MeshData data, ByteOrder order) throws IOException {
 		for (int i = 0; i < data.header.bvNodeCount; i++) {
 			for (int j = 0; j < 3; j++) {
-				write(stream, (short) data.bvTree[i].bmin[j], order);
+				write(stream, (short) data.getBVNodeMin(i, j), order);
 			}
 			for (int j = 0; j < 3; j++) {
-				write(stream, (short) data.bvTree[i].bmax[j], order);
+				write(stream, (short) data.getBVNodeMax(i, j), order);
 			}
-			write(stream, data.bvTree[i].i, order);
+			write(stream, data.getBVNodeIndex(i), order);
 		}
 	}
 
@@ -24,6 +24,15 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 import org.recast4j.detour.MeshData;
 import org.recast4j.detour.NavMesh;
@@ -31,6 +40,13 @@ import org.recast4j.detour.NavMeshParams;
 
 public class MeshSetReader {
 
+    /** Largest region that can be mapped with a single MappedByteBuffer. */
+    static final long MAX_MAPPED_REGION = Integer.MAX_VALUE;
+    /** Upper bound of the navmesh set header size, used when mapping the header alone. */
+    static final int MAX_HEADER_SIZE = 256;
+    /** Upper bound of the tile header size (64bit ref, data size and C struct padding). */
+    static final int MAX_TILE_HEADER_SIZE = 16;
+
     private final MeshDataReader meshReader = new MeshDataReader();
     private final NavMeshParamReader paramReader = new NavMeshParamReader();
 
@@ -58,6 +74,125 @@ public class MeshSetReader {
         return read(bb, -1, false);
     }
 
+    /**
+     * Reads the navmesh decoding the tiles in parallel on the given pool. Tiles are added to the navmesh in file order,
+     * so the result is identical to the one of {@link #read(ByteBuffer, int)}.
+     */
+    public NavMesh read(ByteBuffer bb, int maxVertPerPoly, ForkJoinPool pool) throws IOException {
+        return read(bb, maxVertPerPoly, false, pool);
+    }
+
+    public NavMesh read32Bit(ByteBuffer bb, int maxVertPerPoly, ForkJoinPool pool) throws IOException {
+        return read(bb, maxVertPerPoly, true, pool);
+    }
+
+    public NavMesh read(InputStream is, int maxVertPerPoly, ForkJoinPool pool) throws IOException {
+        return read(IOUtils.toByteBuffer(is), maxVertPerPoly, false, pool);
+    }
+
+    public NavMesh read32Bit(InputStream is, int maxVertPerPoly, ForkJoinPool pool) throws IOException {
+        return read(IOUtils.toByteBuffer(is), maxVertPerPoly, true, pool);
+    }
+
+    /**
+     * Reads the navmesh directly from a memory mapped file without copying it to the heap first.
+     */
+    public NavMesh read(Path file, int maxVertPerPoly) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return read(channel, maxVertPerPoly, false);
+        }
+    }
+
+    public NavMesh read32Bit(Path file, int maxVertPerPoly) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return read(channel, maxVertPerPoly, true);
+        }
+    }
+
+    public NavMesh read(Path file) throws IOException {
+        return read(file, -1);
+    }
+
+    public NavMesh read(FileChannel channel, int maxVertPerPoly) throws IOException {
+        return read(channel, maxVertPerPoly, false);
+    }
+
+    public NavMesh read32Bit(FileChannel channel, int maxVertPerPoly) throws IOException {
+        return read(channel, maxVertPerPoly, true);
+    }
+
+    NavMesh read(FileChannel channel, int maxVertPerPoly, boolean is32Bit) throws IOException {
+        return read(channel, maxVertPerPoly, is32Bit, MAX_MAPPED_REGION);
+    }
+
+    /**
+     * Maps the whole file when it fits into a single mapping. Larger files are mapped tile by tile, so that the only
+     * limit is the size of a single tile.
+     */
+    NavMesh read(FileChannel channel, int maxVertPerPoly, boolean is32Bit, long maxMappedRegion) throws IOException {
+        long size = channel.size();
+        if (size <= maxMappedRegion) {
+            return read(channel.map(MapMode.READ_ONLY, 0, size), maxVertPerPoly, is32Bit);
+        }
+        ByteBuffer bb = channel.map(MapMode.READ_ONLY, 0, Math.min(size, MAX_HEADER_SIZE));
+        NavMeshSetHeader header = readHeader(bb, maxVertPerPoly);
+        if (header.maxVertsPerPoly <= 0) {
+            throw new IOException("Invalid number of verts per poly " + header.maxVertsPerPoly);
+        }
+        boolean cCompatibility = header.version == NavMeshSetHeader.NAVMESHSET_VERSION;
+        NavMesh mesh = new NavMesh(header.params, header.maxVertsPerPoly);
+        ByteOrder order = bb.order();
+        long position = bb.position();
+        for (int i = 0; i < header.numTiles && position < size; ++i) {
+            ByteBuffer tileHeaderBuffer = channel.map(MapMode.READ_ONLY, position,
+                    Math.min(size - position, MAX_TILE_HEADER_SIZE));
+            tileHeaderBuffer.order(order);
+            NavMeshTileHeader tileHeader = readTileHeader(tileHeaderBuffer, is32Bit, header, cCompatibility);
+            if (tileHeader == null) {
+                break;
+            }
+            position += tileHeaderBuffer.position();
+            if (position + tileHeader.dataSize > size) {
+                throw new IOException("Tile data exceeds file size");
+            }
+            ByteBuffer tileBuffer = channel.map(MapMode.READ_ONLY, position, tileHeader.dataSize);
+            tileBuffer.order(order);
+            MeshData data = meshReader.read(tileBuffer, mesh.getMaxVertsPerPoly(), is32Bit);
+            mesh.addTile(data, i, tileHeader.tileRef);
+            position += tileHeader.dataSize;
+        }
+        return mesh;
+    }
+
+    /**
+     * Creates read-only views over all tiles of the navmesh set without deserializing them. The views share the memory
+     * of the given buffer, e.g. a memory mapped file shared by many navmesh instances.
+     */
+    public List<MeshDataView> readViews(ByteBuffer bb, int maxVertPerPoly) throws IOException {
+        return readViews(bb, maxVertPerPoly, false);
+    }
+
+    public List<MeshDataView> readViews32Bit(ByteBuffer bb, int maxVertPerPoly) throws IOException {
+        return readViews(bb, maxVertPerPoly, true);
+    }
+
+    List<MeshDataView> readViews(ByteBuffer bb, int maxVertPerPoly, boolean is32Bit) throws IOException {
+        NavMeshSetHeader header = readHeader(bb, maxVertPerPoly);
+        if (header.maxVertsPerPoly <= 0) {
+            throw new IOException("Invalid number of verts per poly " + header.maxVertsPerPoly);
+        }
+        boolean cCompatibility = header.version == NavMeshSetHeader.NAVMESHSET_VERSION;
+        List<MeshDataView> views = new ArrayList<>(header.numTiles);
+        for (int i = 0; i < header.numTiles; ++i) {
+            NavMeshTileHeader tileHeader = readTileHeader(bb, is32Bit, header, cCompatibility);
+            if (tileHeader == null) {
+                break;
+            }
+            views.add(meshReader.readView(bb, header.maxVertsPerPoly, is32Bit));
+        }
+        return views;
+    }
+
     NavMesh read(ByteBuffer bb, int maxVertPerPoly, boolean is32Bit) throws IOException {
         NavMeshSetHeader header = readHeader(bb, maxVertPerPoly);
         if (header.maxVertsPerPoly <= 0) {
@@ -69,7 +204,18 @@ public class MeshSetReader {
         return mesh;
     }
 
-    private NavMeshSetHeader readHeader(ByteBuffer bb, int maxVertsPerPoly) throws IOException {
+    NavMesh read(ByteBuffer bb, int maxVertPerPoly, boolean is32Bit, ForkJoinPool pool) throws IOException {
+        NavMeshSetHeader header = readHeader(bb, maxVertPerPoly);
+        if (header.maxVertsPerPoly <= 0) {
+            throw new IOException("Invalid number of verts per poly " + header.maxVertsPerPoly);
+        }
+        boolean cCompatibility = header.version == NavMeshSetHeader.NAVMESHSET_VERSION;
+        NavMesh mesh = new NavMesh(header.params, header.maxVertsPerPoly);
+        readTiles(bb, is32Bit, header, cCompatibility, mesh, pool);
+        return mesh;
+    }
+
+    NavMeshSetHeader readHeader(ByteBuffer bb, int maxVertsPerPoly) throws IOException {
         NavMeshSetHeader header = new NavMeshSetHeader();
         header.magic = bb.getInt();
         if (header.magic != NavMeshSetHeader.NAVMESHSET_MAGIC) {
@@ -97,24 +243,79 @@ public class MeshSetReader {
             throws IOException {
         // Read tiles.
         for (int i = 0; i < header.numTiles; ++i) {
-            NavMeshTileHeader tileHeader = new NavMeshTileHeader();
-            if (is32Bit) {
-                tileHeader.tileRef = convert32BitRef(bb.getInt(), header.params);
-            } else {
-                tileHeader.tileRef = bb.getLong();
-            }
-            tileHeader.dataSize = bb.getInt();
-            if (tileHeader.tileRef == 0 || tileHeader.dataSize == 0) {
+            NavMeshTileHeader tileHeader = readTileHeader(bb, is32Bit, header, cCompatibility);
+            if (tileHeader == null) {
                 break;
             }
-            if (cCompatibility && !is32Bit) {
-                bb.getInt(); // C struct padding
-            }
             MeshData data = meshReader.read(bb, mesh.getMaxVertsPerPoly(), is32Bit);
             mesh.addTile(data, i, tileHeader.tileRef);
         }
     }
 
+    /**
+     * Scans the tile headers and slices the tile data first, then decodes the tiles on the pool and finally adds them
+     * to the navmesh as one batch, building the links on the pool exactly like the serial reader.
+     */
+    private void readTiles(ByteBuffer bb, boolean is32Bit, NavMeshSetHeader header, boolean cCompatibility, NavMesh mesh,
+            ForkJoinPool pool) throws IOException {
+        List<NavMeshTileHeader> tileHeaders = new ArrayList<>(header.numTiles);
+        List<ForkJoinTask<MeshData>> tasks = new ArrayList<>(header.numTiles);
+        for (int i = 0; i < header.numTiles; ++i) {
+            NavMeshTileHeader tileHeader = readTileHeader(bb, is32Bit, header, cCompatibility);
+            if (tileHeader == null) {
+                break;
+            }
+            if (tileHeader.dataSize > bb.remaining()) {
+                throw new IOException("Tile data exceeds buffer size");
+            }
+            ByteBuffer tileBuffer = bb.slice().order(bb.order());
+            tileBuffer.limit(tileHeader.dataSize);
+            bb.position(bb.position() + tileHeader.dataSize);
+            tileHeaders.add(tileHeader);
+            tasks.add(pool.submit(() -> meshReader.read(tileBuffer, mesh.getMaxVertsPerPoly(), is32Bit)));
+        }
+        List<MeshData> tiles = new ArrayList<>(tasks.size());
+        int[] flags = new int[tasks.size()];
+        long[] refs = new long[tasks.size()];
+        for (int i = 0; i < tasks.size(); ++i) {
+            try {
+                tiles.add(tasks.get(i).get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while reading tiles", e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof IOException) {
+                    throw (IOException) e.getCause();
+                }
+                throw new RuntimeException(e.getCause());
+            }
+            flags[i] = i;
+            refs[i] = tileHeaders.get(i).tileRef;
+        }
+        mesh.addTiles(tiles, flags, refs, pool);
+    }
+
+    /**
+     * Reads the header preceding each tile's data, returns null if the tile list is terminated.
+     */
+    NavMeshTileHeader readTileHeader(ByteBuffer bb, boolean is32Bit, NavMeshSetHeader header,
+            boolean cCompatibility) {
+        NavMeshTileHeader tileHeader = new NavMeshTileHeader();
+        if (is32Bit) {
+            tileHeader.tileRef = convert32BitRef(bb.getInt(), header.params);
+        } else {
+            tileHeader.tileRef = bb.getLong();
+        }
+        tileHeader.dataSize = bb.getInt();
+        if (tileHeader.tileRef == 0 || tileHeader.dataSize == 0) {
+            return null;
+        }
+        if (cCompatibility && !is32Bit) {
+            bb.getInt(); // C struct padding
+        }
+        return tileHeader;
+    }
+
     private long convert32BitRef(int ref, NavMeshParams params) {
         int m_tileBits = ilog2(nextPow2(params.maxTiles));
         int m_polyBits = ilog2(nextPow2(params.maxPolys));
@@ -0,0 +1,178 @@
+/*
+recast4j copyright (c) 2015-2019 Piotr Piastucki piotr@jtilia.org
+
+This software is provided 'as-is', without any express or implied
+warranty.  In no event will the authors be held liable for any damages
+arising from the use of this software.
+Permission is granted to anyone to use this software for any purpose,
+including commercial applications, and to alter it and redistribute it
+freely, subject to the following restrictions:
+1. The origin of this software must not be misrepresented; you must not
+ claim that you wrote the original software. If you use this software
+ in a product, an acknowledgment in the product documentation would be
+ appreciated but is not required.
+2. Altered source versions must be plainly marked as such, and must not be
+ misrepresented as being the original software.
+3. This notice may not be removed or altered from any source distribution.
+*/
+package org.recast4j.detour.io;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.recast4j.detour.MeshData;
+import org.recast4j.detour.MeshHeader;
+import org.recast4j.detour.NavMeshParams;
+import org.recast4j.detour.TileStore;
+
+/**
+ * Tile store backed by a navmesh set file written by {@link MeshSetWriter}.
+ *
+ * The file is scanned once on open to build an index of tile locations, references and file offsets; only the tile
+ * headers are read. Tile data is read with positional reads on demand, which makes the store safe to use from several
+ * threads and independent of the file size.
+ */
+public class MeshSetTileStore implements TileStore, Closeable {
+
+    private static final long[] NO_TILES = new long[0];
+
+    private static class TileEntry {
+        final long offset;
+        final int size;
+
+        TileEntry(long offset, int size) {
+            this.offset = offset;
+            this.size = size;
+        }
+    }
+
+    private final MeshDataReader meshReader = new MeshDataReader();
+    private final FileChannel channel;
+    private final boolean is32Bit;
+    private final NavMeshParams params;
+    private final int maxVertsPerPoly;
+    private final ByteOrder order;
+    private final Map<Long, TileEntry> tiles = new HashMap<>();
+    private final Map<Long, long[]> locations = new HashMap<>();
+
+    public MeshSetTileStore(Path file, int maxVertPerPoly) throws IOException {
+        this(file, maxVertPerPoly, false);
+    }
+
+    public MeshSetTileStore(Path file, int maxVertPerPoly, boolean is32Bit) throws IOException {
+        this(FileChannel.open(file, StandardOpenOption.READ), maxVertPerPoly, is32Bit);
+    }
+
+    /**
+     * Creates the store over an open channel. The store takes ownership of the channel and closes it in
+     * {@link #close()}.
+     */
+    public MeshSetTileStore(FileChannel channel, int maxVertPerPoly, boolean is32Bit) throws IOException {
+        this.channel = channel;
+        this.is32Bit = is32Bit;
+        try {
+            long size = channel.size();
+            ByteBuffer bb = read(0, (int) Math.min(size, MeshSetReader.MAX_HEADER_SIZE), ByteOrder.BIG_ENDIAN);
+            MeshSetReader setReader = new MeshSetReader();
+            NavMeshSetHeader header = setReader.readHeader(bb, maxVertPerPoly);
+            if (header.maxVertsPerPoly <= 0) {
+                throw new IOException("Invalid number of verts per poly " + header.maxVertsPerPoly);
+            }
+            params = header.params;
+            maxVertsPerPoly = header.maxVertsPerPoly;
+            order = bb.order();
+            buildIndex(setReader, header, bb.position(), size);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private void buildIndex(MeshSetReader setReader, NavMeshSetHeader header, long position, long size)
+            throws IOException {
+        boolean cCompatibility = header.version == NavMeshSetHeader.NAVMESHSET_VERSION;
+        Map<Long, List<Long>> refsAt = new HashMap<>();
+        for (int i = 0; i < header.numTiles && position < size; ++i) {
+            int headerSize = (int) Math.min(size - position,
+                    MeshSetReader.MAX_TILE_HEADER_SIZE + MeshDataView.HEADER_SIZE);
+            ByteBuffer bb = read(position, headerSize, order);
+            NavMeshTileHeader tileHeader = setReader.readTileHeader(bb, is32Bit, header, cCompatibility);
+            if (tileHeader == null) {
+                break;
+            }
+            position += bb.position();
+            if (position + tileHeader.dataSize > size) {
+                throw new IOException("Tile data exceeds file size");
+            }
+            MeshHeader meshHeader = meshReader.readHeader(bb);
+            tiles.put(tileHeader.tileRef, new TileEntry(position, tileHeader.dataSize));
+            refsAt.computeIfAbsent(locationKey(meshHeader.x, meshHeader.y), k -> new ArrayList<>())
+                    .add(tileHeader.tileRef);
+            position += tileHeader.dataSize;
+        }
+        for (Map.Entry<Long, List<Long>> e : refsAt.entrySet()) {
+            locations.put(e.getKey(), e.getValue().stream().mapToLong(Long::longValue).toArray());
+        }
+    }
+
+    static long locationKey(int x, int y) {
+        return ((long) x << 32) | (y & 0xFFFFFFFFL);
+    }
+
+    @Override
+    public NavMeshParams getParams() {
+        return params;
+    }
+
+    @Override
+    public int getMaxVertsPerPoly() {
+        return maxVertsPerPoly;
+    }
+
+    /** Number of tiles in the store. */
+    public int getTileCount() {
+        return tiles.size();
+    }
+
+    @Override
+    public long[] getTileRefs(int x, int y) {
+        long[] refs = locations.get(locationKey(x, y));
+        return refs != null ? refs : NO_TILES;
+    }
+
+    @Override
+    public MeshData loadTile(long tileRef) throws IOException {
+        TileEntry entry = tiles.get(tileRef);
+        if (entry == null) {
+            throw new IOException("Unknown tile " + tileRef);
+        }
+        return meshReader.read(read(entry.offset, entry.size, order), maxVertsPerPoly, is32Bit);
+    }
+
+    private ByteBuffer read(long position, int size, ByteOrder order) throws IOException {
+        ByteBuffer bb = ByteBuffer.allocate(size);
+        while (bb.hasRemaining()) {
+            if (channel.read(bb, position + bb.position()) < 0) {
+                throw new EOFException();
+            }
+        }
+        bb.flip();
+        bb.order(order);
+        return bb;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,103 @@
+/*
+recast4j copyright (c) 2015-2019 Piotr Piastucki piotr@jtilia.org
+
+This software is provided 'as-is', without any express or implied
+warranty.  In no event will the authors be held liable for any damages
+arising from the use of this software.
+Permission is granted to anyone to use this software for any purpose,
+including commercial applications, and to alter it and redistribute it
+freely, subject to the following restrictions:
+1. The origin of this software must not be misrepresented; you must not
+ claim that you wrote the original software. If you use this software
+ in a product, an acknowledgment in the product documentation would be
+ appreciated but is not required.
+2. Altered source versions must be plainly marked as such, and must not be
+ misrepresented as being the original software.
+3. This notice may not be removed or altered from any source distribution.
+*/
+package org.recast4j.detour.replay;
+
+import java.util.List;
+
+import org.recast4j.detour.FindNearestPolyResult;
+import org.recast4j.detour.FindPolysAroundResult;
+import org.recast4j.detour.MoveAlongSurfaceResult;
+import org.recast4j.detour.RaycastHit;
+import org.recast4j.detour.StraightPathItem;
+
+/**
+ * 64-bit FNV-1a digest of query results, used to compare replayed results with the recorded ones without storing
+ * them. Floats are hashed by their bits, so any change of the result is detected.
+ */
+public class QueryDigest {
+
+    private static final long OFFSET = 0xcbf29ce484222325L;
+    private static final long PRIME = 0x100000001b3L;
+
+    private long h = OFFSET;
+
+    /** Returns the digest of a query result, 0 for a null result. */
+    public static long of(Object result) {
+        if (result == null) {
+            return 0;
+        }
+        QueryDigest d = new QueryDigest();
+        d.add(result);
+        return d.h;
+    }
+
+    private void add(Object o) {
+        if (o instanceof List) {
+            List<?> list = (List<?>) o;
+            add(list.size());
+            for (Object e : list) {
+                add(e);
+            }
+        } else if (o instanceof Long) {
+            add(((Long) o).longValue());
+        } else if (o instanceof Float) {
+            add(((Float) o).floatValue());
+        } else if (o instanceof StraightPathItem) {
+            StraightPathItem item = (StraightPathItem) o;
+            add(item.getPos());
+            add(item.getFlags());
+            add(item.getRef());
+        } else if (o instanceof RaycastHit) {
+            RaycastHit hit = (RaycastHit) o;
+            add(hit.t);
+            add(hit.hitNormal);
+            add(hit.hitEdgeIndex);
+            add(hit.pathCost);
+            add(hit.path);
+        } else if (o instanceof FindNearestPolyResult) {
+            FindNearestPolyResult r = (FindNearestPolyResult) o;
+            add(r.getNearestRef());
+            add(r.getNearestPos());
+        } else if (o instanceof MoveAlongSurfaceResult) {
+            MoveAlongSurfaceResult r = (MoveAlongSurfaceResult) o;
+            add(r.getResultPos());
+            add(r.getVisited());
+        } else if (o instanceof FindPolysAroundResult) {
+            FindPolysAroundResult r = (FindPolysAroundResult) o;
+            add(r.getRefs());
+            add(r.getParentRefs());
+            add(r.getCosts());
+        } else {
+            throw new IllegalArgumentException("Unsupported query result " + o.getClass().getName());
+        }
+    }
+
+    private void add(float[] v) {
+        for (float f : v) {
+            add(f);
+        }
+    }
+
+    private void add(float f) {
+        add(Float.floatToIntBits(f));
+    }
+
+    private void add(long v) {
+        h = (h ^ v) * PRIME;
+    }
+}
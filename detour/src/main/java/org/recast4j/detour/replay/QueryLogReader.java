@@ -0,0 +1,95 @@
+/*
+recast4j copyright (c) 2015-2019 Piotr Piastucki piotr@jtilia.org
+
+This software is provided 'as-is', without any express or implied
+warranty.  In no event will the authors be held liable for any damages
+arising from the use of this software.
+Permission is granted to anyone to use this software for any purpose,
+including commercial applications, and to alter it and redistribute it
+freely, subject to the following restrictions:
+1. The origin of this software must not be misrepresented; you must not
+ claim that you wrote the original software. If you use this software
+ in a product, an acknowledgment in the product documentation would be
+ appreciated but is not required.
+2. Altered source versions must be plainly marked as such, and must not be
+ misrepresented as being the original software.
+3. This notice may not be removed or altered from any source distribution.
+*/
+package org.recast4j.detour.replay;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.recast4j.detour.QueryType;
+import org.recast4j.detour.Status;
+
+/**
+ * Reads the query logs written by {@link QueryLogWriter}. A record truncated at the end of the log is dropped.
+ */
+public class QueryLogReader {
+
+    public List<QueryRecord> read(InputStream stream) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(stream));
+        if (in.readInt() != QueryLogWriter.MAGIC) {
+            throw new IOException("Invalid magic");
+        }
+        int version = in.readInt();
+        if (version != QueryLogWriter.VERSION) {
+            throw new IOException("Invalid version " + version);
+        }
+        List<QueryRecord> records = new ArrayList<>();
+        int type;
+        while ((type = in.read()) >= 0) {
+            try {
+                records.add(readRecord(in, type));
+            } catch (EOFException e) {
+                // The last record was cut off, e.g. the recording process was killed.
+                break;
+            }
+        }
+        return records;
+    }
+
+    private QueryRecord readRecord(DataInputStream in, int type) throws IOException {
+        if (type >= QueryType.values().length) {
+            throw new IOException("Invalid query type " + type);
+        }
+        long[] refs = new long[in.readInt()];
+        for (int i = 0; i < refs.length; i++) {
+            refs[i] = in.readLong();
+        }
+        float[] floats = new float[in.readUnsignedByte()];
+        for (int i = 0; i < floats.length; i++) {
+            floats[i] = in.readFloat();
+        }
+        int[] ints = new int[in.readUnsignedByte()];
+        for (int i = 0; i < ints.length; i++) {
+            ints[i] = in.readInt();
+        }
+        RecordedFilter filter = null;
+        int filterKind = in.readUnsignedByte();
+        if (filterKind == QueryLogWriter.FILTER_CUSTOM) {
+            filter = new RecordedFilter(true, 0, 0, new float[0]);
+        } else if (filterKind == QueryLogWriter.FILTER_DEFAULT) {
+            int includeFlags = in.readInt();
+            int excludeFlags = in.readInt();
+            float[] areaCost = new float[in.readUnsignedByte()];
+            for (int i = 0; i < areaCost.length; i++) {
+                areaCost[i] = in.readFloat();
+            }
+            filter = new RecordedFilter(false, includeFlags, excludeFlags, areaCost);
+        } else if (filterKind != QueryLogWriter.FILTER_NONE) {
+            throw new IOException("Invalid filter kind " + filterKind);
+        }
+        int status = in.readByte();
+        Status s = status >= 0 ? Status.values()[status] : null;
+        long digest = in.readLong();
+        long nanos = in.readLong();
+        return new QueryRecord(QueryType.values()[type], refs, floats, ints, filter, s, digest, nanos);
+    }
+}
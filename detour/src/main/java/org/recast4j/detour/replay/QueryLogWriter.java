@@ -0,0 +1,91 @@
+/*
+recast4j copyright (c) 2015-2019 Piotr Piastucki piotr@jtilia.org
+
+This software is provided 'as-is', without any express or implied
+warranty.  In no event will the authors be held liable for any damages
+arising from the use of this software.
+Permission is granted to anyone to use this software for any purpose,
+including commercial applications, and to alter it and redistribute it
+freely, subject to the following restrictions:
+1. The origin of this software must not be misrepresented; you must not
+ claim that you wrote the original software. If you use this software
+ in a product, an acknowledgment in the product documentation would be
+ appreciated but is not required.
+2. Altered source versions must be plainly marked as such, and must not be
+ misrepresented as being the original software.
+3. This notice may not be removed or altered from any source distribution.
+*/
+package org.recast4j.detour.replay;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes query records to a binary log. A single writer can be shared by the recorders of several threads.
+ *
+ * The log starts with the magic and version ints, followed by the records. Each record is written as: type (byte),
+ * ref count (int) and refs (longs), float count (byte) and floats, int count (byte) and ints, filter kind (byte: 0
+ * none, 1 default, 2 custom) followed by the include and exclude flags (ints), area cost count (byte) and area costs
+ * (floats) for kind 1, status (byte, -1 if none), result digest (long) and latency in nanoseconds (long).
+ */
+public class QueryLogWriter implements AutoCloseable {
+
+    static final int MAGIC = 'Q' << 24 | 'L' << 16 | 'O' << 8 | 'G';
+    static final int VERSION = 1;
+
+    static final int FILTER_NONE = 0;
+    static final int FILTER_DEFAULT = 1;
+    static final int FILTER_CUSTOM = 2;
+
+    private final DataOutputStream out;
+
+    public QueryLogWriter(OutputStream stream) throws IOException {
+        out = new DataOutputStream(new BufferedOutputStream(stream));
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+    }
+
+    public synchronized void write(QueryRecord record) throws IOException {
+        out.writeByte(record.getType().ordinal());
+        out.writeInt(record.getRefs().length);
+        for (long ref : record.getRefs()) {
+            out.writeLong(ref);
+        }
+        out.writeByte(record.getFloats().length);
+        for (float f : record.getFloats()) {
+            out.writeFloat(f);
+        }
+        out.writeByte(record.getInts().length);
+        for (int i : record.getInts()) {
+            out.writeInt(i);
+        }
+        RecordedFilter filter = record.getFilter();
+        if (filter == null) {
+            out.writeByte(FILTER_NONE);
+        } else if (filter.isCustom()) {
+            out.writeByte(FILTER_CUSTOM);
+        } else {
+            out.writeByte(FILTER_DEFAULT);
+            out.writeInt(filter.getIncludeFlags());
+            out.writeInt(filter.getExcludeFlags());
+            out.writeByte(filter.getAreaCost().length);
+            for (float c : filter.getAreaCost()) {
+                out.writeFloat(c);
+            }
+        }
+        out.writeByte(record.getStatus() != null ? record.getStatus().ordinal() : -1);
+        out.writeLong(record.getDigest());
+        out.writeLong(record.getNanos());
+    }
+
+    public synchronized void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        out.close();
+    }
+}
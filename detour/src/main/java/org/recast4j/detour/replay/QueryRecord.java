@@ -0,0 +1,95 @@
+/*
+recast4j copyright (c) 2015-2019 Piotr Piastucki piotr@jtilia.org
+
+This software is provided 'as-is', without any express or implied
+warranty.  In no event will the authors be held liable for any damages
+arising from the use of this software.
+Permission is granted to anyone to use this software for any purpose,
+including commercial applications, and to alter it and redistribute it
+freely, subject to the following restrictions:
+1. The origin of this software must not be misrepresented; you must not
+ claim that you wrote the original software. If you use this software
+ in a product, an acknowledgment in the product documentation would be
+ appreciated but is not required.
+2. Altered source versions must be plainly marked as such, and must not be
+ misrepresented as being the original software.
+3. This notice may not be removed or altered from any source distribution.
+*/
+package org.recast4j.detour.replay;
+
+import org.recast4j.detour.QueryType;
+import org.recast4j.detour.Status;
+
+/**
+ * A captured {@link org.recast4j.detour.NavMeshQuery} call: its arguments, the status and a digest of its result, and
+ * how long it took.
+ *
+ * The arguments are stored per query type as follows (positions are 3 consecutive floats):
+ * <ul>
+ * <li>FIND_PATH: refs = {startRef, endRef}, floats = {startPos, endPos}, ints = {options}, where options is
+ * DT_FINDPATH_ANY_ANGLE for findPathAnyAngle() and 0 for findPath()</li>
+ * <li>FIND_STRAIGHT_PATH: refs = path, floats = {startPos, endPos}, ints = {maxStraightPath, options}</li>
+ * <li>RAYCAST: refs = {startRef, prevRef}, floats = {startPos, endPos}, ints = {options}</li>
+ * <li>FIND_NEAREST_POLY, QUERY_POLYGONS: floats = {center, halfExtents}</li>
+ * <li>MOVE_ALONG_SURFACE: refs = {startRef}, floats = {startPos, endPos}</li>
+ * <li>FIND_POLYS_AROUND_CIRCLE: refs = {startRef}, floats = {centerPos, radius}</li>
+ * </ul>
+ */
+public class QueryRecord {
+
+    private final QueryType type;
+    private final long[] refs;
+    private final float[] floats;
+    private final int[] ints;
+    private final RecordedFilter filter;
+    private final Status status;
+    private final long digest;
+    private final long nanos;
+
+    public QueryRecord(QueryType type, long[] refs, float[] floats, int[] ints, RecordedFilter filter, Status status,
+            long digest, long nanos) {
+        this.type = type;
+        this.refs = refs;
+        this.floats = floats;
+        this.ints = ints;
+        this.filter = filter;
+        this.status = status;
+        this.digest = digest;
+        this.nanos = nanos;
+    }
+
+    public QueryType getType() {
+        return type;
+    }
+
+    public long[] getRefs() {
+        return refs;
+    }
+
+    public float[] getFloats() {
+        return floats;
+    }
+
+    public int[] getInts() {
+        return ints;
+    }
+
+    /** The filter of the query, null for queries without one (findStraightPath). */
+    public RecordedFilter getFilter() {
+        return filter;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    /** Digest of the query result. (See: {@link QueryDigest}) */
+    public long getDigest() {
+        return digest;
+    }
+
+    /** Recorded latency of the query in nanoseconds. */
+    public long getNanos() {
+        return nanos;
+    }
+}
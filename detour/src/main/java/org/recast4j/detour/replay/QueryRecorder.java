@@ -0,0 +1,164 @@
+/*
+recast4j copyright (c) 2015-2019 Piotr Piastucki piotr@jtilia.org
+
+This software is provided 'as-is', without any express or implied
+warranty.  In no event will the authors be held liable for any damages
+arising from the use of this software.
+Permission is granted to anyone to use this software for any purpose,
+including commercial applications, and to alter it and redistribute it
+freely, subject to the following restrictions:
+1. The origin of this software must not be misrepresented; you must not
+ claim that you wrote the original software. If you use this software
+ in a product, an acknowledgment in the product documentation would be
+ appreciated but is not required.
+2. Altered source versions must be plainly marked as such, and must not be
+ misrepresented as being the original software.
+3. This notice may not be removed or altered from any source distribution.
+*/
+package org.recast4j.detour.replay;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.function.Supplier;
+
+import org.recast4j.detour.FindNearestPolyResult;
+import org.recast4j.detour.FindPolysAroundResult;
+import org.recast4j.detour.MoveAlongSurfaceResult;
+import org.recast4j.detour.NavMesh;
+import org.recast4j.detour.NavMeshQuery;
+import org.recast4j.detour.QueryFilter;
+import org.recast4j.detour.QueryType;
+import org.recast4j.detour.RaycastHit;
+import org.recast4j.detour.Result;
+import org.recast4j.detour.StraightPathItem;
+
+/**
+ * A {@link NavMeshQuery} writing each call of findPath, findPathAnyAngle, findStraightPath, raycast, findNearestPoly,
+ * queryPolygons, moveAlongSurface and findPolysAroundCircle to a query log, to be replayed offline with
+ * {@link QueryReplay}.
+ *
+ * Only the calls made by the user are recorded, not the ones made by the query itself (e.g. the polygon query inside
+ * findNearestPoly, or the raycasts when finalizing a sliced any-angle path). Sliced path finding is not recorded.
+ * Like any NavMeshQuery a recorder must only be used by one thread at a time, the recorders of several threads can
+ * share a log writer.
+ */
+public class QueryRecorder extends NavMeshQuery {
+
+    private final QueryLogWriter m_log;
+    private int m_depth;
+
+    public QueryRecorder(NavMesh nav, QueryLogWriter log) {
+        super(nav);
+        m_log = log;
+    }
+
+    private <T> Result<T> record(QueryType type, long[] refs, float[] floats, int[] ints, QueryFilter filter,
+            Supplier<Result<T>> query) {
+        if (m_depth > 0) {
+            return query.get();
+        }
+        m_depth++;
+        long start = System.nanoTime();
+        Result<T> result;
+        try {
+            result = query.get();
+        } finally {
+            m_depth--;
+        }
+        long nanos = System.nanoTime() - start;
+        RecordedFilter f = filter != null ? RecordedFilter.of(filter) : null;
+        try {
+            m_log.write(new QueryRecord(type, refs, floats, ints, f, result.status, QueryDigest.of(result.result),
+                    nanos));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return result;
+    }
+
+    private <T> Result<T> unrecorded(Supplier<Result<T>> query) {
+        m_depth++;
+        try {
+            return query.get();
+        } finally {
+            m_depth--;
+        }
+    }
+
+    private static float[] concat(float[] a, float[] b) {
+        return new float[] { a[0], a[1], a[2], b[0], b[1], b[2] };
+    }
+
+    @Override
+    public Result<List<Long>> findPath(long startRef, long endRef, float[] startPos, float[] endPos,
+            QueryFilter filter) {
+        return record(QueryType.FIND_PATH, new long[] { startRef, endRef }, concat(startPos, endPos), new int[] { 0 },
+                filter, () -> super.findPath(startRef, endRef, startPos, endPos, filter));
+    }
+
+    @Override
+    public Result<List<Long>> findPathAnyAngle(long startRef, long endRef, float[] startPos, float[] endPos,
+            QueryFilter filter) {
+        return record(QueryType.FIND_PATH, new long[] { startRef, endRef }, concat(startPos, endPos),
+                new int[] { DT_FINDPATH_ANY_ANGLE }, filter,
+                () -> super.findPathAnyAngle(startRef, endRef, startPos, endPos, filter));
+    }
+
+    @Override
+    public Result<List<StraightPathItem>> findStraightPath(float[] startPos, float[] endPos, List<Long> path,
+            int maxStraightPath, int options) {
+        long[] refs = new long[path.size()];
+        for (int i = 0; i < refs.length; i++) {
+            refs[i] = path.get(i);
+        }
+        return record(QueryType.FIND_STRAIGHT_PATH, refs, concat(startPos, endPos),
+                new int[] { maxStraightPath, options }, null,
+                () -> super.findStraightPath(startPos, endPos, path, maxStraightPath, options));
+    }
+
+    @Override
+    public Result<RaycastHit> raycast(long startRef, float[] startPos, float[] endPos, QueryFilter filter, int options,
+            long prevRef) {
+        return record(QueryType.RAYCAST, new long[] { startRef, prevRef }, concat(startPos, endPos),
+                new int[] { options }, filter,
+                () -> super.raycast(startRef, startPos, endPos, filter, options, prevRef));
+    }
+
+    @Override
+    public Result<FindNearestPolyResult> findNearestPoly(float[] center, float[] halfExtents, QueryFilter filter) {
+        return record(QueryType.FIND_NEAREST_POLY, new long[0], concat(center, halfExtents), new int[0], filter,
+                () -> super.findNearestPoly(center, halfExtents, filter));
+    }
+
+    @Override
+    public Result<List<Long>> queryPolygons(float[] center, float[] halfExtents, QueryFilter filter) {
+        return record(QueryType.QUERY_POLYGONS, new long[0], concat(center, halfExtents), new int[0], filter,
+                () -> super.queryPolygons(center, halfExtents, filter));
+    }
+
+    @Override
+    public Result<MoveAlongSurfaceResult> moveAlongSurface(long startRef, float[] startPos, float[] endPos,
+            QueryFilter filter) {
+        return record(QueryType.MOVE_ALONG_SURFACE, new long[] { startRef }, concat(startPos, endPos), new int[0],
+                filter, () -> super.moveAlongSurface(startRef, startPos, endPos, filter));
+    }
+
+    @Override
+    public Result<FindPolysAroundResult> findPolysAroundCircle(long startRef, float[] centerPos, float radius,
+            QueryFilter filter) {
+        float[] floats = { centerPos[0], centerPos[1], centerPos[2], radius };
+        return record(QueryType.FIND_POLYS_AROUND_CIRCLE, new long[] { startRef }, floats, new int[0], filter,
+                () -> super.findPolysAroundCircle(startRef, centerPos, radius, filter));
+    }
+
+    @Override
+    public Result<List<Long>> finalizeSlicedFindPath() {
+        return unrecorded(() -> super.finalizeSlicedFindPath());
+    }
+
+    @Override
+    public Result<List<Long>> finalizeSlicedFindPathPartial(List<Long> existing) {
+        return unrecorded(() -> super.finalizeSlicedFindPathPartial(existing));
+    }
+}
@@ -0,0 +1,163 @@
+/*
+recast4j copyright (c) 2015-2019 Piotr Piastucki piotr@jtilia.org
+
+This software is provided 'as-is', without any express or implied
+warranty.  In no event will the authors be held liable for any damages
+arising from the use of this software.
+Permission is granted to anyone to use this software for any purpose,
+including commercial applications, and to alter it and redistribute it
+freely, subject to the following restrictions:
+1. The origin of this software must not be misrepresented; you must not
+ claim that you wrote the original software. If you use this software
+ in a product, an acknowledgment in the product documentation would be
+ appreciated but is not required.
+2. Altered source versions must be plainly marked as such, and must not be
+ misrepresented as being the original software.
+3. This notice may not be removed or altered from any source distribution.
+*/
+package org.recast4j.detour.replay;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.recast4j.detour.NavMesh;
+import org.recast4j.detour.NavMeshQuery;
+import org.recast4j.detour.QueryFilter;
+import org.recast4j.detour.Result;
+import org.recast4j.detour.io.MeshSetReader;
+
+/**
+ * Replays query logs recorded by {@link QueryRecorder} against a navigation mesh, comparing the status and result of
+ * every query with the recording and measuring the latencies.
+ *
+ * Run from the command line with:
+ *
+ * <pre>
+ * java org.recast4j.detour.replay.QueryReplay navmesh.bin queries.log [threads] [maxVertsPerPoly]
+ * </pre>
+ *
+ * which prints the {@link ReplayReport} and exits with status 1 if any query result differed from the recording.
+ */
+public class QueryReplay {
+
+    private QueryReplay() {
+    }
+
+    /**
+     * Replays the records, spread over the given number of threads each with its own NavMeshQuery. With a single
+     * thread the records are replayed in order on the calling thread.
+     */
+    public static ReplayReport replay(NavMesh nav, List<QueryRecord> records, int threads)
+            throws InterruptedException {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be positive");
+        }
+        ReplayReport report = new ReplayReport(threads);
+        AtomicInteger next = new AtomicInteger();
+        long start = System.nanoTime();
+        if (threads == 1) {
+            replay(new NavMeshQuery(nav), records, next, report);
+        } else {
+            List<Thread> workers = new ArrayList<>();
+            AtomicReference<RuntimeException> failure = new AtomicReference<>();
+            for (int i = 0; i < threads; i++) {
+                NavMeshQuery query = new NavMeshQuery(nav);
+                Thread t = new Thread(() -> {
+                    try {
+                        replay(query, records, next, report);
+                    } catch (RuntimeException e) {
+                        failure.compareAndSet(null, e);
+                        // Stop the other workers.
+                        next.set(records.size());
+                    }
+                }, "query-replay-" + i);
+                workers.add(t);
+                t.start();
+            }
+            for (Thread t : workers) {
+                t.join();
+            }
+            if (failure.get() != null) {
+                throw failure.get();
+            }
+        }
+        report.setWallNanos(System.nanoTime() - start);
+        return report;
+    }
+
+    private static void replay(NavMeshQuery query, List<QueryRecord> records, AtomicInteger next,
+            ReplayReport report) {
+        int i;
+        while ((i = next.getAndIncrement()) < records.size()) {
+            QueryRecord record = records.get(i);
+            long start = System.nanoTime();
+            Result<?> result = execute(query, record);
+            long nanos = System.nanoTime() - start;
+            boolean match = result.status == record.getStatus() && QueryDigest.of(result.result) == record.getDigest();
+            report.record(record, nanos, match);
+        }
+    }
+
+    /** Runs the recorded query. */
+    public static Result<?> execute(NavMeshQuery query, QueryRecord record) {
+        long[] refs = record.getRefs();
+        float[] f = record.getFloats();
+        int[] ints = record.getInts();
+        QueryFilter filter = record.getFilter() != null ? record.getFilter().toQueryFilter() : null;
+        switch (record.getType()) {
+        case FIND_PATH:
+            if ((ints[0] & NavMeshQuery.DT_FINDPATH_ANY_ANGLE) != 0) {
+                return query.findPathAnyAngle(refs[0], refs[1], pos(f, 0), pos(f, 3), filter);
+            }
+            return query.findPath(refs[0], refs[1], pos(f, 0), pos(f, 3), filter);
+        case FIND_STRAIGHT_PATH:
+            List<Long> path = new ArrayList<>(refs.length);
+            for (long ref : refs) {
+                path.add(ref);
+            }
+            return query.findStraightPath(pos(f, 0), pos(f, 3), path, ints[0], ints[1]);
+        case RAYCAST:
+            return query.raycast(refs[0], pos(f, 0), pos(f, 3), filter, ints[0], refs[1]);
+        case FIND_NEAREST_POLY:
+            return query.findNearestPoly(pos(f, 0), pos(f, 3), filter);
+        case QUERY_POLYGONS:
+            return query.queryPolygons(pos(f, 0), pos(f, 3), filter);
+        case MOVE_ALONG_SURFACE:
+            return query.moveAlongSurface(refs[0], pos(f, 0), pos(f, 3), filter);
+        case FIND_POLYS_AROUND_CIRCLE:
+            return query.findPolysAroundCircle(refs[0], pos(f, 0), f[3], filter);
+        default:
+            throw new IllegalArgumentException("Unsupported query type " + record.getType());
+        }
+    }
+
+    private static float[] pos(float[] f, int i) {
+        return Arrays.copyOfRange(f, i, i + 3);
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 2) {
+            System.err.println("Usage: QueryReplay navmesh.bin queries.log [threads] [maxVertsPerPoly]");
+            System.exit(2);
+        }
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : 1;
+        int maxVertsPerPoly = args.length > 3 ? Integer.parseInt(args[3]) : 6;
+        NavMesh nav;
+        try (InputStream is = new FileInputStream(args[0])) {
+            nav = new MeshSetReader().read(is, maxVertsPerPoly);
+        }
+        List<QueryRecord> records;
+        try (InputStream is = new FileInputStream(args[1])) {
+            records = new QueryLogReader().read(is);
+        }
+        ReplayReport report = replay(nav, records, threads);
+        report.print(System.out);
+        System.exit(report.getMismatches() > 0 ? 1 : 0);
+    }
+}
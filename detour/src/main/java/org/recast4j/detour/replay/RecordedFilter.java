@@ -0,0 +1,85 @@
+/*
+recast4j copyright (c) 2015-2019 Piotr Piastucki piotr@jtilia.org
+
+This software is provided 'as-is', without any express or implied
+warranty.  In no event will the authors be held liable for any damages
+arising from the use of this software.
+Permission is granted to anyone to use this software for any purpose,
+including commercial applications, and to alter it and redistribute it
+freely, subject to the following restrictions:
+1. The origin of this software must not be misrepresented; you must not
+ claim that you wrote the original software. If you use this software
+ in a product, an acknowledgment in the product documentation would be
+ appreciated but is not required.
+2. Altered source versions must be plainly marked as such, and must not be
+ misrepresented as being the original software.
+3. This notice may not be removed or altered from any source distribution.
+*/
+package org.recast4j.detour.replay;
+
+import org.recast4j.detour.DefaultQueryFilter;
+import org.recast4j.detour.NavMesh;
+import org.recast4j.detour.QueryFilter;
+
+/**
+ * Parameters of the filter of a recorded query.
+ *
+ * Only {@link DefaultQueryFilter} parameters can be captured. Queries made with other filter implementations,
+ * including subclasses of DefaultQueryFilter, are marked as custom and replayed with a default filter, so their results may legitimately differ.
+ */
+public class RecordedFilter {
+
+    private final boolean custom;
+    private final int includeFlags;
+    private final int excludeFlags;
+    private final float[] areaCost;
+    private final DefaultQueryFilter filter;
+
+    public RecordedFilter(boolean custom, int includeFlags, int excludeFlags, float[] areaCost) {
+        this.custom = custom;
+        this.includeFlags = includeFlags;
+        this.excludeFlags = excludeFlags;
+        this.areaCost = areaCost;
+        filter = custom ? new DefaultQueryFilter() : new DefaultQueryFilter(includeFlags, excludeFlags, areaCost);
+    }
+
+    public static RecordedFilter of(QueryFilter filter) {
+        if (filter.getClass() == DefaultQueryFilter.class) {
+            DefaultQueryFilter f = (DefaultQueryFilter) filter;
+            // Trailing areas with the default cost of 1 are left out to keep the log compact.
+            int n = NavMesh.DT_MAX_AREAS;
+            while (n > 0 && f.getAreaCost(n - 1) == 1f) {
+                n--;
+            }
+            float[] areaCost = new float[n];
+            for (int i = 0; i < n; i++) {
+                areaCost[i] = f.getAreaCost(i);
+            }
+            return new RecordedFilter(false, f.getIncludeFlags(), f.getExcludeFlags(), areaCost);
+        }
+        return new RecordedFilter(true, 0, 0, new float[0]);
+    }
+
+    /** True if the query used a filter other than a plain {@link DefaultQueryFilter}. */
+    public boolean isCustom() {
+        return custom;
+    }
+
+    public int getIncludeFlags() {
+        return includeFlags;
+    }
+
+    public int getExcludeFlags() {
+        return excludeFlags;
+    }
+
+    /** Costs of the first areas, the cost of the remaining areas is 1. */
+    public float[] getAreaCost() {
+        return areaCost;
+    }
+
+    /** The filter to replay the query with. It is stateless and can be shared by concurrent queries. */
+    public QueryFilter toQueryFilter() {
+        return filter;
+    }
+}
@@ -0,0 +1,137 @@
+/*
+recast4j copyright (c) 2015-2019 Piotr Piastucki piotr@jtilia.org
+
+This software is provided 'as-is', without any express or implied
+warranty.  In no event will the authors be held liable for any damages
+arising from the use of this software.
+Permission is granted to anyone to use this software for any purpose,
+including commercial applications, and to alter it and redistribute it
+freely, subject to the following restrictions:
+1. The origin of this software must not be misrepresented; you must not
+ claim that you wrote the original software. If you use this software
+ in a product, an acknowledgment in the product documentation would be
+ appreciated but is not required.
+2. Altered source versions must be plainly marked as such, and must not be
+ misrepresented as being the original software.
+3. This notice may not be removed or altered from any source distribution.
+*/
+package org.recast4j.detour.replay;
+
+import java.io.PrintStream;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.recast4j.detour.LatencyHistogram;
+import org.recast4j.detour.QueryType;
+
+/**
+ * Outcome of a {@link QueryReplay}: per query type, the number of replayed queries, the number whose status or result
+ * differed from the recording, and the replayed and recorded latencies.
+ */
+public class ReplayReport {
+
+    public static class TypeReport {
+
+        private final LongAdder count = new LongAdder();
+        private final LongAdder mismatches = new LongAdder();
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final LatencyHistogram recordedLatency = new LatencyHistogram();
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        public long getMismatches() {
+            return mismatches.sum();
+        }
+
+        /** Latency of the replayed queries in nanoseconds. */
+        public LatencyHistogram getLatency() {
+            return latency;
+        }
+
+        /** Latency of the queries when they were recorded in nanoseconds. */
+        public LatencyHistogram getRecordedLatency() {
+            return recordedLatency;
+        }
+    }
+
+    private final Map<QueryType, TypeReport> reports = new EnumMap<>(QueryType.class);
+    private final int threads;
+    private long wallNanos;
+
+    ReplayReport(int threads) {
+        this.threads = threads;
+        for (QueryType type : QueryType.values()) {
+            reports.put(type, new TypeReport());
+        }
+    }
+
+    void record(QueryRecord record, long nanos, boolean match) {
+        TypeReport report = reports.get(record.getType());
+        report.count.increment();
+        if (!match) {
+            report.mismatches.increment();
+        }
+        report.latency.record(nanos);
+        report.recordedLatency.record(record.getNanos());
+    }
+
+    void setWallNanos(long wallNanos) {
+        this.wallNanos = wallNanos;
+    }
+
+    public TypeReport get(QueryType type) {
+        return reports.get(type);
+    }
+
+    public long getCount() {
+        long count = 0;
+        for (TypeReport r : reports.values()) {
+            count += r.getCount();
+        }
+        return count;
+    }
+
+    public long getMismatches() {
+        long mismatches = 0;
+        for (TypeReport r : reports.values()) {
+            mismatches += r.getMismatches();
+        }
+        return mismatches;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    /** Elapsed wall clock time of the whole replay. */
+    public long getWallNanos() {
+        return wallNanos;
+    }
+
+    /** Prints a table of the replayed query types, latencies in microseconds. */
+    public void print(PrintStream out) {
+        out.printf("%d queries on %d threads in %.1f ms, %d mismatches%n", getCount(), threads, wallNanos / 1e6,
+                getMismatches());
+        out.printf("%-24s %8s %8s %9s %9s %9s %9s %9s %9s%n", "type", "count", "mismatch", "p50", "p90", "p99",
+                "max", "rec p50", "rec p99");
+        for (Map.Entry<QueryType, TypeReport> e : reports.entrySet()) {
+            TypeReport r = e.getValue();
+            if (r.getCount() == 0) {
+                continue;
+            }
+            LatencyHistogram h = r.latency;
+            out.printf("%-24s %8d %8d %9.1f %9.1f %9.1f %9.1f %9.1f %9.1f%n", e.getKey(), r.getCount(),
+                    r.getMismatches(), micros(h.getValueAtPercentile(50)), micros(h.getValueAtPercentile(90)),
+                    micros(h.getValueAtPercentile(99)), micros(h.getMax()),
+                    micros(r.recordedLatency.getValueAtPercentile(50)),
+                    micros(r.recordedLatency.getValueAtPercentile(99)));
+        }
+    }
+
+    private static double micros(long nanos) {
+        return nanos / 1000.0;
+    }
+}
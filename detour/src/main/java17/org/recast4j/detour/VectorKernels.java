@@ -0,0 +1,212 @@
+/*
+recast4j copyright (c) 2015-2019 Piotr Piastucki piotr@jtilia.org
+
+This software is provided 'as-is', without any express or implied
+warranty.  In no event will the authors be held liable for any damages
+arising from the use of this software.
+Permission is granted to anyone to use this software for any purpose,
+including commercial applications, and to alter it and redistribute it
+freely, subject to the following restrictions:
+1. The origin of this software must not be misrepresented; you must not
+ claim that you wrote the original software. If you use this software
+ in a product, an acknowledgment in the product documentation would be
+ appreciated but is not required.
+2. Altered source versions must be plainly marked as such, and must not be
+ misrepresented as being the original software.
+3. This notice may not be removed or altered from any source distribution.
+*/
+package org.recast4j.detour;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Vector API kernels, packaged under META-INF/versions/17 and loaded reflectively by {@link GeometryKernels}.
+ *
+ * Every lane performs the same float operations in the same order as {@link ScalarKernels}, only order independent
+ * reductions (parity, minimum) are done across lanes, so the results are bit identical.
+ */
+final class VectorKernels extends GeometryKernels {
+
+    /// Polygons have at most 6 vertices and the crowd samples against at most 6 circles, wider vectors only add idle
+    /// lanes.
+    private static final VectorSpecies<Float> SMALL = FloatVector.SPECIES_PREFERRED.length() > 8
+            ? FloatVector.SPECIES_256
+            : FloatVector.SPECIES_PREFERRED;
+    private static final int SLANES = SMALL.length();
+    /// BV tree windows, wider windows are mostly discarded by the escape jumps of small query boxes.
+    private static final VectorSpecies<Integer> NODES = IntVector.SPECIES_PREFERRED.length() > 8
+            ? IntVector.SPECIES_256
+            : IntVector.SPECIES_PREFERRED;
+    private static final int NLANES = NODES.length();
+
+    /// Gather offsets of the polygon vertices, lane k of row n holds vertex k and vertex (k + 1) % n. Idle lanes
+    /// repeat the first vertex, so the gathers need no mask.
+    private static final int[] EDGE_START = new int[(SLANES + 1) * SLANES];
+    private static final int[] EDGE_END = new int[(SLANES + 1) * SLANES];
+
+    static {
+        for (int n = 1; n <= SLANES; n++) {
+            for (int k = 0; k < n; k++) {
+                EDGE_START[n * SLANES + k] = k * 3;
+                EDGE_END[n * SLANES + k] = ((k + 1) % n) * 3;
+            }
+        }
+    }
+
+    private final ScalarKernels scalar = new ScalarKernels();
+
+    @Override
+    public boolean pointInPolygon(float[] pt, float[] verts, int nverts) {
+        if (nverts > SLANES || nverts < 1) {
+            return scalar.pointInPolygon(pt, verts, nverts);
+        }
+        VectorMask<Float> m = SMALL.indexInRange(0, nverts);
+        int row = nverts * SLANES;
+        FloatVector vjx = FloatVector.fromArray(SMALL, verts, 0, EDGE_START, row);
+        FloatVector vjz = FloatVector.fromArray(SMALL, verts, 2, EDGE_START, row);
+        FloatVector vix = FloatVector.fromArray(SMALL, verts, 0, EDGE_END, row);
+        FloatVector viz = FloatVector.fromArray(SMALL, verts, 2, EDGE_END, row);
+        return (crossings(pt, vix, viz, vjx, vjz).and(m).trueCount() & 1) != 0;
+    }
+
+    @Override
+    public boolean distancePtPolyEdgesSqr(float[] pt, float[] verts, int nverts, float[] ed, float[] et) {
+        if (nverts > SLANES || nverts < 1) {
+            return scalar.distancePtPolyEdgesSqr(pt, verts, nverts, ed, et);
+        }
+        VectorMask<Float> m = SMALL.indexInRange(0, nverts);
+        int row = nverts * SLANES;
+        FloatVector vjx = FloatVector.fromArray(SMALL, verts, 0, EDGE_START, row);
+        FloatVector vjz = FloatVector.fromArray(SMALL, verts, 2, EDGE_START, row);
+        FloatVector vix = FloatVector.fromArray(SMALL, verts, 0, EDGE_END, row);
+        FloatVector viz = FloatVector.fromArray(SMALL, verts, 2, EDGE_END, row);
+        boolean c = (crossings(pt, vix, viz, vjx, vjz).and(m).trueCount() & 1) != 0;
+
+        // distancePtSegSqr2D(pt, vj, vi)
+        FloatVector pqx = vix.sub(vjx);
+        FloatVector pqz = viz.sub(vjz);
+        FloatVector dx = FloatVector.broadcast(SMALL, pt[0]).sub(vjx);
+        FloatVector dz = FloatVector.broadcast(SMALL, pt[2]).sub(vjz);
+        FloatVector d = pqx.mul(pqx).add(pqz.mul(pqz));
+        FloatVector t = pqx.mul(dx).add(pqz.mul(dz));
+        t = t.blend(t.div(d), d.compare(VectorOperators.GT, 0f));
+        t = t.blend(0f, t.compare(VectorOperators.LT, 0f));
+        t = t.blend(1f, t.compare(VectorOperators.GT, 1f));
+        dx = vjx.add(t.mul(pqx)).sub(pt[0]);
+        dz = vjz.add(t.mul(pqz)).sub(pt[2]);
+        dx.mul(dx).add(dz.mul(dz)).intoArray(ed, 0, m);
+        t.intoArray(et, 0, m);
+        return c;
+    }
+
+    /// Lanes whose edge (vj, vi) crosses the ray of the pnpoly test.
+    private static VectorMask<Float> crossings(float[] pt, FloatVector vix, FloatVector viz, FloatVector vjx,
+            FloatVector vjz) {
+        VectorMask<Float> zi = viz.compare(VectorOperators.GT, pt[2]);
+        VectorMask<Float> zj = vjz.compare(VectorOperators.GT, pt[2]);
+        FloatVector x = vjx.sub(vix).mul(FloatVector.broadcast(SMALL, pt[2]).sub(viz)).div(vjz.sub(viz)).add(vix);
+        return zi.eq(zj).not().and(FloatVector.broadcast(SMALL, pt[0]).compare(VectorOperators.LT, x));
+    }
+
+    /// Tests a window of nodes against the query box at once. The traversal advances node by node over overlapping
+    /// and leaf nodes, so the whole run of such nodes at the start of the window is consumed in one step, reporting
+    /// its overlapping leaves in order. The node ending the run is an inner node missing the box and its escape
+    /// offset skips the subtree. The last nodes which do not fill a window are traversed by the scalar loop.
+    @Override
+    public int queryBVTree(PackedBVTree tree, int[] bmin, int[] bmax, int[] polys) {
+        IntVector qminX = IntVector.broadcast(NODES, bmin[0]);
+        IntVector qminY = IntVector.broadcast(NODES, bmin[1]);
+        IntVector qminZ = IntVector.broadcast(NODES, bmin[2]);
+        IntVector qmaxX = IntVector.broadcast(NODES, bmax[0]);
+        IntVector qmaxY = IntVector.broadcast(NODES, bmax[1]);
+        IntVector qmaxZ = IntVector.broadcast(NODES, bmax[2]);
+        int[] index = tree.index;
+        int n = 0;
+        int nodeIndex = 0;
+        int last = tree.nodeCount - NLANES;
+        while (nodeIndex <= last) {
+            VectorMask<Integer> overlap = IntVector.fromArray(NODES, tree.maxX, nodeIndex)
+                    .compare(VectorOperators.GE, qminX)
+                    .and(IntVector.fromArray(NODES, tree.minX, nodeIndex).compare(VectorOperators.LE, qmaxX))
+                    .and(IntVector.fromArray(NODES, tree.maxY, nodeIndex).compare(VectorOperators.GE, qminY))
+                    .and(IntVector.fromArray(NODES, tree.minY, nodeIndex).compare(VectorOperators.LE, qmaxY))
+                    .and(IntVector.fromArray(NODES, tree.maxZ, nodeIndex).compare(VectorOperators.GE, qminZ))
+                    .and(IntVector.fromArray(NODES, tree.minZ, nodeIndex).compare(VectorOperators.LE, qmaxZ));
+            VectorMask<Integer> leaf = IntVector.fromArray(NODES, index, nodeIndex).compare(VectorOperators.GE, 0);
+            int run = overlap.or(leaf).not().firstTrue();
+            for (int k = nodeIndex, e = nodeIndex + run; k < e; k++) {
+                int i = index[k];
+                if (i >= 0 && bmin[0] <= tree.maxX[k] && bmax[0] >= tree.minX[k] && bmin[1] <= tree.maxY[k]
+                        && bmax[1] >= tree.minY[k] && bmin[2] <= tree.maxZ[k] && bmax[2] >= tree.minZ[k]) {
+                    polys[n++] = i;
+                }
+            }
+            nodeIndex += run;
+            if (run < NLANES) {
+                nodeIndex -= index[nodeIndex];
+            }
+        }
+        return ScalarKernels.queryBVTree(tree, bmin, bmax, polys, nodeIndex, n);
+    }
+
+    @Override
+    public float sweepCircles(float[] circles, int stride, int ncircles, float[] pos, float rad, float vx, float vz,
+            float tmin, float threshold, float[] side) {
+        if (ncircles < SLANES) {
+            // Masked loads of a single partial vector do not pay off.
+            return scalar.sweepCircles(circles, stride, ncircles, pos, rad, vx, vz, tmin, threshold, side);
+        }
+        final float EPS = 0.0001f;
+        for (int i = 0; i < ncircles; i += SLANES) {
+            VectorMask<Float> m = SMALL.indexInRange(i, ncircles);
+            // RVO
+            FloatVector vabx = FloatVector.broadcast(SMALL, vx)
+                    .sub(FloatVector.fromArray(SMALL, circles, CIRCLE_VX * stride + i, m));
+            FloatVector vabz = FloatVector.broadcast(SMALL, vz)
+                    .sub(FloatVector.fromArray(SMALL, circles, CIRCLE_VZ * stride + i, m));
+
+            // Side
+            FloatVector dp = FloatVector.fromArray(SMALL, circles, CIRCLE_DPX * stride + i, m).mul(vabx)
+                    .add(FloatVector.fromArray(SMALL, circles, CIRCLE_DPZ * stride + i, m).mul(vabz));
+            FloatVector np = FloatVector.fromArray(SMALL, circles, CIRCLE_NPX * stride + i, m).mul(vabx)
+                    .add(FloatVector.fromArray(SMALL, circles, CIRCLE_NPZ * stride + i, m).mul(vabz));
+            dp.mul(0.5f).add(0.5f).min(np.mul(2f)).min(1.0f).max(0.0f).intoArray(side, i, m);
+
+            // Sweep circle against circle
+            FloatVector sx = FloatVector.fromArray(SMALL, circles, CIRCLE_PX * stride + i, m).sub(pos[0]);
+            FloatVector sz = FloatVector.fromArray(SMALL, circles, CIRCLE_PZ * stride + i, m).sub(pos[2]);
+            FloatVector r = FloatVector.fromArray(SMALL, circles, CIRCLE_RAD * stride + i, m).add(rad);
+            FloatVector c = sx.mul(sx).add(sz.mul(sz)).sub(r.mul(r));
+            FloatVector a = vabx.mul(vabx).add(vabz.mul(vabz));
+            FloatVector b = vabx.mul(sx).add(vabz.mul(sz));
+            FloatVector d = b.mul(b).sub(a.mul(c));
+            VectorMask<Float> hit = a.compare(VectorOperators.LT, EPS).not()
+                    .and(d.compare(VectorOperators.LT, 0.0f).not()).and(m);
+            if (!hit.anyTrue()) {
+                continue;
+            }
+            FloatVector ia = FloatVector.broadcast(SMALL, 1.0f).div(a);
+            FloatVector rd = d.sqrt();
+            FloatVector htmin = b.sub(rd).mul(ia);
+            FloatVector htmax = b.add(rd).mul(ia);
+
+            // Handle overlapping obstacles.
+            htmin = htmin.blend(htmin.neg().mul(0.5f), htmin.compare(VectorOperators.LT, 0.0f)
+                    .and(htmax.compare(VectorOperators.GT, 0.0f)));
+
+            hit = hit.and(htmin.compare(VectorOperators.GE, 0.0f));
+            float t = htmin.reduceLanes(VectorOperators.MIN, hit);
+            if (t < tmin) {
+                tmin = t;
+                if (tmin < threshold) {
+                    return tmin;
+                }
+            }
+        }
+        return tmin;
+    }
+}
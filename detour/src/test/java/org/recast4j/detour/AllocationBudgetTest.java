@@ -0,0 +1,108 @@
+/*
+recast4j copyright (c) 2015-2019 Piotr Piastucki piotr@jtilia.org
+
+This software is provided 'as-is', without any express or implied
+warranty.  In no event will the authors be held liable for any damages
+arising from the use of this software.
+Permission is granted to anyone to use this software for any purpose,
+including commercial applications, and to alter it and redistribute it
+freely, subject to the following restrictions:
+1. The origin of this software must not be misrepresented; you must not
+ claim that you wrote the original software. If you use this software
+ in a product, an acknowledgment in the product documentation would be
+ appreciated but is not required.
+2. Altered source versions must be plainly marked as such, and must not be
+ misrepresented as being the original software.
+3. This notice may not be removed or altered from any source distribution.
+*/
+package org.recast4j.detour;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Fails when a query allocates more than its budget. The budgets are the mean bytes allocated per query over the
+ * dungeon test cases on a 64-bit HotSpot JVM with compressed oops, plus some headroom. Lower them when a change
+ * removes allocations.
+ *
+ * The budgets are checked against the plain Java kernels, the Vector API kernels box their vectors until C2 has compiled
+ * them, which takes longer than the warm-up.
+ */
+public class AllocationBudgetTest extends AbstractDetourTest {
+
+    static final long FIND_PATH_BUDGET = 42_000;
+    static final long FIND_STRAIGHT_PATH_BUDGET = 17_000;
+    static final long RAYCAST_BUDGET = 4_000;
+    static final long FIND_NEAREST_POLY_BUDGET = 6_000;
+
+    private static final int WARMUP = 200;
+    private static final int ITERATIONS = 200;
+
+    private final QueryFilter filter = new DefaultQueryFilter();
+    private final float[] extents = { 2, 4, 2 };
+    private boolean vectorEnabled;
+
+    @Before
+    public void checkSupported() {
+        assumeTrue(AllocationMeter.isSupported());
+        vectorEnabled = GeometryKernels.isVectorEnabled();
+        GeometryKernels.setVectorEnabled(false);
+    }
+
+    @After
+    public void restoreKernels() {
+        GeometryKernels.setVectorEnabled(vectorEnabled);
+    }
+
+    @Test
+    public void testFindPath() {
+        assertBudget("findPath", FIND_PATH_BUDGET, () -> {
+            for (int i = 0; i < startRefs.length; i++) {
+                query.findPath(startRefs[i], endRefs[i], startPoss[i], endPoss[i], filter);
+            }
+        });
+    }
+
+    @Test
+    public void testFindStraightPath() {
+        List<List<Long>> paths = new ArrayList<>();
+        for (int i = 0; i < startRefs.length; i++) {
+            paths.add(query.findPath(startRefs[i], endRefs[i], startPoss[i], endPoss[i], filter).result);
+        }
+        assertBudget("findStraightPath", FIND_STRAIGHT_PATH_BUDGET, () -> {
+            for (int i = 0; i < startRefs.length; i++) {
+                query.findStraightPath(startPoss[i], endPoss[i], paths.get(i), Integer.MAX_VALUE, 0);
+            }
+        });
+    }
+
+    @Test
+    public void testRaycast() {
+        assertBudget("raycast", RAYCAST_BUDGET, () -> {
+            for (int i = 0; i < startRefs.length; i++) {
+                query.raycast(startRefs[i], startPoss[i], endPoss[i], filter, 0, 0);
+            }
+        });
+    }
+
+    @Test
+    public void testFindNearestPoly() {
+        assertBudget("findNearestPoly", FIND_NEAREST_POLY_BUDGET, () -> {
+            for (int i = 0; i < startRefs.length; i++) {
+                query.findNearestPoly(startPoss[i], extents, filter);
+            }
+        });
+    }
+
+    private void assertBudget(String name, long budget, Runnable queries) {
+        long bytes = AllocationMeter.bytesPerOp(WARMUP, ITERATIONS, queries) / startRefs.length;
+        assertTrue(name + " allocated " + bytes + " bytes per query, budget is " + budget, bytes <= budget);
+    }
+}
@@ -0,0 +1,62 @@
+/*
+recast4j copyright (c) 2015-2019 Piotr Piastucki piotr@jtilia.org
+
+This software is provided 'as-is', without any express or implied
+warranty.  In no event will the authors be held liable for any damages
+arising from the use of this software.
+Permission is granted to anyone to use this software for any purpose,
+including commercial applications, and to alter it and redistribute it
+freely, subject to the following restrictions:
+1. The origin of this software must not be misrepresented; you must not
+ claim that you wrote the original software. If you use this software
+ in a product, an acknowledgment in the product documentation would be
+ appreciated but is not required.
+2. Altered source versions must be plainly marked as such, and must not be
+ misrepresented as being the original software.
+3. This notice may not be removed or altered from any source distribution.
+*/
+package org.recast4j.detour;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Measures the bytes allocated by the current thread using the HotSpot thread allocation counters. Used by the
+ * allocation budget tests, which should be skipped with {@link #isSupported()} on JVMs without these counters.
+ */
+public class AllocationMeter {
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    private AllocationMeter() {
+    }
+
+    public static boolean isSupported() {
+        if (!(THREADS instanceof com.sun.management.ThreadMXBean)) {
+            return false;
+        }
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) THREADS;
+        return threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled();
+    }
+
+    /** Total bytes allocated so far by the current thread. */
+    public static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) THREADS).getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * Runs the operation {@code warmup} times, then returns the mean number of bytes allocated by {@code iterations}
+     * further runs. The warm-up keeps class loading and call site linking out of the measurement.
+     */
+    public static long bytesPerOp(int warmup, int iterations, Runnable op) {
+        for (int i = 0; i < warmup; i++) {
+            op.run();
+        }
+        allocatedBytes();
+        long before = allocatedBytes();
+        for (int i = 0; i < iterations; i++) {
+            op.run();
+        }
+        return (allocatedBytes() - before) / iterations;
+    }
+}
@@ -0,0 +1,153 @@
+/*
+recast4j copyright (c) 2015-2019 Piotr Piastucki piotr@jtilia.org
+
+This software is provided 'as-is', without any express or implied
+warranty.  In no event will the authors be held liable for any damages
+arising from the use of this software.
+Permission is granted to anyone to use this software for any purpose,
+including commercial applications, and to alter it and redistribute it
+freely, subject to the following restrictions:
+1. The origin of this software must not be misrepresented; you must not
+ claim that you wrote the original software. If you use this software
+ in a product, an acknowledgment in the product documentation would be
+ appreciated but is not required.
+2. Altered source versions must be plainly marked as such, and must not be
+ misrepresented as being the original software.
+3. This notice may not be removed or altered from any source distribution.
+*/
+package org.recast4j.detour;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class ColdTileCompressionTest {
+
+    private final long startRef = 281475015507969L;
+    private final long endRef = 281474985099266L;
+    private final float[] startPos = { 39.447338f, 9.998177f, -0.784811f };
+    private final float[] endPos = { 19.292645f, 11.611748f, -57.750366f };
+
+    private NavMesh navmesh;
+    private NavMeshQuery query;
+    private final List<MeshTile> tiles = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        navmesh = new TestTiledNavMeshBuilder().getNavMesh();
+        query = new NavMeshQuery(navmesh);
+        for (int t = 0; t < navmesh.getMaxTiles(); t++) {
+            MeshTile tile = navmesh.getTile(t);
+            if (tile.data != null) {
+                tiles.add(tile);
+            }
+        }
+    }
+
+    @Test
+    public void testQueriesOnCompressedTiles() {
+        QueryFilter filter = new DefaultQueryFilter();
+        List<Long> expectedPath = query.findPath(startRef, endRef, startPos, endPos, filter).result;
+        List<StraightPathItem> expectedStraight = query.findStraightPath(startPos, endPos, expectedPath, 256, 0).result;
+        MeshTile startTile = navmesh.getTileByRef(startRef);
+        float[] verts = startTile.data.verts.clone();
+        Poly startPoly = navmesh.getTileAndPolyByRefUnsafe(startRef).second;
+
+        assertNull(navmesh.getTileCompressionStats());
+        navmesh.setResidentTileBudget(0);
+        assertEquals(tiles.size(), navmesh.compressColdTiles());
+        TileCompressionStats stats = navmesh.getTileCompressionStats();
+        assertEquals(tiles.size(), stats.getCompressedTiles());
+        assertEquals(0, stats.getResidentTiles());
+        assertTrue(stats.getCompressionRatio() > 1);
+        for (MeshTile tile : tiles) {
+            assertTrue(tile.isCompressed());
+            assertNull(tile.data.verts);
+        }
+
+        List<Long> path = query.findPath(startRef, endRef, startPos, endPos, filter).result;
+        assertEquals(expectedPath, path);
+        List<StraightPathItem> straight = query.findStraightPath(startPos, endPos, path, 256, 0).result;
+        assertEquals(expectedStraight.size(), straight.size());
+        for (int i = 0; i < straight.size(); i++) {
+            assertArrayEquals(expectedStraight.get(i).getPos(), straight.get(i).getPos(), 0f);
+            assertEquals(expectedStraight.get(i).getRef(), straight.get(i).getRef());
+        }
+        // The tile and polygon instances survive the round trip.
+        assertSame(startTile, navmesh.getTileByRef(startRef));
+        assertSame(startPoly, navmesh.getTileAndPolyByRefUnsafe(startRef).second);
+        assertArrayEquals(verts, startTile.data.verts, 0f);
+
+        stats = navmesh.getTileCompressionStats();
+        assertTrue(stats.getDecompressions() > 0);
+        assertEquals(tiles.size(), stats.getCompressedTiles() + stats.getResidentTiles());
+        assertTrue(stats.getMaxDecompressNanos() >= stats.getMeanDecompressNanos());
+
+        navmesh.setResidentTileBudget(-1);
+        for (MeshTile tile : tiles) {
+            assertFalse(tile.isCompressed());
+        }
+    }
+
+    @Test
+    public void testBudgetKeepsHotTiles() {
+        navmesh.setResidentTileBudget(2);
+        MeshTile hot = navmesh.getTileByRef(startRef);
+        for (int i = 0; i < 10; i++) {
+            query.findNearestPoly(startPos, new float[] { 2, 4, 2 }, new DefaultQueryFilter());
+        }
+        assertEquals(tiles.size() - 2, navmesh.compressColdTiles());
+        assertFalse(hot.isCompressed());
+        assertEquals(2, navmesh.getTileCompressionStats().getResidentTiles());
+        // Within budget, nothing else is compressed.
+        assertEquals(0, navmesh.compressColdTiles());
+
+        // Removing a compressed tile returns the full data.
+        for (MeshTile tile : tiles) {
+            if (tile.isCompressed()) {
+                MeshData data = navmesh.removeTile(navmesh.getTileRef(tile));
+                assertEquals(data.header.vertCount * 3, data.verts.length);
+                assertEquals(data.header.detailTriCount * 4, data.detailTris.length);
+                break;
+            }
+        }
+    }
+
+    @Test
+    public void testRemoveTileKeepsNeighboursCompressed() {
+        navmesh.setResidentTileBudget(0);
+        navmesh.compressColdTiles();
+        int removedIndex = NavMesh.decodePolyIdTile(startRef);
+        MeshTile removed = null;
+        for (MeshTile tile : tiles) {
+            if (tile.index == removedIndex) {
+                removed = tile;
+            }
+        }
+        long decompressions = navmesh.getTileCompressionStats().getDecompressions();
+        navmesh.removeTile(navmesh.getTileRef(removed));
+        // Only the removed tile is restored, its neighbours are unlinked while compressed.
+        assertEquals(decompressions + 1, navmesh.getTileCompressionStats().getDecompressions());
+        assertEquals(tiles.size() - 1, navmesh.getTileCompressionStats().getCompressedTiles());
+        for (MeshTile tile : tiles) {
+            if (tile.data == null) {
+                continue;
+            }
+            for (int i = 0; i < tile.data.header.polyCount; i++) {
+                for (int l = tile.data.polys[i].firstLink; l != NavMesh.DT_NULL_LINK; l = tile.links.get(l).next) {
+                    assertNotEquals(removedIndex, NavMesh.decodePolyIdTile(tile.links.get(l).ref));
+                }
+            }
+        }
+    }
+}
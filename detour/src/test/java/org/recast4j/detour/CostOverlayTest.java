@@ -0,0 +1,140 @@
+/*
+recast4j copyright (c) 2015-2019 Piotr Piastucki piotr@jtilia.org
+
+This software is provided 'as-is', without any express or implied
+warranty.  In no event will the authors be held liable for any damages
+arising from the use of this software.
+Permission is granted to anyone to use this software for any purpose,
+including commercial applications, and to alter it and redistribute it
+freely, subject to the following restrictions:
+1. The origin of this software must not be misrepresented; you must not
+ claim that you wrote the original software. If you use this software
+ in a product, an acknowledgment in the product documentation would be
+ appreciated but is not required.
+2. Altered source versions must be plainly marked as such, and must not be
+ misrepresented as being the original software.
+3. This notice may not be removed or altered from any source distribution.
+*/
+package org.recast4j.detour;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Test;
+
+public class CostOverlayTest extends AbstractDetourTest {
+
+    @Test
+    public void testCircle() {
+        QueryFilter filter = new DefaultQueryFilter();
+        List<Long> path = query.findPath(startRefs[0], endRefs[0], startPoss[0], endPoss[0], filter).result;
+        long hazard = path.get(path.size() / 2);
+        float[] center = polyCenter(hazard);
+        int flags = navmesh.getPolyFlags(hazard).result;
+
+        CostOverlay overlay = new CostOverlay(navmesh);
+        int id = overlay.addCircle(center, 0.1f, center[1] - 1, center[1] + 1, 1000f);
+        assertEquals(1, overlay.size());
+        assertEquals(1000f, overlay.getCostMultiplier(hazard), 0f);
+        assertEquals(1f, overlay.getCostMultiplier(startRefs[0]), 0f);
+        assertEquals(flags, navmesh.getPolyFlags(hazard).result.intValue());
+
+        // The dungeon path runs through a corridor, the hazard raises the cost of reaching the end.
+        QueryFilter hazardFilter = overlay.wrap(filter);
+        float cost = costTo(endRefs[0], filter);
+        float hazardCost = costTo(endRefs[0], hazardFilter);
+        assertTrue(hazardCost > cost * 2);
+        assertEquals(0f, costTo(startRefs[0], hazardFilter), 0f);
+
+        assertTrue(overlay.remove(id));
+        assertFalse(overlay.remove(id));
+        assertEquals(0, overlay.size());
+        assertEquals(1f, overlay.getCostMultiplier(hazard), 0f);
+        assertEquals(cost, costTo(endRefs[0], hazardFilter), 0f);
+    }
+
+    @Test
+    public void testOverlappingRegions() {
+        long ref = startRefs[0];
+        float[] center = polyCenter(ref);
+        CostOverlay overlay = new CostOverlay(navmesh);
+        float[] bmin = { center[0] - 0.1f, center[1] - 1, center[2] - 0.1f };
+        float[] bmax = { center[0] + 0.1f, center[1] + 1, center[2] + 0.1f };
+        int box = overlay.addBox(bmin, bmax, 2f);
+        float[] verts = { center[0] - 0.1f, 0, center[2], center[0] + 0.1f, 0, center[2] - 0.1f, center[0] + 0.1f,
+                0, center[2] + 0.1f };
+        int convex = overlay.addConvex(verts, 3, center[1] - 1, center[1] + 1, 3f);
+        assertEquals(6f, overlay.getCostMultiplier(ref), 1e-6f);
+
+        Tupple2<MeshTile, Poly> tileAndPoly = navmesh.getTileAndPolyByRef(ref).result;
+        float[] pa = { 0, 0, 0 };
+        float[] pb = { 1, 0, 0 };
+        float cost = new DefaultQueryFilter().getCost(pa, pb, 0, null, null, ref, tileAndPoly.first,
+                tileAndPoly.second, 0, null, null);
+        float overlayCost = overlay.wrap(new DefaultQueryFilter()).getCost(pa, pb, 0, null, null, ref,
+                tileAndPoly.first, tileAndPoly.second, 0, null, null);
+        assertEquals(cost * 6f, overlayCost, 1e-5f);
+
+        overlay.remove(box);
+        assertEquals(3f, overlay.getCostMultiplier(ref), 1e-6f);
+        overlay.remove(convex);
+        assertEquals(1f, overlay.getCostMultiplier(ref), 0f);
+
+        // Regions above the polygon do not apply.
+        overlay.addBox(new float[] { bmin[0], bmax[1] + 10, bmin[2] }, new float[] { bmax[0], bmax[1] + 20, bmax[2] },
+                5f);
+        assertEquals(1f, overlay.getCostMultiplier(ref), 0f);
+    }
+
+    @Test
+    public void testRemapTile() {
+        NavMesh tiled = new TestTiledNavMeshBuilder().getNavMesh();
+        MeshTile tile = null;
+        for (int i = 0; i < tiled.getMaxTiles() && tile == null; i++) {
+            if (tiled.getTile(i).data != null) {
+                tile = tiled.getTile(i);
+            }
+        }
+        MeshHeader header = tile.data.header;
+        CostOverlay overlay = new CostOverlay(tiled);
+        overlay.addBox(header.bmin, header.bmax, 4f);
+        long ref = tiled.getPolyRefBase(tile);
+        assertEquals(4f, overlay.getCostMultiplier(ref), 0f);
+
+        MeshData data = tiled.removeTile(tiled.getTileRef(tile));
+        long tileRef = tiled.addTile(data, 0, 0);
+        long newRef = tiled.getPolyRefBase(tiled.getTileByRef(tileRef));
+        assertNotEquals(ref, newRef);
+        assertEquals(1f, overlay.getCostMultiplier(newRef), 0f);
+        overlay.remapTile(tileRef);
+        assertEquals(4f, overlay.getCostMultiplier(newRef), 0f);
+        overlay.clear();
+        assertEquals(1f, overlay.getCostMultiplier(newRef), 0f);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidWeight() {
+        new CostOverlay(navmesh).addCircle(startPoss[0], 1f, -1f, 1f, 0f);
+    }
+
+    private float costTo(long ref, QueryFilter filter) {
+        FindPolysAroundResult around = query.findPolysAroundCircle(startRefs[0], startPoss[0], 1000f, filter).result;
+        return around.getCosts().get(around.getRefs().indexOf(ref));
+    }
+
+    private float[] polyCenter(long ref) {
+        Tupple2<MeshTile, Poly> tileAndPoly = navmesh.getTileAndPolyByRef(ref).result;
+        Poly poly = tileAndPoly.second;
+        float[] center = new float[3];
+        for (int i = 0; i < poly.vertCount; i++) {
+            for (int j = 0; j < 3; j++) {
+                center[j] += tileAndPoly.first.data.verts[poly.verts[i] * 3 + j] / poly.vertCount;
+            }
+        }
+        return center;
+    }
+}
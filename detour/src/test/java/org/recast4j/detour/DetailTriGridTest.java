@@ -0,0 +1,101 @@
+/*
+recast4j copyright (c) 2015-2019 Piotr Piastucki piotr@jtilia.org
+
+This software is provided 'as-is', without any express or implied
+warranty.  In no event will the authors be held liable for any damages
+arising from the use of this software.
+Permission is granted to anyone to use this software for any purpose,
+including commercial applications, and to alter it and redistribute it
+freely, subject to the following restrictions:
+1. The origin of this software must not be misrepresented; you must not
+ claim that you wrote the original software. If you use this software
+ in a product, an acknowledgment in the product documentation would be
+ appreciated but is not required.
+2. Altered source versions must be plainly marked as such, and must not be
+ misrepresented as being the original software.
+3. This notice may not be removed or altered from any source distribution.
+*/
+package org.recast4j.detour;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Optional;
+import java.util.Random;
+
+import org.junit.Test;
+import org.recast4j.recast.ObjImporter;
+import org.recast4j.recast.RecastConstants.PartitionType;
+import org.recast4j.recast.geom.InputGeomProvider;
+
+public class DetailTriGridTest {
+
+    @Test
+    public void testDungeon() {
+        testHeights("dungeon.obj");
+    }
+
+    @Test
+    public void testNavTest() {
+        testHeights("nav_test.obj");
+    }
+
+    private void testHeights(String file) {
+        NavMesh linear = createNavMesh(file, 0);
+        NavMesh grid = createNavMesh(file, 1);
+        MeshTile linearTile = linear.getTile(0);
+        MeshTile gridTile = grid.getTile(0);
+        assertNull(linearTile.detailGrid);
+        assertNotNull(gridTile.detailGrid);
+        Random r = new Random(1);
+        float[] pos = new float[3];
+        int hits = 0;
+        int candidates = 0;
+        int tris = 0;
+        for (int ip = 0; ip < gridTile.data.header.polyCount; ip++) {
+            Poly poly = gridTile.data.polys[ip];
+            if (poly.getType() == Poly.DT_POLYTYPE_OFFMESH_CONNECTION) {
+                continue;
+            }
+            assertTrue(gridTile.detailGrid.hasGrid(ip));
+            float[] bmin = { Float.MAX_VALUE, 0, Float.MAX_VALUE };
+            float[] bmax = { -Float.MAX_VALUE, 0, -Float.MAX_VALUE };
+            for (int j = 0; j < poly.vertCount; j++) {
+                int v = poly.verts[j] * 3;
+                bmin[0] = Math.min(bmin[0], gridTile.data.verts[v]);
+                bmin[2] = Math.min(bmin[2], gridTile.data.verts[v + 2]);
+                bmax[0] = Math.max(bmax[0], gridTile.data.verts[v]);
+                bmax[2] = Math.max(bmax[2], gridTile.data.verts[v + 2]);
+            }
+            for (int i = 0; i < 20; i++) {
+                pos[0] = bmin[0] + r.nextFloat() * (bmax[0] - bmin[0]);
+                pos[2] = bmin[2] + r.nextFloat() * (bmax[2] - bmin[2]);
+                Optional<Float> expected = linear.getPolyHeight(linearTile, linearTile.data.polys[ip], pos);
+                Optional<Float> actual = grid.getPolyHeight(gridTile, poly, pos);
+                assertEquals(expected, actual);
+                if (actual.isPresent()) {
+                    hits++;
+                    candidates += gridTile.detailGrid.getCellEnd(ip, pos) - gridTile.detailGrid.getCellStart(ip, pos);
+                    tris += gridTile.data.detailMeshes[ip].triCount;
+                }
+            }
+        }
+        assertTrue(hits > 0);
+        // The grid tests a fraction of the triangles.
+        assertTrue(candidates < tris);
+    }
+
+    private NavMesh createNavMesh(String file, int minTris) {
+        InputGeomProvider geom = new ObjImporter().load(getClass().getClassLoader().getResourceAsStream(file));
+        MeshData data = new RecastTestMeshBuilder(geom, PartitionType.WATERSHED, 0.3f, 0.2f, 2.0f, 0.6f, 0.9f, 45.0f, 8,
+                20, 12.0f, 1.3f, 6, 6.0f, 1.0f).getMeshData();
+        NavMesh reference = new NavMesh(data, 6, 0);
+        NavMesh navmesh = new NavMesh(reference.getParams(), 6);
+        navmesh.setDetailGridMinTris(minTris);
+        reference.removeTile(reference.getTileRefAt(data.header.x, data.header.y, data.header.layer));
+        navmesh.addTile(data, 0, 0);
+        return navmesh;
+    }
+}
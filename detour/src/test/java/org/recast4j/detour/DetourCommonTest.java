@@ -0,0 +1,106 @@
+/*
+recast4j copyright (c) 2015-2019 Piotr Piastucki piotr@jtilia.org
+
+This software is provided 'as-is', without any express or implied
+warranty.  In no event will the authors be held liable for any damages
+arising from the use of this software.
+Permission is granted to anyone to use this software for any purpose,
+including commercial applications, and to alter it and redistribute it
+freely, subject to the following restrictions:
+1. The origin of this software must not be misrepresented; you must not
+ claim that you wrote the original software. If you use this software
+ in a product, an acknowledgment in the product documentation would be
+ appreciated but is not required.
+2. Altered source versions must be plainly marked as such, and must not be
+ misrepresented as being the original software.
+3. This notice may not be removed or altered from any source distribution.
+*/
+package org.recast4j.detour;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+import static org.recast4j.detour.DetourCommon.vAdd;
+import static org.recast4j.detour.DetourCommon.vCopy;
+import static org.recast4j.detour.DetourCommon.vLerp;
+import static org.recast4j.detour.DetourCommon.vMad;
+import static org.recast4j.detour.DetourCommon.vScale;
+import static org.recast4j.detour.DetourCommon.vSub;
+
+import org.junit.Test;
+
+public class DetourCommonTest {
+
+    private final float[] a = { 1.5f, -2f, 3.25f };
+    private final float[] b = { -4f, 0.5f, 7f };
+
+    @Test
+    public void testDestMatchesAllocating() {
+        float[] dest = new float[3];
+        vMad(dest, a, b, 0.3f);
+        assertArrayEquals(vMad(a, b, 0.3f), dest, 0f);
+        vLerp(dest, a, b, 0.7f);
+        assertArrayEquals(vLerp(a, b, 0.7f), dest, 0f);
+        vSub(dest, a, b);
+        assertArrayEquals(vSub(a, b), dest, 0f);
+        vAdd(dest, a, b);
+        assertArrayEquals(vAdd(a, b), dest, 0f);
+        vScale(dest, a, -1.25f);
+        assertArrayEquals(vScale(a, -1.25f), dest, 0f);
+    }
+
+    @Test
+    public void testDestAliasesInput() {
+        float[] v = a.clone();
+        vMad(v, v, b, 2f);
+        assertArrayEquals(vMad(a, b, 2f), v, 0f);
+        v = b.clone();
+        vSub(v, a, v);
+        assertArrayEquals(vSub(a, b), v, 0f);
+        v = a.clone();
+        vScale(v, v, 0.5f);
+        assertArrayEquals(vScale(a, 0.5f), v, 0f);
+    }
+
+    @Test
+    public void testPacked() {
+        float[] verts = { 9f, 9f, a[0], a[1], a[2], b[0], b[1], b[2] };
+        float[] dest = new float[7];
+        vLerp(dest, 4, verts, 2, verts, 5, 0.25f);
+        assertArrayEquals(vLerp(verts, 2, 5, 0.25f), copyOf(dest, 4), 0f);
+        vSub(dest, 1, verts, 2, verts, 5);
+        assertArrayEquals(vSub(a, b), copyOf(dest, 1), 0f);
+        vAdd(dest, 1, verts, 2, verts, 5);
+        assertArrayEquals(vAdd(a, b), copyOf(dest, 1), 0f);
+        vMad(dest, 1, verts, 2, verts, 5, 3f);
+        assertArrayEquals(vMad(a, b, 3f), copyOf(dest, 1), 0f);
+        vScale(dest, 4, verts, 5, 2f);
+        assertArrayEquals(vScale(b, 2f), copyOf(dest, 4), 0f);
+        vCopy(dest, 0, verts, 2);
+        assertArrayEquals(a, copyOf(dest, 0), 0f);
+    }
+
+    @Test
+    public void testDestVariantsDoNotAllocate() {
+        assumeTrue(AllocationMeter.isSupported());
+        float[] dest = new float[3];
+        float[] packed = new float[12];
+        long bytes = AllocationMeter.bytesPerOp(1, 10, () -> runKernels(dest, packed, 10000));
+        // Each op runs the kernels 10000 times, so anything left is measurement noise.
+        assertTrue("allocated " + bytes + " bytes", bytes < 100);
+    }
+
+    private void runKernels(float[] dest, float[] packed, int n) {
+        for (int i = 0; i < n; i++) {
+            vMad(dest, dest, b, 0.001f);
+            vLerp(dest, dest, a, 0.5f);
+            vSub(packed, 3, dest, 0, a, 0);
+            vAdd(packed, 6, packed, 3, b, 0);
+            vScale(dest, 0, packed, 6, 0.5f);
+        }
+    }
+
+    private static float[] copyOf(float[] v, int i) {
+        return new float[] { v[i], v[i + 1], v[i + 2] };
+    }
+}
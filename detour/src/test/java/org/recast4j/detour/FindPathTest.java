@@ -17,6 +17,8 @@ freely, subject to the following restrictions:
 */
 package org.recast4j.detour;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import org.junit.Assert;
@@ -132,6 +134,120 @@ public class FindPathTest extends AbstractDetourTest {
         }
     }
 
+    @Test
+    public void testFindPathAnyAngle() {
+        QueryFilter filter = new DefaultQueryFilter();
+        for (int i = 0; i < startRefs.length; i++) {
+            Result<List<Long>> path = query.findPathAnyAngle(startRefs[i], endRefs[i], startPoss[i], endPoss[i],
+                    filter);
+            Assert.assertEquals(statuses[i], path.status);
+            Assert.assertEquals(results[i].length, path.result.size());
+            for (int j = 0; j < results[i].length; j++) {
+                Assert.assertEquals(results[i][j], path.result.get(j).longValue());
+            }
+        }
+        Assert.assertEquals(Status.FAILURE_INVALID_PARAM,
+                query.findPathAnyAngle(0, endRefs[0], startPoss[0], endPoss[0], filter).status);
+    }
+
+    @Test
+    public void testFindPathAnyAngleKeepsSlicedQuery() {
+        QueryFilter filter = new DefaultQueryFilter();
+        Assert.assertEquals(Status.SUCCSESS, query.initSlicedFindPath(startRefs[0], startRefs[0], startPoss[0],
+                startPoss[0], filter, NavMeshQuery.DT_FINDPATH_ANY_ANGLE));
+        Assert.assertEquals(statuses[1],
+                query.findPathAnyAngle(startRefs[1], endRefs[1], startPoss[1], endPoss[1], filter).status);
+        Result<List<Long>> path = query.finalizeSlicedFindPath();
+        Assert.assertEquals(Status.SUCCSESS, path.status);
+        Assert.assertEquals(Collections.singletonList(startRefs[0]), path.result);
+    }
+
+    @Test
+    public void testAnyAngleRaycastMatchesRaycast() {
+        QueryFilter filter = new DefaultQueryFilter();
+        AnyAngleRaycast rays = new AnyAngleRaycast(navmesh);
+        rays.clear();
+        int reached = 0;
+        for (int i = 0; i < startRefs.length; i++) {
+            float[] fractions = { 0.05f, 0.2f, 0.5f, 1f };
+            for (int j = 0; j < fractions.length; j++) {
+                float[] endPos = DetourCommon.vLerp(startPoss[i], endPoss[i], fractions[j]);
+                // Any distinct key works, the ray is defined by the positions.
+                long key = i * fractions.length + j + 1;
+                RaycastHit hit = query.raycast(startRefs[i], startPoss[i], endPos, filter,
+                        NavMeshQuery.DT_RAYCAST_USE_COSTS, 0).result;
+                float cost = rays.cost(startRefs[i], startPoss[i], endPos, key, filter, 0);
+                List<Long> path = new ArrayList<>();
+                if (hit.t >= 1) {
+                    reached++;
+                    Assert.assertEquals(hit.pathCost, cost, 1e-3f);
+                    Assert.assertTrue(rays.appendPath(startRefs[i], key, path));
+                    Assert.assertEquals(hit.path, path);
+                } else {
+                    Assert.assertTrue(cost < 0);
+                    Assert.assertFalse(rays.appendPath(startRefs[i], key, path));
+                }
+                // The second cast of the pair comes from the cache.
+                Assert.assertEquals(cost, rays.cost(startRefs[i], startPoss[i], endPos, key, filter, 0), 0f);
+            }
+        }
+        Assert.assertTrue(reached > 0 && reached < startRefs.length * 4);
+        Assert.assertEquals(startRefs.length * 4, rays.getRaycasts());
+        Assert.assertEquals(startRefs.length * 4, rays.getCacheHits());
+    }
+
+    @Test
+    public void testAnyAngleRaycastCostDependsOnGrandparent() {
+        // Turning away from the grandparent costs extra.
+        QueryFilter filter = new DefaultQueryFilter() {
+            @Override
+            public float getCost(float[] pa, float[] pb, long prevRef, MeshTile prevTile, Poly prevPoly, long curRef,
+                    MeshTile curTile, Poly curPoly, long nextRef, MeshTile nextTile, Poly nextPoly) {
+                float cost = super.getCost(pa, pb, prevRef, prevTile, prevPoly, curRef, curTile, curPoly, nextRef,
+                        nextTile, nextPoly);
+                return prevRef == endRefs[0] ? cost + 10f : cost;
+            }
+        };
+        AnyAngleRaycast rays = new AnyAngleRaycast(navmesh);
+        rays.clear();
+        float[] endPos = DetourCommon.vLerp(startPoss[0], endPoss[0], 0.05f);
+        float cost = rays.cost(startRefs[0], startPoss[0], endPos, 1, filter, 0);
+        Assert.assertTrue(cost >= 0);
+        // The parent was re-parented, the cost of the pair is cast again.
+        float reparented = rays.cost(startRefs[0], startPoss[0], endPos, 1, filter, endRefs[0]);
+        Assert.assertEquals(cost + 10f, reparented, 1e-3f);
+        Assert.assertEquals(query.raycast(startRefs[0], startPoss[0], endPos, filter,
+                NavMeshQuery.DT_RAYCAST_USE_COSTS, endRefs[0]).result.pathCost, reparented, 1e-3f);
+        Assert.assertEquals(cost, rays.cost(startRefs[0], startPoss[0], endPos, 1, filter, 0), 0f);
+        Assert.assertEquals(2, rays.getRaycasts());
+        Assert.assertEquals(1, rays.getCacheHits());
+        List<Long> path = new ArrayList<>();
+        Assert.assertTrue(rays.appendPath(startRefs[0], 1, path));
+        Assert.assertEquals(query.raycast(startRefs[0], startPoss[0], endPos, filter, 0, 0).result.path, path);
+    }
+
+    @Test
+    public void testFindPathSlicedTimeBudget() {
+        QueryFilter filter = new DefaultQueryFilter();
+        for (int i = 0; i < startRefs.length; i++) {
+            query.initSlicedFindPath(startRefs[i], endRefs[i], startPoss[i], endPoss[i], filter,
+                    NavMeshQuery.DT_FINDPATH_ANY_ANGLE);
+            Status status = Status.IN_PROGRESS;
+            while (status == Status.IN_PROGRESS) {
+                // No time left: a single batch of iterations per update.
+                Result<Integer> res = query.updateSlicedFindPath(Integer.MAX_VALUE, 0);
+                Assert.assertTrue(res.result <= NavMeshQuery.DT_SLICED_TIME_CHECK_ITERS);
+                status = res.status;
+            }
+            Result<List<Long>> path = query.finalizeSlicedFindPath();
+            Assert.assertEquals(statuses[i], path.status);
+            Assert.assertEquals(results[i].length, path.result.size());
+            for (int j = 0; j < results[i].length; j++) {
+                Assert.assertEquals(results[i][j], path.result.get(j).longValue());
+            }
+        }
+    }
+
     @Test
     public void testFindPathStraight() {
         QueryFilter filter = new DefaultQueryFilter();
@@ -0,0 +1,203 @@
+/*
+recast4j copyright (c) 2015-2019 Piotr Piastucki piotr@jtilia.org
+
+This software is provided 'as-is', without any express or implied
+warranty.  In no event will the authors be held liable for any damages
+arising from the use of this software.
+Permission is granted to anyone to use this software for any purpose,
+including commercial applications, and to alter it and redistribute it
+freely, subject to the following restrictions:
+1. The origin of this software must not be misrepresented; you must not
+ claim that you wrote the original software. If you use this software
+ in a product, an acknowledgment in the product documentation would be
+ appreciated but is not required.
+2. Altered source versions must be plainly marked as such, and must not be
+ misrepresented as being the original software.
+3. This notice may not be removed or altered from any source distribution.
+*/
+package org.recast4j.detour;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+import static org.recast4j.detour.DetourCommon.overlapQuantBounds;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class GeometryKernelsTest extends AbstractDetourTest {
+
+    private final GeometryKernels scalar = GeometryKernels.scalar();
+
+    @Test
+    public void testSwitch() {
+        boolean enabled = GeometryKernels.isVectorEnabled();
+        try {
+            assertFalse(GeometryKernels.setVectorEnabled(false));
+            assertSame(scalar, GeometryKernels.get());
+            assertEquals(GeometryKernels.isVectorAvailable(), GeometryKernels.setVectorEnabled(true));
+        } finally {
+            GeometryKernels.setVectorEnabled(enabled);
+        }
+    }
+
+    @Test
+    public void testVectorKernelsLoaded() {
+        // The JDK 17 build runs the tests with the incubator module and the versioned classes on the class path.
+        assumeTrue(System.getProperty("java.specification.version").compareTo("17") >= 0
+                && !System.getProperty("java.specification.version").startsWith("1."));
+        assertTrue(GeometryKernels.isVectorAvailable());
+    }
+
+    @Test
+    public void testPolyEdges() {
+        GeometryKernels vector = vectorKernels();
+        Random r = new Random(1);
+        for (int n = 1; n <= 20; n++) {
+            float[] verts = new float[n * 3];
+            for (int iter = 0; iter < 200; iter++) {
+                // Regular polygons with jittered vertices, plus a few degenerate ones.
+                float cx = r.nextFloat() * 10 - 5;
+                float cz = r.nextFloat() * 10 - 5;
+                for (int i = 0; i < n; i++) {
+                    double a = 2 * Math.PI * i / n;
+                    float rad = iter % 10 == 0 ? 0 : 1 + r.nextFloat();
+                    verts[i * 3] = cx + (float) Math.cos(a) * rad;
+                    verts[i * 3 + 1] = r.nextFloat();
+                    verts[i * 3 + 2] = cz + (float) Math.sin(a) * rad;
+                }
+                float[] pt = { cx + r.nextFloat() * 6 - 3, 0, cz + r.nextFloat() * 6 - 3 };
+                float[] ed = new float[n];
+                float[] et = new float[n];
+                float[] sed = new float[n];
+                float[] set = new float[n];
+                boolean inside = scalar.distancePtPolyEdgesSqr(pt, verts, n, sed, set);
+                assertEquals(inside, vector.distancePtPolyEdgesSqr(pt, verts, n, ed, et));
+                assertEquals(scalar.pointInPolygon(pt, verts, n), vector.pointInPolygon(pt, verts, n));
+                assertEquals(inside, vector.pointInPolygon(pt, verts, n));
+                assertArrayEquals(sed, ed, 0f);
+                assertArrayEquals(set, et, 0f);
+            }
+        }
+    }
+
+    @Test
+    public void testBVTree() {
+        GeometryKernels vector = vectorKernels();
+        Random r = new Random(2);
+        int queries = 0;
+        for (int t = 0; t < navmesh.getMaxTiles(); t++) {
+            MeshTile tile = navmesh.getTile(t);
+            if (tile.data == null || tile.data.bvTree == null) {
+                continue;
+            }
+            PackedBVTree tree = PackedBVTree.of(tile);
+            assertSame(tree, PackedBVTree.of(tile));
+            int[] polys = new int[tree.leafCount];
+            for (int iter = 0; iter < 500; iter++) {
+                int[] bmin = new int[3];
+                int[] bmax = new int[3];
+                for (int j = 0; j < 3; j++) {
+                    int a = r.nextInt(1 << 12);
+                    int b = r.nextInt(1 << (2 + iter % 10));
+                    bmin[j] = a & 0xfffe;
+                    bmax[j] = (a + b) | 1;
+                }
+                List<Integer> expected = traverse(tile.data.bvTree, tree.nodeCount, bmin, bmax);
+                int n = scalar.queryBVTree(tree, bmin, bmax, polys);
+                assertEquals(expected, toList(polys, n));
+                n = vector.queryBVTree(tree, bmin, bmax, polys);
+                assertEquals(expected, toList(polys, n));
+                queries++;
+            }
+        }
+        assertTrue(queries > 0);
+    }
+
+    @Test
+    public void testPackedBVTreeDropped() {
+        MeshTile tile = navmesh.getTile(0);
+        PackedBVTree tree = PackedBVTree.of(tile);
+        assertSame(tree, tile.packedBvTree);
+        navmesh.setResidentTileBudget(0);
+        navmesh.compressColdTiles();
+        assertNull(tile.packedBvTree);
+        assertNotSame(tree, PackedBVTree.of(navmesh.getTile(0)));
+        navmesh.setResidentTileBudget(-1);
+        PackedBVTree.of(tile);
+        MeshData data = navmesh.removeTile(navmesh.getTileRef(tile));
+        assertNull(tile.packedBvTree);
+        navmesh.addTile(data, 0, 0);
+    }
+
+    @Test
+    public void testSweepCircles() {
+        GeometryKernels vector = vectorKernels();
+        Random r = new Random(3);
+        int stride = 40;
+        float[] circles = new float[GeometryKernels.CIRCLE_FIELDS * stride];
+        float[] pos = { 0.5f, 0, -0.25f };
+        for (int n = 0; n <= stride; n++) {
+            for (int iter = 0; iter < 50; iter++) {
+                for (int i = 0; i < circles.length; i++) {
+                    circles[i] = r.nextFloat() * 8 - 4;
+                }
+                Arrays.fill(circles, GeometryKernels.CIRCLE_RAD * stride, GeometryKernels.CIRCLE_FIELDS * stride,
+                        0.6f);
+                float vx = r.nextFloat() * 4 - 2;
+                float vz = iter % 7 == 0 ? circles[GeometryKernels.CIRCLE_VZ * stride] : r.nextFloat() * 4 - 2;
+                float[] side = new float[stride];
+                float[] vside = new float[stride];
+                float tmin = scalar.sweepCircles(circles, stride, n, pos, 0.6f, vx, vz, 2.5f, -Float.MAX_VALUE, side);
+                assertEquals(tmin, vector.sweepCircles(circles, stride, n, pos, 0.6f, vx, vz, 2.5f,
+                        -Float.MAX_VALUE, vside), 0f);
+                assertArrayEquals(side, vside, 0f);
+                // The early out only returns once the threshold is crossed.
+                float threshold = tmin + 0.01f;
+                assertTrue(vector.sweepCircles(circles, stride, n, pos, 0.6f, vx, vz, 2.5f, threshold,
+                        vside) < threshold || tmin == 2.5f);
+            }
+        }
+    }
+
+    private GeometryKernels vectorKernels() {
+        boolean enabled = GeometryKernels.isVectorEnabled();
+        boolean available = GeometryKernels.setVectorEnabled(true);
+        GeometryKernels vector = GeometryKernels.get();
+        GeometryKernels.setVectorEnabled(enabled);
+        assumeTrue(available);
+        return vector;
+    }
+
+    private static List<Integer> traverse(BVNode[] nodes, int end, int[] bmin, int[] bmax) {
+        List<Integer> polys = new ArrayList<>();
+        int nodeIndex = 0;
+        while (nodeIndex < end) {
+            BVNode node = nodes[nodeIndex];
+            boolean overlap = overlapQuantBounds(bmin, bmax, node.bmin, node.bmax);
+            boolean isLeafNode = node.i >= 0;
+            if (isLeafNode && overlap) {
+                polys.add(node.i);
+            }
+            nodeIndex += overlap || isLeafNode ? 1 : -node.i;
+        }
+        return polys;
+    }
+
+    private static List<Integer> toList(int[] polys, int n) {
+        List<Integer> list = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            list.add(polys[i]);
+        }
+        return list;
+    }
+}
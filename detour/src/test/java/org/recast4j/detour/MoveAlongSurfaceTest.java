@@ -17,8 +17,12 @@ freely, subject to the following restrictions:
 */
 package org.recast4j.detour;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -64,4 +68,53 @@ public class MoveAlongSurfaceTest extends AbstractDetourTest {
         }
     }
 
+
+    @Test
+    public void testMoveAlongSurfaceBatch() {
+        QueryFilter filter = new DefaultQueryFilter();
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            testBatch(new MoveAlongSurfaceBatch(navmesh), filter);
+            testBatch(new MoveAlongSurfaceBatch(navmesh, MoveAlongSurfaceBatch.DEFAULT_MAX_NODES, pool, 4), filter);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private void testBatch(MoveAlongSurfaceBatch batch, QueryFilter filter) {
+        int repeat = 20;
+        int count = startRefs.length * repeat + 1;
+        int maxVisited = 8;
+        long[] refs = new long[count];
+        float[] startPos = new float[count * 3];
+        float[] endPos = new float[count * 3];
+        for (int i = 0; i < count - 1; i++) {
+            int t = i % startRefs.length;
+            refs[i] = startRefs[t];
+            System.arraycopy(startPoss[t], 0, startPos, i * 3, 3);
+            System.arraycopy(endPoss[t], 0, endPos, i * 3, 3);
+        }
+        // Last mover has an invalid start polygon
+        long[] resultRefs = new long[count];
+        float[] resultPos = new float[count * 3];
+        int[] visitedCounts = new int[count];
+        long[] visitedPolys = new long[count * maxVisited];
+        assertEquals(count - 1, batch.move(count, refs, startPos, endPos, filter, resultRefs, resultPos,
+                visitedCounts, visitedPolys, maxVisited));
+        assertEquals(0, resultRefs[count - 1]);
+        for (int i = 0; i < count - 1; i++) {
+            int t = i % startRefs.length;
+            MoveAlongSurfaceResult expected = query.moveAlongSurface(startRefs[t], startPoss[t], endPoss[t],
+                    filter).result;
+            List<Long> expectedVisited = expected.getVisited();
+            for (int v = 0; v < 3; v++) {
+                assertEquals(expected.getResultPos()[v], resultPos[i * 3 + v], 1e-5f);
+            }
+            assertEquals(expectedVisited.size(), visitedCounts[i]);
+            assertEquals(expectedVisited.get(expectedVisited.size() - 1).longValue(), resultRefs[i]);
+            for (int j = 0; j < Math.min(maxVisited, visitedCounts[i]); j++) {
+                assertEquals(expectedVisited.get(j).longValue(), visitedPolys[i * maxVisited + j]);
+            }
+        }
+    }
 }
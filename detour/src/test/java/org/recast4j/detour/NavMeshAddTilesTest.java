@@ -0,0 +1,319 @@
+/*
+recast4j copyright (c) 2015-2019 Piotr Piastucki piotr@jtilia.org
+
+This software is provided 'as-is', without any express or implied
+warranty.  In no event will the authors be held liable for any damages
+arising from the use of this software.
+Permission is granted to anyone to use this software for any purpose,
+including commercial applications, and to alter it and redistribute it
+freely, subject to the following restrictions:
+1. The origin of this software must not be misrepresented; you must not
+ claim that you wrote the original software. If you use this software
+ in a product, an acknowledgment in the product documentation would be
+ appreciated but is not required.
+2. Altered source versions must be plainly marked as such, and must not be
+ misrepresented as being the original software.
+3. This notice may not be removed or altered from any source distribution.
+*/
+package org.recast4j.detour;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.recast4j.recast.RecastVectors.copy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.recast4j.recast.ObjImporter;
+import org.recast4j.recast.PolyMesh;
+import org.recast4j.recast.PolyMeshDetail;
+import org.recast4j.recast.RecastBuilder;
+import org.recast4j.recast.RecastBuilder.RecastBuilderResult;
+import org.recast4j.recast.RecastConfig;
+import org.recast4j.recast.RecastConstants.PartitionType;
+import org.recast4j.recast.geom.InputGeomProvider;
+
+public class NavMeshAddTilesTest {
+
+    private static final float CELL_SIZE = 0.3f;
+    private static final float CELL_HEIGHT = 0.2f;
+    private static final int TILE_SIZE = 32;
+
+    private static ForkJoinPool pool;
+    private static List<NavMeshDataCreateParams> tileParams;
+    private static float[] orig;
+
+    @BeforeClass
+    public static void setUp() {
+        pool = new ForkJoinPool(4);
+        InputGeomProvider geom = new ObjImporter().load(ObjImporter.class.getResourceAsStream("dungeon.obj"));
+        orig = geom.getMeshBoundsMin();
+        RecastConfig cfg = new RecastConfig(PartitionType.WATERSHED, CELL_SIZE, CELL_HEIGHT, 2.0f, 0.6f, 0.9f, 45.0f,
+                8, 20, 12.0f, 1.3f, 6, 6.0f, 1.0f, TILE_SIZE, SampleAreaModifications.SAMPLE_AREAMOD_GROUND);
+        RecastBuilderResult[][] rcResult = new RecastBuilder().buildTiles(geom, cfg, 1);
+        tileParams = new ArrayList<>();
+        for (int y = 0; y < rcResult[0].length; y++) {
+            for (int x = 0; x < rcResult.length; x++) {
+                PolyMesh pmesh = rcResult[x][y].getMesh();
+                if (pmesh.npolys > 0) {
+                    tileParams.add(createParams(pmesh, rcResult[x][y].getMeshDetail(), x, y));
+                }
+            }
+        }
+        addOffMeshConnections();
+    }
+
+    @AfterClass
+    public static void tearDown() {
+        pool.shutdown();
+    }
+
+    @Test
+    public void testBatchMatchesSequential() {
+        NavMesh expected = createNavMesh();
+        List<Long> expectedRefs = new ArrayList<>();
+        for (MeshData data : createTiles()) {
+            expectedRefs.add(expected.addTile(data, 0, 0));
+        }
+        NavMesh mesh = createNavMesh();
+        long[] refs = mesh.addTiles(createTiles(), null, null, pool);
+        assertEquals(expectedRefs.size(), refs.length);
+        for (int i = 0; i < refs.length; i++) {
+            assertEquals(expectedRefs.get(i).longValue(), refs[i]);
+        }
+        assertSameLinks(expected, mesh);
+        assertTrue(countExtOffMeshLinks(mesh) > 0);
+    }
+
+    @Test
+    public void testBatchNextToExistingTiles() {
+        List<MeshData> expectedTiles = createTiles();
+        List<MeshData> tiles = createTiles();
+        int half = tiles.size() / 2;
+        NavMesh expected = createNavMesh();
+        NavMesh mesh = createNavMesh();
+        for (int i = 0; i < half; i++) {
+            expected.addTile(expectedTiles.get(i), 0, 0);
+            mesh.addTile(tiles.get(i), 0, 0);
+        }
+        // Free a tile in the middle so the batch can reuse its reference.
+        long ref = mesh.getTileRefAt(tiles.get(1).header.x, tiles.get(1).header.y, 0);
+        expected.removeTile(ref);
+        mesh.removeTile(ref);
+        List<MeshData> batch = new ArrayList<>();
+        batch.add(tiles.get(1));
+        batch.addAll(tiles.subList(half, tiles.size()));
+        int[] flags = new int[batch.size()];
+        long[] lastRefs = new long[batch.size()];
+        flags[0] = 1;
+        lastRefs[0] = ref;
+        expected.addTile(expectedTiles.get(1), 1, ref);
+        for (int i = half; i < expectedTiles.size(); i++) {
+            flags[i - half + 1] = i;
+            expected.addTile(expectedTiles.get(i), i, 0);
+        }
+        mesh.addTiles(batch, flags, lastRefs, pool);
+        assertSameLinks(expected, mesh);
+    }
+
+    @Test
+    public void testFailedBatchRemovesTiles() {
+        List<MeshData> tiles = createTiles();
+        NavMesh mesh = createNavMesh();
+        mesh.addTile(tiles.get(0), 0, 0);
+        List<MeshData> batch = new ArrayList<>(tiles.subList(1, 4));
+        batch.add(createTiles().get(0));
+        try {
+            mesh.addTiles(batch);
+            fail();
+        } catch (RuntimeException e) {
+            assertEquals("Tile already exists", e.getMessage());
+        }
+        assertEquals(1, mesh.getTileCount());
+        for (MeshData data : batch.subList(0, 3)) {
+            assertTrue(mesh.getTilesAt(data.header.x, data.header.y).isEmpty());
+        }
+    }
+
+    @Test
+    public void testScheduleWaitsForFailedLevel() {
+        TileLinkSchedule schedule = new TileLinkSchedule(4);
+        AtomicInteger done = new AtomicInteger();
+        Error error = new AssertionError("link failure");
+        schedule.add(new MeshTile(0), () -> {
+            throw error;
+        });
+        for (int i = 1; i < 4; i++) {
+            schedule.add(new MeshTile(i), () -> {
+                try {
+                    Thread.sleep(50);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                done.incrementAndGet();
+            });
+        }
+        try {
+            schedule.run(pool);
+            fail();
+        } catch (AssertionError e) {
+            assertSame(error, e);
+        }
+        assertEquals(3, done.get());
+    }
+
+    private static void assertSameLinks(NavMesh expected, NavMesh mesh) {
+        assertEquals(expected.getTileCount(), mesh.getTileCount());
+        for (int i = 0; i < expected.getMaxTiles(); i++) {
+            MeshTile e = expected.getTile(i);
+            MeshTile t = mesh.getTile(i);
+            assertEquals(expected.getTileRef(e), mesh.getTileRef(t));
+            assertEquals(e.flags, t.flags);
+            assertEquals(e.linksFreeList, t.linksFreeList);
+            assertEquals(e.links.size(), t.links.size());
+            for (int j = 0; j < e.links.size(); j++) {
+                Link el = e.links.get(j);
+                Link l = t.links.get(j);
+                assertEquals(el.ref, l.ref);
+                assertEquals(el.next, l.next);
+                assertEquals(el.edge, l.edge);
+                assertEquals(el.side, l.side);
+                assertEquals(el.bmin, l.bmin);
+                assertEquals(el.bmax, l.bmax);
+            }
+            if (e.data != null) {
+                assertArrayEquals(e.data.verts, t.data.verts, 0f);
+                for (int j = 0; j < e.data.polys.length; j++) {
+                    assertEquals(e.data.polys[j].firstLink, t.data.polys[j].firstLink);
+                }
+            }
+        }
+    }
+
+    /// Counts the links of off-mesh connections landing in a neighbour tile.
+    private static int countExtOffMeshLinks(NavMesh mesh) {
+        int count = 0;
+        for (int i = 0; i < mesh.getMaxTiles(); i++) {
+            MeshTile tile = mesh.getTile(i);
+            if (tile.data == null) {
+                continue;
+            }
+            for (Poly poly : tile.data.polys) {
+                if (poly.getType() != Poly.DT_POLYTYPE_OFFMESH_CONNECTION) {
+                    continue;
+                }
+                for (int l = poly.firstLink; l != NavMesh.DT_NULL_LINK; l = tile.links.get(l).next) {
+                    if (tile.links.get(l).side != 0xff) {
+                        count++;
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    private static NavMesh createNavMesh() {
+        NavMeshParams params = new NavMeshParams();
+        copy(params.orig, orig);
+        params.tileWidth = TILE_SIZE * CELL_SIZE;
+        params.tileHeight = TILE_SIZE * CELL_SIZE;
+        params.maxTiles = 128;
+        params.maxPolys = 32768;
+        return new NavMesh(params, 6);
+    }
+
+    private static List<MeshData> createTiles() {
+        List<MeshData> tiles = new ArrayList<>();
+        for (NavMeshDataCreateParams params : tileParams) {
+            tiles.add(NavMeshBuilder.createNavMeshData(params));
+        }
+        return tiles;
+    }
+
+    /// Connects the first polygon of every tile to its second polygon and to the first polygon of the next tile in
+    /// the row and the column.
+    private static void addOffMeshConnections() {
+        List<MeshData> tiles = createTiles();
+        for (int i = 0; i < tiles.size(); i++) {
+            MeshData data = tiles.get(i);
+            List<float[]> ends = new ArrayList<>();
+            if (data.header.polyCount > 1) {
+                ends.add(polyCenter(data, 1));
+            }
+            for (MeshData other : tiles) {
+                boolean right = other.header.x == data.header.x + 1 && other.header.y == data.header.y;
+                boolean up = other.header.x == data.header.x && other.header.y == data.header.y + 1;
+                if (right || up) {
+                    ends.add(polyCenter(other, 0));
+                }
+            }
+            NavMeshDataCreateParams params = tileParams.get(i);
+            float[] start = polyCenter(data, 0);
+            params.offMeshConCount = ends.size();
+            params.offMeshConVerts = new float[ends.size() * 6];
+            params.offMeshConRad = new float[ends.size()];
+            params.offMeshConFlags = new int[ends.size()];
+            params.offMeshConAreas = new int[ends.size()];
+            params.offMeshConDir = new int[ends.size()];
+            params.offMeshConUserID = new int[ends.size()];
+            for (int j = 0; j < ends.size(); j++) {
+                System.arraycopy(start, 0, params.offMeshConVerts, j * 6, 3);
+                System.arraycopy(ends.get(j), 0, params.offMeshConVerts, j * 6 + 3, 3);
+                params.offMeshConRad[j] = 1.0f;
+                params.offMeshConFlags[j] = SampleAreaModifications.SAMPLE_POLYFLAGS_JUMP;
+                params.offMeshConAreas[j] = SampleAreaModifications.SAMPLE_POLYAREA_TYPE_JUMP;
+                params.offMeshConDir[j] = NavMesh.DT_OFFMESH_CON_BIDIR;
+                params.offMeshConUserID[j] = i * 16 + j;
+            }
+        }
+    }
+
+    private static float[] polyCenter(MeshData data, int p) {
+        Poly poly = data.polys[p];
+        float[] center = new float[3];
+        for (int j = 0; j < poly.vertCount; j++) {
+            for (int k = 0; k < 3; k++) {
+                center[k] += data.verts[poly.verts[j] * 3 + k] / poly.vertCount;
+            }
+        }
+        return center;
+    }
+
+    private static NavMeshDataCreateParams createParams(PolyMesh pmesh, PolyMeshDetail dmesh, int x, int y) {
+        for (int i = 0; i < pmesh.npolys; ++i) {
+            pmesh.flags[i] = 1;
+        }
+        NavMeshDataCreateParams params = new NavMeshDataCreateParams();
+        params.verts = pmesh.verts;
+        params.vertCount = pmesh.nverts;
+        params.polys = pmesh.polys;
+        params.polyAreas = pmesh.areas;
+        params.polyFlags = pmesh.flags;
+        params.polyCount = pmesh.npolys;
+        params.nvp = pmesh.nvp;
+        params.detailMeshes = dmesh.meshes;
+        params.detailVerts = dmesh.verts;
+        params.detailVertsCount = dmesh.nverts;
+        params.detailTris = dmesh.tris;
+        params.detailTriCount = dmesh.ntris;
+        params.walkableHeight = 2.0f;
+        params.walkableRadius = 0.6f;
+        params.walkableClimb = 0.9f;
+        params.bmin = pmesh.bmin;
+        params.bmax = pmesh.bmax;
+        params.cs = CELL_SIZE;
+        params.ch = CELL_HEIGHT;
+        params.tileX = x;
+        params.tileY = y;
+        params.buildBvTree = true;
+        return params;
+    }
+}
@@ -17,10 +17,15 @@ freely, subject to the following restrictions:
 */
 package org.recast4j.detour;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
 import org.junit.Before;
 import org.junit.Test;
 
@@ -64,4 +69,107 @@ public class NavMeshBuilderTest {
         assertEquals(Poly.DT_POLYTYPE_OFFMESH_CONNECTION, nmd.polys[118].getType());
 
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testReorderPolys() {
+        MeshData reordered = new RecastTestMeshBuilder(true).getMeshData();
+        assertEquals(nmd.verts.length, reordered.verts.length);
+        assertEquals(nmd.polys.length, reordered.polys.length);
+        assertEquals(nmd.header.maxLinkCount, reordered.header.maxLinkCount);
+        assertEquals(nmd.detailTris.length, reordered.detailTris.length);
+        assertEquals(nmd.detailVerts.length, reordered.detailVerts.length);
+        assertEquals(nmd.header.bvNodeCount, reordered.header.bvNodeCount);
+        assertEquals(polygonKeys(nmd), polygonKeys(reordered));
+
+        // Off-mesh connection still follows the ground polygons
+        int offMeshBase = reordered.header.offMeshBase;
+        assertEquals(offMeshBase, reordered.offMeshCons[0].poly);
+        assertEquals(Poly.DT_POLYTYPE_OFFMESH_CONNECTION, reordered.polys[offMeshBase].getType());
+        int offMeshVert = reordered.polys[offMeshBase].verts[0] * 3;
+        for (int i = 0; i < 6; i++) {
+            assertEquals(reordered.offMeshCons[0].pos[i], reordered.verts[offMeshVert + i], 0.0f);
+        }
+
+        // Internal neighbours share the edge and are closer in memory
+        for (int i = 0; i < offMeshBase; i++) {
+            Poly poly = reordered.polys[i];
+            for (int j = 0; j < poly.vertCount; j++) {
+                if (poly.neis[j] != 0 && (poly.neis[j] & NavMesh.DT_EXT_LINK) == 0) {
+                    Poly nei = reordered.polys[poly.neis[j] - 1];
+                    assertTrue(contains(nei, poly.verts[j]));
+                    assertTrue(contains(nei, poly.verts[(j + 1) % poly.vertCount]));
+                }
+            }
+        }
+        assertTrue(neighbourDistance(reordered) < neighbourDistance(nmd));
+
+        // Queries give the same results, except for the polygon ids
+        NavMeshQuery query = new NavMeshQuery(new NavMesh(nmd, 6, 0));
+        NavMeshQuery reorderedQuery = new NavMeshQuery(new NavMesh(reordered, 6, 0));
+        QueryFilter filter = new DefaultQueryFilter();
+        float[] extents = { 2, 4, 2 };
+        float[][] positions = { { 22.60652f, 10.197294f, -45.918674f }, { 6.4576626f, 10.197294f, -18.33406f },
+                { 22.331268f, 10.197294f, -1.0401875f }, { 18.694363f, 15.803535f, -73.090416f },
+                { -5.3449473f, 10.197294f, -20.47624f } };
+        for (float[] start : positions) {
+            for (float[] end : positions) {
+                List<StraightPathItem> expected = straightPath(query, start, end, extents, filter);
+                List<StraightPathItem> actual = straightPath(reorderedQuery, start, end, extents, filter);
+                assertEquals(expected.size(), actual.size());
+                for (int k = 0; k < expected.size(); k++) {
+                    assertArrayEquals(expected.get(k).getPos(), actual.get(k).getPos(), 1e-4f);
+                }
+            }
+        }
+    }
+
+    private List<StraightPathItem> straightPath(NavMeshQuery query, float[] start, float[] end, float[] extents,
+            QueryFilter filter) {
+        FindNearestPolyResult startPoly = query.findNearestPoly(start, extents, filter).result;
+        FindNearestPolyResult endPoly = query.findNearestPoly(end, extents, filter).result;
+        List<Long> path = query.findPath(startPoly.getNearestRef(), endPoly.getNearestRef(), startPoly.getNearestPos(),
+                endPoly.getNearestPos(), filter).result;
+        return query.findStraightPath(startPoly.getNearestPos(), endPoly.getNearestPos(), path, 256, 0).result;
+    }
+
+    /// Vertex positions and attributes of each polygon, sorted.
+    private List<String> polygonKeys(MeshData data) {
+        List<String> keys = new ArrayList<>();
+        for (Poly poly : data.polys) {
+            StringBuilder key = new StringBuilder();
+            key.append(poly.flags).append('/').append(poly.getArea()).append('/').append(poly.getType());
+            for (int j = 0; j < poly.vertCount; j++) {
+                for (int k = 0; k < 3; k++) {
+                    key.append(',').append(data.verts[poly.verts[j] * 3 + k]);
+                }
+            }
+            keys.add(key.toString());
+        }
+        Collections.sort(keys);
+        return keys;
+    }
+
+    private boolean contains(Poly poly, int v) {
+        for (int j = 0; j < poly.vertCount; j++) {
+            if (poly.verts[j] == v) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private double neighbourDistance(MeshData data) {
+        long sum = 0;
+        int count = 0;
+        for (int i = 0; i < data.header.offMeshBase; i++) {
+            Poly poly = data.polys[i];
+            for (int j = 0; j < poly.vertCount; j++) {
+                if (poly.neis[j] != 0 && (poly.neis[j] & NavMesh.DT_EXT_LINK) == 0) {
+                    sum += Math.abs(poly.neis[j] - 1 - i);
+                    count++;
+                }
+            }
+        }
+        return (double) sum / count;
+    }
+}
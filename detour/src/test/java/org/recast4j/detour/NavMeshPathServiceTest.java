@@ -0,0 +1,152 @@
+/*
+recast4j copyright (c) 2015-2019 Piotr Piastucki piotr@jtilia.org
+
+This software is provided 'as-is', without any express or implied
+warranty.  In no event will the authors be held liable for any damages
+arising from the use of this software.
+Permission is granted to anyone to use this software for any purpose,
+including commercial applications, and to alter it and redistribute it
+freely, subject to the following restrictions:
+1. The origin of this software must not be misrepresented; you must not
+ claim that you wrote the original software. If you use this software
+ in a product, an acknowledgment in the product documentation would be
+ appreciated but is not required.
+2. Altered source versions must be plainly marked as such, and must not be
+ misrepresented as being the original software.
+3. This notice may not be removed or altered from any source distribution.
+*/
+package org.recast4j.detour;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.recast4j.detour.NavMeshPathService.RejectionPolicy;
+
+public class NavMeshPathServiceTest extends AbstractDetourTest {
+
+    private final Deque<Runnable> tasks = new ArrayDeque<>();
+    private final Executor manual = tasks::add;
+    private final QueryFilter filter = new DefaultQueryFilter();
+
+    private void runAll() {
+        while (!tasks.isEmpty()) {
+            tasks.poll().run();
+        }
+    }
+
+    @Test
+    public void testPathsMatchFindPath() throws Exception {
+        NavMeshPathService service = new NavMeshPathService(navmesh, manual, 16, RejectionPolicy.FAIL);
+        for (int i = 0; i < startRefs.length; i++) {
+            CompletableFuture<PackedPath> future = service.requestPath(null, startRefs[i], endRefs[i], startPoss[i],
+                    endPoss[i], filter);
+            assertFalse(future.isDone());
+            runAll();
+            PackedPath path = future.get();
+            Result<List<Long>> expected = query.findPath(startRefs[i], endRefs[i], startPoss[i], endPoss[i], filter);
+            assertEquals(expected.status, path.getStatus());
+            assertEquals(expected.result.size(), path.getPolys().length);
+            for (int j = 0; j < path.getPolys().length; j++) {
+                assertEquals(expected.result.get(j).longValue(), path.getPolys()[j]);
+            }
+            assertTrue(path.getStraightPathCount() >= 2);
+            assertArrayEquals(startPoss[i], new float[] { path.getStraightPath()[0], path.getStraightPath()[1],
+                    path.getStraightPath()[2] }, 1e-3f);
+        }
+        assertEquals(0, service.getPendingCount());
+    }
+
+    @Test
+    public void testDeduplicate() throws Exception {
+        NavMeshPathService service = new NavMeshPathService(navmesh, manual, 16, RejectionPolicy.FAIL);
+        CompletableFuture<PackedPath> a = service.requestPath("a", startRefs[0], endRefs[0], startPoss[0],
+                endPoss[0], filter);
+        CompletableFuture<PackedPath> b = service.requestPath("b", startRefs[0], endRefs[0], startPoss[0].clone(),
+                endPoss[0].clone(), filter);
+        assertEquals(1, tasks.size());
+        // One requester losing interest must not abandon the shared search
+        a.cancel(false);
+        runAll();
+        assertTrue(a.isCancelled());
+        assertEquals(startRefs[0], b.get().getPolys()[0]);
+        CompletableFuture<PackedPath> c = service.requestPath("c", startRefs[0], endRefs[0], startPoss[0],
+                endPoss[0], filter);
+        assertEquals(1, tasks.size());
+        runAll();
+        CompletableFuture<PackedPath> d = service.requestPath("d", startRefs[0], endRefs[0], startPoss[0],
+                endPoss[0], filter);
+        CompletableFuture<PackedPath> e = service.requestPath("e", startRefs[0], endRefs[0], startPoss[0],
+                endPoss[0], filter);
+        runAll();
+        assertSame(d.get(), e.get());
+        assertEquals(c.get().getPolys().length, d.get().getPolys().length);
+    }
+
+    @Test
+    public void testSupersede() throws Exception {
+        NavMeshPathService service = new NavMeshPathService(navmesh, manual, 16, RejectionPolicy.FAIL);
+        Object agent = new Object();
+        CompletableFuture<PackedPath> first = service.requestPath(agent, startRefs[0], endRefs[0], startPoss[0],
+                endPoss[0], filter);
+        CompletableFuture<PackedPath> second = service.requestPath(agent, startRefs[1], endRefs[1], startPoss[1],
+                endPoss[1], filter);
+        assertTrue(first.isCancelled());
+        runAll();
+        assertEquals(startRefs[1], second.get().getPolys()[0]);
+    }
+
+    @Test
+    public void testBackpressure() throws Exception {
+        NavMeshPathService service = new NavMeshPathService(navmesh, manual, 1, RejectionPolicy.FAIL);
+        CompletableFuture<PackedPath> a = service.requestPath(null, startRefs[0], endRefs[0], startPoss[0],
+                endPoss[0], filter);
+        CompletableFuture<PackedPath> b = service.requestPath(null, startRefs[1], endRefs[1], startPoss[1],
+                endPoss[1], filter);
+        assertEquals(1, service.getPendingCount());
+        try {
+            b.get();
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof RejectedExecutionException);
+        }
+        runAll();
+        assertTrue(a.get().getPolys().length > 0);
+
+        service = new NavMeshPathService(navmesh, manual, 1, RejectionPolicy.CALLER_RUNS);
+        a = service.requestPath(null, startRefs[0], endRefs[0], startPoss[0], endPoss[0], filter);
+        b = service.requestPath(null, startRefs[1], endRefs[1], startPoss[1], endPoss[1], filter);
+        assertFalse(a.isDone());
+        assertTrue(b.isDone());
+        runAll();
+        assertTrue(a.get().getPolys().length > 0);
+    }
+
+    @Test
+    public void testDefaultExecutor() throws Exception {
+        try (NavMeshPathService service = new NavMeshPathService(navmesh)) {
+            @SuppressWarnings("unchecked")
+            CompletableFuture<PackedPath>[] futures = new CompletableFuture[startRefs.length];
+            for (int i = 0; i < startRefs.length; i++) {
+                futures[i] = service.requestPath(null, startRefs[i], endRefs[i], startPoss[i], endPoss[i], filter);
+            }
+            for (int i = 0; i < startRefs.length; i++) {
+                PackedPath path = futures[i].get(10, TimeUnit.SECONDS);
+                assertEquals(startRefs[i], path.getPolys()[0]);
+            }
+        }
+    }
+}
@@ -0,0 +1,181 @@
+/*
+recast4j copyright (c) 2015-2019 Piotr Piastucki piotr@jtilia.org
+
+This software is provided 'as-is', without any express or implied
+warranty.  In no event will the authors be held liable for any damages
+arising from the use of this software.
+Permission is granted to anyone to use this software for any purpose,
+including commercial applications, and to alter it and redistribute it
+freely, subject to the following restrictions:
+1. The origin of this software must not be misrepresented; you must not
+ claim that you wrote the original software. If you use this software
+ in a product, an acknowledgment in the product documentation would be
+ appreciated but is not required.
+2. Altered source versions must be plainly marked as such, and must not be
+ misrepresented as being the original software.
+3. This notice may not be removed or altered from any source distribution.
+*/
+package org.recast4j.detour;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.recast4j.detour.io.MeshSetReader;
+import org.recast4j.detour.io.MeshSetTileStore;
+
+public class NavMeshTileStreamerTest {
+
+    private final float[] extents = { 2f, 4f, 2f };
+    private final QueryFilter filter = new DefaultQueryFilter();
+    private MeshSetTileStore store;
+    private NavMesh fullMesh;
+
+    @Before
+    public void setUp() throws IOException, URISyntaxException {
+        Path file = Paths.get(getClass().getClassLoader().getResource("dungeon_all_tiles_navmesh.bin").toURI());
+        store = new MeshSetTileStore(file, 6);
+        fullMesh = new MeshSetReader().read(file, 6);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        store.close();
+    }
+
+    @Test
+    public void testFindPathLoadsTilesOnDemand() {
+        NavMeshTileStreamer streamer = new NavMeshTileStreamer(store, store.getTileCount());
+        NavMeshQuery query = new NavMeshQuery(streamer.getNavMesh());
+        NavMeshQuery fullQuery = new NavMeshQuery(fullMesh);
+        float[] startPos = tileCenter(0);
+        float[] endPos = tileCenter(fullMesh.getMaxTiles() - 1);
+
+        FindNearestPolyResult start = query.findNearestPoly(startPos, extents, filter).result;
+        FindNearestPolyResult end = query.findNearestPoly(endPos, extents, filter).result;
+        assertEquals(fullQuery.findNearestPoly(startPos, extents, filter).result.getNearestRef(),
+                start.getNearestRef());
+        assertEquals(fullQuery.findNearestPoly(endPos, extents, filter).result.getNearestRef(), end.getNearestRef());
+        int loaded = streamer.getResidentTileCount();
+        assertTrue(loaded < store.getTileCount());
+
+        Result<List<Long>> path = query.findPath(start.getNearestRef(), end.getNearestRef(), start.getNearestPos(),
+                end.getNearestPos(), filter);
+        Result<List<Long>> expected = fullQuery.findPath(start.getNearestRef(), end.getNearestRef(),
+                start.getNearestPos(), end.getNearestPos(), filter);
+        assertEquals(expected.status, path.status);
+        assertEquals(expected.result, path.result);
+        assertTrue(streamer.getResidentTileCount() > loaded);
+    }
+
+    @Test
+    public void testEvictionKeepsRefsStable() {
+        NavMeshTileStreamer streamer = new NavMeshTileStreamer(store, 4);
+        NavMeshQuery query = new NavMeshQuery(streamer.getNavMesh());
+        for (int i = 0; i < fullMesh.getMaxTiles(); i++) {
+            MeshTile tile = fullMesh.getTile(i);
+            if (tile.data == null) {
+                continue;
+            }
+            float[] center = tileCenter(i);
+            query.queryPolygons(center, extents, filter);
+            streamer.update();
+            assertTrue(streamer.getResidentTileCount() <= 4);
+            MeshHeader header = tile.data.header;
+            long ref = fullMesh.getTileRef(tile);
+            assertEquals(ref, streamer.getNavMesh().getTileRefAt(header.x, header.y, header.layer));
+            long polyRef = fullMesh.getPolyRefBase(tile);
+            assertTrue(streamer.getNavMesh().isValidPolyRef(polyRef));
+        }
+        assertTrue(streamer.getEvictionCount() > 0);
+        // The first tile has been evicted, its refs become valid again once it is reloaded.
+        MeshTile first = firstTile();
+        long polyRef = fullMesh.getPolyRefBase(first);
+        assertFalse(streamer.getNavMesh().isValidPolyRef(polyRef));
+        query.queryPolygons(tileCenter(first.index), extents, filter);
+        assertTrue(streamer.getNavMesh().isValidPolyRef(polyRef));
+    }
+
+    @Test
+    public void testPinnedTilesAreNotEvicted() {
+        NavMeshTileStreamer streamer = new NavMeshTileStreamer(store, 1);
+        MeshTile first = firstTile();
+        streamer.pin(1, tileCenter(first.index), 0.1f);
+        streamer.update();
+        assertTrue(streamer.isResident(first.data.header.x, first.data.header.y));
+        NavMeshQuery query = new NavMeshQuery(streamer.getNavMesh());
+        for (int i = first.index + 1; i < fullMesh.getMaxTiles(); i++) {
+            if (fullMesh.getTile(i).data != null) {
+                query.queryPolygons(tileCenter(i), extents, filter);
+                streamer.update();
+            }
+        }
+        assertTrue(streamer.isResident(first.data.header.x, first.data.header.y));
+        streamer.unpin(1);
+        query.queryPolygons(tileCenter(fullMesh.getMaxTiles() - 1), extents, filter);
+        streamer.update();
+        assertFalse(streamer.isResident(first.data.header.x, first.data.header.y));
+    }
+
+    @Test
+    public void testPrefetch() throws InterruptedException {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            NavMeshTileStreamer streamer = new NavMeshTileStreamer(store, store.getTileCount(), executor);
+            MeshTile tile = fullMesh.getTile(fullMesh.getTileCount() / 2);
+            int x = tile.data.header.x;
+            int y = tile.data.header.y;
+            streamer.loadTilesAt(x, y);
+            int resident = streamer.getResidentTileCount();
+            assertTrue(streamer.getPendingPrefetchCount() > 0);
+            executor.shutdown();
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+            streamer.update();
+            assertEquals(0, streamer.getPendingPrefetchCount());
+            assertTrue(streamer.getResidentTileCount() > resident);
+            for (int dy = -1; dy <= 1; ++dy) {
+                for (int dx = -1; dx <= 1; ++dx) {
+                    assertEquals(!fullMesh.getTilesAt(x + dx, y + dy).isEmpty(), streamer.isResident(x + dx, y + dy));
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private MeshTile firstTile() {
+        for (int i = 0; i < fullMesh.getMaxTiles(); i++) {
+            if (fullMesh.getTile(i).data != null) {
+                return fullMesh.getTile(i);
+            }
+        }
+        return null;
+    }
+
+    private float[] tileCenter(int i) {
+        MeshTile tile = fullMesh.getTile(i);
+        while (tile.data == null) {
+            tile = fullMesh.getTile(--i);
+        }
+        Poly poly = tile.data.polys[0];
+        float[] center = new float[3];
+        for (int j = 0; j < poly.vertCount; j++) {
+            for (int k = 0; k < 3; k++) {
+                center[k] += tile.data.verts[poly.verts[j] * 3 + k] / poly.vertCount;
+            }
+        }
+        return center;
+    }
+}
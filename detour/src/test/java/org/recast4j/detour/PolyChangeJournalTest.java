@@ -0,0 +1,124 @@
+/*
+recast4j copyright (c) 2015-2019 Piotr Piastucki piotr@jtilia.org
+
+This software is provided 'as-is', without any express or implied
+warranty.  In no event will the authors be held liable for any damages
+arising from the use of this software.
+Permission is granted to anyone to use this software for any purpose,
+including commercial applications, and to alter it and redistribute it
+freely, subject to the following restrictions:
+1. The origin of this software must not be misrepresented; you must not
+ claim that you wrote the original software. If you use this software
+ in a product, an acknowledgment in the product documentation would be
+ appreciated but is not required.
+2. Altered source versions must be plainly marked as such, and must not be
+ misrepresented as being the original software.
+3. This notice may not be removed or altered from any source distribution.
+*/
+package org.recast4j.detour;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class PolyChangeJournalTest extends AbstractDetourTest {
+
+    @Test
+    public void testBulkRefs() {
+        PolyChangeJournal journal = navmesh.getChangeJournal();
+        long version = journal.getVersion();
+        long[] refs = { startRefs[0], startRefs[1], startRefs[2] };
+        assertEquals(3, navmesh.setPolyFlags(refs, 0x40));
+        assertEquals(version + 1, journal.getVersion());
+        assertTrue(journal.hasChangedSince(version));
+        for (long ref : refs) {
+            assertEquals(0x40, navmesh.getPolyFlags(ref).result.intValue());
+        }
+        assertArrayEquals(new int[] { NavMesh.decodePolyIdTile(startRefs[0]) }, journal.getChangedTiles(version));
+
+        // Setting the same values again is not a change.
+        assertEquals(0, navmesh.setPolyFlags(refs, 0x40));
+        assertEquals(Status.SUCCSESS, navmesh.setPolyFlags(startRefs[0], 0x40));
+        assertEquals(version + 1, journal.getVersion());
+        assertEquals(0, journal.getChangedTiles(version + 1).length);
+
+        assertEquals(1, navmesh.setPolyArea(new long[] { startRefs[3], 0L }, (char) 5));
+        assertEquals(5, navmesh.getPolyArea(startRefs[3]).result.intValue());
+        assertEquals(version + 2, journal.getVersion());
+    }
+
+    @Test
+    public void testBox() {
+        float[] ext = { 2f, 4f, 2f };
+        float[] bmin = { startPoss[0][0] - ext[0], startPoss[0][1] - ext[1], startPoss[0][2] - ext[2] };
+        float[] bmax = { startPoss[0][0] + ext[0], startPoss[0][1] + ext[1], startPoss[0][2] + ext[2] };
+        int count = query.queryPolygons(startPoss[0], ext, new DefaultQueryFilter()).result.size();
+        assertTrue(count > 0);
+        long version = navmesh.getChangeJournal().getVersion();
+        assertEquals(count, navmesh.setPolyAreaInBox(bmin, bmax, (char) 3));
+        assertEquals(version + 1, navmesh.getChangeJournal().getVersion());
+        assertEquals(3, navmesh.getPolyArea(startRefs[0]).result.intValue());
+    }
+
+    @Test
+    public void testConvexVolume() {
+        float[] p = startPoss[0];
+        float[] verts = { p[0] - 1f, p[1], p[2] - 1f, p[0] - 1f, p[1], p[2] + 1f, p[0] + 1f, p[1], p[2] + 1f,
+                p[0] + 1f, p[1], p[2] - 1f };
+        int count = navmesh.setPolyFlagsInConvexVolume(verts, 4, p[1] - 2f, p[1] + 2f, 0);
+        assertTrue(count > 0);
+        // A polygon far away from the volume is left untouched.
+        assertEquals(1, navmesh.getPolyFlags(endRefs[0]).result.intValue());
+        // Blocked polygons are rejected by the default filter.
+        int passing = query.queryPolygons(p, new float[] { 2f, 4f, 2f }, new DefaultQueryFilter()).result.size();
+        assertEquals(0, navmesh.setPolyFlagsInConvexVolume(verts, 4, p[1] - 2f, p[1] + 2f, 0));
+        assertEquals(count, navmesh.setPolyFlagsInConvexVolume(verts, 4, p[1] - 2f, p[1] + 2f, 1));
+        assertTrue(query.queryPolygons(p, new float[] { 2f, 4f, 2f }, new DefaultQueryFilter()).result.size() > passing);
+    }
+
+    @Test
+    public void testTileChanges() {
+        NavMesh tiled = new TestTiledNavMeshBuilder().getNavMesh();
+        PolyChangeJournal journal = tiled.getChangeJournal();
+        long version = journal.getVersion();
+        long ref = 281475015507969L;
+        MeshTile tile = tiled.getTileByRef(ref);
+        long tileRef = tiled.getTileRef(tile);
+        MeshData data = tiled.removeTile(tileRef);
+        assertEquals(version + 1, journal.getVersion());
+        int[] changed = journal.getChangedTiles(version);
+        assertTrue(changed.length > 1);
+        assertTrue(Arrays.stream(changed).anyMatch(t -> t == tile.index));
+        for (int t : changed) {
+            MeshTile nei = tiled.getTile(t);
+            assertTrue(nei == tile || Math.abs(nei.data.header.x - data.header.x) <= 1
+                    && Math.abs(nei.data.header.y - data.header.y) <= 1);
+        }
+
+        tiled.addTile(data, 0, tileRef);
+        assertEquals(version + 2, journal.getVersion());
+        int[] added = journal.getChangedTiles(version + 1);
+        Arrays.sort(changed);
+        Arrays.sort(added);
+        assertArrayEquals(changed, added);
+    }
+
+    @Test
+    public void testOverflow() {
+        PolyChangeJournal journal = new PolyChangeJournal(4);
+        assertFalse(journal.hasChangedSince(0));
+        for (int i = 0; i < 6; i++) {
+            journal.record(new int[] { i });
+        }
+        assertEquals(6, journal.getVersion());
+        assertArrayEquals(new int[] { 5, 4, 3, 2 }, journal.getChangedTiles(2));
+        assertNull(journal.getChangedTiles(1));
+        assertEquals(0, journal.getChangedTiles(6).length);
+    }
+}
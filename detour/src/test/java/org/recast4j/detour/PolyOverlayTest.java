@@ -0,0 +1,115 @@
+/*
+recast4j copyright (c) 2015-2019 Piotr Piastucki piotr@jtilia.org
+
+This software is provided 'as-is', without any express or implied
+warranty.  In no event will the authors be held liable for any damages
+arising from the use of this software.
+Permission is granted to anyone to use this software for any purpose,
+including commercial applications, and to alter it and redistribute it
+freely, subject to the following restrictions:
+1. The origin of this software must not be misrepresented; you must not
+ claim that you wrote the original software. If you use this software
+ in a product, an acknowledgment in the product documentation would be
+ appreciated but is not required.
+2. Altered source versions must be plainly marked as such, and must not be
+ misrepresented as being the original software.
+3. This notice may not be removed or altered from any source distribution.
+*/
+package org.recast4j.detour;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Test;
+
+public class PolyOverlayTest extends AbstractDetourTest {
+
+    @Test
+    public void testOverlayFlags() {
+        QueryFilter filter = new DefaultQueryFilter();
+        List<Long> path = query.findPath(startRefs[0], endRefs[0], startPoss[0], endPoss[0], filter).result;
+        long blocked = path.get(path.size() / 2);
+        int flags = navmesh.getPolyFlags(blocked).result;
+
+        PolyOverlay closed = new PolyOverlay(navmesh);
+        PolyOverlay open = new PolyOverlay(navmesh);
+        assertEquals(Status.SUCCSESS, closed.setPolyFlags(blocked, 0));
+        assertEquals(1, closed.size());
+        assertEquals(0, closed.getPolyFlags(blocked).result.intValue());
+        // The shared mesh and other instances are not affected.
+        assertEquals(flags, navmesh.getPolyFlags(blocked).result.intValue());
+        assertEquals(flags, open.getPolyFlags(blocked).result.intValue());
+
+        QueryFilter closedFilter = closed.wrap(filter);
+        assertFalse(query.isValidPolyRef(blocked, closedFilter));
+        List<Long> closedPath = query.findPath(startRefs[0], endRefs[0], startPoss[0], endPoss[0], closedFilter).result;
+        assertFalse(closedPath.contains(blocked));
+        assertNotEquals(path, closedPath);
+        List<Long> openPath = query.findPath(startRefs[0], endRefs[0], startPoss[0], endPoss[0], open.wrap(filter))
+                .result;
+        assertEquals(path, openPath);
+
+        closed.reset(blocked);
+        assertEquals(0, closed.size());
+        assertTrue(query.isValidPolyRef(blocked, closedFilter));
+    }
+
+    @Test
+    public void testOverlayArea() {
+        float[] areaCost = new float[NavMesh.DT_MAX_AREAS];
+        areaCost[0] = 1f;
+        areaCost[1] = 1f;
+        areaCost[2] = 100f;
+        QueryFilter filter = new DefaultQueryFilter(0xffff, 0, areaCost);
+        long ref = startRefs[0];
+        int area = navmesh.getPolyArea(ref).result;
+        PolyOverlay overlay = new PolyOverlay(navmesh);
+        assertEquals(Status.SUCCSESS, overlay.setPolyArea(ref, (char) 2));
+        assertEquals(2, overlay.getPolyArea(ref).result.intValue());
+        assertEquals(area, navmesh.getPolyArea(ref).result.intValue());
+
+        Tupple2<MeshTile, Poly> tileAndPoly = navmesh.getTileAndPolyByRef(ref).result;
+        float[] pa = { 0, 0, 0 };
+        float[] pb = { 1, 0, 0 };
+        float cost = filter.getCost(pa, pb, 0, null, null, ref, tileAndPoly.first, tileAndPoly.second, 0, null, null);
+        float overlayCost = overlay.wrap(filter).getCost(pa, pb, 0, null, null, ref, tileAndPoly.first,
+                tileAndPoly.second, 0, null, null);
+        assertEquals(areaCost[area], cost, 1e-6f);
+        assertEquals(100f, overlayCost, 1e-6f);
+    }
+
+    @Test
+    public void testManyOverrides() {
+        MeshTile tile = navmesh.getTile(0);
+        long base = navmesh.getPolyRefBase(tile);
+        int count = tile.data.header.polyCount;
+        PolyOverlay overlay = new PolyOverlay(navmesh);
+        for (int i = 0; i < count; i++) {
+            assertEquals(Status.SUCCSESS, overlay.setPolyFlags(base | i, i + 1));
+        }
+        assertEquals(count, overlay.size());
+        for (int i = 0; i < count; i += 2) {
+            overlay.reset(base | i);
+        }
+        assertEquals(count / 2, overlay.size());
+        for (int i = 0; i < count; i++) {
+            int expected = i % 2 == 0 ? tile.data.polys[i].flags : i + 1;
+            assertEquals(expected, overlay.getPolyFlags(base | i).result.intValue());
+        }
+        overlay.clear();
+        assertEquals(0, overlay.size());
+        assertEquals(tile.data.polys[1].flags, overlay.getPolyFlags(base | 1).result.intValue());
+    }
+
+    @Test
+    public void testInvalidRef() {
+        PolyOverlay overlay = new PolyOverlay(navmesh);
+        assertEquals(Status.FAILURE_INVALID_PARAM, overlay.setPolyFlags(0, 1));
+        assertTrue(overlay.getPolyFlags(0).failed());
+        assertEquals(0, overlay.size());
+    }
+}
@@ -0,0 +1,273 @@
+/*
+recast4j copyright (c) 2015-2019 Piotr Piastucki piotr@jtilia.org
+
+This software is provided 'as-is', without any express or implied
+warranty.  In no event will the authors be held liable for any damages
+arising from the use of this software.
+Permission is granted to anyone to use this software for any purpose,
+including commercial applications, and to alter it and redistribute it
+freely, subject to the following restrictions:
+1. The origin of this software must not be misrepresented; you must not
+ claim that you wrote the original software. If you use this software
+ in a product, an acknowledgment in the product documentation would be
+ appreciated but is not required.
+2. Altered source versions must be plainly marked as such, and must not be
+ misrepresented as being the original software.
+3. This notice may not be removed or altered from any source distribution.
+*/
+package org.recast4j.detour;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.List;
+
+import org.junit.Test;
+import org.recast4j.detour.io.MeshDataReader;
+import org.recast4j.detour.io.MeshDataWriter;
+import org.recast4j.detour.io.MeshSetReader;
+import org.recast4j.recast.ObjImporter;
+import org.recast4j.recast.RecastConstants.PartitionType;
+
+public class QuantizedVertsTest {
+
+    @Test
+    public void testQuantize() {
+        float[] verts = { -10f, 2f, 3.3f, 5f, 2f, 7.1f, 0.25f, 2f, -4f };
+        QuantizedVerts q = QuantizedVerts.quantize(verts, 3);
+        assertEquals(3, q.getCount());
+        assertEquals(0f, q.getMaxError(1), 0f);
+        float[] deq = q.toFloats();
+        for (int i = 0; i < verts.length; i++) {
+            assertEquals(verts[i], deq[i], q.getMaxError(i % 3) + 1e-5f);
+        }
+        assertEquals(-10f, q.get(0, 0), 0f);
+        assertEquals(16 + 2 * 16 + 18 + 24, q.getMemorySize());
+    }
+
+    @Test
+    public void testDungeon() {
+        compare(new NavMesh(new RecastTestMeshBuilder().getMeshData(), 6, 0),
+                new NavMesh(new RecastTestMeshBuilder().getMeshData(), 6, 0), 0.3f, 0.2f);
+    }
+
+    @Test
+    public void testNavTest() {
+        compare(new NavMesh(navTestMeshData(), 6, 0), new NavMesh(navTestMeshData(), 6, 0), 0.3f, 0.2f);
+    }
+
+    @Test
+    public void testTiledDungeon() throws IOException {
+        MeshSetReader reader = new MeshSetReader();
+        compare(reader.read(getClass().getClassLoader().getResourceAsStream("dungeon_all_tiles_navmesh.bin"), 6),
+                reader.read(getClass().getClassLoader().getResourceAsStream("dungeon_all_tiles_navmesh.bin"), 6), 0.3f,
+                0.2f);
+    }
+
+    @Test
+    public void testQuantizeGrid() {
+        float[] origin = { -2f, 1f, 4f };
+        float[] verts = { -2f + 3 * 0.3f, 1f + 7 * 0.2f, 4f + 11 * 0.3f, -2f, 1f, 4f, 0.123f, 4.567f, 8.9f };
+        QuantizedVerts q = QuantizedVerts.quantizeGrid(verts, 3, 2, origin, 0.3f, 0.2f);
+        assertEquals(3, q.getCount());
+        // Grid vertices are restored bit exact, the tail vertex is kept as float.
+        assertArrayEquals(verts, q.toFloats(), 0f);
+        assertTrue(q.set(2, new float[] { 1f, 2f, 3f }));
+        assertEquals(2f, q.get(2, 1), 0f);
+        assertEquals(16 + 3 * 16 + 12 + 12 + 24, q.getMemorySize());
+        // Grid vertices only accept positions on the grid.
+        assertTrue(q.set(1, new float[] { -2f + 0.3f, 1f, 4f }));
+        assertEquals(-2f + 0.3f, q.get(1, 0), 0f);
+        assertFalse(q.set(1, new float[] { -2f + 0.1f, 1f, 4f }));
+        assertEquals(-2f + 0.3f, q.get(1, 0), 0f);
+        assertNull(QuantizedVerts.quantizeGrid(new float[] { -3f, 1f, 4f }, 1, 1, origin, 0.3f, 0.2f));
+        assertNull(QuantizedVerts.quantizeGrid(new float[] { -2f, 1f + 0.05f, 4f }, 1, 1, origin, 0.3f, 0.2f));
+    }
+
+    @Test
+    public void testQuantizeOffGrid() {
+        MeshData data = new RecastTestMeshBuilder().getMeshData();
+        float[] v = new float[3];
+        data.getVert(0, v, 0);
+        v[0] += 0.3f * 0.25f;
+        data.setVert(0, v);
+        float[] verts = data.verts.clone();
+        // A polygon vertex off the grid keeps the tile float.
+        assertFalse(data.quantizeVerts(0.3f, 0.2f));
+        assertArrayEquals(verts, data.verts, 0f);
+
+        data = new RecastTestMeshBuilder().getMeshData();
+        verts = data.verts.clone();
+        assertTrue(data.quantizeVerts(0.3f, 0.2f));
+        // Moving a vertex off the grid switches the tile back to floats.
+        data.getVert(0, v, 0);
+        v[0] += 0.3f * 0.25f;
+        data.setVert(0, v);
+        assertNull(data.vertsQuantized);
+        verts[0] = v[0];
+        assertArrayEquals(verts, data.verts, 0f);
+    }
+
+    @Test
+    public void testWriteQuantized() throws IOException {
+        MeshData data = new RecastTestMeshBuilder().getMeshData();
+        float[] verts = data.verts;
+        float[] detailVerts = data.detailVerts;
+        data.quantizeVerts(0.3f, 0.2f);
+        data.quantizeDetailVerts();
+        assertNull(data.verts);
+        assertNull(data.detailVerts);
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        new MeshDataWriter().write(os, data, ByteOrder.LITTLE_ENDIAN, false);
+        MeshData read = new MeshDataReader().read(ByteBuffer.wrap(os.toByteArray()), 6);
+        assertArrayEquals(verts, read.verts, 0f);
+        assertArrayEquals(detailVerts, read.detailVerts, 0.01f);
+    }
+
+    private MeshData navTestMeshData() {
+        return new RecastTestMeshBuilder(new ObjImporter().load(getClass().getClassLoader().getResourceAsStream(
+                "nav_test.obj")), PartitionType.WATERSHED, 0.3f, 0.2f, 2.0f, 0.6f, 0.9f, 45.0f, 8, 20, 12.0f, 1.3f, 6,
+                6.0f, 1.0f).getMeshData();
+    }
+
+    /**
+     * Quantizes the tiles of the second mesh and compares the results of the kernels reading the polygon and detail
+     * vertices.
+     */
+    private void compare(NavMesh expected, NavMesh quantized, float cs, float ch) {
+        int floatBytes = 0;
+        int quantizedBytes = 0;
+        int vertFloatBytes = 0;
+        int vertQuantizedBytes = 0;
+        float maxError = 0;
+        float vertError = 0;
+        for (int i = 0; i < quantized.getMaxTiles(); i++) {
+            MeshData data = quantized.getTile(i).data;
+            if (data != null) {
+                int size = QuantizedVerts.getFloatMemorySize(data.header.detailVertCount);
+                floatBytes += size;
+                if (data.quantizeDetailVerts()) {
+                    quantizedBytes += data.detailVertsQuantized.getMemorySize();
+                    assertTrue(data.detailVertsQuantized.getMemorySize() < size);
+                    for (int axis = 0; axis < 3; axis++) {
+                        maxError = Math.max(maxError, data.detailVertsQuantized.getMaxError(axis));
+                    }
+                } else {
+                    quantizedBytes += size;
+                }
+
+                float[] verts = data.verts;
+                size = QuantizedVerts.getFloatMemorySize(data.header.vertCount);
+                vertFloatBytes += size;
+                if (data.quantizeVerts(cs, ch)) {
+                    vertQuantizedBytes += data.vertsQuantized.getMemorySize();
+                    assertTrue(data.vertsQuantized.getMemorySize() < size);
+                    float[] v = new float[3];
+                    for (int j = 0; j < data.header.vertCount; j++) {
+                        data.getVert(j, v, 0);
+                        for (int k = 0; k < 3; k++) {
+                            vertError = Math.max(vertError, Math.abs(v[k] - verts[j * 3 + k]));
+                        }
+                    }
+                } else {
+                    vertQuantizedBytes += size;
+                }
+            }
+        }
+        assertTrue(quantizedBytes <= floatBytes);
+        assertTrue(vertQuantizedBytes < vertFloatBytes);
+        // The vertices built on the voxel grid are restored exactly.
+        assertEquals(0f, vertError, 0f);
+
+        NavMeshQuery expectedQuery = new NavMeshQuery(expected);
+        NavMeshQuery query = new NavMeshQuery(quantized);
+        float heightError = 0;
+        float closestError = 0;
+        for (int i = 0; i < expected.getMaxTiles(); i++) {
+            MeshTile tile = expected.getTile(i);
+            if (tile.data == null) {
+                continue;
+            }
+            long base = expected.getPolyRefBase(tile);
+            for (int p = 0; p < tile.data.header.polyCount; p++) {
+                Poly poly = tile.data.polys[p];
+                for (int l = poly.firstLink; l != NavMesh.DT_NULL_LINK; l = tile.links.get(l).next) {
+                    long to = tile.links.get(l).ref;
+                    NavMeshQuery.PortalResult p1 = expectedQuery.getPortalPoints(base | p, to).result;
+                    NavMeshQuery.PortalResult p2 = query.getPortalPoints(base | p, to).result;
+                    assertArrayEquals(p1.left, p2.left, 0f);
+                    assertArrayEquals(p1.right, p2.right, 0f);
+                }
+                if (poly.getType() == Poly.DT_POLYTYPE_OFFMESH_CONNECTION) {
+                    continue;
+                }
+                float[] center = new float[3];
+                for (int j = 0; j < poly.vertCount; j++) {
+                    for (int k = 0; k < 3; k++) {
+                        center[k] += tile.data.verts[poly.verts[j] * 3 + k] / poly.vertCount;
+                    }
+                }
+                Result<Float> h1 = expectedQuery.getPolyHeight(base | p, center);
+                Result<Float> h2 = query.getPolyHeight(base | p, center);
+                assertEquals(h1.status, h2.status);
+                if (h1.succeeded()) {
+                    heightError = Math.max(heightError, Math.abs(h1.result - h2.result));
+                }
+                float[] outside = { center[0] + 1.5f, center[1] + 0.5f, center[2] - 1.5f };
+                float[] c1 = expectedQuery.closestPointOnPoly(base | p, outside).result.getClosest();
+                float[] c2 = query.closestPointOnPoly(base | p, outside).result.getClosest();
+                closestError = Math.max(closestError, DetourCommon.vDist(c1, c2));
+                assertArrayEquals(expectedQuery.closestPointOnPolyBoundary(base | p, outside).result,
+                        query.closestPointOnPolyBoundary(base | p, outside).result, 0f);
+            }
+        }
+        // Interpolation over a triangle can not amplify the per vertex error much.
+        assertTrue("height error " + heightError, heightError <= maxError * 4 + 1e-4f);
+        assertTrue("closest point error " + closestError, closestError <= maxError * 4 + 1e-4f);
+    }
+
+    @Test
+    public void testQueriesOnQuantizedTiles() {
+        NavMesh expected = new TestTiledNavMeshBuilder().getNavMesh();
+        NavMesh quantized = new TestTiledNavMeshBuilder().getNavMesh();
+        int quantizedTiles = 0;
+        for (int i = 0; i < quantized.getMaxTiles(); i++) {
+            MeshData data = quantized.getTile(i).data;
+            if (data != null && data.quantizeVerts(0.3f, 0.2f)) {
+                quantizedTiles++;
+            }
+        }
+        // Tiles with a handful of vertices stay float.
+        assertTrue(quantizedTiles > 0);
+        long startRef = 281475015507969L;
+        long endRef = 281474985099266L;
+        float[] startPos = { 39.447338f, 9.998177f, -0.784811f };
+        float[] endPos = { 19.292645f, 11.611748f, -57.750366f };
+        QueryFilter filter = new DefaultQueryFilter();
+        NavMeshQuery expectedQuery = new NavMeshQuery(expected);
+        NavMeshQuery query = new NavMeshQuery(quantized);
+        List<Long> path = expectedQuery.findPath(startRef, endRef, startPos, endPos, filter).result;
+        assertEquals(path, query.findPath(startRef, endRef, startPos, endPos, filter).result);
+        List<StraightPathItem> s1 = expectedQuery.findStraightPath(startPos, endPos, path, 256, 0).result;
+        List<StraightPathItem> s2 = query.findStraightPath(startPos, endPos, path, 256, 0).result;
+        assertEquals(s1.size(), s2.size());
+        for (int i = 0; i < s1.size(); i++) {
+            assertArrayEquals(s1.get(i).getPos(), s2.get(i).getPos(), 0f);
+        }
+        RaycastHit r1 = expectedQuery.raycast(startRef, startPos, endPos, filter, 0, 0).result;
+        RaycastHit r2 = query.raycast(startRef, startPos, endPos, filter, 0, 0).result;
+        assertEquals(r1.t, r2.t, 0f);
+        assertEquals(r1.path, r2.path);
+        assertEquals(expectedQuery.moveAlongSurface(startRef, startPos, endPos, filter).result.getVisited(),
+                query.moveAlongSurface(startRef, startPos, endPos, filter).result.getVisited());
+        assertEquals(expectedQuery.findDistanceToWall(startRef, startPos, 5f, filter).result.getDistance(),
+                query.findDistanceToWall(startRef, startPos, 5f, filter).result.getDistance(), 0f);
+    }
+}
@@ -0,0 +1,111 @@
+/*
+recast4j copyright (c) 2015-2019 Piotr Piastucki piotr@jtilia.org
+
+This software is provided 'as-is', without any express or implied
+warranty.  In no event will the authors be held liable for any damages
+arising from the use of this software.
+Permission is granted to anyone to use this software for any purpose,
+including commercial applications, and to alter it and redistribute it
+freely, subject to the following restrictions:
+1. The origin of this software must not be misrepresented; you must not
+ claim that you wrote the original software. If you use this software
+ in a product, an acknowledgment in the product documentation would be
+ appreciated but is not required.
+2. Altered source versions must be plainly marked as such, and must not be
+ misrepresented as being the original software.
+3. This notice may not be removed or altered from any source distribution.
+*/
+package org.recast4j.detour;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class QueryMetricsTest extends AbstractDetourTest {
+
+    private final List<QueryType> types = new ArrayList<>();
+    private final List<String> stats = new ArrayList<>();
+
+    @Test
+    public void testFindPath() {
+        QueryFilter filter = new DefaultQueryFilter();
+        List<Long> expected = query.findPath(startRefs[0], endRefs[0], startPoss[0], endPoss[0], filter).result;
+        QueryMetrics metrics = new QueryMetrics();
+        query.setInstrumentation(metrics);
+        List<Long> path = query.findPath(startRefs[0], endRefs[0], startPoss[0], endPoss[0], filter).result;
+        assertEquals(expected, path);
+
+        QueryMetrics.Metrics m = metrics.get(QueryType.FIND_PATH);
+        assertEquals(1, m.getCount());
+        assertEquals(1, m.getStatusCount(Status.SUCCSESS));
+        assertTrue(m.getNodesExpanded() >= path.size() - 1);
+        assertTrue(m.getMaxOpenListSize() > 0);
+        assertTrue(m.getFilterCalls() > m.getNodesExpanded());
+        assertTrue(m.getCostCalls() > 0);
+        assertEquals(1, m.getTilesTouched());
+        assertTrue(m.getLatency().getMax() > 0);
+
+        query.setInstrumentation(null);
+        query.findPath(startRefs[0], endRefs[0], startPoss[0], endPoss[0], filter);
+        assertEquals(1, m.getCount());
+    }
+
+    @Test
+    public void testNestedQueries() {
+        query.setInstrumentation((type, s) -> {
+            types.add(type);
+            stats.add(s.toString());
+        });
+        float[] ext = { 2, 4, 2 };
+        query.findNearestPoly(startPoss[0], ext, new DefaultQueryFilter());
+        query.queryPolygons(startPoss[0], ext, new DefaultQueryFilter());
+        // The polygon query of findNearestPoly is not reported on its own.
+        assertEquals(2, types.size());
+        assertEquals(QueryType.FIND_NEAREST_POLY, types.get(0));
+        assertEquals(QueryType.QUERY_POLYGONS, types.get(1));
+        assertTrue(stats.get(1).contains("nodesExpanded=0"));
+    }
+
+    @Test
+    public void testSlicedFindPath() {
+        QueryFilter filter = new DefaultQueryFilter();
+        QueryMetrics metrics = new QueryMetrics();
+        query.setInstrumentation(metrics);
+        query.initSlicedFindPath(startRefs[1], endRefs[1], startPoss[1], endPoss[1], filter,
+                NavMeshQuery.DT_FINDPATH_ANY_ANGLE);
+        Status status = Status.IN_PROGRESS;
+        while (status.isInProgress()) {
+            status = query.updateSlicedFindPath(5).status;
+        }
+        query.finalizeSlicedFindPath();
+        QueryMetrics.Metrics m = metrics.get(QueryType.SLICED_FIND_PATH);
+        assertEquals(1, m.getCount());
+        assertTrue(m.getNodesExpanded() > 5);
+        // Any-angle raycasts are accounted to the sliced query.
+        assertEquals(0, metrics.get(QueryType.RAYCAST).getCount());
+    }
+
+    @Test
+    public void testHistogram() {
+        LatencyHistogram h = new LatencyHistogram();
+        assertEquals(0, h.getValueAtPercentile(50));
+        for (int i = 1; i <= 1000; i++) {
+            h.record(i * 1000L);
+        }
+        assertEquals(1000, h.getCount());
+        assertEquals(1_000_000L, h.getMax());
+        assertEquals(500_500.0, h.getMean(), 1e-6);
+        long p50 = h.getValueAtPercentile(50);
+        long p99 = h.getValueAtPercentile(99);
+        assertEquals(500_000, p50, 500_000.0 / LatencyHistogram.SUB_BUCKETS);
+        assertEquals(990_000, p99, 990_000.0 / LatencyHistogram.SUB_BUCKETS);
+        assertEquals(1_000_000L, h.getValueAtPercentile(100));
+        for (long v = 0; v < 100_000; v += 7) {
+            assertTrue(LatencyHistogram.bucketUpperBound(LatencyHistogram.bucketIndex(v)) >= v);
+        }
+    }
+}
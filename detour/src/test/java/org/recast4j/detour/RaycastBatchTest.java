@@ -0,0 +1,171 @@
+/*
+recast4j copyright (c) 2015-2019 Piotr Piastucki piotr@jtilia.org
+
+This software is provided 'as-is', without any express or implied
+warranty.  In no event will the authors be held liable for any damages
+arising from the use of this software.
+Permission is granted to anyone to use this software for any purpose,
+including commercial applications, and to alter it and redistribute it
+freely, subject to the following restrictions:
+1. The origin of this software must not be misrepresented; you must not
+ claim that you wrote the original software. If you use this software
+ in a product, an acknowledgment in the product documentation would be
+ appreciated but is not required.
+2. Altered source versions must be plainly marked as such, and must not be
+ misrepresented as being the original software.
+3. This notice may not be removed or altered from any source distribution.
+*/
+package org.recast4j.detour;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+public class RaycastBatchTest extends AbstractDetourTest {
+
+    private final QueryFilter filter = new DefaultQueryFilter();
+
+    private float[] pack(float[][] v) {
+        float[] packed = new float[v.length * 3];
+        for (int i = 0; i < v.length; i++) {
+            System.arraycopy(v[i], 0, packed, i * 3, 3);
+        }
+        return packed;
+    }
+
+    @Test
+    public void testMatchesRaycast() {
+        int n = startRefs.length;
+        int maxPath = 4;
+        float[] hitT = new float[n];
+        float[] hitNormals = new float[n * 3];
+        long[] hitPolys = new long[n];
+        int[] pathCounts = new int[n];
+        long[] paths = new long[n * maxPath];
+        RaycastBatch batch = new RaycastBatch(navmesh);
+        assertEquals(n, batch.raycast(n, startRefs, null, pack(startPoss), pack(endPoss), filter, hitT, hitNormals,
+                hitPolys, pathCounts, paths, maxPath));
+        for (int i = 0; i < n; i++) {
+            RaycastHit hit = query.raycast(startRefs[i], startPoss[i], endPoss[i], filter, 0, 0).result;
+            assertEquals(hit.t, hitT[i], 0);
+            assertArrayEquals(hit.hitNormal, new float[] { hitNormals[i * 3], hitNormals[i * 3 + 1],
+                    hitNormals[i * 3 + 2] }, 1e-6f);
+            assertEquals(hit.path.size(), pathCounts[i]);
+            assertEquals(hit.path.get(hit.path.size() - 1).longValue(), hitPolys[i]);
+            for (int j = 0; j < Math.min(maxPath, pathCounts[i]); j++) {
+                assertEquals(hit.path.get(j).longValue(), paths[i * maxPath + j]);
+            }
+        }
+    }
+
+    @Test
+    public void testInvalidInput() {
+        float[] hitT = new float[1];
+        long[] hitPolys = new long[1];
+        RaycastBatch batch = new RaycastBatch(navmesh);
+        assertEquals(0, batch.raycast(1, new long[] { 0 }, null, startPoss[0], endPoss[0], filter, hitT,
+                new float[3], hitPolys, null, null, 0));
+        assertEquals(0, hitPolys[0]);
+    }
+
+    @Test
+    public void testVisibilityCache() {
+        int n = startRefs.length;
+        AtomicLong clock = new AtomicLong();
+        VisibilityCache cache = new VisibilityCache(navmesh, 64, 0.5f, 100, clock::get);
+        RaycastBatch batch = new RaycastBatch(navmesh);
+        batch.setVisibilityCache(cache);
+        float[] startPos = pack(startPoss);
+        float[] endPos = pack(endPoss);
+        float[] hitT = new float[n];
+        float[] hitNormals = new float[n * 3];
+        long[] hitPolys = new long[n];
+        batch.raycast(n, startRefs, endRefs, startPos, endPos, filter, hitT, hitNormals, hitPolys, null, null, 0);
+        assertEquals(0, cache.getHits());
+        assertEquals(n, cache.getMisses());
+
+        // Endpoints moved within the same cell reuse the cached hits
+        float[] t = hitT.clone();
+        float[] normals = hitNormals.clone();
+        long[] polys = hitPolys.clone();
+        float[] movedEndPos = endPos.clone();
+        for (int i = 0; i < n; i++) {
+            float x = movedEndPos[i * 3];
+            movedEndPos[i * 3] = (float) Math.floor(x * 2) / 2 + 0.25f;
+        }
+        clock.set(50);
+        batch.raycast(n, startRefs, endRefs, startPos, movedEndPos, filter, hitT, hitNormals, hitPolys, null, null, 0);
+        assertEquals(n, cache.getHits());
+        assertArrayEquals(t, hitT, 0);
+        assertArrayEquals(normals, hitNormals, 0);
+        assertArrayEquals(polys, hitPolys);
+
+        // Expired
+        clock.set(100);
+        batch.raycast(n, startRefs, endRefs, startPos, endPos, filter, hitT, hitNormals, hitPolys, null, null, 0);
+        assertEquals(n, cache.getHits());
+        assertEquals(2 * n, cache.getMisses());
+
+        // Path collection bypasses the cache
+        batch.raycast(n, startRefs, endRefs, startPos, endPos, filter, hitT, hitNormals, hitPolys, new int[n], null,
+                0);
+        assertEquals(n, cache.getHits());
+        assertEquals(2 * n, cache.getMisses());
+
+        // Flag changes invalidate all entries
+        int flags = navmesh.getPolyFlags(startRefs[0]).result;
+        navmesh.setPolyFlags(startRefs[0], 0);
+        navmesh.setPolyFlags(startRefs[0], flags);
+        batch.raycast(n, startRefs, endRefs, startPos, endPos, filter, hitT, hitNormals, hitPolys, null, null, 0);
+        assertEquals(n, cache.getHits());
+        assertEquals(3 * n, cache.getMisses());
+        batch.raycast(n, startRefs, endRefs, startPos, endPos, filter, hitT, hitNormals, hitPolys, null, null, 0);
+        assertEquals(2 * n, cache.getHits());
+
+        // Replaced tile changes the salt, stale refs are neither served from the cache nor cast
+        MeshData data = navmesh.removeTile(navmesh.getTileRef(navmesh.getTile(0)));
+        navmesh.addTile(data, 0, 0);
+        assertEquals(0, batch.raycast(n, startRefs, endRefs, startPos, endPos, filter, hitT, hitNormals, hitPolys,
+                null, null, 0));
+        assertEquals(2 * n, cache.getHits());
+    }
+
+    @Test
+    public void testVisibilityCacheTileChanges() {
+        NavMesh tiled = new TestTiledNavMeshBuilder().getNavMesh();
+        long startRef = 281475015507969L;
+        float[] startPos = { 39.447338f, 9.998177f, -0.784811f };
+        float[] endPos = { 39.947338f, 9.998177f, -0.784811f };
+        VisibilityCache cache = new VisibilityCache(tiled, 64, 0.5f, 100, () -> 0);
+        RaycastBatch batch = new RaycastBatch(tiled);
+        batch.setVisibilityCache(cache);
+        long[] startRefs = { startRef };
+        float[] hitT = new float[1];
+        long[] hitPolys = new long[1];
+        batch.raycast(1, startRefs, null, startPos, endPos, filter, hitT, new float[3], hitPolys, null, null, 0);
+        batch.raycast(1, startRefs, null, startPos, endPos, filter, hitT, new float[3], hitPolys, null, null, 0);
+        assertEquals(1, cache.getHits());
+
+        // Removing or adding a tile the ray did not cross still invalidates the entry, the tile may open or close it
+        MeshTile start = tiled.getTileByRef(startRef);
+        MeshTile other = null;
+        for (int t = 0; t < tiled.getMaxTiles() && other == null; t++) {
+            MeshTile tile = tiled.getTile(t);
+            if (tile.data != null && tile != start) {
+                other = tile;
+            }
+        }
+        long otherRef = tiled.getTileRef(other);
+        MeshData data = tiled.removeTile(otherRef);
+        batch.raycast(1, startRefs, null, startPos, endPos, filter, hitT, new float[3], hitPolys, null, null, 0);
+        assertEquals(1, cache.getHits());
+        assertEquals(2, cache.getMisses());
+        tiled.addTile(data, 0, otherRef);
+        batch.raycast(1, startRefs, null, startPos, endPos, filter, hitT, new float[3], hitPolys, null, null, 0);
+        assertEquals(1, cache.getHits());
+        assertEquals(3, cache.getMisses());
+    }
+}
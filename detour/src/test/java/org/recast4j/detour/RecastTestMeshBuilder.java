@@ -45,16 +45,29 @@ public class RecastTestMeshBuilder {
     private final static float m_detailSampleMaxError = 1.0f;
 
     public RecastTestMeshBuilder() {
+        this(false);
+    }
+
+    public RecastTestMeshBuilder(boolean reorderPolys) {
         this(new ObjImporter().load(ObjImporter.class.getResourceAsStream("dungeon.obj")), PartitionType.WATERSHED,
                 m_cellSize, m_cellHeight, m_agentHeight, m_agentRadius, m_agentMaxClimb, m_agentMaxSlope,
                 m_regionMinSize, m_regionMergeSize, m_edgeMaxLen, m_edgeMaxError, m_vertsPerPoly, m_detailSampleDist,
-                m_detailSampleMaxError);
+                m_detailSampleMaxError, reorderPolys);
     }
 
     public RecastTestMeshBuilder(InputGeomProvider m_geom, PartitionType m_partitionType, float m_cellSize,
             float m_cellHeight, float m_agentHeight, float m_agentRadius, float m_agentMaxClimb, float m_agentMaxSlope,
             int m_regionMinSize, int m_regionMergeSize, float m_edgeMaxLen, float m_edgeMaxError, int m_vertsPerPoly,
             float m_detailSampleDist, float m_detailSampleMaxError) {
+        this(m_geom, m_partitionType, m_cellSize, m_cellHeight, m_agentHeight, m_agentRadius, m_agentMaxClimb,
+                m_agentMaxSlope, m_regionMinSize, m_regionMergeSize, m_edgeMaxLen, m_edgeMaxError, m_vertsPerPoly,
+                m_detailSampleDist, m_detailSampleMaxError, false);
+    }
+
+    public RecastTestMeshBuilder(InputGeomProvider m_geom, PartitionType m_partitionType, float m_cellSize,
+            float m_cellHeight, float m_agentHeight, float m_agentRadius, float m_agentMaxClimb, float m_agentMaxSlope,
+            int m_regionMinSize, int m_regionMergeSize, float m_edgeMaxLen, float m_edgeMaxError, int m_vertsPerPoly,
+            float m_detailSampleDist, float m_detailSampleMaxError, boolean reorderPolys) {
         RecastConfig cfg = new RecastConfig(m_partitionType, m_cellSize, m_cellHeight, m_agentHeight, m_agentRadius,
                 m_agentMaxClimb, m_agentMaxSlope, m_regionMinSize, m_regionMergeSize, m_edgeMaxLen, m_edgeMaxError,
                 m_vertsPerPoly, m_detailSampleDist, m_detailSampleMaxError, 0,
@@ -88,6 +101,7 @@ public class RecastTestMeshBuilder {
         params.cs = m_cellSize;
         params.ch = m_cellHeight;
         params.buildBvTree = true;
+        params.reorderPolys = reorderPolys;
 
         params.offMeshConVerts = new float[6];
         params.offMeshConVerts[0] = 0.1f;
@@ -0,0 +1,183 @@
+/*
+recast4j copyright (c) 2015-2019 Piotr Piastucki piotr@jtilia.org
+
+This software is provided 'as-is', without any express or implied
+warranty.  In no event will the authors be held liable for any damages
+arising from the use of this software.
+Permission is granted to anyone to use this software for any purpose,
+including commercial applications, and to alter it and redistribute it
+freely, subject to the following restrictions:
+1. The origin of this software must not be misrepresented; you must not
+ claim that you wrote the original software. If you use this software
+ in a product, an acknowledgment in the product documentation would be
+ appreciated but is not required.
+2. Altered source versions must be plainly marked as such, and must not be
+ misrepresented as being the original software.
+3. This notice may not be removed or altered from any source distribution.
+*/
+package org.recast4j.detour;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class WallSegmentCacheTest {
+
+    private NavMesh navmesh;
+    private NavMeshQuery query;
+    private final List<Long> refs = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        navmesh = new TestTiledNavMeshBuilder().getNavMesh();
+        query = new NavMeshQuery(navmesh);
+        for (int t = 0; t < navmesh.getMaxTiles(); t++) {
+            MeshTile tile = navmesh.getTile(t);
+            if (tile.data != null) {
+                long base = navmesh.getPolyRefBase(tile);
+                for (int i = 0; i < tile.data.header.polyCount; i++) {
+                    refs.add(base | i);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testCachedSegmentsMatch() {
+        DefaultQueryFilter walk = new DefaultQueryFilter(SampleAreaModifications.SAMPLE_POLYFLAGS_WALK,
+                SampleAreaModifications.SAMPLE_POLYFLAGS_DISABLED, new float[0]);
+        assertMatches(new DefaultQueryFilter());
+        assertMatches(walk);
+
+        // Filter flag sets are cached separately
+        query.getPolyWallSegments(refs.get(0), false, walk);
+        query.getPolyWallSegments(refs.get(0), false, new DefaultQueryFilter());
+        MeshTile tile = navmesh.getTileByRef(refs.get(0));
+        assertNotNull(tile.wallSegments.get(WallSegmentCache.key(walk)));
+        assertNotNull(tile.wallSegments.get(WallSegmentCache.key(new DefaultQueryFilter())));
+    }
+
+    @Test
+    public void testInvalidation() {
+        DefaultQueryFilter filter = new DefaultQueryFilter();
+        assertMatches(filter);
+        // Disable a polygon on a tile border, the walls of the neighbour tile change.
+        long border = 0;
+        for (long ref : refs) {
+            Poly poly = navmesh.getTileAndPolyByRefUnsafe(ref).second;
+            for (int j = 0; j < poly.vertCount && border == 0; j++) {
+                if ((poly.neis[j] & NavMesh.DT_EXT_LINK) != 0) {
+                    border = ref;
+                }
+            }
+        }
+        assertEquals(1, navmesh.setPolyFlags(new long[] { border }, 0));
+        assertNull(navmesh.getTileByRef(border).wallSegments);
+        assertMatches(filter);
+
+        // Removing a tile drops the cache of its neighbours
+        MeshTile tile = navmesh.getTileByRef(border);
+        int tileIndex = NavMesh.decodePolyIdTile(border);
+        MeshData data = navmesh.removeTile(navmesh.getTileRef(tile));
+        refs.removeIf(ref -> NavMesh.decodePolyIdTile(ref) == tileIndex);
+        assertMatches(filter);
+        long base = navmesh.getPolyRefBase(navmesh.getTileByRef(navmesh.addTile(data, 0, 0)));
+        for (int i = 0; i < data.header.polyCount; i++) {
+            refs.add(base | i);
+        }
+        assertMatches(filter);
+    }
+
+    @Test
+    public void testDisabledByDefault() {
+        query.getPolyWallSegments(refs.get(0), true, new DefaultQueryFilter());
+        assertNull(navmesh.getTileByRef(refs.get(0)).wallSegments);
+        navmesh.setWallSegmentCache(true);
+        query.getPolyWallSegments(refs.get(0), true, new DefaultQueryFilter());
+        WallSegmentCache cache = navmesh.getTileByRef(refs.get(0)).wallSegments;
+        assertNotNull(cache);
+        query.getPolyWallSegments(refs.get(1), false, new DefaultQueryFilter());
+        assertSame(cache, navmesh.getTileByRef(refs.get(0)).wallSegments);
+        navmesh.setWallSegmentCache(false);
+        assertNull(navmesh.getTileByRef(refs.get(0)).wallSegments);
+    }
+
+    @Test
+    public void testCachedWithInstrumentation() {
+        long ref = refs.get(0);
+        DefaultQueryFilter filter = new DefaultQueryFilter();
+        FindDistanceToWallResult expected = query.findDistanceToWall(ref, polyCenter(ref), 5f, filter).result;
+        navmesh.setWallSegmentCache(true);
+        QueryMetrics metrics = new QueryMetrics();
+        query.setInstrumentation(metrics);
+        FindDistanceToWallResult result = query.findDistanceToWall(ref, polyCenter(ref), 5f, filter).result;
+        // The filter wrapped by the instrumentation still uses the cache.
+        assertNotNull(navmesh.getTileByRef(ref).wallSegments.get(WallSegmentCache.key(filter)));
+        assertEquals(expected.getDistance(), result.getDistance(), 0);
+        assertArrayEquals(expected.getPosition(), result.getPosition(), 0);
+        QueryMetrics.Metrics m = metrics.get(QueryType.FIND_DISTANCE_TO_WALL);
+        assertEquals(1, m.getCount());
+        assertTrue(m.getFilterCalls() > 0);
+    }
+
+    /// Compares the queries with the cache (as populated by the previous calls) to the ones without cache, leaving
+    /// the cache enabled and populated.
+    private void assertMatches(DefaultQueryFilter filter) {
+        navmesh.setWallSegmentCache(true);
+        List<GetPolyWallSegmentsResult> cached = new ArrayList<>();
+        List<FindDistanceToWallResult> cachedDistances = new ArrayList<>();
+        for (boolean storePortals : new boolean[] { false, true }) {
+            for (long ref : refs) {
+                cached.add(query.getPolyWallSegments(ref, storePortals, filter).result);
+            }
+        }
+        for (long ref : refs) {
+            cachedDistances.add(query.findDistanceToWall(ref, polyCenter(ref), 5f, filter).result);
+        }
+        navmesh.setWallSegmentCache(false);
+        int n = 0;
+        for (boolean storePortals : new boolean[] { false, true }) {
+            for (long ref : refs) {
+                GetPolyWallSegmentsResult expected = query.getPolyWallSegments(ref, storePortals, filter).result;
+                GetPolyWallSegmentsResult result = cached.get(n++);
+                assertEquals(expected.getSegmentRefs(), result.getSegmentRefs());
+                for (int k = 0; k < result.getSegmentVerts().size(); k++) {
+                    assertArrayEquals(expected.getSegmentVerts().get(k), result.getSegmentVerts().get(k), 0);
+                }
+            }
+        }
+        for (int i = 0; i < refs.size(); i++) {
+            long ref = refs.get(i);
+            FindDistanceToWallResult expected = query.findDistanceToWall(ref, polyCenter(ref), 5f, filter).result;
+            FindDistanceToWallResult result = cachedDistances.get(i);
+            assertEquals(expected.getDistance(), result.getDistance(), 0);
+            assertArrayEquals(expected.getPosition(), result.getPosition(), 0);
+            assertArrayEquals(expected.getNormal(), result.getNormal(), 0);
+        }
+        navmesh.setWallSegmentCache(true);
+        for (long ref : refs) {
+            query.getPolyWallSegments(ref, true, filter);
+        }
+    }
+
+    private float[] polyCenter(long ref) {
+        Tupple2<MeshTile, Poly> tileAndPoly = navmesh.getTileAndPolyByRefUnsafe(ref);
+        Poly poly = tileAndPoly.second;
+        float[] center = new float[3];
+        for (int j = 0; j < poly.vertCount; j++) {
+            for (int k = 0; k < 3; k++) {
+                center[k] += tileAndPoly.first.data.verts[poly.verts[j] * 3 + k] / poly.vertCount;
+            }
+        }
+        return center;
+    }
+}
@@ -0,0 +1,144 @@
+/*
+recast4j copyright (c) 2015-2019 Piotr Piastucki piotr@jtilia.org
+
+This software is provided 'as-is', without any express or implied
+warranty.  In no event will the authors be held liable for any damages
+arising from the use of this software.
+Permission is granted to anyone to use this software for any purpose,
+including commercial applications, and to alter it and redistribute it
+freely, subject to the following restrictions:
+1. The origin of this software must not be misrepresented; you must not
+ claim that you wrote the original software. If you use this software
+ in a product, an acknowledgment in the product documentation would be
+ appreciated but is not required.
+2. Altered source versions must be plainly marked as such, and must not be
+ misrepresented as being the original software.
+3. This notice may not be removed or altered from any source distribution.
+*/
+package org.recast4j.detour.io;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.junit.Test;
+import org.recast4j.detour.MeshData;
+import org.recast4j.detour.MeshTile;
+import org.recast4j.detour.NavMesh;
+
+public class IndexedMeshSetTest {
+
+    private final IndexedMeshSetWriter writer = new IndexedMeshSetWriter();
+    private final MeshSetReader reader = new MeshSetReader();
+
+    @Test
+    public void testConvertLittleEndian() throws IOException {
+        testConvert(ByteOrder.LITTLE_ENDIAN, false);
+    }
+
+    @Test
+    public void testConvertBigEndianCompressed() throws IOException {
+        testConvert(ByteOrder.BIG_ENDIAN, true);
+    }
+
+    private void testConvert(ByteOrder order, boolean compress) throws IOException {
+        NavMesh expected = reader.read(getClass().getClassLoader().getResourceAsStream("dungeon_all_tiles_navmesh.bin"), 6);
+        byte[] file = convert("dungeon_all_tiles_navmesh.bin", order, compress);
+        assertEquals(0, file.length % IndexedMeshSetHeader.ALIGNMENT);
+        try (IndexedMeshSetStore store = new IndexedMeshSetStore(ByteBuffer.wrap(file))) {
+            assertEquals(6, store.getMaxVertsPerPoly());
+            assertEquals(expected.getMaxTiles(), store.getParams().maxTiles);
+            assertEquals(expected.getTileCount(), store.getTileEntries().size());
+            assertEquals(0, IndexedMeshSetHeader.INDEX_OFFSET % IndexedMeshSetHeader.ALIGNMENT);
+            ByteBuffer index = ByteBuffer.wrap(file).order(order);
+            assertEquals(store.getTileEntries().get(0).getX(), index.getInt(IndexedMeshSetHeader.INDEX_OFFSET));
+            assertEquals(store.getTileEntries().get(0).getY(), index.getInt(IndexedMeshSetHeader.INDEX_OFFSET + 4));
+            for (IndexedMeshSetTileEntry entry : store.getTileEntries()) {
+                assertEquals(0, entry.offset % IndexedMeshSetHeader.ALIGNMENT);
+                assertEquals(compress, entry.isCompressed());
+                MeshTile tile = expected.getTileByRef(entry.getTileRef());
+                assertEquals(entry.getX(), tile.data.header.x);
+                assertEquals(entry.getY(), tile.data.header.y);
+                MeshData data = store.loadTile(entry.getTileRef());
+                assertEquals(tile.data.polys.length, data.polys.length);
+                assertArrayEquals(tile.data.getVerts(), data.getVerts(), 0f);
+                assertArrayEquals(tile.data.getDetailVerts(), data.getDetailVerts(), 0f);
+                assertArrayEquals(tile.data.detailTris, data.detailTris);
+            }
+            NavMesh mesh = store.read();
+            for (int i = 0; i < expected.getMaxTiles(); i++) {
+                MeshTile tile = expected.getTile(i);
+                if (tile.data != null) {
+                    assertEquals(expected.getTileRef(tile), mesh.getTileRefAt(tile.data.header.x, tile.data.header.y,
+                            tile.data.header.layer));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testCompressedIsSmaller() throws IOException {
+        byte[] raw = convert("dungeon_all_tiles_navmesh.bin", ByteOrder.LITTLE_ENDIAN, false);
+        byte[] compressed = convert("dungeon_all_tiles_navmesh.bin", ByteOrder.LITTLE_ENDIAN, true);
+        assertTrue(compressed.length < raw.length);
+    }
+
+    @Test
+    public void testMappedPerTile() throws IOException {
+        byte[] bytes = convert("dungeon_all_tiles_navmesh_32bit.bin", ByteOrder.LITTLE_ENDIAN, true);
+        NavMesh expected = reader.read32Bit(
+                getClass().getClassLoader().getResourceAsStream("dungeon_all_tiles_navmesh_32bit.bin"), 6);
+        Path file = Files.createTempFile("navmesh", ".bin");
+        try {
+            Files.write(file, bytes);
+            // Force the file to be mapped record by record
+            try (IndexedMeshSetStore store = new IndexedMeshSetStore(FileChannel.open(file, StandardOpenOption.READ),
+                    1024)) {
+                MeshTile tile = expected.getTilesAt(2, 8).get(0);
+                long[] refs = store.getTileRefs(2, 8);
+                assertEquals(1, refs.length);
+                assertEquals(expected.getTileRef(tile), refs[0]);
+                assertArrayEquals(tile.data.getVerts(), store.loadTile(refs[0]).getVerts(), 0f);
+                assertEquals(0, store.getTileRefs(100, 100).length);
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testChecksum() throws IOException {
+        byte[] file = convert("dungeon_all_tiles_navmesh.bin", ByteOrder.LITTLE_ENDIAN, false);
+        IndexedMeshSetStore store = new IndexedMeshSetStore(ByteBuffer.wrap(file));
+        IndexedMeshSetTileEntry entry = store.getTileEntries().get(0);
+        file[(int) entry.offset + entry.length - 1] ^= 0xFF;
+        try {
+            store.loadTile(entry);
+            fail("Corrupted tile loaded");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().startsWith("Invalid checksum"));
+        }
+    }
+
+    private byte[] convert(String name, ByteOrder order, boolean compress) throws IOException {
+        InputStream is = getClass().getClassLoader().getResourceAsStream(name);
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        if (name.contains("32bit")) {
+            writer.convert32Bit(is, 6, os, order, compress);
+        } else {
+            writer.convert(is, 6, os, order, compress);
+        }
+        return os.toByteArray();
+    }
+}
@@ -80,7 +80,7 @@ public class MeshDataReaderWriterTest {
         assertEquals(meshData.header.bvNodeCount, readData.header.bvNodeCount);
         assertEquals(meshData.header.offMeshConCount, readData.header.offMeshConCount);
         for (int i = 0; i < meshData.header.vertCount; i++) {
-            assertEquals(meshData.verts[i], readData.verts[i], 0.0f);
+            assertEquals(meshData.getVert(i / 3, i % 3), readData.getVert(i / 3, i % 3), 0.0f);
         }
         for (int i = 0; i < meshData.header.polyCount; i++) {
             assertEquals(meshData.polys[i].firstLink, readData.polys[i].firstLink);
@@ -98,7 +98,7 @@ public class MeshDataReaderWriterTest {
             assertEquals(meshData.detailMeshes[i].triCount, readData.detailMeshes[i].triCount);
         }
         for (int i = 0; i < meshData.header.detailVertCount; i++) {
-            assertEquals(meshData.detailVerts[i], readData.detailVerts[i], 0.0f);
+            assertEquals(meshData.getDetailVert(i / 3, i % 3), readData.getDetailVert(i / 3, i % 3), 0.0f);
         }
         for (int i = 0; i < meshData.header.detailTriCount; i++) {
             assertEquals(meshData.detailTris[i], readData.detailTris[i]);
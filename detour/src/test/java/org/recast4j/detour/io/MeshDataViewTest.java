@@ -0,0 +1,170 @@
+/*
+recast4j Copyright (c) 2015-2019 Piotr Piastucki piotr@jtilia.org
+
+This software is provided 'as-is', without any express or implied
+warranty.  In no event will the authors be held liable for any damages
+arising from the use of this software.
+Permission is granted to anyone to use this software for any purpose,
+including commercial applications, and to alter it and redistribute it
+freely, subject to the following restrictions:
+1. The origin of this software must not be misrepresented; you must not
+ claim that you wrote the original software. If you use this software
+ in a product, an acknowledgment in the product documentation would be
+ appreciated but is not required.
+2. Altered source versions must be plainly marked as such, and must not be
+ misrepresented as being the original software.
+3. This notice may not be removed or altered from any source distribution.
+*/
+package org.recast4j.detour.io;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.List;
+
+import org.junit.Test;
+import org.recast4j.detour.DefaultQueryFilter;
+import org.recast4j.detour.FindNearestPolyResult;
+import org.recast4j.detour.MeshData;
+import org.recast4j.detour.MeshTile;
+import org.recast4j.detour.NavMesh;
+import org.recast4j.detour.NavMeshQuery;
+import org.recast4j.detour.Poly;
+import org.recast4j.detour.QueryFilter;
+
+public class MeshDataViewTest {
+
+    private final MeshSetReader reader = new MeshSetReader();
+
+    @Test
+    public void testDungeon() throws IOException {
+        testViews("dungeon_all_tiles_navmesh.bin", false);
+    }
+
+    @Test
+    public void testDungeon32Bit() throws IOException {
+        testViews("dungeon_all_tiles_navmesh_32bit.bin", true);
+    }
+
+    @Test
+    public void testSharedNavMeshes() throws IOException {
+        ByteBuffer bb = load("dungeon_all_tiles_navmesh.bin");
+        NavMesh mesh = reader.read(bb.duplicate(), 6);
+        List<MeshDataView> views = reader.readViews(bb.duplicate(), 6);
+        NavMesh first = new NavMesh(mesh.getParams(), 6);
+        NavMesh second = new NavMesh(mesh.getParams(), 6);
+        for (MeshDataView view : views) {
+            MeshData a = view.createMeshData();
+            MeshData b = view.createMeshData();
+            assertTrue(a.isShared());
+            assertNotEquals(a.polys[0], b.polys[0]);
+            first.addTile(a, 0, 0);
+            second.addTile(b, 0, 0);
+            MeshData copy = view.toMeshData();
+            assertArrayEquals(copy.getVerts(), a.getVerts(), 0f);
+            assertArrayEquals(copy.getDetailVerts(), a.getDetailVerts(), 0f);
+            for (int i = 0; i < view.getHeader().detailMeshCount; i++) {
+                assertEquals(copy.detailMeshes[i].triBase, a.getDetailTriBase(i));
+                assertEquals(copy.detailMeshes[i].triCount, a.getDetailTriCount(i));
+            }
+            for (int i = 0; i < view.getHeader().bvNodeCount; i++) {
+                assertEquals(copy.bvTree[i].i, a.getBVNodeIndex(i));
+                assertEquals(copy.bvTree[i].bmin[2], a.getBVNodeMin(i, 2));
+            }
+        }
+        MeshData a = views.get(0).createMeshData();
+        MeshData b = views.get(0).createMeshData();
+        float y = b.getVert(0, 1);
+        a.setVert(0, new float[] { a.getVert(0, 0), y + 1, a.getVert(0, 2) });
+        assertEquals(y + 1, a.getVert(0, 1), 0f);
+        assertEquals(y, b.getVert(0, 1), 0f);
+        assertEquals(y, views.get(0).getVert(0, 1), 0f);
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        new MeshDataWriter().write(os, b, ByteOrder.BIG_ENDIAN, true);
+        MeshData written = new MeshDataReader().read(ByteBuffer.wrap(os.toByteArray()), 6);
+        MeshData copy = views.get(0).toMeshData();
+        assertArrayEquals(copy.getVerts(), written.getVerts(), 0f);
+        assertArrayEquals(copy.detailTris, written.detailTris);
+        assertEquals(copy.bvTree[1].bmax[0], written.bvTree[1].bmax[0]);
+        QueryFilter filter = new DefaultQueryFilter();
+        float[] ext = { 2, 4, 2 };
+        NavMeshQuery expected = new NavMeshQuery(mesh);
+        NavMeshQuery actual = new NavMeshQuery(first);
+        NavMeshQuery other = new NavMeshQuery(second);
+        float[][] positions = { { 22.60652f, 10.197294f, -45.918674f }, { 22.331268f, 10.197294f, -1.0401875f },
+                { 18.694363f, 15.803535f, -73.090416f }, { 0.7453353f, 10.197294f, -5.94005f },
+                { -20.651257f, 5.904126f, -13.712508f } };
+        for (float[] pos : positions) {
+            FindNearestPolyResult e = expected.findNearestPoly(pos, ext, filter).result;
+            FindNearestPolyResult r = actual.findNearestPoly(pos, ext, filter).result;
+            assertArrayEquals(e.getNearestPos(), r.getNearestPos(), 1e-6f);
+            assertEquals(expected.queryPolygons(pos, ext, filter).result.size(),
+                    actual.queryPolygons(pos, ext, filter).result.size());
+            FindNearestPolyResult end = actual.findNearestPoly(positions[0], ext, filter).result;
+            assertEquals(
+                    expected.findPath(e.getNearestRef(), expected.findNearestPoly(positions[0], ext, filter).result
+                            .getNearestRef(), e.getNearestPos(), positions[0], filter).result.size(),
+                    actual.findPath(r.getNearestRef(), end.getNearestRef(), r.getNearestPos(), positions[0], filter)
+                            .result.size());
+            assertArrayEquals(r.getNearestPos(), other.findNearestPoly(pos, ext, filter).result.getNearestPos(), 0f);
+        }
+    }
+
+    private void testViews(String file, boolean is32Bit) throws IOException {
+        ByteBuffer bb = load(file);
+        NavMesh mesh = is32Bit ? reader.read32Bit(bb.duplicate(), 6) : reader.read(bb.duplicate(), 6);
+        List<MeshDataView> views = is32Bit ? reader.readViews32Bit(bb.duplicate(), 6)
+                : reader.readViews(bb.duplicate(), 6);
+        int tileCount = 0;
+        for (int i = 0; i < mesh.getMaxTiles(); i++) {
+            if (mesh.getTile(i).data != null) {
+                tileCount++;
+            }
+        }
+        assertEquals(tileCount, views.size());
+        for (MeshDataView view : views) {
+            MeshTile tile = mesh.getTilesAt(view.getHeader().x, view.getHeader().y).get(0);
+            MeshData data = view.toMeshData();
+            assertArrayEquals(tile.data.getDetailVerts(), data.getDetailVerts(), 0f);
+            assertEquals(tile.data.bvTree.length, view.getHeader().bvNodeCount);
+            for (int i = 0; i < view.getHeader().bvNodeCount; i++) {
+                assertEquals(tile.data.bvTree[i].i, view.getBVNodeIndex(i));
+                assertEquals(tile.data.bvTree[i].bmax[1], view.getBVNodeMax(i, 1));
+            }
+            for (int i = 0; i < view.getHeader().vertCount * 3; i++) {
+                assertEquals(data.getVert(i / 3, i % 3), view.getVert(i / 3, i % 3), 0f);
+            }
+            for (int i = 0; i < view.getHeader().polyCount; i++) {
+                Poly poly = tile.data.polys[i];
+                assertEquals(poly.vertCount, view.getPolyVertCount(i));
+                assertEquals(poly.flags, view.getPolyFlags(i));
+                assertEquals(poly.areaAndtype, view.getPolyAreaAndType(i));
+                for (int j = 0; j < poly.vertCount; j++) {
+                    assertEquals(poly.verts[j], view.getPolyVert(i, j));
+                    assertEquals(poly.neis[j], view.getPolyNei(i, j));
+                }
+            }
+            for (int i = 0; i < view.getHeader().detailMeshCount; i++) {
+                assertEquals(data.detailMeshes[i].vertBase, view.getDetailVertBase(i));
+                assertEquals(data.detailMeshes[i].triBase, view.getDetailTriBase(i));
+                assertEquals(data.detailMeshes[i].vertCount, view.getDetailVertCount(i));
+                assertEquals(data.detailMeshes[i].triCount, view.getDetailTriCount(i));
+            }
+            for (int i = 0; i < view.getHeader().detailTriCount * 4; i++) {
+                assertEquals(data.detailTris[i], view.getDetailTri(i / 4, i % 4));
+            }
+        }
+    }
+
+    private ByteBuffer load(String file) throws IOException {
+        InputStream is = getClass().getClassLoader().getResourceAsStream(file);
+        return IOUtils.toByteBuffer(is);
+    }
+}
@@ -17,11 +17,21 @@ freely, subject to the following restrictions:
 */
 package org.recast4j.detour.io;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 import org.junit.Test;
 import org.recast4j.detour.MeshTile;
@@ -41,19 +51,19 @@ public class MeshSetReaderTest {
         List<MeshTile> tiles = mesh.getTilesAt(4, 7);
         assertEquals(1, tiles.size());
         assertEquals(7, tiles.get(0).data.polys.length);
-        assertEquals(22 * 3, tiles.get(0).data.verts.length);
+        assertEquals(22 * 3, tiles.get(0).data.getVerts().length);
         tiles = mesh.getTilesAt(1, 6);
         assertEquals(1, tiles.size());
         assertEquals(7, tiles.get(0).data.polys.length);
-        assertEquals(26 * 3, tiles.get(0).data.verts.length);
+        assertEquals(26 * 3, tiles.get(0).data.getVerts().length);
         tiles = mesh.getTilesAt(6, 2);
         assertEquals(1, tiles.size());
         assertEquals(1, tiles.get(0).data.polys.length);
-        assertEquals(4 * 3, tiles.get(0).data.verts.length);
+        assertEquals(4 * 3, tiles.get(0).data.getVerts().length);
         tiles = mesh.getTilesAt(7, 6);
         assertEquals(1, tiles.size());
         assertEquals(8, tiles.get(0).data.polys.length);
-        assertEquals(24 * 3, tiles.get(0).data.verts.length);
+        assertEquals(24 * 3, tiles.get(0).data.getVerts().length);
     }
 
     @Test
@@ -66,19 +76,19 @@ public class MeshSetReaderTest {
         List<MeshTile> tiles = mesh.getTilesAt(6, 9);
         assertEquals(1, tiles.size());
         assertEquals(2, tiles.get(0).data.polys.length);
-        assertEquals(7 * 3, tiles.get(0).data.verts.length);
+        assertEquals(7 * 3, tiles.get(0).data.getVerts().length);
         tiles = mesh.getTilesAt(2, 9);
         assertEquals(1, tiles.size());
         assertEquals(2, tiles.get(0).data.polys.length);
-        assertEquals(9 * 3, tiles.get(0).data.verts.length);
+        assertEquals(9 * 3, tiles.get(0).data.getVerts().length);
         tiles = mesh.getTilesAt(4, 3);
         assertEquals(1, tiles.size());
         assertEquals(3, tiles.get(0).data.polys.length);
-        assertEquals(6 * 3, tiles.get(0).data.verts.length);
+        assertEquals(6 * 3, tiles.get(0).data.getVerts().length);
         tiles = mesh.getTilesAt(2, 8);
         assertEquals(1, tiles.size());
         assertEquals(5, tiles.get(0).data.polys.length);
-        assertEquals(17 * 3, tiles.get(0).data.verts.length);
+        assertEquals(17 * 3, tiles.get(0).data.getVerts().length);
     }
 
     @Test
@@ -91,18 +101,106 @@ public class MeshSetReaderTest {
         List<MeshTile> tiles = mesh.getTilesAt(6, 9);
         assertEquals(1, tiles.size());
         assertEquals(2, tiles.get(0).data.polys.length);
-        assertEquals(7 * 3, tiles.get(0).data.verts.length);
+        assertEquals(7 * 3, tiles.get(0).data.getVerts().length);
         tiles = mesh.getTilesAt(2, 9);
         assertEquals(1, tiles.size());
         assertEquals(2, tiles.get(0).data.polys.length);
-        assertEquals(9 * 3, tiles.get(0).data.verts.length);
+        assertEquals(9 * 3, tiles.get(0).data.getVerts().length);
         tiles = mesh.getTilesAt(4, 3);
         assertEquals(1, tiles.size());
         assertEquals(3, tiles.get(0).data.polys.length);
-        assertEquals(6 * 3, tiles.get(0).data.verts.length);
+        assertEquals(6 * 3, tiles.get(0).data.getVerts().length);
         tiles = mesh.getTilesAt(2, 8);
         assertEquals(1, tiles.size());
         assertEquals(5, tiles.get(0).data.polys.length);
-        assertEquals(17 * 3, tiles.get(0).data.verts.length);
+        assertEquals(17 * 3, tiles.get(0).data.getVerts().length);
+    }
+
+    @Test
+    public void testDungeonMapped() throws IOException, URISyntaxException {
+        NavMesh expected = reader.read(getClass().getClassLoader().getResourceAsStream("dungeon_all_tiles_navmesh.bin"), 6);
+        NavMesh mesh = reader.read(resourcePath("dungeon_all_tiles_navmesh.bin"), 6);
+        assertSameTiles(expected, mesh);
+    }
+
+    @Test
+    public void testDungeon32BitMapped() throws IOException, URISyntaxException {
+        NavMesh expected = reader
+                .read32Bit(getClass().getClassLoader().getResourceAsStream("dungeon_all_tiles_navmesh_32bit.bin"), 6);
+        NavMesh mesh = reader.read32Bit(resourcePath("dungeon_all_tiles_navmesh_32bit.bin"), 6);
+        assertSameTiles(expected, mesh);
+    }
+
+    @Test
+    public void testDungeonMappedPerTile() throws IOException, URISyntaxException {
+        NavMesh expected = reader.read(getClass().getClassLoader().getResourceAsStream("dungeon_all_tiles_navmesh.bin"), 6);
+        try (FileChannel channel = FileChannel.open(resourcePath("dungeon_all_tiles_navmesh.bin"),
+                StandardOpenOption.READ)) {
+            // Force the file to be mapped tile by tile
+            NavMesh mesh = reader.read(channel, 6, false, 1024);
+            assertSameTiles(expected, mesh);
+        }
+    }
+
+    @Test
+    public void testParallel() throws IOException {
+        assertParallelIdentical("all_tiles_navmesh.bin", false);
+        assertParallelIdentical("dungeon_all_tiles_navmesh.bin", false);
+        assertParallelIdentical("dungeon_all_tiles_navmesh_32bit.bin", true);
+    }
+
+    private void assertParallelIdentical(String name, boolean is32Bit) throws IOException {
+        ByteBuffer bb = IOUtils.toByteBuffer(getClass().getClassLoader().getResourceAsStream(name));
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            NavMesh expected = is32Bit ? reader.read32Bit(bb.duplicate(), 6) : reader.read(bb.duplicate(), 6);
+            NavMesh mesh = is32Bit ? reader.read32Bit(bb.duplicate(), 6, pool) : reader.read(bb.duplicate(), 6, pool);
+            assertSameTiles(expected, mesh);
+            for (int i = 0; i < expected.getMaxTiles(); i++) {
+                MeshTile e = expected.getTile(i);
+                MeshTile t = mesh.getTile(i);
+                assertEquals(e.links.size(), t.links.size());
+                for (int j = 0; j < e.links.size(); j++) {
+                    assertEquals(e.links.get(j).ref, t.links.get(j).ref);
+                    assertEquals(e.links.get(j).next, t.links.get(j).next);
+                    assertEquals(e.links.get(j).edge, t.links.get(j).edge);
+                }
+                if (e.data != null) {
+                    for (int j = 0; j < e.data.polys.length; j++) {
+                        assertEquals(e.data.polys[j].firstLink, t.data.polys[j].firstLink);
+                    }
+                }
+            }
+            MeshSetWriter writer = new MeshSetWriter();
+            ByteArrayOutputStream expectedBytes = new ByteArrayOutputStream();
+            writer.write(expectedBytes, expected, ByteOrder.LITTLE_ENDIAN, false);
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            writer.write(bytes, mesh, ByteOrder.LITTLE_ENDIAN, false);
+            assertArrayEquals(expectedBytes.toByteArray(), bytes.toByteArray());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private Path resourcePath(String name) throws URISyntaxException {
+        return Paths.get(getClass().getClassLoader().getResource(name).toURI());
+    }
+
+    private void assertSameTiles(NavMesh expected, NavMesh mesh) {
+        assertEquals(expected.getMaxTiles(), mesh.getMaxTiles());
+        assertEquals(expected.getTileCount(), mesh.getTileCount());
+        for (int i = 0; i < expected.getMaxTiles(); i++) {
+            MeshTile e = expected.getTile(i);
+            MeshTile t = mesh.getTile(i);
+            if (e.data == null) {
+                assertEquals(null, t.data);
+                continue;
+            }
+            assertEquals(expected.getTileRef(e), mesh.getTileRef(t));
+            assertEquals(e.data.polys.length, t.data.polys.length);
+            assertArrayEquals(e.data.getVerts(), t.data.getVerts(), 0f);
+            assertArrayEquals(e.data.getDetailVerts(), t.data.getDetailVerts(), 0f);
+            assertArrayEquals(e.data.detailTris, t.data.detailTris);
+        }
     }
 }
@@ -107,19 +107,19 @@ public class MeshSetReaderWriterTest {
         List<MeshTile> tiles = mesh.getTilesAt(6, 9);
         assertEquals(1, tiles.size());
         assertEquals(2, tiles.get(0).data.polys.length);
-        assertEquals(7 * 3, tiles.get(0).data.verts.length);
+        assertEquals(7 * 3, tiles.get(0).data.getVerts().length);
         tiles = mesh.getTilesAt(2, 9);
         assertEquals(1, tiles.size());
         assertEquals(2, tiles.get(0).data.polys.length);
-        assertEquals(9 * 3, tiles.get(0).data.verts.length);
+        assertEquals(9 * 3, tiles.get(0).data.getVerts().length);
         tiles = mesh.getTilesAt(4, 3);
         assertEquals(1, tiles.size());
         assertEquals(3, tiles.get(0).data.polys.length);
-        assertEquals(6 * 3, tiles.get(0).data.verts.length);
+        assertEquals(6 * 3, tiles.get(0).data.getVerts().length);
         tiles = mesh.getTilesAt(2, 8);
         assertEquals(1, tiles.size());
         assertEquals(5, tiles.get(0).data.polys.length);
-        assertEquals(17 * 3, tiles.get(0).data.verts.length);
+        assertEquals(17 * 3, tiles.get(0).data.getVerts().length);
 
     }
 }
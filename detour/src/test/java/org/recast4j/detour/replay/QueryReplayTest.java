@@ -0,0 +1,159 @@
+/*
+recast4j copyright (c) 2015-2019 Piotr Piastucki piotr@jtilia.org
+
+This software is provided 'as-is', without any express or implied
+warranty.  In no event will the authors be held liable for any damages
+arising from the use of this software.
+Permission is granted to anyone to use this software for any purpose,
+including commercial applications, and to alter it and redistribute it
+freely, subject to the following restrictions:
+1. The origin of this software must not be misrepresented; you must not
+ claim that you wrote the original software. If you use this software
+ in a product, an acknowledgment in the product documentation would be
+ appreciated but is not required.
+2. Altered source versions must be plainly marked as such, and must not be
+ misrepresented as being the original software.
+3. This notice may not be removed or altered from any source distribution.
+*/
+package org.recast4j.detour.replay;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import org.recast4j.detour.AbstractDetourTest;
+import org.recast4j.detour.DefaultQueryFilter;
+import org.recast4j.detour.FindNearestPolyResult;
+import org.recast4j.detour.MeshTile;
+import org.recast4j.detour.NavMesh;
+import org.recast4j.detour.NavMeshQuery;
+import org.recast4j.detour.Poly;
+import org.recast4j.detour.QueryFilter;
+import org.recast4j.detour.QueryType;
+import org.recast4j.detour.Result;
+import org.recast4j.detour.io.MeshSetReader;
+
+public class QueryReplayTest extends AbstractDetourTest {
+
+    private final float[] extents = { 2, 4, 2 };
+
+    @Override
+    protected NavMesh createNavMesh() {
+        try (InputStream is = getClass().getClassLoader().getResourceAsStream("dungeon_all_tiles_navmesh.bin")) {
+            return new MeshSetReader().read(is, 6);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private byte[] record(QueryFilter filter) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (QueryLogWriter log = new QueryLogWriter(bytes)) {
+            QueryRecorder recorder = new QueryRecorder(navmesh, log);
+            for (int i = 0; i < startPoss.length; i++) {
+                Result<FindNearestPolyResult> start = recorder.findNearestPoly(startPoss[i], extents, filter);
+                Result<FindNearestPolyResult> end = recorder.findNearestPoly(endPoss[i], extents, filter);
+                long startRef = start.result.getNearestRef();
+                long endRef = end.result.getNearestRef();
+                List<Long> path = recorder.findPath(startRef, endRef, startPoss[i], endPoss[i], filter).result;
+                recorder.findPathAnyAngle(startRef, endRef, startPoss[i], endPoss[i], filter);
+                recorder.findStraightPath(startPoss[i], endPoss[i], path, Integer.MAX_VALUE, 0);
+                recorder.raycast(startRef, startPoss[i], endPoss[i], filter, 0, 0);
+                recorder.moveAlongSurface(startRef, startPoss[i], endPoss[i], filter);
+                recorder.findPolysAroundCircle(startRef, startPoss[i], 5f, filter);
+                recorder.queryPolygons(startPoss[i], extents, filter);
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private List<QueryRecord> read(byte[] log) throws IOException {
+        return new QueryLogReader().read(new ByteArrayInputStream(log));
+    }
+
+    @Test
+    public void testRecordAndReplay() throws IOException, InterruptedException {
+        List<QueryRecord> records = read(record(new DefaultQueryFilter()));
+        // The polygon queries made by findNearestPoly itself are not recorded.
+        assertEquals(startPoss.length * 9, records.size());
+        assertEquals(QueryType.FIND_NEAREST_POLY, records.get(0).getType());
+        assertEquals(QueryType.FIND_PATH, records.get(2).getType());
+        assertArrayEquals(new int[] { 0 }, records.get(2).getInts());
+        assertEquals(QueryType.FIND_PATH, records.get(3).getType());
+        assertArrayEquals(new int[] { NavMeshQuery.DT_FINDPATH_ANY_ANGLE }, records.get(3).getInts());
+
+        ReplayReport report = QueryReplay.replay(navmesh, records, 1);
+        assertEquals(records.size(), report.getCount());
+        assertEquals(0, report.getMismatches());
+        assertEquals(startPoss.length * 2, report.get(QueryType.FIND_NEAREST_POLY).getCount());
+        assertEquals(startPoss.length * 2, report.get(QueryType.FIND_PATH).getCount());
+        assertEquals(startPoss.length, report.get(QueryType.RAYCAST).getCount());
+        assertTrue(report.get(QueryType.FIND_PATH).getLatency().getValueAtPercentile(99) > 0);
+
+        report = QueryReplay.replay(navmesh, records, 4);
+        assertEquals(records.size(), report.getCount());
+        assertEquals(0, report.getMismatches());
+        assertEquals(4, report.getThreads());
+    }
+
+    @Test
+    public void testMismatch() throws IOException, InterruptedException {
+        List<QueryRecord> records = new ArrayList<>(read(record(new DefaultQueryFilter())));
+        QueryRecord r = records.get(2);
+        records.set(2, new QueryRecord(r.getType(), r.getRefs(), r.getFloats(), r.getInts(), r.getFilter(),
+                r.getStatus(), r.getDigest() + 1, r.getNanos()));
+        ReplayReport report = QueryReplay.replay(navmesh, records, 2);
+        assertEquals(1, report.getMismatches());
+        assertEquals(1, report.get(QueryType.FIND_PATH).getMismatches());
+    }
+
+    @Test
+    public void testFilter() throws IOException, InterruptedException {
+        float[] areaCost = new float[NavMesh.DT_MAX_AREAS];
+        Arrays.fill(areaCost, 1f);
+        areaCost[1] = 3f;
+        List<QueryRecord> records = read(record(new DefaultQueryFilter(0x7, 0x8, areaCost)));
+        RecordedFilter filter = records.get(2).getFilter();
+        assertFalse(filter.isCustom());
+        assertEquals(0x7, filter.getIncludeFlags());
+        assertEquals(0x8, filter.getExcludeFlags());
+        assertArrayEquals(new float[] { 1f, 3f }, filter.getAreaCost(), 0f);
+        assertNull(records.get(4).getFilter());
+        assertEquals(0, QueryReplay.replay(navmesh, records, 1).getMismatches());
+
+        QueryFilter defaults = new DefaultQueryFilter();
+        QueryFilter custom = new QueryFilter() {
+            @Override
+            public boolean passFilter(long ref, MeshTile tile, Poly poly) {
+                return defaults.passFilter(ref, tile, poly);
+            }
+
+            @Override
+            public float getCost(float[] pa, float[] pb, long prevRef, MeshTile prevTile, Poly prevPoly, long curRef,
+                    MeshTile curTile, Poly curPoly, long nextRef, MeshTile nextTile, Poly nextPoly) {
+                return defaults.getCost(pa, pb, prevRef, prevTile, prevPoly, curRef, curTile, curPoly, nextRef,
+                        nextTile, nextPoly);
+            }
+        };
+        records = read(record(custom));
+        assertTrue(records.get(0).getFilter().isCustom());
+    }
+
+    @Test
+    public void testTruncatedLog() throws IOException {
+        byte[] log = record(new DefaultQueryFilter());
+        assertEquals(startPoss.length * 9 - 1, read(Arrays.copyOf(log, log.length - 3)).size());
+    }
+}
@@ -47,6 +47,7 @@ import org.recast4j.detour.FindNearestPolyResult;
 import org.recast4j.detour.NavMesh;
 import org.recast4j.detour.NavMeshQuery;
 import org.recast4j.detour.QueryFilter;
+import org.recast4j.detour.QueryInstrumentation;
 import org.recast4j.detour.Result;
 import org.recast4j.detour.Status;
 import org.recast4j.detour.Tupple2;
@@ -203,6 +204,10 @@ public class Crowd {
 
     float[] m_ext = new float[3];
 
+    /// Scratch vectors reused by the per-agent steering and collision loops.
+    private final float[] m_diff = new float[3];
+    private final float[] m_disp = new float[3];
+
     QueryFilter[] m_filters = new QueryFilter[DT_CROWD_MAX_QUERY_FILTER_TYPE];
 
     float m_maxAgentRadius;
@@ -229,7 +234,8 @@ public class Crowd {
             }
 
             // Check for overlap.
-            float[] diff = vSub(pos, ag.npos);
+            float[] diff = m_diff;
+            vSub(diff, pos, ag.npos);
             if (Math.abs(diff[1]) >= (height + ag.params.height) / 2.0f) {
                 continue;
             }
@@ -519,7 +525,7 @@ public class Crowd {
 
     static final int MAX_ITER = 20;
 
-    void updateMoveRequest() {
+    long updateMoveRequest(int maxIters, long maxNanos) {
         PriorityQueue<CrowdAgent> queue = new PriorityQueue<>(
                 (a1, a2) -> Float.compare(a2.targetReplanTime, a1.targetReplanTime));
 
@@ -609,7 +615,7 @@ public class Crowd {
         }
 
         // Update requests.
-        m_pathq.update(MAX_ITERS_PER_UPDATE);
+        long pathNanos = m_pathq.update(maxIters, maxNanos);
 
         // Process path results.
         for (int i = 0; i < m_maxAgents; ++i) {
@@ -718,6 +724,7 @@ public class Crowd {
                 }
             }
         }
+        return pathNanos;
     }
 
     static final float OPT_TIME_THR = 0.5f; // seconds
@@ -865,6 +872,22 @@ public class Crowd {
     static final float COLLISION_RESOLVE_FACTOR = 0.7f;
 
     public void update(float dt, CrowdAgentDebugInfo debug) {
+        update(dt, debug, MAX_ITERS_PER_UPDATE, Long.MAX_VALUE);
+    }
+
+    /**
+     * Updates the steering and positions of all agents, limiting the path-finding of the path queue by time instead
+     * of by iteration count.
+     *
+     * @param pathBudgetNanos
+     *            The time the path queue may spend on path requests in this update, in nanoseconds.
+     * @return The time spent by the path queue, in nanoseconds.
+     */
+    public long update(float dt, CrowdAgentDebugInfo debug, long pathBudgetNanos) {
+        return update(dt, debug, Integer.MAX_VALUE, pathBudgetNanos);
+    }
+
+    private long update(float dt, CrowdAgentDebugInfo debug, int maxPathIters, long pathBudgetNanos) {
         m_velocitySampleCount = 0;
 
         int debugIdx = debug != null ? debug.idx : -1;
@@ -875,7 +898,7 @@ public class Crowd {
         checkPathValidity(agents, dt);
 
         // Update async move request and path finder.
-        updateMoveRequest();
+        long pathNanos = updateMoveRequest(maxPathIters, pathBudgetNanos);
 
         // Optimize path topology.
         updateTopologyOptimization(agents, dt);
@@ -991,7 +1014,7 @@ public class Crowd {
                 continue;
             }
 
-            float[] dvel = new float[3];
+            float[] dvel = ag.dvel;
 
             if (ag.targetState == MoveRequestState.DT_CROWDAGENT_TARGET_VELOCITY) {
                 vCopy(dvel, ag.targetPos);
@@ -999,16 +1022,16 @@ public class Crowd {
             } else {
                 // Calculate steering direction.
                 if ((ag.params.updateFlags & CrowdAgentParams.DT_CROWD_ANTICIPATE_TURNS) != 0) {
-                    dvel = ag.calcSmoothSteerDirection();
+                    ag.calcSmoothSteerDirection(dvel);
                 } else {
-                    dvel = ag.calcStraightSteerDirection();
+                    ag.calcStraightSteerDirection(dvel);
                 }
                 // Calculate speed scale, which tells the agent to slowdown at the end of the path.
                 float slowDownRadius = ag.params.radius * 2; // TODO: make less hacky.
                 float speedScale = ag.getDistanceToGoal(slowDownRadius) / slowDownRadius;
 
                 ag.desiredSpeed = ag.params.maxSpeed;
-                dvel = vScale(dvel, ag.desiredSpeed * speedScale);
+                vScale(dvel, dvel, ag.desiredSpeed * speedScale);
             }
 
             // Separation
@@ -1018,12 +1041,14 @@ public class Crowd {
                 float separationWeight = ag.params.separationWeight;
 
                 float w = 0;
-                float[] disp = new float[3];
+                float[] disp = m_disp;
+                vSet(disp, 0, 0, 0);
 
                 for (int j = 0; j < ag.neis.size(); ++j) {
                     CrowdAgent nei = agents.get(ag.neis.get(j).idx);
 
-                    float[] diff = vSub(ag.npos, nei.npos);
+                    float[] diff = m_diff;
+                    vSub(diff, ag.npos, nei.npos);
                     diff[1] = 0;
 
                     float distSqr = vLenSqr(diff);
@@ -1036,24 +1061,21 @@ public class Crowd {
                     float dist = (float) Math.sqrt(distSqr);
                     float weight = separationWeight * (1.0f - sqr(dist * invSeparationDist));
 
-                    disp = vMad(disp, diff, weight / dist);
+                    vMad(disp, disp, diff, weight / dist);
                     w += 1.0f;
                 }
 
                 if (w > 0.0001f) {
                     // Adjust desired velocity.
-                    dvel = vMad(dvel, disp, 1.0f / w);
+                    vMad(dvel, dvel, disp, 1.0f / w);
                     // Clamp desired velocity to desired speed.
                     float speedSqr = vLenSqr(dvel);
                     float desiredSqr = sqr(ag.desiredSpeed);
                     if (speedSqr > desiredSqr) {
-                        dvel = vScale(dvel, desiredSqr / speedSqr);
+                        vScale(dvel, dvel, desiredSqr / speedSqr);
                     }
                 }
             }
-
-            // Set the desired velocity.
-            vCopy(ag.dvel, dvel);
         }
 
         // Velocity planning.
@@ -1138,7 +1160,8 @@ public class Crowd {
                 for (int j = 0; j < ag.neis.size(); ++j) {
                     CrowdAgent nei = agents.get(ag.neis.get(j).idx);
                     int idx1 = nei.getAgentIndex();
-                    float[] diff = vSub(ag.npos, nei.npos);
+                    float[] diff = m_diff;
+                    vSub(diff, ag.npos, nei.npos);
                     diff[1] = 0;
 
                     float dist = vLenSqr(diff);
@@ -1159,14 +1182,14 @@ public class Crowd {
                         pen = (1.0f / dist) * (pen * 0.5f) * COLLISION_RESOLVE_FACTOR;
                     }
 
-                    ag.disp = vMad(ag.disp, diff, pen);
+                    vMad(ag.disp, ag.disp, diff, pen);
 
                     w += 1.0f;
                 }
 
                 if (w > 0.0001f) {
                     float iw = 1.0f / w;
-                    ag.disp = vScale(ag.disp, iw);
+                    vScale(ag.disp, ag.disp, iw);
                 }
             }
 
@@ -1176,7 +1199,7 @@ public class Crowd {
                     continue;
                 }
 
-                ag.npos = vAdd(ag.npos, ag.disp);
+                vAdd(ag.npos, ag.npos, ag.disp);
             }
         }
 
@@ -1222,16 +1245,17 @@ public class Crowd {
             float tb = anim.tmax;
             if (anim.t < ta) {
                 float u = tween(anim.t, 0.0f, ta);
-                ag.npos = vLerp(anim.initPos, anim.startPos, u);
+                vLerp(ag.npos, anim.initPos, anim.startPos, u);
             } else {
                 float u = tween(anim.t, ta, tb);
-                ag.npos = vLerp(anim.startPos, anim.endPos, u);
+                vLerp(ag.npos, anim.startPos, anim.endPos, u);
             }
 
             // Update velocity.
             vSet(ag.vel, 0, 0, 0);
             vSet(ag.dvel, 0, 0, 0);
         }
+        return pathNanos;
     }
 
     public float[] getQueryExtents() {
@@ -1250,4 +1274,12 @@ public class Crowd {
         return m_pathq;
     }
 
+    /**
+     * Sets the instrumentation of the queries made by the crowd and its path queue, or null to disable it.
+     */
+    public void setQueryInstrumentation(QueryInstrumentation instrumentation) {
+        m_navquery.setInstrumentation(instrumentation);
+        m_pathq.setQueryInstrumentation(instrumentation);
+    }
+
 }
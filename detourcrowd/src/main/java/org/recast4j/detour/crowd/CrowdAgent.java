@@ -95,6 +95,7 @@ public class CrowdAgent {
                                  /// frame. [(x, y, z)]
     public float[] vel = new float[3]; /// < The actual velocity of the agent. The change from nvel -> vel is
                                        /// constrained by max acceleration. [(x, y, z)]
+    private final float[] tmp = new float[3]; /// < Scratch vector used by integration and steering. [(x, y, z)]
 
     /// The agent's configuration parameters.
     public CrowdAgentParams params;
@@ -121,15 +122,16 @@ public class CrowdAgent {
     void integrate(float dt) {
         // Fake dynamic constraint.
         float maxDelta = params.maxAcceleration * dt;
-        float[] dv = vSub(nvel, vel);
+        float[] dv = tmp;
+        vSub(dv, nvel, vel);
         float ds = vLen(dv);
         if (ds > maxDelta)
-            dv = vScale(dv, maxDelta / ds);
-        vel = vAdd(vel, dv);
+            vScale(dv, dv, maxDelta / ds);
+        vAdd(vel, vel, dv);
 
         // Integrate
         if (vLen(vel) > 0.0001f)
-            npos = vMad(npos, vel, dt);
+            vMad(npos, npos, vel, dt);
         else
             vSet(vel, 0, 0, 0);
     }
@@ -164,42 +166,58 @@ public class CrowdAgent {
 
     public float[] calcSmoothSteerDirection() {
         float[] dir = new float[3];
-        if (!corners.isEmpty()) {
+        calcSmoothSteerDirection(dir);
+        return dir;
+    }
 
-            int ip0 = 0;
-            int ip1 = Math.min(1, corners.size() - 1);
-            float[] p0 = corners.get(ip0).getPos();
-            float[] p1 = corners.get(ip1).getPos();
+    /// Same as #calcSmoothSteerDirection() but writes the direction to @p dir.
+    public void calcSmoothSteerDirection(float[] dir) {
+        if (corners.isEmpty()) {
+            vSet(dir, 0, 0, 0);
+            return;
+        }
 
-            float[] dir0 = vSub(p0, npos);
-            float[] dir1 = vSub(p1, npos);
-            dir0[1] = 0;
-            dir1[1] = 0;
+        int ip0 = 0;
+        int ip1 = Math.min(1, corners.size() - 1);
+        float[] p0 = corners.get(ip0).getPos();
+        float[] p1 = corners.get(ip1).getPos();
 
-            float len0 = vLen(dir0);
-            float len1 = vLen(dir1);
-            if (len1 > 0.001f)
-                dir1 = vScale(dir1, 1.0f / len1);
+        float[] dir0 = dir;
+        float[] dir1 = tmp;
+        vSub(dir0, p0, npos);
+        vSub(dir1, p1, npos);
+        dir0[1] = 0;
+        dir1[1] = 0;
 
-            dir[0] = dir0[0] - dir1[0] * len0 * 0.5f;
-            dir[1] = 0;
-            dir[2] = dir0[2] - dir1[2] * len0 * 0.5f;
+        float len0 = vLen(dir0);
+        float len1 = vLen(dir1);
+        if (len1 > 0.001f)
+            vScale(dir1, dir1, 1.0f / len1);
 
-            vNormalize(dir);
-        }
-        return dir;
+        dir[0] = dir0[0] - dir1[0] * len0 * 0.5f;
+        dir[1] = 0;
+        dir[2] = dir0[2] - dir1[2] * len0 * 0.5f;
+
+        vNormalize(dir);
     }
 
     public float[] calcStraightSteerDirection() {
         float[] dir = new float[3];
-        if (!corners.isEmpty()) {
-            dir = vSub(corners.get(0).getPos(), npos);
-            dir[1] = 0;
-            vNormalize(dir);
-        }
+        calcStraightSteerDirection(dir);
         return dir;
     }
 
+    /// Same as #calcStraightSteerDirection() but writes the direction to @p dir.
+    public void calcStraightSteerDirection(float[] dir) {
+        if (corners.isEmpty()) {
+            vSet(dir, 0, 0, 0);
+            return;
+        }
+        vSub(dir, corners.get(0).getPos(), npos);
+        dir[1] = 0;
+        vNormalize(dir);
+    }
+
     void setTarget(long ref, float[] pos) {
         targetRef = ref;
         vCopy(targetPos, pos);
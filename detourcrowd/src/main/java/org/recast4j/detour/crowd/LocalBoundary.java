@@ -59,15 +59,21 @@ public class LocalBoundary {
 
     protected void addSegment(float dist, float[] s) {
         // Insert neighbour based on the distance.
-        Segment seg = new Segment();
+        // A full list only accepts segments closer than its last one, which is then recycled.
+        Segment seg;
+        if (m_segs.size() >= MAX_LOCAL_SEGS) {
+            if (dist >= m_segs.get(m_segs.size() - 1).d) {
+                return;
+            }
+            seg = m_segs.remove(m_segs.size() - 1);
+        } else {
+            seg = new Segment();
+        }
         System.arraycopy(s, 0, seg.s, 0, 6);
         seg.d = dist;
         if (m_segs.isEmpty()) {
             m_segs.add(seg);
         } else if (dist >= m_segs.get(m_segs.size() - 1).d) {
-            if (m_segs.size() >= MAX_LOCAL_SEGS) {
-                return;
-            }
             m_segs.add(seg);
         } else {
             // Insert inbetween.
@@ -27,10 +27,10 @@ import static org.recast4j.detour.DetourCommon.vDist2D;
 import static org.recast4j.detour.DetourCommon.vDot2D;
 import static org.recast4j.detour.DetourCommon.vNormalize;
 import static org.recast4j.detour.DetourCommon.vPerp2D;
-import static org.recast4j.detour.DetourCommon.vScale;
 import static org.recast4j.detour.DetourCommon.vSet;
 import static org.recast4j.detour.DetourCommon.vSub;
 
+import org.recast4j.detour.GeometryKernels;
 import org.recast4j.detour.Tupple2;
 import org.recast4j.detour.crowd.debug.ObstacleAvoidanceDebugData;
 
@@ -114,6 +114,17 @@ public class ObstacleAvoidanceQuery {
     private final ObstacleSegment[] m_segments;
     private int m_nsegments;
 
+    /// Scratch vectors reused by the per-sample loops. m_orig is never written.
+    private final float[] m_orig = new float[3];
+    private final float[] m_dv = new float[3];
+    private final float[] m_v = new float[3];
+    private final float[] m_w = new float[3];
+
+    /// Circle obstacles packed for GeometryKernels#sweepCircles, with a stride of m_maxCircles.
+    private final float[] m_packedCircles;
+    /// Side bias of each circle for the current sample.
+    private final float[] m_circleSide;
+
     public ObstacleAvoidanceQuery(int maxCircles, int maxSegments) {
         m_maxCircles = maxCircles;
         m_ncircles = 0;
@@ -121,6 +132,8 @@ public class ObstacleAvoidanceQuery {
         for (int i = 0; i < m_maxCircles; i++) {
             m_circles[i] = new ObstacleCircle();
         }
+        m_packedCircles = new float[GeometryKernels.CIRCLE_FIELDS * m_maxCircles];
+        m_circleSide = new float[m_maxCircles];
         m_maxSegments = maxSegments;
         m_nsegments = 0;
         m_segments = new ObstacleSegment[m_maxSegments];
@@ -178,13 +191,12 @@ public class ObstacleAvoidanceQuery {
             float[] pa = pos;
             float[] pb = cir.p;
 
-            float[] orig = { 0f, 0f, 0f };
-            float[] dv = new float[3];
-            vCopy(cir.dp, vSub(pb, pa));
+            float[] dv = m_dv;
+            vSub(cir.dp, pb, pa);
             vNormalize(cir.dp);
-            dv = vSub(cir.dvel, dvel);
+            vSub(dv, cir.dvel, dvel);
 
-            float a = triArea2D(orig, cir.dp, dv);
+            float a = triArea2D(m_orig, cir.dp, dv);
             if (a < 0.01f) {
                 cir.np[0] = -cir.dp[2];
                 cir.np[2] = cir.dp[0];
@@ -192,6 +204,18 @@ public class ObstacleAvoidanceQuery {
                 cir.np[0] = cir.dp[2];
                 cir.np[2] = -cir.dp[0];
             }
+
+            float[] packed = m_packedCircles;
+            int stride = m_maxCircles;
+            packed[GeometryKernels.CIRCLE_PX * stride + i] = cir.p[0];
+            packed[GeometryKernels.CIRCLE_PZ * stride + i] = cir.p[2];
+            packed[GeometryKernels.CIRCLE_VX * stride + i] = cir.vel[0];
+            packed[GeometryKernels.CIRCLE_VZ * stride + i] = cir.vel[2];
+            packed[GeometryKernels.CIRCLE_DPX * stride + i] = cir.dp[0];
+            packed[GeometryKernels.CIRCLE_DPZ * stride + i] = cir.dp[2];
+            packed[GeometryKernels.CIRCLE_NPX * stride + i] = cir.np[0];
+            packed[GeometryKernels.CIRCLE_NPZ * stride + i] = cir.np[2];
+            packed[GeometryKernels.CIRCLE_RAD * stride + i] = cir.rad;
         }
 
         for (int i = 0; i < m_nsegments; ++i) {
@@ -204,39 +228,23 @@ public class ObstacleAvoidanceQuery {
         }
     }
 
-    SweepCircleCircleResult sweepCircleCircle(float[] c0, float r0, float[] v, float[] c1, float r1) {
-        final float EPS = 0.0001f;
-        float[] s = vSub(c1, c0);
-        float r = r0 + r1;
-        float c = vDot2D(s, s) - r * r;
-        float a = vDot2D(v, v);
-        if (a < EPS)
-            return new SweepCircleCircleResult(false, 0f, 0f); // not moving
-
-        // Overlap, calc time to exit.
-        float b = vDot2D(v, s);
-        float d = b * b - a * c;
-        if (d < 0.0f)
-            return new SweepCircleCircleResult(false, 0f, 0f); // no intersection.
-        a = 1.0f / a;
-        float rd = (float) Math.sqrt(d);
-        return new SweepCircleCircleResult(true, (b - rd) * a, (b + rd) * a);
-    }
-
-    Tupple2<Boolean, Float> isectRaySeg(float[] ap, float[] u, float[] bp, float[] bq) {
-        float[] v = vSub(bq, bp);
-        float[] w = vSub(ap, bp);
+    /// Returns the hit time of the ray along the segment, or -1 if the ray does not hit the segment.
+    float isectRaySeg(float[] ap, float[] u, float[] bp, float[] bq) {
+        float[] v = m_v;
+        float[] w = m_w;
+        vSub(v, bq, bp);
+        vSub(w, ap, bp);
         float d = vPerp2D(u, v);
         if (Math.abs(d) < 1e-6f)
-            return new Tupple2<>(false, 0f);
+            return -1;
         d = 1.0f / d;
         float t = vPerp2D(v, w) * d;
         if (t < 0 || t > 1)
-            return new Tupple2<>(false, 0f);
+            return -1;
         float s = vPerp2D(u, w) * d;
         if (s < 0 || s > 1)
-            return new Tupple2<>(false, 0f);
-        return new Tupple2<>(true, t);
+            return -1;
+        return t;
     }
 
     /**
@@ -263,41 +271,17 @@ public class ObstacleAvoidanceQuery {
             return minPenalty; // already too much
 
         // Find min time of impact and exit amongst all obstacles.
-        float tmin = m_params.horizTime;
+        // RVO, the relative velocity against a circle is 2 * vcand - vel - circle vel.
+        float vx = vcand[0] * 2 - vel[0];
+        float vz = vcand[2] * 2 - vel[2];
+        float tmin = GeometryKernels.get().sweepCircles(m_packedCircles, m_maxCircles, m_ncircles, pos, rad, vx, vz,
+                m_params.horizTime, tThresold, m_circleSide);
+        if (tmin < tThresold)
+            return minPenalty;
         float side = 0;
-        int nside = 0;
-
+        int nside = m_ncircles;
         for (int i = 0; i < m_ncircles; ++i) {
-            ObstacleCircle cir = m_circles[i];
-
-            // RVO
-            float[] vab = vScale(vcand, 2);
-            vab = vSub(vab, vel);
-            vab = vSub(vab, cir.vel);
-
-            // Side
-            side += clamp(Math.min(vDot2D(cir.dp, vab) * 0.5f + 0.5f, vDot2D(cir.np, vab) * 2), 0.0f, 1.0f);
-            nside++;
-
-            SweepCircleCircleResult sres = sweepCircleCircle(pos, rad, vab, cir.p, cir.rad);
-            if (!sres.intersection)
-                continue;
-            float htmin = sres.htmin, htmax = sres.htmax;
-
-            // Handle overlapping obstacles.
-            if (htmin < 0.0f && htmax > 0.0f) {
-                // Avoid more when overlapped.
-                htmin = -htmin * 0.5f;
-            }
-
-            if (htmin >= 0.0f) {
-                // The closest obstacle is somewhere ahead of us, keep track of nearest obstacle.
-                if (htmin < tmin) {
-                    tmin = htmin;
-                    if (tmin < tThresold)
-                        return minPenalty;
-                }
-            }
+            side += m_circleSide[i];
         }
 
         for (int i = 0; i < m_nsegments; ++i) {
@@ -306,20 +290,19 @@ public class ObstacleAvoidanceQuery {
 
             if (seg.touch) {
                 // Special case when the agent is very close to the segment.
-                float[] sdir = vSub(seg.q, seg.p);
-                float[] snorm = new float[3];
-                snorm[0] = -sdir[2];
-                snorm[2] = sdir[0];
+                float[] sdir = m_v;
+                float[] snorm = m_w;
+                vSub(sdir, seg.q, seg.p);
+                vSet(snorm, -sdir[2], 0, sdir[0]);
                 // If the velocity is pointing towards the segment, no collision.
                 if (vDot2D(snorm, vcand) < 0.0f)
                     continue;
                 // Else immediate collision.
                 htmin = 0.0f;
             } else {
-                Tupple2<Boolean, Float> ires = isectRaySeg(pos, vcand, seg.p, seg.q);
-                if (!ires.first)
+                htmin = isectRaySeg(pos, vcand, seg.p, seg.q);
+                if (htmin < 0)
                     continue;
-                htmin = ires.second;
             }
 
             // Avoid less when facing walls.
@@ -370,9 +353,9 @@ public class ObstacleAvoidanceQuery {
         float minPenalty = Float.MAX_VALUE;
         int ns = 0;
 
+        float[] vcand = new float[3];
         for (int y = 0; y < m_params.gridSize; ++y) {
             for (int x = 0; x < m_params.gridSize; ++x) {
-                float[] vcand = new float[3];
                 vSet(vcand, cvx + x * cs - half, 0f, cvz + y * cs - half);
 
                 if (sqr(vcand[0]) + sqr(vcand[2]) > sqr(vmax + cs / 2))
@@ -488,13 +471,13 @@ public class ObstacleAvoidanceQuery {
         float[] res = new float[3];
         vSet(res, dvel[0] * m_params.velBias, 0, dvel[2] * m_params.velBias);
         int ns = 0;
+        float[] bvel = new float[3];
+        float[] vcand = new float[3];
         for (int k = 0; k < depth; ++k) {
             float minPenalty = Float.MAX_VALUE;
-            float[] bvel = new float[3];
             vSet(bvel, 0, 0, 0);
 
             for (int i = 0; i < npat; ++i) {
-                float[] vcand = new float[3];
                 vSet(vcand, res[0] + pat[i * 2 + 0] * cr, 0f, res[2] + pat[i * 2 + 1] * cr);
                 if (sqr(vcand[0]) + sqr(vcand[2]) > sqr(vmax + 0.001f))
                     continue;
@@ -32,6 +32,7 @@ import java.util.List;
 import org.recast4j.detour.MoveAlongSurfaceResult;
 import org.recast4j.detour.NavMesh;
 import org.recast4j.detour.NavMeshQuery;
+import org.recast4j.detour.PolyChangeJournal;
 import org.recast4j.detour.QueryFilter;
 import org.recast4j.detour.RaycastHit;
 import org.recast4j.detour.Result;
@@ -281,8 +282,9 @@ public class PathCorridor {
         dist = Math.min(dist + 0.01f, pathOptimizationRange);
 
         // Adjust ray length.
-        float[] delta = vSub(next, m_pos);
-        float[] goal = vMad(m_pos, delta, pathOptimizationRange / dist);
+        float[] goal = new float[3];
+        vSub(goal, next, m_pos);
+        vMad(goal, m_pos, goal, pathOptimizationRange / dist);
 
         Result<RaycastHit> rc = navquery.raycast(m_path.get(0), m_pos, goal, filter, 0, 0);
         if (rc.succeeded()) {
@@ -512,6 +514,39 @@ public class PathCorridor {
         return true;
     }
 
+    /**
+     * Checks whether the polygon changes recorded in the journal after the given version touched the tiles of the
+     * first maxLookAhead polygons of the corridor. This is much cheaper than {@link #isValid} and can be used to skip
+     * it while nothing relevant changed. Returns true if the journal no longer reaches back to the version.
+     *
+     * @param maxLookAhead
+     *            The number of polygons from the beginning of the corridor to check.
+     * @param journal
+     *            The change journal of the navigation mesh. (See NavMesh::getChangeJournal())
+     * @param sinceVersion
+     *            The journal version the corridor was last validated against.
+     * @return True if a checked polygon may have changed.
+     */
+    public boolean isAffectedByChanges(int maxLookAhead, PolyChangeJournal journal, long sinceVersion) {
+        if (!journal.hasChangedSince(sinceVersion)) {
+            return false;
+        }
+        int[] tiles = journal.getChangedTiles(sinceVersion);
+        if (tiles == null) {
+            return true;
+        }
+        int n = Math.min(m_path.size(), maxLookAhead);
+        for (int i = 0; i < n; ++i) {
+            int tile = NavMesh.decodePolyIdTile(m_path.get(i));
+            for (int t : tiles) {
+                if (t == tile) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
     /**
      * Gets the current position within the corridor. (In the first polygon.)
      *
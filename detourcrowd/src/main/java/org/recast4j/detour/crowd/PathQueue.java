@@ -26,6 +26,7 @@ import java.util.List;
 import org.recast4j.detour.NavMesh;
 import org.recast4j.detour.NavMeshQuery;
 import org.recast4j.detour.QueryFilter;
+import org.recast4j.detour.QueryInstrumentation;
 import org.recast4j.detour.Result;
 import org.recast4j.detour.Status;
 
@@ -51,8 +52,17 @@ public class PathQueue {
     }
 
     protected void update(int maxIters) {
-        // Update path request until there is nothing to update
-        // or upto maxIters pathfinder iterations has been consumed.
+        update(maxIters, Long.MAX_VALUE);
+    }
+
+    /**
+     * Updates the path requests until there is nothing to update, maxIters path-finder iterations have been consumed
+     * or the time budget is used up.
+     *
+     * @return The time spent in nanoseconds.
+     */
+    protected long update(int maxIters, long maxNanos) {
+        long start = System.nanoTime();
         int iterCount = maxIters;
 
         for (int i = 0; i < MAX_QUEUE; ++i) {
@@ -84,7 +94,8 @@ public class PathQueue {
             // Handle query in progress.
             if (q.status.isInProgress()) {
                 int iters = 0;
-                Result<Integer> res = m_navquery.updateSlicedFindPath(iterCount);
+                Result<Integer> res = maxNanos == Long.MAX_VALUE ? m_navquery.updateSlicedFindPath(iterCount)
+                        : m_navquery.updateSlicedFindPath(iterCount, maxNanos - (System.nanoTime() - start));
                 iters = res.result;
                 q.status = res.status;
                 iterCount -= iters;
@@ -95,12 +106,12 @@ public class PathQueue {
                 q.path = path.result;
             }
 
-            if (iterCount <= 0)
+            if (iterCount <= 0 || System.nanoTime() - start >= maxNanos)
                 break;
 
             m_queueHead++;
         }
-
+        return System.nanoTime() - start;
     }
 
     protected long request(long startRef, long endRef, float[] startPos, float[] endPos, QueryFilter filter) {
@@ -158,4 +169,9 @@ public class PathQueue {
     public NavMeshQuery getNavQuery() {
         return m_navquery;
     }
+
+    /// Sets the instrumentation of the sliced path queries, or null to disable it.
+    public void setQueryInstrumentation(QueryInstrumentation instrumentation) {
+        m_navquery.setInstrumentation(instrumentation);
+    }
 }
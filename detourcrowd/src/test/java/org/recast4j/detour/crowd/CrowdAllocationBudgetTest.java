@@ -0,0 +1,48 @@
+/*
+recast4j copyright (c) 2015-2019 Piotr Piastucki piotr@jtilia.org
+
+This software is provided 'as-is', without any express or implied
+warranty.  In no event will the authors be held liable for any damages
+arising from the use of this software.
+Permission is granted to anyone to use this software for any purpose,
+including commercial applications, and to alter it and redistribute it
+freely, subject to the following restrictions:
+1. The origin of this software must not be misrepresented; you must not
+ claim that you wrote the original software. If you use this software
+ in a product, an acknowledgment in the product documentation would be
+ appreciated but is not required.
+2. Altered source versions must be plainly marked as such, and must not be
+ misrepresented as being the original software.
+3. This notice may not be removed or altered from any source distribution.
+*/
+package org.recast4j.detour.crowd;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import org.junit.Test;
+import org.recast4j.detour.AllocationMeter;
+
+/**
+ * Fails when a crowd update allocates more per agent than its budget. The budget is the mean measured on the dungeon
+ * mesh on a 64-bit HotSpot JVM with compressed oops, plus some headroom.
+ */
+public class CrowdAllocationBudgetTest extends AbstractCrowdTest {
+
+    static final long UPDATE_PER_AGENT_BUDGET = 5_500;
+
+    @Test
+    public void testUpdate() {
+        assumeTrue(AllocationMeter.isSupported());
+        int updateFlags = CrowdAgentParams.DT_CROWD_ANTICIPATE_TURNS | CrowdAgentParams.DT_CROWD_OPTIMIZE_VIS
+                | CrowdAgentParams.DT_CROWD_OPTIMIZE_TOPO | CrowdAgentParams.DT_CROWD_OBSTACLE_AVOIDANCE
+                | CrowdAgentParams.DT_CROWD_SEPARATION;
+        addAgentGrid(3, 0.4f, updateFlags, 3, startPoss[0]);
+        setMoveTarget(endPoss[0], false);
+        int agents = crowd.getAgentCount();
+        // The warm-up also plans the paths, so the measurement covers the agents walking along them.
+        long bytes = AllocationMeter.bytesPerOp(20, 60, () -> crowd.update(1 / 20f, null)) / agents;
+        assertTrue("Crowd.update allocated " + bytes + " bytes per agent, budget is " + UPDATE_PER_AGENT_BUDGET,
+                bytes <= UPDATE_PER_AGENT_BUDGET);
+    }
+}
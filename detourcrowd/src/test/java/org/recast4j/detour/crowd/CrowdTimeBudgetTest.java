@@ -0,0 +1,72 @@
+/*
+recast4j copyright (c) 2015-2019 Piotr Piastucki piotr@jtilia.org
+
+This software is provided 'as-is', without any express or implied
+warranty.  In no event will the authors be held liable for any damages
+arising from the use of this software.
+Permission is granted to anyone to use this software for any purpose,
+including commercial applications, and to alter it and redistribute it
+freely, subject to the following restrictions:
+1. The origin of this software must not be misrepresented; you must not
+ claim that you wrote the original software. If you use this software
+ in a product, an acknowledgment in the product documentation would be
+ appreciated but is not required.
+2. Altered source versions must be plainly marked as such, and must not be
+ misrepresented as being the original software.
+3. This notice may not be removed or altered from any source distribution.
+*/
+package org.recast4j.detour.crowd;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Test;
+import org.recast4j.detour.QueryFilter;
+import org.recast4j.detour.crowd.CrowdAgent.MoveRequestState;
+
+public class CrowdTimeBudgetTest extends AbstractCrowdTest {
+
+    @Test
+    public void testPathBudget() {
+        int updateFlags = CrowdAgentParams.DT_CROWD_ANTICIPATE_TURNS | CrowdAgentParams.DT_CROWD_OPTIMIZE_VIS
+                | CrowdAgentParams.DT_CROWD_OPTIMIZE_TOPO | CrowdAgentParams.DT_CROWD_OBSTACLE_AVOIDANCE;
+        addAgentGrid(2, 0.4f, updateFlags, 0, startPoss[0]);
+        setMoveTarget(endPoss[0], false);
+        // With no time budget every update still makes progress, one batch of iterations at a time.
+        int updates = 0;
+        while (!allPathsValid() && updates < 1000) {
+            long nanos = crowd.update(1 / 20f, null, 0);
+            assertTrue(nanos >= 0);
+            updates++;
+        }
+        assertTrue(allPathsValid());
+    }
+
+    @Test
+    public void testPathQueueBudget() {
+        QueryFilter filter = crowd.getFilter(0);
+        List<Long> expected = query.findPath(startRefs[2], endRefs[2], startPoss[2], endPoss[2], filter).result;
+        PathQueue pathq = crowd.getPathQueue();
+        long ref = pathq.request(startRefs[2], endRefs[2], startPoss[2], endPoss[2], filter);
+        int updates = 0;
+        do {
+            pathq.update(Integer.MAX_VALUE, 0);
+            updates++;
+        } while (!pathq.getRequestStatus(ref).isSuccess());
+        // The search takes several batches of iterations.
+        assertTrue(updates > 1);
+        assertEquals(expected, pathq.getPathResult(ref).result);
+    }
+
+    private boolean allPathsValid() {
+        for (int i = 0; i < crowd.getAgentCount(); i++) {
+            CrowdAgent ag = crowd.getAgent(i);
+            if (ag.isActive() && ag.targetState != MoveRequestState.DT_CROWDAGENT_TARGET_VALID) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,70 @@
+/*
+recast4j copyright (c) 2015-2019 Piotr Piastucki piotr@jtilia.org
+
+This software is provided 'as-is', without any express or implied
+warranty.  In no event will the authors be held liable for any damages
+arising from the use of this software.
+Permission is granted to anyone to use this software for any purpose,
+including commercial applications, and to alter it and redistribute it
+freely, subject to the following restrictions:
+1. The origin of this software must not be misrepresented; you must not
+ claim that you wrote the original software. If you use this software
+ in a product, an acknowledgment in the product documentation would be
+ appreciated but is not required.
+2. Altered source versions must be plainly marked as such, and must not be
+ misrepresented as being the original software.
+3. This notice may not be removed or altered from any source distribution.
+*/
+package org.recast4j.detour.crowd;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import org.junit.Test;
+import org.recast4j.detour.AllocationMeter;
+import org.recast4j.detour.Tupple2;
+import org.recast4j.detour.crowd.ObstacleAvoidanceQuery.ObstacleAvoidanceParams;
+
+public class ObstacleAvoidanceQueryTest {
+
+    private final float[] pos = { 0f, 0f, 0f };
+    private final float[] vel = { 0.5f, 0f, 0f };
+    private final float[] dvel = { 1f, 0f, 0f };
+
+    private ObstacleAvoidanceQuery createQuery() {
+        ObstacleAvoidanceQuery query = new ObstacleAvoidanceQuery(6, 8);
+        query.addSegment(new float[] { 1f, 0f, -1f }, new float[] { 1f, 0f, 1f });
+        query.addSegment(new float[] { -1f, 0f, 0.3f }, new float[] { 1f, 0f, 0.3f });
+        query.addSegment(new float[] { 0.2f, 0f, -0.005f }, new float[] { 0.2f, 0f, 0.005f });
+        return query;
+    }
+
+    @Test
+    public void testIsectRaySeg() {
+        ObstacleAvoidanceQuery query = createQuery();
+        float[] u = { 2f, 0f, 0f };
+        assertEquals(0.5f, query.isectRaySeg(pos, u, new float[] { 1f, 0f, -1f }, new float[] { 1f, 0f, 1f }), 1e-6f);
+        assertEquals(-1f, query.isectRaySeg(pos, u, new float[] { 3f, 0f, -1f }, new float[] { 3f, 0f, 1f }), 0f);
+        assertEquals(-1f, query.isectRaySeg(pos, u, new float[] { 0f, 0f, 1f }, new float[] { 1f, 0f, 1f }), 0f);
+    }
+
+    @Test
+    public void testSampleVelocityGridDoesNotAllocatePerSample() {
+        assumeTrue(AllocationMeter.isSupported());
+        ObstacleAvoidanceQuery query = createQuery();
+        ObstacleAvoidanceParams params = new ObstacleAvoidanceParams();
+        int calls = 20;
+        query.sampleVelocityGrid(pos, 0.6f, 2f, vel, dvel, params, null);
+        long before = AllocationMeter.allocatedBytes();
+        int samples = 0;
+        for (int i = 0; i < calls; i++) {
+            Tupple2<Integer, float[]> res = query.sampleVelocityGrid(pos, 0.6f, 2f, vel, dvel, params, null);
+            samples += res.first;
+        }
+        long allocated = AllocationMeter.allocatedBytes() - before;
+        assertTrue(samples > calls * 500);
+        // Only the per-call result objects are allocated, not one vector per sample.
+        assertTrue("allocated " + allocated + " bytes", allocated / calls < 1024);
+    }
+}
@@ -0,0 +1,81 @@
+/*
+recast4j copyright (c) 2015-2019 Piotr Piastucki piotr@jtilia.org
+
+This software is provided 'as-is', without any express or implied
+warranty.  In no event will the authors be held liable for any damages
+arising from the use of this software.
+Permission is granted to anyone to use this software for any purpose,
+including commercial applications, and to alter it and redistribute it
+freely, subject to the following restrictions:
+1. The origin of this software must not be misrepresented; you must not
+ claim that you wrote the original software. If you use this software
+ in a product, an acknowledgment in the product documentation would be
+ appreciated but is not required.
+2. Altered source versions must be plainly marked as such, and must not be
+ misrepresented as being the original software.
+3. This notice may not be removed or altered from any source distribution.
+*/
+package org.recast4j.detour.tilecache;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.util.List;
+
+import org.junit.Test;
+import org.recast4j.detour.AllocationMeter;
+import org.recast4j.recast.ObjImporter;
+import org.recast4j.recast.RecastBuilder;
+import org.recast4j.recast.geom.InputGeomProvider;
+
+/**
+ * Fails when rebuilding a tile in {@link TileCache#update()} allocates more than its budget. The budget is the mean
+ * measured on the dungeon mesh on a 64-bit HotSpot JVM with compressed oops, plus some headroom.
+ */
+public class TileCacheAllocationBudgetTest extends AbstractTileCacheTest {
+
+    static final long UPDATE_PER_TILE_BUDGET = 140_000;
+
+    private final float[] pos = { -1.815208f, 9.998184f, -20.307983f };
+
+    @Test
+    public void testUpdate() throws IOException {
+        assumeTrue(AllocationMeter.isSupported());
+        boolean cCompatibility = true;
+        InputGeomProvider geom = new ObjImporter().load(RecastBuilder.class.getResourceAsStream("dungeon.obj"));
+        TestTileLayerBuilder layerBuilder = new TestTileLayerBuilder(geom);
+        List<byte[]> layers = layerBuilder.build(ByteOrder.LITTLE_ENDIAN, cCompatibility, 1);
+        TileCache tc = getTileCache(geom, ByteOrder.LITTLE_ENDIAN, cCompatibility);
+        for (byte[] data : layers) {
+            long ref = tc.addTile(data, 0);
+            tc.buildNavMeshTile(ref);
+        }
+        for (int i = 0; i < 5; i++) {
+            addAndRemoveObstacle(tc);
+        }
+        long before = AllocationMeter.allocatedBytes();
+        int rebuilt = 0;
+        for (int i = 0; i < 20; i++) {
+            rebuilt += addAndRemoveObstacle(tc);
+        }
+        long bytes = (AllocationMeter.allocatedBytes() - before) / rebuilt;
+        assertTrue("TileCache.update allocated " + bytes + " bytes per rebuilt tile, budget is "
+                + UPDATE_PER_TILE_BUDGET, bytes <= UPDATE_PER_TILE_BUDGET);
+    }
+
+    /// Returns the number of rebuilt tiles; each update call rebuilds at most one tile.
+    private int addAndRemoveObstacle(TileCache tc) {
+        int rebuilt = 0;
+        long ref = tc.addObstacle(pos, 1f, 2f);
+        do {
+            rebuilt++;
+        } while (!tc.update());
+        tc.removeObstacle(ref);
+        do {
+            rebuilt++;
+        } while (!tc.update());
+        return rebuilt;
+    }
+}
@@ -63,13 +63,13 @@ public class TileCacheReaderTest {
         assertEquals(0, header.detailVertCount);
         assertEquals(2, header.detailTriCount);
         assertEquals(1, data.polys.length);
-        assertEquals(3 * 4, data.verts.length);
+        assertEquals(3 * 4, data.getVerts().length);
         assertEquals(1, data.detailMeshes.length);
-        assertEquals(0, data.detailVerts.length);
+        assertEquals(0, data.getDetailVerts().length);
         assertEquals(4 * 2, data.detailTris.length);
-        assertEquals(-2.269517f, data.verts[1], 0.0001f);
-        assertEquals(28.710686f, data.verts[6], 0.0001f);
-        assertEquals(28.710686f, data.verts[9], 0.0001f);
+        assertEquals(-2.269517f, data.getVert(0, 1), 0.0001f);
+        assertEquals(28.710686f, data.getVert(2, 0), 0.0001f);
+        assertEquals(28.710686f, data.getVert(3, 0), 0.0001f);
         // Tile8: Tris: 7, Verts: 10 Detail Meshed: 7 Detail Verts: 0 Detail Tris: 10
         // Verts: 0.330483, 43.110687, 43.110687
         tile = tc.getNavMesh().getTile(8);
@@ -85,13 +85,13 @@ public class TileCacheReaderTest {
         assertEquals(0, header.detailVertCount);
         assertEquals(10, header.detailTriCount);
         assertEquals(7, data.polys.length);
-        assertEquals(3 * 10, data.verts.length);
+        assertEquals(3 * 10, data.getVerts().length);
         assertEquals(7, data.detailMeshes.length);
-        assertEquals(0, data.detailVerts.length);
+        assertEquals(0, data.getDetailVerts().length);
         assertEquals(4 * 10, data.detailTris.length);
-        assertEquals(0.330483f, data.verts[1], 0.0001f);
-        assertEquals(43.110687f, data.verts[6], 0.0001f);
-        assertEquals(43.110687f, data.verts[9], 0.0001f);
+        assertEquals(0.330483f, data.getVert(0, 1), 0.0001f);
+        assertEquals(43.110687f, data.getVert(2, 0), 0.0001f);
+        assertEquals(43.110687f, data.getVert(3, 0), 0.0001f);
         // Tile16: Tris: 13, Verts: 33 Detail Meshed: 13 Detail Verts: 0 Detail Tris: 25
         // Verts: 1.130483, 5.610685, 6.510685
         tile = tc.getNavMesh().getTile(16);
@@ -103,13 +103,13 @@ public class TileCacheReaderTest {
         assertEquals(0, header.detailVertCount);
         assertEquals(25, header.detailTriCount);
         assertEquals(13, data.polys.length);
-        assertEquals(3 * 33, data.verts.length);
+        assertEquals(3 * 33, data.getVerts().length);
         assertEquals(13, data.detailMeshes.length);
-        assertEquals(0, data.detailVerts.length);
+        assertEquals(0, data.getDetailVerts().length);
         assertEquals(4 * 25, data.detailTris.length);
-        assertEquals(1.130483f, data.verts[1], 0.0001f);
-        assertEquals(5.610685f, data.verts[6], 0.0001f);
-        assertEquals(6.510685f, data.verts[9], 0.0001f);
+        assertEquals(1.130483f, data.getVert(0, 1), 0.0001f);
+        assertEquals(5.610685f, data.getVert(2, 0), 0.0001f);
+        assertEquals(6.510685f, data.getVert(3, 0), 0.0001f);
         // Tile29: Tris: 5, Verts: 15 Detail Meshed: 5 Detail Verts: 0 Detail Tris: 11
         // Verts: 10.330483, 10.110685, 10.110685
         tile = tc.getNavMesh().getTile(29);
@@ -121,13 +121,13 @@ public class TileCacheReaderTest {
         assertEquals(0, header.detailVertCount);
         assertEquals(11, header.detailTriCount);
         assertEquals(5, data.polys.length);
-        assertEquals(3 * 15, data.verts.length);
+        assertEquals(3 * 15, data.getVerts().length);
         assertEquals(5, data.detailMeshes.length);
-        assertEquals(0, data.detailVerts.length);
+        assertEquals(0, data.getDetailVerts().length);
         assertEquals(4 * 11, data.detailTris.length);
-        assertEquals(10.330483f, data.verts[1], 0.0001f);
-        assertEquals(10.110685f, data.verts[6], 0.0001f);
-        assertEquals(10.110685f, data.verts[9], 0.0001f);
+        assertEquals(10.330483f, data.getVert(0, 1), 0.0001f);
+        assertEquals(10.110685f, data.getVert(2, 0), 0.0001f);
+        assertEquals(10.110685f, data.getVert(3, 0), 0.0001f);
     }
 
     @Test
@@ -159,13 +159,13 @@ public class TileCacheReaderTest {
         assertEquals(0, header.detailVertCount);
         assertEquals(14, header.detailTriCount);
         assertEquals(8, data.polys.length);
-        assertEquals(3 * 18, data.verts.length);
+        assertEquals(3 * 18, data.getVerts().length);
         assertEquals(8, data.detailMeshes.length);
-        assertEquals(0, data.detailVerts.length);
+        assertEquals(0, data.getDetailVerts().length);
         assertEquals(4 * 14, data.detailTris.length);
-        assertEquals(14.997294f, data.verts[1], 0.0001f);
-        assertEquals(15.484785f, data.verts[6], 0.0001f);
-        assertEquals(15.484785f, data.verts[9], 0.0001f);
+        assertEquals(14.997294f, data.getVert(0, 1), 0.0001f);
+        assertEquals(15.484785f, data.getVert(2, 0), 0.0001f);
+        assertEquals(15.484785f, data.getVert(3, 0), 0.0001f);
         // Tile8: Tris: 3, Verts: 8 Detail Meshed: 3 Detail Verts: 0 Detail Tris: 6
         // Verts: 13.597294, 17.584785, 17.584785
         tile = tc.getNavMesh().getTile(8);
@@ -177,13 +177,13 @@ public class TileCacheReaderTest {
         assertEquals(0, header.detailVertCount);
         assertEquals(6, header.detailTriCount);
         assertEquals(3, data.polys.length);
-        assertEquals(3 * 8, data.verts.length);
+        assertEquals(3 * 8, data.getVerts().length);
         assertEquals(3, data.detailMeshes.length);
-        assertEquals(0, data.detailVerts.length);
+        assertEquals(0, data.getDetailVerts().length);
         assertEquals(4 * 6, data.detailTris.length);
-        assertEquals(13.597294f, data.verts[1], 0.0001f);
-        assertEquals(17.584785f, data.verts[6], 0.0001f);
-        assertEquals(17.584785f, data.verts[9], 0.0001f);
+        assertEquals(13.597294f, data.getVert(0, 1), 0.0001f);
+        assertEquals(17.584785f, data.getVert(2, 0), 0.0001f);
+        assertEquals(17.584785f, data.getVert(3, 0), 0.0001f);
         // Tile16: Tris: 10, Verts: 20 Detail Meshed: 10 Detail Verts: 0 Detail Tris: 18
         // Verts: 6.197294, -22.315216, -22.315216
         tile = tc.getNavMesh().getTile(16);
@@ -195,13 +195,13 @@ public class TileCacheReaderTest {
         assertEquals(0, header.detailVertCount);
         assertEquals(18, header.detailTriCount);
         assertEquals(10, data.polys.length);
-        assertEquals(3 * 20, data.verts.length);
+        assertEquals(3 * 20, data.getVerts().length);
         assertEquals(10, data.detailMeshes.length);
-        assertEquals(0, data.detailVerts.length);
+        assertEquals(0, data.getDetailVerts().length);
         assertEquals(4 * 18, data.detailTris.length);
-        assertEquals(6.197294f, data.verts[1], 0.0001f);
-        assertEquals(-22.315216f, data.verts[6], 0.0001f);
-        assertEquals(-22.315216f, data.verts[9], 0.0001f);
+        assertEquals(6.197294f, data.getVert(0, 1), 0.0001f);
+        assertEquals(-22.315216f, data.getVert(2, 0), 0.0001f);
+        assertEquals(-22.315216f, data.getVert(3, 0), 0.0001f);
         // Tile29: Tris: 1, Verts: 5 Detail Meshed: 1 Detail Verts: 0 Detail Tris: 3
         // Verts: 10.197294, 48.484783, 48.484783
         tile = tc.getNavMesh().getTile(29);
@@ -213,13 +213,13 @@ public class TileCacheReaderTest {
         assertEquals(0, header.detailVertCount);
         assertEquals(3, header.detailTriCount);
         assertEquals(1, data.polys.length);
-        assertEquals(3 * 5, data.verts.length);
+        assertEquals(3 * 5, data.getVerts().length);
         assertEquals(1, data.detailMeshes.length);
-        assertEquals(0, data.detailVerts.length);
+        assertEquals(0, data.getDetailVerts().length);
         assertEquals(4 * 3, data.detailTris.length);
-        assertEquals(10.197294f, data.verts[1], 0.0001f);
-        assertEquals(48.484783f, data.verts[6], 0.0001f);
-        assertEquals(48.484783f, data.verts[9], 0.0001f);
+        assertEquals(10.197294f, data.getVert(0, 1), 0.0001f);
+        assertEquals(48.484783f, data.getVert(2, 0), 0.0001f);
+        assertEquals(48.484783f, data.getVert(3, 0), 0.0001f);
     }
 
 }
@@ -91,9 +91,9 @@ public class TileCacheReaderWriterTest extends AbstractTileCacheTest {
         assertEquals(0, header.detailVertCount);
         assertEquals(14, header.detailTriCount);
         assertEquals(8, data.polys.length);
-        assertEquals(3 * 18, data.verts.length);
+        assertEquals(3 * 18, data.getVerts().length);
         assertEquals(8, data.detailMeshes.length);
-        assertEquals(0, data.detailVerts.length);
+        assertEquals(0, data.getDetailVerts().length);
         assertEquals(4 * 14, data.detailTris.length);
         // Tile8: Tris: 3, Verts: 8 Detail Meshed: 3 Detail Verts: 0 Detail Tris: 6
         tile = tc.getNavMesh().getTile(8);
@@ -105,9 +105,9 @@ public class TileCacheReaderWriterTest extends AbstractTileCacheTest {
         assertEquals(0, header.detailVertCount);
         assertEquals(6, header.detailTriCount);
         assertEquals(3, data.polys.length);
-        assertEquals(3 * 8, data.verts.length);
+        assertEquals(3 * 8, data.getVerts().length);
         assertEquals(3, data.detailMeshes.length);
-        assertEquals(0, data.detailVerts.length);
+        assertEquals(0, data.getDetailVerts().length);
         assertEquals(4 * 6, data.detailTris.length);
         // Tile16: Tris: 10, Verts: 20 Detail Meshed: 10 Detail Verts: 0 Detail Tris: 18
         tile = tc.getNavMesh().getTile(16);
@@ -119,9 +119,9 @@ public class TileCacheReaderWriterTest extends AbstractTileCacheTest {
         assertEquals(0, header.detailVertCount);
         assertEquals(18, header.detailTriCount);
         assertEquals(10, data.polys.length);
-        assertEquals(3 * 20, data.verts.length);
+        assertEquals(3 * 20, data.getVerts().length);
         assertEquals(10, data.detailMeshes.length);
-        assertEquals(0, data.detailVerts.length);
+        assertEquals(0, data.getDetailVerts().length);
         assertEquals(4 * 18, data.detailTris.length);
         // Tile29: Tris: 1, Verts: 5 Detail Meshed: 1 Detail Verts: 0 Detail Tris: 3
         tile = tc.getNavMesh().getTile(29);
@@ -133,9 +133,9 @@ public class TileCacheReaderWriterTest extends AbstractTileCacheTest {
         assertEquals(0, header.detailVertCount);
         assertEquals(3, header.detailTriCount);
         assertEquals(1, data.polys.length);
-        assertEquals(3 * 5, data.verts.length);
+        assertEquals(3 * 5, data.getVerts().length);
         assertEquals(1, data.detailMeshes.length);
-        assertEquals(0, data.detailVerts.length);
+        assertEquals(0, data.getDetailVerts().length);
         assertEquals(4 * 3, data.detailTris.length);
     }
 
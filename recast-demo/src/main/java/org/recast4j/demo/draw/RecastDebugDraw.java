@@ -141,18 +141,17 @@ public class RecastDebugDraw extends DebugDraw {
                 }
             }
 
+            float[] pos = new float[3];
             for (int j = 0; j < pd.triCount; ++j) {
                 int t = (pd.triBase + j) * 4;
                 for (int k = 0; k < 3; ++k) {
                     int v = tile.data.detailTris[t + k];
                     if (v < p.vertCount) {
-                        vertex(tile.data.verts[p.verts[v] * 3], tile.data.verts[p.verts[v] * 3 + 1],
-                                tile.data.verts[p.verts[v] * 3 + 2], col);
+                        tile.data.getVert(p.verts[v], pos, 0);
                     } else {
-                        vertex(tile.data.detailVerts[(pd.vertBase + v - p.vertCount) * 3],
-                                tile.data.detailVerts[(pd.vertBase + v - p.vertCount) * 3 + 1],
-                                tile.data.detailVerts[(pd.vertBase + v - p.vertCount) * 3 + 2], col);
+                        tile.data.getDetailVert(pd.vertBase + v - p.vertCount, pos, 0);
                     }
+                    vertex(pos, col);
                 }
             }
 
@@ -182,10 +181,10 @@ public class RecastDebugDraw extends DebugDraw {
                 }
 
                 OffMeshConnection con = tile.data.offMeshCons[i - tile.data.header.offMeshBase];
-                float[] va = new float[] { tile.data.verts[p.verts[0] * 3], tile.data.verts[p.verts[0] * 3 + 1],
-                        tile.data.verts[p.verts[0] * 3 + 2] };
-                float[] vb = new float[] { tile.data.verts[p.verts[1] * 3], tile.data.verts[p.verts[1] * 3 + 1],
-                        tile.data.verts[p.verts[1] * 3 + 2] };
+                float[] va = new float[3];
+                float[] vb = new float[3];
+                tile.data.getVert(p.verts[0], va, 0);
+                tile.data.getVert(p.verts[1], vb, 0);
 
                 // Check to see if start and end end-points have links.
                 boolean startSet = false;
@@ -228,8 +227,8 @@ public class RecastDebugDraw extends DebugDraw {
 
         int vcol = duRGBA(0, 0, 0, 196);
         begin(DebugDrawPrimitives.POINTS, 3.0f);
-        for (int i = 0; i < tile.data.header.vertCount; i += 3) {
-            vertex(tile.data.verts[i], tile.data.verts[i + 1], tile.data.verts[i + 2], vcol);
+        for (int i = 0; i < tile.data.header.vertCount; ++i) {
+            vertex(tile.data.getVert(i, 0), tile.data.getVert(i, 1), tile.data.getVert(i, 2), vcol);
         }
         end();
 
@@ -278,11 +277,10 @@ public class RecastDebugDraw extends DebugDraw {
                     }
                 }
 
-                float[] v0 = new float[] { tile.data.verts[p.verts[j] * 3], tile.data.verts[p.verts[j] * 3 + 1],
-                        tile.data.verts[p.verts[j] * 3 + 2] };
-                float[] v1 = new float[] { tile.data.verts[p.verts[(j + 1) % nj] * 3],
-                        tile.data.verts[p.verts[(j + 1) % nj] * 3 + 1],
-                        tile.data.verts[p.verts[(j + 1) % nj] * 3 + 2] };
+                float[] v0 = new float[3];
+                float[] v1 = new float[3];
+                tile.data.getVert(p.verts[j], v0, 0);
+                tile.data.getVert(p.verts[(j + 1) % nj], v1, 0);
 
                 // Draw detail mesh edges which align with the actual poly edge.
                 // This is really slow.
@@ -291,13 +289,11 @@ public class RecastDebugDraw extends DebugDraw {
                     float[][] tv = new float[3][];
                     for (int m = 0; m < 3; ++m) {
                         int v = tile.data.detailTris[t + m];
+                        tv[m] = new float[3];
                         if (v < p.vertCount) {
-                            tv[m] = new float[] { tile.data.verts[p.verts[v] * 3], tile.data.verts[p.verts[v] * 3 + 1],
-                                    tile.data.verts[p.verts[v] * 3 + 2] };
+                            tile.data.getVert(p.verts[v], tv[m], 0);
                         } else {
-                            tv[m] = new float[] { tile.data.detailVerts[(pd.vertBase + (v - p.vertCount)) * 3],
-                                    tile.data.detailVerts[(pd.vertBase + (v - p.vertCount)) * 3 + 1],
-                                    tile.data.detailVerts[(pd.vertBase + (v - p.vertCount)) * 3 + 2] };
+                            tile.data.getDetailVert(pd.vertBase + (v - p.vertCount), tv[m], 0);
                         }
                     }
                     for (int m = 0, n = 2; m < 3; n = m++) {
@@ -1039,21 +1035,16 @@ public class RecastDebugDraw extends DebugDraw {
             PolyDetail pd = tile.data.detailMeshes[ip];
 
             begin(DebugDrawPrimitives.TRIS);
+            float[] pos = new float[3];
             for (int i = 0; i < pd.triCount; ++i) {
                 int t = (pd.triBase + i) * 4;
                 for (int j = 0; j < 3; ++j) {
                     if (tile.data.detailTris[t + j] < poly.vertCount) {
-                        vertex(tile.data.verts[poly.verts[tile.data.detailTris[t + j]] * 3],
-                                tile.data.verts[poly.verts[tile.data.detailTris[t + j]] * 3 + 1],
-                                tile.data.verts[poly.verts[tile.data.detailTris[t + j]] * 3 + 2], c);
+                        tile.data.getVert(poly.verts[tile.data.detailTris[t + j]], pos, 0);
                     } else {
-                        vertex(tile.data.detailVerts[(pd.vertBase + tile.data.detailTris[t + j] - poly.vertCount) * 3],
-                                tile.data.detailVerts[(pd.vertBase + tile.data.detailTris[t + j] - poly.vertCount) * 3
-                                        + 1],
-                                tile.data.detailVerts[(pd.vertBase + tile.data.detailTris[t + j] - poly.vertCount) * 3
-                                        + 2],
-                                c);
+                        tile.data.getDetailVert(pd.vertBase + tile.data.detailTris[t + j] - poly.vertCount, pos, 0);
                     }
+                    vertex(pos, c);
                 }
             }
             end();
@@ -1092,11 +1083,10 @@ public class RecastDebugDraw extends DebugDraw {
                         continue;
 
                     // Create new links
-                    float[] va = new float[] { tile.data.verts[poly.verts[j] * 3],
-                            tile.data.verts[poly.verts[j] * 3 + 1], tile.data.verts[poly.verts[j] * 3 + 2] };
-                    float[] vb = new float[] { tile.data.verts[poly.verts[(j + 1) % nv] * 3],
-                            tile.data.verts[poly.verts[(j + 1) % nv] * 3 + 1],
-                            tile.data.verts[poly.verts[(j + 1) % nv] * 3 + 2] };
+                    float[] va = new float[3];
+                    float[] vb = new float[3];
+                    tile.data.getVert(poly.verts[j], va, 0);
+                    tile.data.getVert(poly.verts[(j + 1) % nv], vb, 0);
 
                     if (side == 0 || side == 4) {
                         int col = side == 0 ? duRGBA(128, 0, 0, 128) : duRGBA(128, 0, 128, 128);
@@ -805,10 +805,9 @@ public class TestNavmeshTool implements Tool {
             MeshTile tile = tileAndPoly.result.first;
             Poly poly = tileAndPoly.result.second;
             for (int i = 0; i < poly.vertCount; ++i) {
-                int v = poly.verts[i] * 3;
-                center[0] += tile.data.verts[v];
-                center[1] += tile.data.verts[v + 1];
-                center[2] += tile.data.verts[v + 2];
+                center[0] += tile.data.getVert(poly.verts[i], 0);
+                center[1] += tile.data.getVert(poly.verts[i], 1);
+                center[2] += tile.data.getVert(poly.verts[i], 2);
             }
             float s = 1.0f / poly.vertCount;
             center[0] *= s;